@@ -2,52 +2,212 @@
 create database prod;
 use prod;
 
+create table facility(
+FACILITY_ID int PRIMARY KEY,
+NAME varchar(50) NOT NULL
+);
+
 create table parking(
-PARKING_NUMBER int PRIMARY KEY,
+FACILITY_ID int NOT NULL,
+PARKING_NUMBER int NOT NULL,
+ZONE varchar(10),
+LEVEL_NUMBER int NOT NULL DEFAULT 0,
+GATE_DISTANCE int NOT NULL DEFAULT 0,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+LEASE_OWNER varchar(64),
+LEASE_EXPIRY DATETIME,
+PRIMARY KEY (FACILITY_ID, PARKING_NUMBER),
+FOREIGN KEY (FACILITY_ID)
+REFERENCES facility(FACILITY_ID)
 );
 
 create table ticket(
  ID int PRIMARY KEY AUTO_INCREMENT,
+ FACILITY_ID int NOT NULL,
  PARKING_NUMBER int NOT NULL,
  VEHICLE_REG_NUMBER varchar(10) NOT NULL,
  PRICE double,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
- FOREIGN KEY (PARKING_NUMBER)
- REFERENCES parking(PARKING_NUMBER));
-
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(4,true,'BIKE');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(5,true,'BIKE');
+ /* Set only while the ticket is open, so that the unique key allows one open ticket per vehicle */
+ OPEN_VEHICLE_REG_NUMBER varchar(10) AS (if(OUT_TIME is null, VEHICLE_REG_NUMBER, null)) STORED,
+ UNIQUE KEY UK_TICKET_OPEN_VEHICLE (OPEN_VEHICLE_REG_NUMBER),
+ FOREIGN KEY (FACILITY_ID, PARKING_NUMBER)
+ REFERENCES parking(FACILITY_ID, PARKING_NUMBER));
+
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+create index IDX_TICKET_VEHICLE_HISTORY on ticket(VEHICLE_REG_NUMBER, IN_TIME, ID);
+
+/* Closed tickets moved out of the ticket table by the archival job */
+create table ticket_archive(
+ ID int PRIMARY KEY,
+ FACILITY_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ FOREIGN KEY (FACILITY_ID, PARKING_NUMBER)
+ REFERENCES parking(FACILITY_ID, PARKING_NUMBER));
+
+create index IDX_TICKET_ARCHIVE_VEHICLE_HISTORY on ticket_archive(VEHICLE_REG_NUMBER, IN_TIME, ID);
+
+/* Number of archived tickets per vehicle, kept for the regular user discount */
+create table vehicle_visit(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ NB_ARCHIVED_TICKETS int NOT NULL);
+
+/* Hourly and daily usage rollups per parking type, maintained incrementally by the DAOs */
+create table ticket_rollup(
+ PERIOD varchar(5) NOT NULL,
+ BUCKET_START DATETIME NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ TICKET_COUNT int NOT NULL,
+ REVENUE double NOT NULL,
+ TOTAL_STAY_SECONDS bigint NOT NULL,
+ PEAK_OCCUPANCY int NOT NULL,
+ PRIMARY KEY (PERIOD, BUCKET_START, TYPE));
+
+/* Append-only ledger of ticket and spot events, numbered per facility, and the snapshots of its projection */
+create table ledger_event(
+ FACILITY_ID int NOT NULL,
+ SEQ bigint NOT NULL,
+ EVENT_TYPE varchar(15) NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ TICKET_ID int,
+ VEHICLE_REG_NUMBER varchar(10),
+ PRICE double,
+ EVENT_TIME DATETIME(3) NOT NULL,
+ PRIMARY KEY (FACILITY_ID, SEQ));
+
+create table ledger_snapshot(
+ FACILITY_ID int NOT NULL,
+ SEQ bigint NOT NULL,
+ CREATED_AT DATETIME NOT NULL,
+ STATE longblob NOT NULL,
+ PRIMARY KEY (FACILITY_ID, SEQ));
+
+/* Chunks of a bulk ticket import already committed, inserted in the same transaction as their tickets */
+create table ticket_import_checkpoint(
+ IMPORT_ID varchar(100) NOT NULL,
+ CHUNK int NOT NULL,
+ ROW_COUNT int NOT NULL,
+ IMPORTED_AT DATETIME NOT NULL,
+ PRIMARY KEY (IMPORT_ID, CHUNK));
+
+insert into facility(FACILITY_ID,NAME) values(1,'Main');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,1,'A',0,10,true,'CAR');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,2,'A',0,20,true,'CAR');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,3,'A',1,15,true,'CAR');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,4,'B',0,5,true,'BIKE');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,5,'B',1,25,true,'BIKE');
 commit;
 
 /* Setting up TEST DB */
 create database test;
 use test;
 
+create table facility(
+FACILITY_ID int PRIMARY KEY,
+NAME varchar(50) NOT NULL
+);
+
 create table parking(
-PARKING_NUMBER int PRIMARY KEY,
+FACILITY_ID int NOT NULL,
+PARKING_NUMBER int NOT NULL,
+ZONE varchar(10),
+LEVEL_NUMBER int NOT NULL DEFAULT 0,
+GATE_DISTANCE int NOT NULL DEFAULT 0,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+LEASE_OWNER varchar(64),
+LEASE_EXPIRY DATETIME,
+PRIMARY KEY (FACILITY_ID, PARKING_NUMBER),
+FOREIGN KEY (FACILITY_ID)
+REFERENCES facility(FACILITY_ID)
 );
 
 create table ticket(
  ID int PRIMARY KEY AUTO_INCREMENT,
+ FACILITY_ID int NOT NULL,
  PARKING_NUMBER int NOT NULL,
  VEHICLE_REG_NUMBER varchar(10) NOT NULL,
  PRICE double,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
- FOREIGN KEY (PARKING_NUMBER)
- REFERENCES parking(PARKING_NUMBER));
-
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(4,true,'BIKE');
-insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(5,true,'BIKE');
+ /* Set only while the ticket is open, so that the unique key allows one open ticket per vehicle */
+ OPEN_VEHICLE_REG_NUMBER varchar(10) AS (if(OUT_TIME is null, VEHICLE_REG_NUMBER, null)) STORED,
+ UNIQUE KEY UK_TICKET_OPEN_VEHICLE (OPEN_VEHICLE_REG_NUMBER),
+ FOREIGN KEY (FACILITY_ID, PARKING_NUMBER)
+ REFERENCES parking(FACILITY_ID, PARKING_NUMBER));
+
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+create index IDX_TICKET_VEHICLE_HISTORY on ticket(VEHICLE_REG_NUMBER, IN_TIME, ID);
+
+/* Closed tickets moved out of the ticket table by the archival job */
+create table ticket_archive(
+ ID int PRIMARY KEY,
+ FACILITY_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ FOREIGN KEY (FACILITY_ID, PARKING_NUMBER)
+ REFERENCES parking(FACILITY_ID, PARKING_NUMBER));
+
+create index IDX_TICKET_ARCHIVE_VEHICLE_HISTORY on ticket_archive(VEHICLE_REG_NUMBER, IN_TIME, ID);
+
+/* Number of archived tickets per vehicle, kept for the regular user discount */
+create table vehicle_visit(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ NB_ARCHIVED_TICKETS int NOT NULL);
+
+/* Hourly and daily usage rollups per parking type, maintained incrementally by the DAOs */
+create table ticket_rollup(
+ PERIOD varchar(5) NOT NULL,
+ BUCKET_START DATETIME NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ TICKET_COUNT int NOT NULL,
+ REVENUE double NOT NULL,
+ TOTAL_STAY_SECONDS bigint NOT NULL,
+ PEAK_OCCUPANCY int NOT NULL,
+ PRIMARY KEY (PERIOD, BUCKET_START, TYPE));
+
+/* Append-only ledger of ticket and spot events, numbered per facility, and the snapshots of its projection */
+create table ledger_event(
+ FACILITY_ID int NOT NULL,
+ SEQ bigint NOT NULL,
+ EVENT_TYPE varchar(15) NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ TICKET_ID int,
+ VEHICLE_REG_NUMBER varchar(10),
+ PRICE double,
+ EVENT_TIME DATETIME(3) NOT NULL,
+ PRIMARY KEY (FACILITY_ID, SEQ));
+
+create table ledger_snapshot(
+ FACILITY_ID int NOT NULL,
+ SEQ bigint NOT NULL,
+ CREATED_AT DATETIME NOT NULL,
+ STATE longblob NOT NULL,
+ PRIMARY KEY (FACILITY_ID, SEQ));
+
+/* Chunks of a bulk ticket import already committed, inserted in the same transaction as their tickets */
+create table ticket_import_checkpoint(
+ IMPORT_ID varchar(100) NOT NULL,
+ CHUNK int NOT NULL,
+ ROW_COUNT int NOT NULL,
+ IMPORTED_AT DATETIME NOT NULL,
+ PRIMARY KEY (IMPORT_ID, CHUNK));
+
+insert into facility(FACILITY_ID,NAME) values(1,'Main');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,1,'A',0,10,true,'CAR');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,2,'A',0,20,true,'CAR');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,3,'A',1,15,true,'CAR');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,4,'B',0,5,true,'BIKE');
+insert into parking(FACILITY_ID,PARKING_NUMBER,ZONE,LEVEL_NUMBER,GATE_DISTANCE,AVAILABLE,TYPE) values(1,5,'B',1,25,true,'BIKE');
 commit;
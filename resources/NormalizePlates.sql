@@ -0,0 +1,25 @@
+/* Rewrites the vehicle registration numbers stored before plates were normalized at input, to the canonical form of
+   PlateCodec: no spaces, dashes or tabs, upper case. Run once on a database created from an older Data.sql.
+   The comparisons are binary because the default collation ignores case. Two open tickets of the same vehicle under
+   differently written plates break the unique key of open tickets: close one of them first. */
+use prod;
+
+start transaction;
+
+update ticket set VEHICLE_REG_NUMBER = upper(replace(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''), '\t', ''))
+where cast(VEHICLE_REG_NUMBER as binary) <> cast(upper(replace(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''), '\t', '')) as binary);
+
+update ticket_archive set VEHICLE_REG_NUMBER = upper(replace(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''), '\t', ''))
+where cast(VEHICLE_REG_NUMBER as binary) <> cast(upper(replace(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''), '\t', '')) as binary);
+
+/* Plates written differently for the same vehicle are merged, adding up their archived visits */
+create temporary table vehicle_visit_normalized as
+select upper(replace(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''), '\t', '')) as VEHICLE_REG_NUMBER, sum(NB_ARCHIVED_TICKETS) as NB_ARCHIVED_TICKETS
+from vehicle_visit
+group by upper(replace(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''), '\t', ''));
+
+delete from vehicle_visit;
+insert into vehicle_visit(VEHICLE_REG_NUMBER, NB_ARCHIVED_TICKETS) select VEHICLE_REG_NUMBER, NB_ARCHIVED_TICKETS from vehicle_visit_normalized;
+drop temporary table vehicle_visit_normalized;
+
+commit;
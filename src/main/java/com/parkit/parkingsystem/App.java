@@ -1,13 +1,145 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import com.parkit.parkingsystem.dao.TicketExportDAO;
+import com.parkit.parkingsystem.dao.TicketImportDAO;
+import com.parkit.parkingsystem.dao.TicketRowSource;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SimulationReport;
+import com.parkit.parkingsystem.model.TicketImportReport;
+import com.parkit.parkingsystem.service.GateSimulation;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.TicketArchiveService;
+import com.parkit.parkingsystem.service.TicketColumnarReader;
+import com.parkit.parkingsystem.service.TicketCsvReader;
+import com.parkit.parkingsystem.service.TicketExportService;
+import com.parkit.parkingsystem.service.TicketImportService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
-    public static void main(String args[]){
+    private static final String USAGE = "Available commands: archive-tickets [retentionDays], rebuild-rollups, export-csv <file>, export-columnar <file>, import-csv <file> [importId], import-columnar <file> [importId], simulate <days> [seed] [carSpots] [bikeSpots] [startDate]";
+
+    // The simulated traffic depends on the hour of the day, so a run starts at a fixed local midnight to be replayed.
+    static final LocalDate DEFAULT_SIMULATION_START = LocalDate.of(2024, 1, 1);
+
+    public static void main(String args[]) throws IOException {
+        if(args.length > 0){
+            runCommand(args);
+            return;
+        }
         logger.info("Initializing Parking System");
         InteractiveShell.loadInterface();
     }
+
+    // Maintenance commands run from the command line instead of the interactive shell.
+    private static void runCommand(String args[]) throws IOException {
+        switch(args[0]){
+            case "archive-tickets": {
+                int retentionDays = (args.length > 1) ? Integer.parseInt(args[1]) : TicketArchiveService.DEFAULT_RETENTION_DAYS;
+                new TicketArchiveService(new TicketArchiveDAO()).archiveClosedTickets(retentionDays);
+                break;
+            }
+            case "rebuild-rollups": {
+                new RollupDAO().rebuildRollups();
+                break;
+            }
+            case "export-csv": {
+                if(missingFile(args)){
+                    break;
+                }
+                new TicketExportService(new TicketExportDAO()).exportCsv(Paths.get(args[1]));
+                break;
+            }
+            case "export-columnar": {
+                if(missingFile(args)){
+                    break;
+                }
+                new TicketExportService(new TicketExportDAO()).exportColumnar(Paths.get(args[1]));
+                break;
+            }
+            case "import-csv": {
+                if(missingFile(args)){
+                    break;
+                }
+                importTickets(args, new TicketCsvReader(Paths.get(args[1])));
+                break;
+            }
+            case "import-columnar": {
+                if(missingFile(args)){
+                    break;
+                }
+                importTickets(args, new TicketColumnarReader(Paths.get(args[1])));
+                break;
+            }
+            case "simulate": {
+                simulate(args);
+                break;
+            }
+            default: {
+                logger.error("Unsupported command: " + args[0]);
+                System.out.println("Unsupported command. " + USAGE);
+            }
+        }
+    }
+
+    // The export and import commands need the file as their first argument.
+    private static boolean missingFile(String args[]){
+        if(args.length > 1){
+            return false;
+        }
+        logger.error("Missing file argument for command: " + args[0]);
+        System.out.println("Missing file argument. " + USAGE);
+        return true;
+    }
+
+    // Loads historical tickets. Running the same import again, by default named after the file, resumes it.
+    private static void importTickets(String args[], TicketRowSource source) throws IOException {
+        String importId = (args.length > 2) ? args[2] : Paths.get(args[1]).getFileName().toString();
+        TicketImportReport report = new TicketImportService(new TicketImportDAO(), new RollupDAO()).importTickets(importId, source);
+        System.out.println((report == null) ? "Import " + importId + " could not start" : "Import " + importId + ": " + report);
+    }
+
+    // Replays days of synthetic gate traffic on an in-memory facility, in virtual time.
+    private static void simulate(String args[]){
+        int days = (args.length > 1) ? Integer.parseInt(args[1]) : 7;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+        int carSpots = (args.length > 3) ? Integer.parseInt(args[3]) : 100;
+        int bikeSpots = (args.length > 4) ? Integer.parseInt(args[4]) : 20;
+        LocalDate startDate = (args.length > 5) ? LocalDate.parse(args[5]) : DEFAULT_SIMULATION_START;
+        SimulationReport report = runSimulation(days, seed, carSpots, bikeSpots, startDate);
+        logger.info(report);
+        System.out.println(report);
+    }
+
+    // The same arguments give the same report, the elapsed time aside.
+    static SimulationReport runSimulation(int days, long seed, int carSpots, int bikeSpots, LocalDate startDate){
+        long startMillis = startDate.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        GateSimulation gateSimulation = new GateSimulation(new InMemoryParkingSpotDAO(ParkingSpot.DEFAULT_FACILITY_ID, carSpots, bikeSpots),
+                new InMemoryTicketDAO(), startMillis, seed);
+        // The gate messages of every simulated vehicle are not printed.
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        try {
+            return gateSimulation.run(TimeUnit.DAYS.toMillis(days));
+        } finally {
+            System.setOut(console);
+        }
+    }
 }
@@ -0,0 +1,182 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps the connections closed by the DAOs open for the next call to the same URL, so that a DAO call costs the round
+// trips of its statements only, not those of a connection setup, and the prepared statements cached by a connection
+// are used again. A connection is given back with its transaction rolled back, autocommit on and the isolation level
+// it was opened with, whatever the DAO changed. The most recently used connection is borrowed first, and one left idle
+// longer than the validation interval is pinged before use, as the server may have dropped it.
+public class ConnectionPool {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final long validationIntervalMillis;
+    private volatile int maxIdleConnections;
+    private final Map<Connection, Lease> leases = new ConcurrentHashMap<>();
+    private final Map<String, Deque<Lease>> idleConnections = new HashMap<>();
+    private final LongAdder reusedCount = new LongAdder();
+
+    public ConnectionPool(int maxIdleConnections, long validationIntervalMillis) {
+        this.maxIdleConnections = maxIdleConnections;
+        this.validationIntervalMillis = validationIntervalMillis;
+    }
+
+    // Returns an idle connection to the URL, or null when a new one must be opened and leased.
+    public Connection borrow(String url) {
+        while (true) {
+            Lease lease;
+            synchronized (idleConnections) {
+                Deque<Lease> idle = idleConnections.get(url);
+                lease = (idle != null) ? idle.pollFirst() : null;
+            }
+            if (lease == null) {
+                return null;
+            }
+            if (isAlive(lease)) {
+                leases.put(lease.connection, lease);
+                reusedCount.increment();
+                return lease.connection;
+            }
+            close(lease.connection);
+        }
+    }
+
+    // Registers a connection just opened to the URL, so that it goes back to the pool when closed by its DAO.
+    public Connection lease(String url, Connection con) throws SQLException {
+        leases.put(con, new Lease(url, con, con.getTransactionIsolation()));
+        return con;
+    }
+
+    // Keeps the connection for the next borrower. Returns false when it is not kept, the caller closes it then.
+    public boolean giveBack(Connection con) {
+        Lease lease = leases.remove(con);
+        if (lease == null) {
+            return false;
+        }
+        try {
+            if (con.isClosed()) {
+                return false;
+            }
+            if (!con.getAutoCommit()) {
+                con.rollback();
+                con.setAutoCommit(true);
+            }
+            if (con.getTransactionIsolation() != lease.transactionIsolation) {
+                con.setTransactionIsolation(lease.transactionIsolation);
+            }
+        } catch (SQLException e) {
+            logger.error("Unable to reset connection, closing it", e);
+            return false;
+        }
+        lease.idleSince = System.currentTimeMillis();
+        synchronized (idleConnections) {
+            Deque<Lease> idle = idleConnections.computeIfAbsent(lease.url, url -> new ArrayDeque<>());
+            if (idle.size() < maxIdleConnections) {
+                idle.addFirst(lease);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Closes a leased connection instead of keeping it.
+    public void discard(Connection con) {
+        leases.remove(con);
+        close(con);
+    }
+
+    // Closes the idle connections. Leased connections are closed when given back, if the pool is full.
+    public void closeIdleConnections() {
+        Deque<Lease> closing = new ArrayDeque<>();
+        synchronized (idleConnections) {
+            for (Deque<Lease> idle : idleConnections.values()) {
+                closing.addAll(idle);
+            }
+            idleConnections.clear();
+        }
+        for (Lease lease : closing) {
+            close(lease.connection);
+        }
+    }
+
+    // 0 disables the pool: every connection is closed by its DAO. Shrinking closes the least recently used idle
+    // connections beyond the new size, growing keeps the idle ones.
+    public void setMaxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+        Deque<Lease> closing = new ArrayDeque<>();
+        synchronized (idleConnections) {
+            for (Deque<Lease> idle : idleConnections.values()) {
+                while (idle.size() > maxIdleConnections) {
+                    closing.add(idle.pollLast());
+                }
+            }
+        }
+        for (Lease lease : closing) {
+            close(lease.connection);
+        }
+    }
+
+    public int getMaxIdleConnections() {
+        return maxIdleConnections;
+    }
+
+    public int getIdleCount() {
+        synchronized (idleConnections) {
+            int count = 0;
+            for (Deque<Lease> idle : idleConnections.values()) {
+                count += idle.size();
+            }
+            return count;
+        }
+    }
+
+    public long getReusedCount() {
+        return reusedCount.sum();
+    }
+
+    private boolean isAlive(Lease lease) {
+        try {
+            if (lease.connection.isClosed()) {
+                return false;
+            }
+            return System.currentTimeMillis() - lease.idleSince < validationIntervalMillis
+                    || lease.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void close(Connection con) {
+        try {
+            con.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing connection", e);
+        }
+    }
+
+    private static final class Lease {
+        private final String url;
+        private final Connection connection;
+        private final int transactionIsolation;
+        private long idleSince;
+
+        private Lease(String url, Connection connection, int transactionIsolation) {
+            this.url = url;
+            this.connection = connection;
+            this.transactionIsolation = transactionIsolation;
+        }
+    }
+}
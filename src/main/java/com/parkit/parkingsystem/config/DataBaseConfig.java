@@ -4,21 +4,208 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.Properties;
 
+// Writes and reads that must see the latest state (open tickets, spots) use getConnection() on the primary (-Dparkit.db.url).
+// History counts, exports and reports use getReadConnection(), routed to the read replica when one is configured
+// with -Dparkit.db.replicaUrl and its lag is within maxReplicaLagSeconds; otherwise they fall back to the primary.
+// The lag is checked at most once per replicaCheckIntervalMillis, which is added on top of the staleness bound.
+// Connections closed with closeConnection() are kept open in a pool shared by every DAO, for the next call to their URL.
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    public static final int DEFAULT_MAX_REPLICA_LAG_SECONDS = 5;
+    public static final long DEFAULT_REPLICA_CHECK_INTERVAL_MILLIS = 1000;
+    // As many as the gate and reporting bulkheads of the DB guard run at once.
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 10;
+
+    private static final String USER = "root";
+    private static final String PASSWORD = "rootroot";
+    // Driver level timeouts, so that a thread stuck on a stalled server is eventually freed.
+    private static final String CONNECT_TIMEOUT_MILLIS = "2000";
+    private static final String SOCKET_TIMEOUT_MILLIS = "30000";
+    // Large enough for every DBConstants query, the history page included.
+    private static final String PREPARED_STATEMENT_CACHE_SIZE = "64";
+    private static final String PREPARED_STATEMENT_CACHE_SQL_LIMIT = "2048";
+    // Syntax error raised by servers older than MySQL 8.0.22 on show replica status.
+    private static final int ER_PARSE_ERROR = 1064;
+    // Well below the default wait_timeout of the server, after which it drops idle connections.
+    private static final long CONNECTION_VALIDATION_INTERVAL_MILLIS = 30_000;
+
+    private static final ConnectionPool connectionPool = new ConnectionPool(
+            Integer.getInteger("parkit.db.maxIdleConnections", DEFAULT_MAX_IDLE_CONNECTIONS), CONNECTION_VALIDATION_INTERVAL_MILLIS);
+
+    private volatile String primaryUrl = System.getProperty("parkit.db.url", "jdbc:mysql://localhost:3306/prod");
+    private volatile String replicaUrl = System.getProperty("parkit.db.replicaUrl");
+    private volatile int maxReplicaLagSeconds = Integer.getInteger("parkit.db.maxReplicaLagSeconds", DEFAULT_MAX_REPLICA_LAG_SECONDS);
+    private volatile long replicaCheckIntervalMillis = DEFAULT_REPLICA_CHECK_INTERVAL_MILLIS;
+    private volatile boolean replicaUsable;
+    private volatile long replicaCheckedAt;
+    private volatile boolean legacyReplicaStatus;
+
+    public static ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
+        String url = primaryUrl;
+        Connection con = connectionPool.borrow(url);
+        if(con != null){
+            return con;
+        }
         logger.info("Create DB connection");
         Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot");
+        return connectionPool.lease(url, DriverManager.getConnection(
+                url,connectionProperties()));
+    }
+
+    public Connection getReadConnection() throws ClassNotFoundException, SQLException {
+        String url = replicaUrl;
+        if(url == null){
+            return getConnection();
+        }
+        long now = System.currentTimeMillis();
+        boolean checkDue = now - replicaCheckedAt >= replicaCheckIntervalMillis;
+        if(!checkDue && !replicaUsable){
+            return getConnection();
+        }
+        Connection con = null;
+        try {
+            con = connectionPool.borrow(url);
+            if(con == null){
+                con = openReplicaConnection(url);
+                connectionPool.lease(url, con);
+            }
+            if(checkDue){
+                long lagSeconds = getReplicaLagSeconds(con);
+                replicaUsable = lagSeconds >= 0 && lagSeconds <= maxReplicaLagSeconds;
+                replicaCheckedAt = now;
+                if(!replicaUsable){
+                    logger.warn("Read replica lag of " + lagSeconds + "s exceeds " + maxReplicaLagSeconds + "s, reading from the primary");
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Read replica unavailable, reading from the primary",e);
+            replicaUsable = false;
+            replicaCheckedAt = now;
+        }
+        if(replicaUsable){
+            return con;
+        }
+        if(con != null){
+            connectionPool.discard(con);
+        }
+        return getConnection();
+    }
+
+    protected Connection openReplicaConnection(String url) throws ClassNotFoundException, SQLException {
+        logger.info("Create read replica connection");
+        Class.forName("com.mysql.cj.jdbc.Driver");
+        return DriverManager.getConnection(url,connectionProperties());
+    }
+
+    // A connection outlives the DAO call through the pool: the fixed DBConstants queries are prepared on the server
+    // once per connection and their handles kept by the statement cache, so that a pooled call sends its parameters
+    // only. The session state is tracked locally instead of being queried, which the pool relies on when resetting a
+    // connection, and the server configuration is read once per JVM. Server side prepared statements cost one more
+    // round trip on a fresh connection; -Dparkit.db.serverPrepStmts=false turns them off when the pool is disabled with
+    // -Dparkit.db.maxIdleConnections=0. Batches, like the rollup upserts, go in a single request.
+    protected Properties connectionProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("user", USER);
+        properties.setProperty("password", PASSWORD);
+        properties.setProperty("connectTimeout", CONNECT_TIMEOUT_MILLIS);
+        properties.setProperty("socketTimeout", SOCKET_TIMEOUT_MILLIS);
+        properties.setProperty("cacheServerConfiguration", "true");
+        properties.setProperty("useLocalSessionState", "true");
+        properties.setProperty("cachePrepStmts", "true");
+        properties.setProperty("prepStmtCacheSize", PREPARED_STATEMENT_CACHE_SIZE);
+        properties.setProperty("prepStmtCacheSqlLimit", PREPARED_STATEMENT_CACHE_SQL_LIMIT);
+        properties.setProperty("useServerPrepStmts", System.getProperty("parkit.db.serverPrepStmts", "true"));
+        properties.setProperty("rewriteBatchedStatements", "true");
+        return properties;
+    }
+
+    // Returns how many seconds the replica is behind its source, or -1 when it is not replicating.
+    // Servers before MySQL 8.0.22 only know show slave status and its Seconds_Behind_Master column.
+    protected long getReplicaLagSeconds(Connection con) throws SQLException {
+        if(!legacyReplicaStatus){
+            try {
+                return readReplicaLag(con, "show replica status", "Seconds_Behind_Source");
+            } catch (SQLException e) {
+                if(e.getErrorCode() != ER_PARSE_ERROR){
+                    throw e;
+                }
+                logger.info("Read replica does not support show replica status, using show slave status");
+                legacyReplicaStatus = true;
+            }
+        }
+        return readReplicaLag(con, "show slave status", "Seconds_Behind_Master");
+    }
+
+    private long readReplicaLag(Connection con, String statusQuery, String lagColumn) throws SQLException {
+        Statement st = con.createStatement();
+        try {
+            ResultSet rs = st.executeQuery(statusQuery);
+            long lagSeconds = -1;
+            if(rs.next()){
+                lagSeconds = rs.getLong(lagColumn);
+                if(rs.wasNull()){
+                    lagSeconds = -1;
+                }
+            }
+            closeResultSet(rs);
+            return lagSeconds;
+        } finally {
+            st.close();
+        }
+    }
+
+    public String getPrimaryUrl() {
+        return primaryUrl;
+    }
+
+    public void setPrimaryUrl(String primaryUrl) {
+        this.primaryUrl = primaryUrl;
+    }
+
+    public String getReplicaUrl() {
+        return replicaUrl;
+    }
+
+    public void setReplicaUrl(String replicaUrl) {
+        this.replicaUrl = replicaUrl;
+        replicaCheckedAt = 0;
     }
 
+    public int getMaxReplicaLagSeconds() {
+        return maxReplicaLagSeconds;
+    }
+
+    public void setMaxReplicaLagSeconds(int maxReplicaLagSeconds) {
+        this.maxReplicaLagSeconds = maxReplicaLagSeconds;
+    }
+
+    public void setReplicaCheckIntervalMillis(long replicaCheckIntervalMillis) {
+        this.replicaCheckIntervalMillis = replicaCheckIntervalMillis;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUrl != null && replicaUsable;
+    }
+
+    // Gives the connection back to the pool, or closes it when the pool does not keep it.
     public void closeConnection(Connection con){
         if(con!=null){
+            if(connectionPool.giveBack(con)){
+                logger.info("Returning DB connection to the pool");
+                return;
+            }
             try {
+                if(con.isClosed()){
+                    return;
+                }
                 con.close();
                 logger.info("Closing DB connection");
             } catch (SQLException e) {
@@ -27,6 +214,15 @@ public class DataBaseConfig {
         }
     }
 
+    // Closes the connection instead of returning it to the pool once a DAO call failed on it: the failure may have left
+    // a transaction or a streaming result set open. The closeConnection() call of the DAO then does nothing.
+    public void discardConnection(Connection con){
+        if(con!=null){
+            connectionPool.discard(con);
+            logger.info("Discarding DB connection after an error");
+        }
+    }
+
     public void closePreparedStatement(PreparedStatement ps) {
         if(ps!=null){
             try {
@@ -0,0 +1,12 @@
+package com.parkit.parkingsystem.constants;
+
+public enum AllocationStrategy {
+    // Always the free spot with the lowest number.
+    LOWEST_NUMBER,
+    // A free spot of the zone with the lowest share of occupied spots, spreading cars over the ramps.
+    LEAST_LOADED_ZONE,
+    // The free spot with the shortest walking distance from the entrance gate.
+    CLOSEST_TO_GATE,
+    // Each allocation moves to the next level holding a free spot.
+    ROUND_ROBIN_LEVELS
+}
@@ -2,13 +2,70 @@ package com.parkit.parkingsystem.constants;
 
 public class DBConstants {
 
-    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
-    public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where FACILITY_ID = ? and AVAILABLE = true and TYPE = ? and (LEASE_OWNER is null or LEASE_EXPIRY < now())";
+    // Taking or releasing a spot also ends its lease, so a released spot goes back to the shared pool. A spot is only
+    // released while taken, so releasing a free spot twice updates no row.
+    public static final String RELEASE_PARKING_SPOT = "update parking set available = true, LEASE_OWNER = null, LEASE_EXPIRY = null where FACILITY_ID = ? and PARKING_NUMBER = ? and AVAILABLE = false";
+    // A spot is only claimed while free, so of two gates claiming the same spot the second one updates no row.
+    public static final String CLAIM_PARKING_SPOT = "update parking set available = false, LEASE_OWNER = null, LEASE_EXPIRY = null where FACILITY_ID = ? and PARKING_NUMBER = ? and AVAILABLE = true";
+    // Request loading every spot of a facility for the in memory allocation strategies. Spots leased by a node are not free for the others.
+    public static final String GET_FACILITY_SPOTS = "select PARKING_NUMBER, ZONE, LEVEL_NUMBER, GATE_DISTANCE, TYPE, AVAILABLE and (LEASE_OWNER is null or LEASE_EXPIRY < now()) from parking where FACILITY_ID = ? order by PARKING_NUMBER";
+    // Request to count the total and occupied spots per facility and parking type, used to initialize and reconcile the occupancy counters.
+    public static final String GET_OCCUPANCY = "select FACILITY_ID, TYPE, count(*), sum(case when AVAILABLE then 0 else 1 end) from parking group by FACILITY_ID, TYPE";
 
-    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
-    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
+    // The unique key on the open plate makes a second open ticket for the same vehicle fail on a duplicate key.
+    public static final String SAVE_TICKET = "insert into ticket(FACILITY_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?,?)";
+    // Only an open ticket is closed, so a vehicle exiting at two gates at once releases its spot once.
+    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=? and OUT_TIME is null";
+    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.FACILITY_ID, p.ZONE from ticket t,parking p where p.FACILITY_ID = t.FACILITY_ID and p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC limit 1";
 
-    // Request to count number of occurrence for a specified vehicle.
-    public static final String GET_NUMBER_OF_TICKETS = "SELECT COUNT(*) FROM ticket WHERE VEHICLE_REG_NUMBER = ?";
-}
\ No newline at end of file
+    // Request loading the open tickets of a facility, used once at startup by the overstay monitor.
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.VEHICLE_REG_NUMBER, t.IN_TIME, p.TYPE, p.ZONE from ticket t join parking p on p.FACILITY_ID = t.FACILITY_ID and p.PARKING_NUMBER = t.PARKING_NUMBER where t.FACILITY_ID = ? and t.OUT_TIME is null";
+
+    // Request seeking one page of a vehicle's live and archived tickets, newest first, strictly after the (IN_TIME, ID) cursor.
+    // Each branch reads at most one page from the (VEHICLE_REG_NUMBER, IN_TIME, ID) index, whatever the depth of the page.
+    public static final String GET_TICKET_HISTORY_PAGE = "select t.ID, t.FACILITY_ID, t.PARKING_NUMBER, p.TYPE, p.ZONE, t.PRICE, t.IN_TIME, t.OUT_TIME from ((select ID, FACILITY_ID, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket where VEHICLE_REG_NUMBER = ? and (IN_TIME < ? or (IN_TIME = ? and ID < ?)) order by IN_TIME desc, ID desc limit ?) union all (select ID, FACILITY_ID, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket_archive where VEHICLE_REG_NUMBER = ? and (IN_TIME < ? or (IN_TIME = ? and ID < ?)) order by IN_TIME desc, ID desc limit ?)) t join parking p on p.FACILITY_ID = t.FACILITY_ID and p.PARKING_NUMBER = t.PARKING_NUMBER order by t.IN_TIME desc, t.ID desc limit ?";
+
+    // Request to count number of occurrence for a specified vehicle, archived tickets included.
+    public static final String GET_NUMBER_OF_TICKETS = "SELECT (SELECT COUNT(*) FROM ticket WHERE VEHICLE_REG_NUMBER = ?) + COALESCE((SELECT NB_ARCHIVED_TICKETS FROM vehicle_visit WHERE VEHICLE_REG_NUMBER = ?), 0)";
+
+    // Requests leasing blocks of free spots to an application node, which then allocates them without DB coordination.
+    public static final String GET_LEASABLE_SPOTS = "select PARKING_NUMBER from parking where FACILITY_ID = ? and AVAILABLE = true and TYPE = ? and (LEASE_OWNER is null or LEASE_EXPIRY < now()) order by PARKING_NUMBER limit ? for update skip locked";
+    // Free spots leased by the other nodes, the leases renewed the longest ago first, for a node finding nothing left to lease.
+    public static final String GET_IDLE_LEASED_SPOTS = "select PARKING_NUMBER from parking where FACILITY_ID = ? and AVAILABLE = true and TYPE = ? and LEASE_OWNER <> ? order by LEASE_EXPIRY limit ? for update skip locked";
+    public static final String LEASE_SPOT = "update parking set LEASE_OWNER = ?, LEASE_EXPIRY = date_add(now(), interval ? second) where FACILITY_ID = ? and PARKING_NUMBER = ?";
+    public static final String RENEW_LEASES = "update parking set LEASE_EXPIRY = date_add(now(), interval ? second) where FACILITY_ID = ? and PARKING_NUMBER = ? and LEASE_OWNER = ?";
+    public static final String RELEASE_LEASE = "update parking set LEASE_OWNER = null, LEASE_EXPIRY = null where FACILITY_ID = ? and PARKING_NUMBER = ? and LEASE_OWNER = ?";
+
+    // Requests used by the archival job to move closed tickets out of the ticket table in bounded batches.
+    public static final String GET_ARCHIVABLE_TICKETS = "select ID, VEHICLE_REG_NUMBER from ticket where OUT_TIME is not null and OUT_TIME < ? order by OUT_TIME limit ? for update skip locked";
+    public static final String ARCHIVE_TICKET = "insert into ticket_archive(ID, FACILITY_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) select ID, FACILITY_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket where ID = ?";
+    public static final String DELETE_TICKET = "delete from ticket where ID = ?";
+    public static final String ADD_ARCHIVED_VISITS = "insert into vehicle_visit(VEHICLE_REG_NUMBER, NB_ARCHIVED_TICKETS) values(?,?) on duplicate key update NB_ARCHIVED_TICKETS = NB_ARCHIVED_TICKETS + values(NB_ARCHIVED_TICKETS)";
+
+    // Requests maintaining the hourly and daily rollups. Counters are added up while the peak occupancy keeps the highest value.
+    public static final String UPSERT_ROLLUP = "insert into ticket_rollup(PERIOD, BUCKET_START, TYPE, TICKET_COUNT, REVENUE, TOTAL_STAY_SECONDS, PEAK_OCCUPANCY) values(?,?,?,?,?,?,?) on duplicate key update TICKET_COUNT = TICKET_COUNT + values(TICKET_COUNT), REVENUE = REVENUE + values(REVENUE), TOTAL_STAY_SECONDS = TOTAL_STAY_SECONDS + values(TOTAL_STAY_SECONDS), PEAK_OCCUPANCY = greatest(PEAK_OCCUPANCY, values(PEAK_OCCUPANCY))";
+    public static final String GET_ROLLUP = "select TICKET_COUNT, REVENUE, TOTAL_STAY_SECONDS, PEAK_OCCUPANCY from ticket_rollup where PERIOD = ? and BUCKET_START = ? and TYPE = ?";
+    public static final String CLEAR_ROLLUPS = "delete from ticket_rollup";
+    public static final String GET_TICKET_HISTORY_BY_IN_TIME = "select t.IN_TIME, t.OUT_TIME, t.PRICE, p.TYPE from (select FACILITY_ID, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket union all select FACILITY_ID, PARKING_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket_archive) t join parking p on p.FACILITY_ID = t.FACILITY_ID and p.PARKING_NUMBER = t.PARKING_NUMBER order by t.IN_TIME";
+
+    // Request streaming every live and archived ticket with its facility and parking type for the exports.
+    public static final String EXPORT_TICKETS = "select t.ID, t.FACILITY_ID, t.PARKING_NUMBER, p.TYPE, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME from (select ID, FACILITY_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket union all select ID, FACILITY_ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket_archive) t join parking p on p.FACILITY_ID = t.FACILITY_ID and p.PARKING_NUMBER = t.PARKING_NUMBER";
+
+    // Requests of the append-only ticket ledger. Events are only ever inserted: the (FACILITY_ID, SEQ) primary key makes
+    // a node that appends from a stale position fail on a duplicate key, so it catches up and retries instead of racing.
+    public static final String APPEND_LEDGER_EVENT = "insert into ledger_event(FACILITY_ID, SEQ, EVENT_TYPE, PARKING_NUMBER, TYPE, TICKET_ID, VEHICLE_REG_NUMBER, PRICE, EVENT_TIME) values(?,?,?,?,?,?,?,?,?)";
+    public static final String GET_LEDGER_EVENTS = "select SEQ, EVENT_TYPE, PARKING_NUMBER, TYPE, TICKET_ID, VEHICLE_REG_NUMBER, PRICE, EVENT_TIME from ledger_event where FACILITY_ID = ? and SEQ > ? order by SEQ";
+    public static final String SAVE_LEDGER_SNAPSHOT = "insert into ledger_snapshot(FACILITY_ID, SEQ, CREATED_AT, STATE) values(?,?,now(),?)";
+    public static final String GET_LATEST_LEDGER_SNAPSHOT = "select SEQ, STATE from ledger_snapshot where FACILITY_ID = ? order by SEQ desc limit 1";
+
+    // Requests of the bulk ticket import. A chunk of tickets and its checkpoint are committed together, so that an
+    // interrupted import resumes with the chunks which have no checkpoint.
+    public static final String GET_PARKING_SPOT_TYPES = "select FACILITY_ID, PARKING_NUMBER, TYPE from parking";
+    public static final String GET_IMPORTED_CHUNKS = "select CHUNK from ticket_import_checkpoint where IMPORT_ID = ?";
+    public static final String SAVE_IMPORT_CHECKPOINT = "insert into ticket_import_checkpoint(IMPORT_ID, CHUNK, ROW_COUNT, IMPORTED_AT) values(?,?,?,now())";
+
+    // Requests streaming the stays of a facility for the arrival forecast, cut into ID ranges read in parallel.
+    public static final String GET_TICKET_ID_RANGE = "select min(ID), max(ID) from (select ID from ticket where FACILITY_ID = ? union all select ID from ticket_archive where FACILITY_ID = ?) t";
+    public static final String GET_STAYS_BY_ID_RANGE = "select p.TYPE, t.IN_TIME, t.OUT_TIME from (select FACILITY_ID, PARKING_NUMBER, IN_TIME, OUT_TIME from ticket where FACILITY_ID = ? and ID between ? and ? union all select FACILITY_ID, PARKING_NUMBER, IN_TIME, OUT_TIME from ticket_archive where FACILITY_ID = ? and ID between ? and ?) t join parking p on p.FACILITY_ID = t.FACILITY_ID and p.PARKING_NUMBER = t.PARKING_NUMBER";
+}
@@ -0,0 +1,17 @@
+package com.parkit.parkingsystem.constants;
+
+import com.parkit.parkingsystem.util.PlateCodec;
+
+public enum GateCommand {
+    ENTRY,
+    EXIT;
+
+    // Idempotency key of the command for a vehicle: its packed plate, with the command in the lowest bit.
+    public long key(String vehicleRegNumber) {
+        return (PlateCodec.encode(vehicleRegNumber) << 1) | ordinal();
+    }
+
+    public GateCommand opposite() {
+        return (this == ENTRY) ? EXIT : ENTRY;
+    }
+}
@@ -0,0 +1,9 @@
+package com.parkit.parkingsystem.constants;
+
+public enum LedgerEventType {
+    TICKET_OPENED,
+    TICKET_PRICED,
+    TICKET_CLOSED,
+    SPOT_CLAIMED,
+    SPOT_RELEASED
+}
@@ -0,0 +1,10 @@
+package com.parkit.parkingsystem.constants;
+
+public enum ParkingEventType {
+    SPOT_CLAIMED,
+    SPOT_RELEASED,
+    TICKET_OPENED,
+    TICKET_CLOSED,
+    // Published by the overstay monitor when an open ticket exceeds the maximum stay or its pre-paid window.
+    TICKET_OVERSTAYED
+}
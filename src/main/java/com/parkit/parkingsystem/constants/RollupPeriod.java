@@ -0,0 +1,22 @@
+package com.parkit.parkingsystem.constants;
+
+import java.util.Calendar;
+import java.util.Date;
+
+public enum RollupPeriod {
+    HOUR,
+    DAY;
+
+    // Returns the start of the rollup bucket containing the given time.
+    public Date bucketStart(Date time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(time);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        if (this == DAY) {
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+        }
+        return calendar.getTime();
+    }
+}
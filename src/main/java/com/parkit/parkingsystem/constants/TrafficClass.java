@@ -0,0 +1,8 @@
+package com.parkit.parkingsystem.constants;
+
+// Kinds of DB traffic isolated from each other, so that a slow export never holds up a gate and entries never starve exits.
+public enum TrafficClass {
+    ENTRY,
+    EXIT,
+    REPORTING
+}
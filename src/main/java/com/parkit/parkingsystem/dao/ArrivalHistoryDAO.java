@@ -0,0 +1,84 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.TicketRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+
+public class ArrivalHistoryDAO {
+
+    private static final Logger logger = LogManager.getLogger("ArrivalHistoryDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    // Returns the lowest and highest ID of the live and archived tickets of the facility, an empty range if it has
+    // no ticket, or null on error.
+    public long[] getTicketIdRange(int facilityId) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getReadConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_ID_RANGE)) {
+                ps.setInt(1, facilityId);
+                ps.setInt(2, facilityId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getObject(1) != null) {
+                        return new long[]{rs.getLong(1), rs.getLong(2)};
+                    }
+                    return new long[0];
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching ticket id range", ex);
+            dataBaseConfig.discardConnection(con);
+            return null;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    // Streams the parking type, in time and out time of the tickets whose ID is within the range, live and archived,
+    // and returns the number of rows streamed, or -1 on error. Only those three fields of the row are set.
+    public long streamStays(int facilityId, long fromId, long toId, TicketRowHandler handler) {
+        Connection con = null;
+        long streamedRows = 0;
+        try {
+            con = dataBaseConfig.getReadConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_STAYS_BY_ID_RANGE, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Makes the MySQL driver stream the rows instead of loading the whole range in memory.
+                ps.setFetchSize(Integer.MIN_VALUE);
+                ps.setInt(1, facilityId);
+                ps.setLong(2, fromId);
+                ps.setLong(3, toId);
+                ps.setInt(4, facilityId);
+                ps.setLong(5, fromId);
+                ps.setLong(6, toId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    TicketRow row = new TicketRow();
+                    row.setFacilityId(facilityId);
+                    while (rs.next()) {
+                        row.setParkingType(ParkingType.valueOf(rs.getString(1)));
+                        row.setInTime(rs.getTimestamp(2).getTime());
+                        Timestamp outTime = rs.getTimestamp(3);
+                        row.setOutTime((outTime == null) ? TicketRow.NO_OUT_TIME : outTime.getTime());
+                        handler.onRow(row);
+                        streamedRows++;
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error streaming stays", ex);
+            dataBaseConfig.discardConnection(con);
+            streamedRows = -1;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return streamedRows;
+    }
+}
@@ -0,0 +1,50 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.DataBaseGuard;
+
+import java.util.Collections;
+import java.util.List;
+
+// Runs the spot DAO calls through the DB guard. A spot is claimed or released in the DB only, so no spot is allocated
+// while the DB is unavailable: the entry fails fast and nothing is left to catch up once the DB is back.
+public class GuardedParkingSpotDAO extends ParkingSpotDAO {
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final DataBaseGuard dataBaseGuard;
+
+    public GuardedParkingSpotDAO(ParkingSpotDAO parkingSpotDAO, DataBaseGuard dataBaseGuard) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.dataBaseGuard = dataBaseGuard;
+        this.occupancyCounter = parkingSpotDAO.occupancyCounter;
+        this.clock = parkingSpotDAO.clock;
+    }
+
+    @Override
+    public int getNextAvailableSlot(int facilityId, ParkingType parkingType) {
+        return dataBaseGuard.call(TrafficClass.ENTRY, "getNextAvailableSlot",
+                () -> parkingSpotDAO.getNextAvailableSlot(facilityId, parkingType),
+                parkingNumber -> parkingNumber < 0, () -> -1);
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        TrafficClass trafficClass = parkingSpot.isAvailable() ? TrafficClass.EXIT : TrafficClass.ENTRY;
+        return dataBaseGuard.write(trafficClass, "updateParking", () -> parkingSpotDAO.updateParking(parkingSpot));
+    }
+
+    @Override
+    public List<ParkingSpot> getFacilitySpots(int facilityId) {
+        return dataBaseGuard.call(TrafficClass.REPORTING, "getFacilitySpots", () -> parkingSpotDAO.getFacilitySpots(facilityId),
+                List::isEmpty, Collections::emptyList);
+    }
+
+    @Override
+    public List<Occupancy> getOccupancy() {
+        return dataBaseGuard.call(TrafficClass.REPORTING, "getOccupancy", parkingSpotDAO::getOccupancy,
+                List::isEmpty, Collections::emptyList);
+    }
+}
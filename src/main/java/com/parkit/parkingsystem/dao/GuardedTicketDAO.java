@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketHistoryCursor;
+import com.parkit.parkingsystem.model.TicketHistoryPage;
+import com.parkit.parkingsystem.service.DataBaseGuard;
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+
+import java.util.Collections;
+import java.util.List;
+
+// Runs the ticket DAO calls through the DB guard. The visit counts read from the DB are remembered per plate, so that
+// the regular user check is still answered, from the last known count, while the DB is unavailable. Tickets are only
+// opened or closed in the DB: those writes fail while it is unavailable.
+public class GuardedTicketDAO extends TicketDAO {
+
+    private final TicketDAO ticketDAO;
+    private final DataBaseGuard dataBaseGuard;
+    private final LongIntHashMap visits = new LongIntHashMap(1024, 0);
+
+    public GuardedTicketDAO(TicketDAO ticketDAO, DataBaseGuard dataBaseGuard) {
+        this.ticketDAO = ticketDAO;
+        this.dataBaseGuard = dataBaseGuard;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        if (!dataBaseGuard.write(TrafficClass.ENTRY, "saveTicket", () -> ticketDAO.saveTicket(ticket))) {
+            return false;
+        }
+        long plateCode = PlateCodec.encode(ticket.getVehicleRegNumber());
+        synchronized (visits) {
+            if (visits.containsKey(plateCode)) {
+                visits.addTo(plateCode, 1);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return dataBaseGuard.call(TrafficClass.EXIT, "getTicket", () -> ticketDAO.getTicket(vehicleRegNumber), ticket -> false, () -> null);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        return dataBaseGuard.write(TrafficClass.EXIT, "updateTicket", () -> ticketDAO.updateTicket(ticket));
+    }
+
+    @Override
+    public int getNbTicket(String vehicleRegNumber) {
+        long plateCode = PlateCodec.encode(vehicleRegNumber);
+        int numberOfTickets = dataBaseGuard.call(TrafficClass.EXIT, "getNbTicket", () -> ticketDAO.getNbTicket(vehicleRegNumber),
+                count -> false, () -> -1);
+        synchronized (visits) {
+            if (numberOfTickets < 0) {
+                return visits.get(plateCode);
+            }
+            visits.put(plateCode, numberOfTickets);
+        }
+        return numberOfTickets;
+    }
+
+    @Override
+    public List<Ticket> getOpenTickets(int facilityId) {
+        return dataBaseGuard.call(TrafficClass.REPORTING, "getOpenTickets", () -> ticketDAO.getOpenTickets(facilityId),
+                tickets -> false, Collections::emptyList);
+    }
+
+    @Override
+    public TicketHistoryPage getTicketHistory(String vehicleRegNumber, TicketHistoryCursor cursor, int pageSize) {
+        return dataBaseGuard.call(TrafficClass.REPORTING, "getTicketHistory", () -> ticketDAO.getTicketHistory(vehicleRegNumber, cursor, pageSize),
+                page -> page == null, () -> null);
+    }
+}
@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Spots of a single facility held in memory, for simulations which must not depend on a database.
+// The car spots are numbered first, then the bike spots, and spots are allocated lowest number first like in the DB.
+public class InMemoryParkingSpotDAO extends ParkingSpotDAO {
+
+    private final int facilityId;
+    private final List<ParkingSpot> spots = new ArrayList<>();
+    private final BitSet occupied = new BitSet();
+
+    public InMemoryParkingSpotDAO(int facilityId, int carSpots, int bikeSpots) {
+        this.facilityId = facilityId;
+        for (int i = 1; i <= carSpots + bikeSpots; i++) {
+            spots.add(new ParkingSpot(facilityId, null, i, (i <= carSpots) ? ParkingType.CAR : ParkingType.BIKE, true));
+        }
+        occupancyCounter.reconcile(new Occupancy(facilityId, ParkingType.CAR, carSpots, 0));
+        occupancyCounter.reconcile(new Occupancy(facilityId, ParkingType.BIKE, bikeSpots, 0));
+    }
+
+    @Override
+    public synchronized int getNextAvailableSlot(int facilityId, ParkingType parkingType) {
+        if (facilityId == this.facilityId) {
+            for (ParkingSpot parkingSpot : spots) {
+                if (parkingSpot.getParkingType() == parkingType && !occupied.get(parkingSpot.getId())) {
+                    return parkingSpot.getId();
+                }
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized boolean updateParking(ParkingSpot parkingSpot) {
+        int parkingNumber = parkingSpot.getId();
+        if (parkingSpot.getFacilityId() != facilityId || parkingNumber < 1 || parkingNumber > spots.size()) {
+            return false;
+        }
+        // Like the claim in the DB, a spot already taken cannot be taken again.
+        if (!parkingSpot.isAvailable() && occupied.get(parkingNumber)) {
+            return false;
+        }
+        occupied.set(parkingNumber, !parkingSpot.isAvailable());
+        if (parkingSpot.isAvailable()) {
+            occupancyCounter.spotReleased(facilityId, parkingSpot.getParkingType());
+        } else {
+            occupancyCounter.spotTaken(facilityId, parkingSpot.getParkingType());
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized List<ParkingSpot> getFacilitySpots(int facilityId) {
+        List<ParkingSpot> facilitySpots = new ArrayList<>();
+        if (facilityId == this.facilityId) {
+            for (ParkingSpot parkingSpot : spots) {
+                facilitySpots.add(new ParkingSpot(facilityId, null, parkingSpot.getId(), parkingSpot.getParkingType(), !occupied.get(parkingSpot.getId())));
+            }
+        }
+        return facilitySpots;
+    }
+
+    @Override
+    public List<Occupancy> getOccupancy() {
+        List<Occupancy> occupancy = new ArrayList<>();
+        for (ParkingType parkingType : ParkingType.values()) {
+            occupancy.add(occupancyCounter.getOccupancy(facilityId, parkingType));
+        }
+        return occupancy;
+    }
+}
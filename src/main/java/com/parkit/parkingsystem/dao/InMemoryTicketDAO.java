@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Tickets held in memory, for simulations which must not depend on a database. Only the latest ticket of each vehicle
+// and its visit count are kept. Tickets are copied in and out, like rows read from the DB.
+public class InMemoryTicketDAO extends TicketDAO {
+
+    private final Map<String, Ticket> latestTickets = new HashMap<>();
+    private final Map<String, Integer> visits = new HashMap<>();
+    private int lastTicketId;
+
+    @Override
+    public synchronized boolean saveTicket(Ticket ticket) {
+        // Like the unique key on the open plate in the DB.
+        Ticket latestTicket = latestTickets.get(ticket.getVehicleRegNumber());
+        if (latestTicket != null && latestTicket.getOutTime() == null) {
+            return false;
+        }
+        ticket.setId(++lastTicketId);
+        Ticket savedTicket = copy(ticket);
+        latestTickets.put(ticket.getVehicleRegNumber(), savedTicket);
+        visits.merge(ticket.getVehicleRegNumber(), 1, Integer::sum);
+        return true;
+    }
+
+    @Override
+    public synchronized Ticket getTicket(String vehicleRegNumber) {
+        Ticket ticket = latestTickets.get(vehicleRegNumber);
+        return (ticket == null) ? null : copy(ticket);
+    }
+
+    @Override
+    public synchronized boolean updateTicket(Ticket ticket) {
+        Ticket savedTicket = latestTickets.get(ticket.getVehicleRegNumber());
+        if (savedTicket == null || savedTicket.getId() != ticket.getId() || savedTicket.getOutTime() != null) {
+            return false;
+        }
+        savedTicket.setPrice(ticket.getPrice());
+        savedTicket.setOutTime(ticket.getOutTime());
+        return true;
+    }
+
+    @Override
+    public synchronized int getNbTicket(String vehicleRegNumber) {
+        return visits.getOrDefault(vehicleRegNumber, 0);
+    }
+
+    @Override
+    public synchronized List<Ticket> getOpenTickets(int facilityId) {
+        List<Ticket> openTickets = new ArrayList<>();
+        for (Ticket ticket : latestTickets.values()) {
+            if (ticket.getOutTime() == null && ticket.getFacilityId() == facilityId) {
+                openTickets.add(copy(ticket));
+            }
+        }
+        return openTickets;
+    }
+
+    private static Ticket copy(Ticket ticket) {
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        copy.setParkingSpot(ticket.getParkingSpot());
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime());
+        copy.setOutTime(ticket.getOutTime());
+        return copy;
+    }
+}
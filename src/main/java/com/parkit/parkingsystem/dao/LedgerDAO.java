@@ -0,0 +1,169 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.LedgerEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.LedgerEvent;
+import com.parkit.parkingsystem.model.LedgerSnapshot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+public class LedgerDAO {
+
+    private static final Logger logger = LogManager.getLogger("LedgerDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    // Inserts the events with the SEQ numbers following lastSeq, all or none. Returns false if another node appended
+    // first, or on error: the caller catches up with the ledger and retries.
+    public boolean appendEvents(int facilityId, long lastSeq, List<LedgerEvent> events) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.APPEND_LEDGER_EVENT)) {
+                long seq = lastSeq;
+                for (LedgerEvent event : events) {
+                    event.setSeq(++seq);
+                    ps.setInt(1, facilityId);
+                    ps.setLong(2, event.getSeq());
+                    ps.setString(3, event.getType().toString());
+                    ps.setInt(4, event.getParkingNumber());
+                    ps.setString(5, event.getParkingType().toString());
+                    if (event.getTicketId() > 0) {
+                        ps.setInt(6, event.getTicketId());
+                    } else {
+                        ps.setNull(6, Types.INTEGER);
+                    }
+                    ps.setString(7, event.getVehicleRegNumber());
+                    ps.setDouble(8, event.getPrice());
+                    ps.setTimestamp(9, new Timestamp(event.getTime()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+            return true;
+        } catch (Exception ex) {
+            if (isDuplicateKey(ex)) {
+                logger.info("Ledger of facility " + facilityId + " moved past SEQ " + lastSeq + ", catching up");
+            } else {
+                logger.error("Error appending ledger events", ex);
+            }
+            rollback(con);
+            dataBaseConfig.discardConnection(con);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    // Streams the events of the facility following afterSeq and returns how many were read, or -1 on error.
+    public long readEvents(int facilityId, long afterSeq, LedgerEventHandler handler) {
+        Connection con = null;
+        long readEvents = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_LEDGER_EVENTS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Makes the MySQL driver stream the events, the whole ledger being replayed when there is no snapshot.
+                ps.setFetchSize(Integer.MIN_VALUE);
+                ps.setInt(1, facilityId);
+                ps.setLong(2, afterSeq);
+                try (ResultSet rs = ps.executeQuery()) {
+                    LedgerEvent event = new LedgerEvent();
+                    event.setFacilityId(facilityId);
+                    while (rs.next()) {
+                        event.setSeq(rs.getLong(1));
+                        event.setType(LedgerEventType.valueOf(rs.getString(2)));
+                        event.setParkingNumber(rs.getInt(3));
+                        event.setParkingType(ParkingType.valueOf(rs.getString(4)));
+                        event.setTicketId(rs.getInt(5));
+                        event.setVehicleRegNumber(rs.getString(6));
+                        event.setPrice(rs.getDouble(7));
+                        event.setTime(rs.getTimestamp(8).getTime());
+                        handler.onEvent(event);
+                        readEvents++;
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error reading ledger events", ex);
+            dataBaseConfig.discardConnection(con);
+            readEvents = -1;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return readEvents;
+    }
+
+    public boolean saveSnapshot(LedgerSnapshot snapshot) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_LEDGER_SNAPSHOT)) {
+                ps.setInt(1, snapshot.getFacilityId());
+                ps.setLong(2, snapshot.getSeq());
+                ps.setBytes(3, snapshot.getState());
+                ps.execute();
+            }
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error saving ledger snapshot", ex);
+            dataBaseConfig.discardConnection(con);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    // Returns the most recent snapshot of the facility, or null if none was taken yet.
+    public LedgerSnapshot getLatestSnapshot(int facilityId) {
+        Connection con = null;
+        LedgerSnapshot snapshot = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_LATEST_LEDGER_SNAPSHOT)) {
+                ps.setInt(1, facilityId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        snapshot = new LedgerSnapshot(facilityId, rs.getLong(1), rs.getBytes(2));
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching ledger snapshot", ex);
+            dataBaseConfig.discardConnection(con);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return snapshot;
+    }
+
+    private boolean isDuplicateKey(Exception ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && "23000".equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back ledger append", e);
+            }
+        }
+    }
+}
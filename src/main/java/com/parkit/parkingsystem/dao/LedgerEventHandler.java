@@ -0,0 +1,9 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.LedgerEvent;
+
+public interface LedgerEventHandler {
+
+    // Called once per streamed event, in SEQ order. The event instance is reused, so it must not be kept after the call.
+    void onEvent(LedgerEvent event);
+}
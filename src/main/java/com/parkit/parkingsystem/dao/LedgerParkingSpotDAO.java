@@ -0,0 +1,142 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.TicketLedger;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Spots of the ledger facility are claimed and released by appending to its ledger instead of updating AVAILABLE;
+// the parking table only provides their inventory. The spots of the other facilities still go through the table.
+// A spot still taken in the table when the ledger was enabled belongs to a ticket of the ticket table: it is never
+// allocated, and is released in the table. Those spots are read with the inventory, and again when no other spot is free
+// in case another node released some of them.
+public class LedgerParkingSpotDAO extends ParkingSpotDAO {
+
+    private final TicketLedger ticketLedger;
+    private volatile List<ParkingSpot> inventory;
+    private volatile Set<Integer> tableClaims = ConcurrentHashMap.newKeySet();
+
+    public LedgerParkingSpotDAO(TicketLedger ticketLedger) {
+        this.ticketLedger = ticketLedger;
+    }
+
+    @Override
+    public int getNextAvailableSlot(int facilityId, ParkingType parkingType) {
+        if (facilityId != ticketLedger.getFacilityId()) {
+            return super.getNextAvailableSlot(facilityId, parkingType);
+        }
+        int parkingNumber = nextFreeSpot(parkingType);
+        if (parkingNumber == 0 && !tableClaims.isEmpty()) {
+            loadInventory();
+            parkingNumber = nextFreeSpot(parkingType);
+        }
+        return parkingNumber;
+    }
+
+    private int nextFreeSpot(ParkingType parkingType) {
+        for (ParkingSpot parkingSpot : inventory()) {
+            if (parkingSpot.getParkingType() == parkingType && !isTaken(parkingSpot.getId())) {
+                return parkingSpot.getId();
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        if (parkingSpot.getFacilityId() != ticketLedger.getFacilityId()) {
+            return super.updateParking(parkingSpot);
+        }
+        long now = clock.millis();
+        if (parkingSpot.isAvailable() && tableClaims.contains(parkingSpot.getId()) && !ticketLedger.isClaimed(parkingSpot.getId())) {
+            boolean released = super.updateParking(parkingSpot);
+            tableClaims.remove(parkingSpot.getId());
+            return released;
+        }
+        if (parkingSpot.isAvailable()) {
+            if (!ticketLedger.releaseSpot(parkingSpot, now)) {
+                return false;
+            }
+            occupancyCounter.spotReleased(parkingSpot.getFacilityId(), parkingSpot.getParkingType());
+        } else {
+            if (tableClaims.contains(parkingSpot.getId()) || !ticketLedger.claimSpot(parkingSpot, now)) {
+                return false;
+            }
+            occupancyCounter.spotTaken(parkingSpot.getFacilityId(), parkingSpot.getParkingType());
+        }
+        return true;
+    }
+
+    @Override
+    public List<ParkingSpot> getFacilitySpots(int facilityId) {
+        if (facilityId != ticketLedger.getFacilityId()) {
+            return super.getFacilitySpots(facilityId);
+        }
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (ParkingSpot spot : inventory()) {
+            ParkingSpot parkingSpot = new ParkingSpot(facilityId, spot.getZone(), spot.getId(), spot.getParkingType(), !isTaken(spot.getId()));
+            parkingSpot.setLevel(spot.getLevel());
+            parkingSpot.setGateDistance(spot.getGateDistance());
+            parkingSpots.add(parkingSpot);
+        }
+        return parkingSpots;
+    }
+
+    @Override
+    public List<Occupancy> getOccupancy() {
+        int facilityId = ticketLedger.getFacilityId();
+        List<Occupancy> occupancy = new ArrayList<>();
+        for (Occupancy typeOccupancy : super.getOccupancy()) {
+            if (typeOccupancy.getFacilityId() != facilityId) {
+                occupancy.add(typeOccupancy);
+            }
+        }
+        Map<ParkingType, int[]> counts = new EnumMap<>(ParkingType.class);
+        for (ParkingSpot parkingSpot : inventory()) {
+            int[] typeCounts = counts.computeIfAbsent(parkingSpot.getParkingType(), parkingType -> new int[2]);
+            typeCounts[0]++;
+            if (isTaken(parkingSpot.getId())) {
+                typeCounts[1]++;
+            }
+        }
+        for (Map.Entry<ParkingType, int[]> typeCounts : counts.entrySet()) {
+            occupancy.add(new Occupancy(facilityId, typeCounts.getKey(), typeCounts.getValue()[0], typeCounts.getValue()[1]));
+        }
+        return occupancy;
+    }
+
+    private boolean isTaken(int parkingNumber) {
+        return ticketLedger.isClaimed(parkingNumber) || tableClaims.contains(parkingNumber);
+    }
+
+    // The spots of a facility do not change while it runs, so they are read once.
+    private List<ParkingSpot> inventory() {
+        List<ParkingSpot> spots = inventory;
+        if (spots == null || spots.isEmpty()) {
+            spots = loadInventory();
+        }
+        return spots;
+    }
+
+    private List<ParkingSpot> loadInventory() {
+        List<ParkingSpot> spots = super.getFacilitySpots(ticketLedger.getFacilityId());
+        if (!spots.isEmpty()) {
+            Set<Integer> claims = ConcurrentHashMap.newKeySet();
+            for (ParkingSpot parkingSpot : spots) {
+                if (!parkingSpot.isAvailable()) {
+                    claims.add(parkingSpot.getId());
+                }
+            }
+            tableClaims = claims;
+        }
+        inventory = spots;
+        return spots;
+    }
+}
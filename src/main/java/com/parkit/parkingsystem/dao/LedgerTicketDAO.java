@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.TicketLedger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Tickets of the ledger facility are opened, priced and closed by appending to its ledger, never by updating a row.
+// The visit count adds the ledger visits to the tickets recorded in the tables before the ledger was enabled. A ticket
+// still open in the ticket table when the ledger was enabled is found, quoted and closed there, so that its vehicle can
+// exit and cannot enter a second time.
+public class LedgerTicketDAO extends TicketDAO {
+
+    private final TicketLedger ticketLedger;
+
+    public LedgerTicketDAO(TicketLedger ticketLedger) {
+        this.ticketLedger = ticketLedger;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        if (ticket.getFacilityId() != ticketLedger.getFacilityId()) {
+            return super.saveTicket(ticket);
+        }
+        return ticketLedger.openTicket(ticket);
+    }
+
+    // Returns the open ticket of the vehicle, catching up first if it entered through another node, then the ticket
+    // table for a vehicle which entered before the ledger was enabled.
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        Ticket ticket = ticketLedger.getOpenTicket(vehicleRegNumber);
+        if (ticket == null && ticketLedger.catchUp()) {
+            ticket = ticketLedger.getOpenTicket(vehicleRegNumber);
+        }
+        return (ticket != null) ? ticket : super.getTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        if (ticket.getFacilityId() != ticketLedger.getFacilityId() || ticketLedger.getOpenTicket(ticket.getVehicleRegNumber()) == null) {
+            return super.updateTicket(ticket);
+        }
+        return ticketLedger.closeTicket(ticket);
+    }
+
+    @Override
+    public int getNbTicket(String vehicleRegNumber) {
+        return ticketLedger.getVisitCount(vehicleRegNumber) + super.getNbTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public List<Ticket> getOpenTickets(int facilityId) {
+        if (facilityId != ticketLedger.getFacilityId()) {
+            return super.getOpenTickets(facilityId);
+        }
+        List<Ticket> openTickets = new ArrayList<>(ticketLedger.getOpenTickets());
+        openTickets.addAll(super.getOpenTickets(facilityId));
+        return openTickets;
+    }
+}
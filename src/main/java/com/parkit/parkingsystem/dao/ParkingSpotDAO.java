@@ -3,57 +3,161 @@ package com.parkit.parkingsystem.dao;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Occupancy;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.OccupancyCounter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 public class ParkingSpotDAO {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public RollupDAO rollupDAO = new RollupDAO();
+
+    public OccupancyCounter occupancyCounter = new OccupancyCounter();
+
+    public Clock clock = Clock.systemDefaultZone();
+
     public int getNextAvailableSlot(ParkingType parkingType){
+        return getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, parkingType);
+    }
+
+    public int getNextAvailableSlot(int facilityId, ParkingType parkingType){
         Connection con = null;
         int result=-1;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-            ps.setString(1, parkingType.toString());
-            ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                result = rs.getInt(1);;
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT)) {
+                ps.setInt(1, facilityId);
+                ps.setString(2, parkingType.toString());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if(rs.next()){
+                        result = rs.getInt(1);;
+                    }
+                }
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
+            dataBaseConfig.discardConnection(con);
         }finally {
             dataBaseConfig.closeConnection(con);
         }
         return result;
     }
 
+    // Taking a spot which is no longer free returns false, the gate must then allocate another one.
     public boolean updateParking(ParkingSpot parkingSpot){
         //update the availability fo that parking slot
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
-            int updateRowCount = ps.executeUpdate();
-            dataBaseConfig.closePreparedStatement(ps);
+            int updateRowCount;
+            if(parkingSpot.isAvailable()){
+                try (PreparedStatement ps = con.prepareStatement(DBConstants.RELEASE_PARKING_SPOT)) {
+                    ps.setInt(1, parkingSpot.getFacilityId());
+                    ps.setInt(2, parkingSpot.getId());
+                    updateRowCount = ps.executeUpdate();
+                }
+            }else{
+                try (PreparedStatement ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT)) {
+                    ps.setInt(1, parkingSpot.getFacilityId());
+                    ps.setInt(2, parkingSpot.getId());
+                    updateRowCount = ps.executeUpdate();
+                }
+            }
+            if(updateRowCount == 1){
+                if(parkingSpot.isAvailable()){
+                    occupancyCounter.spotReleased(parkingSpot.getFacilityId(), parkingSpot.getParkingType());
+                }else{
+                    // Counters not initialized yet, as in the commands and ITs running without the occupancy service,
+                    // are loaded from the DB, which already counts this spot, so that peaks never start from 0.
+                    if(!occupancyCounter.isReconciled(parkingSpot.getFacilityId())){
+                        loadOccupancy(con);
+                    }else{
+                        occupancyCounter.spotTaken(parkingSpot.getFacilityId(), parkingSpot.getParkingType());
+                    }
+                    rollupDAO.recordOccupancy(con, parkingSpot.getParkingType(), occupancyCounter.getOccupiedSpots(parkingSpot.getParkingType()), new Date(clock.millis()));
+                }
+            }
             return (updateRowCount == 1);
         }catch (Exception ex){
             logger.error("Error updating parking info",ex);
+            dataBaseConfig.discardConnection(con);
             return false;
         }finally {
             dataBaseConfig.closeConnection(con);
         }
     }
 
+    public List<ParkingSpot> getFacilitySpots(int facilityId){
+        Connection con = null;
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_FACILITY_SPOTS)) {
+                ps.setInt(1, facilityId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while(rs.next()){
+                        ParkingSpot parkingSpot = new ParkingSpot(facilityId, rs.getString(2), rs.getInt(1), ParkingType.valueOf(rs.getString(5)), rs.getBoolean(6));
+                        parkingSpot.setLevel(rs.getInt(3));
+                        parkingSpot.setGateDistance(rs.getInt(4));
+                        parkingSpots.add(parkingSpot);
+                    }
+                }
+            }
+        }catch (Exception ex){
+            logger.error("Error fetching facility spots",ex);
+            dataBaseConfig.discardConnection(con);
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return parkingSpots;
+    }
+
+    public List<Occupancy> getOccupancy(){
+        Connection con = null;
+        List<Occupancy> occupancy = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            occupancy = readOccupancy(con);
+        }catch (Exception ex){
+            logger.error("Error fetching parking occupancy",ex);
+            dataBaseConfig.discardConnection(con);
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return occupancy;
+    }
+
+    private void loadOccupancy(Connection con){
+        try {
+            for(Occupancy typeOccupancy : readOccupancy(con)){
+                occupancyCounter.reconcile(typeOccupancy);
+            }
+        }catch (Exception ex){
+            logger.error("Error loading parking occupancy",ex);
+        }
+    }
+
+    private static List<Occupancy> readOccupancy(Connection con) throws SQLException {
+        List<Occupancy> occupancy = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_OCCUPANCY);
+             ResultSet rs = ps.executeQuery()) {
+            while(rs.next()){
+                occupancy.add(new Occupancy(rs.getInt(1), ParkingType.valueOf(rs.getString(2)), rs.getInt(3), rs.getInt(4)));
+            }
+        }
+        return occupancy;
+    }
 }
@@ -0,0 +1,137 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class ParkingSpotLeaseDAO {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSpotLeaseDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    // Leases up to blockSize free spots of the given facility and type to the owner and returns their numbers.
+    // Spots locked by another node leasing at the same time are skipped instead of waited for.
+    public List<Integer> leaseSpots(int facilityId, ParkingType parkingType, String owner, int blockSize, int leaseSeconds){
+        return lease(false, facilityId, parkingType, owner, blockSize, leaseSeconds);
+    }
+
+    // Takes over up to count free spots leased by other nodes, which are still unused there. The node which leased them
+    // first may still hand them out: of the two entries only one claims the spot, the other allocates another one.
+    public List<Integer> takeOverLeases(int facilityId, ParkingType parkingType, String owner, int count, int leaseSeconds){
+        return lease(true, facilityId, parkingType, owner, count, leaseSeconds);
+    }
+
+    private List<Integer> lease(boolean takeOver, int facilityId, ParkingType parkingType, String owner, int count, int leaseSeconds){
+        Connection con = null;
+        List<Integer> leasedSpots = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(takeOver ? DBConstants.GET_IDLE_LEASED_SPOTS : DBConstants.GET_LEASABLE_SPOTS)) {
+                int index = 1;
+                ps.setInt(index++, facilityId);
+                ps.setString(index++, parkingType.toString());
+                if(takeOver){
+                    ps.setString(index++, owner);
+                }
+                ps.setInt(index, count);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while(rs.next()){
+                        leasedSpots.add(rs.getInt(1));
+                    }
+                }
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.LEASE_SPOT)) {
+                for(int parkingNumber : leasedSpots){
+                    ps.setString(1, owner);
+                    ps.setInt(2, leaseSeconds);
+                    ps.setInt(3, facilityId);
+                    ps.setInt(4, parkingNumber);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+        }catch (Exception ex){
+            logger.error("Error leasing parking spots",ex);
+            rollback(con);
+            dataBaseConfig.discardConnection(con);
+            leasedSpots.clear();
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return leasedSpots;
+    }
+
+    // Extends the leases of the given spots, if they are still leased by the owner. Returns false if the leases could
+    // not be renewed.
+    public boolean renewLeases(int facilityId, Collection<Integer> parkingNumbers, String owner, int leaseSeconds){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.RENEW_LEASES)) {
+                for(int parkingNumber : parkingNumbers){
+                    ps.setInt(1, leaseSeconds);
+                    ps.setInt(2, facilityId);
+                    ps.setInt(3, parkingNumber);
+                    ps.setString(4, owner);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return true;
+        }catch (Exception ex){
+            logger.error("Error renewing parking spot leases",ex);
+            dataBaseConfig.discardConnection(con);
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    // Gives the spots back to the shared pool, if they are still leased by the owner.
+    public boolean releaseSpots(int facilityId, Collection<Integer> parkingNumbers, String owner){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.RELEASE_LEASE)) {
+                for(int parkingNumber : parkingNumbers){
+                    ps.setInt(1, facilityId);
+                    ps.setInt(2, parkingNumber);
+                    ps.setString(3, owner);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return true;
+        }catch (Exception ex){
+            logger.error("Error releasing parking spot leases",ex);
+            dataBaseConfig.discardConnection(con);
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void rollback(Connection con) {
+        if(con != null){
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back spot lease",e);
+            }
+        }
+    }
+}
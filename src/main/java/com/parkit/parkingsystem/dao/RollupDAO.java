@@ -0,0 +1,182 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.RollupPeriod;
+import com.parkit.parkingsystem.model.Rollup;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+public class RollupDAO {
+
+    private static final Logger logger = LogManager.getLogger("RollupDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    // Adds a closed ticket to its hourly and daily rollups, using the connection of the ticket update.
+    // A rollup failure is only logged so that it never blocks a vehicle at the gate.
+    public void recordTicketClosed(Connection con, Ticket ticket) {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.UPSERT_ROLLUP)) {
+            long staySeconds = (ticket.getOutTime().getTime() - ticket.getInTime().getTime()) / 1000;
+            for (RollupPeriod period : RollupPeriod.values()) {
+                Rollup rollup = new Rollup(period, period.bucketStart(ticket.getOutTime()), ticket.getParkingSpot().getParkingType());
+                rollup.addTicket(ticket.getPrice(), staySeconds);
+                addRollupToBatch(ps, rollup);
+            }
+            ps.executeBatch();
+        } catch (Exception ex) {
+            logger.error("Error updating rollups for closed ticket", ex);
+        }
+    }
+
+    // Raises the peak occupancy of the current hourly and daily rollups once a spot of the given type has been taken.
+    // The occupied spots come from the in-memory counters, so a claim never scans the parking table.
+    public void recordOccupancy(Connection con, ParkingType parkingType, int occupiedSpots, Date time) {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.UPSERT_ROLLUP)) {
+            for (RollupPeriod period : RollupPeriod.values()) {
+                Rollup rollup = new Rollup(period, period.bucketStart(time), parkingType);
+                rollup.updatePeakOccupancy(occupiedSpots);
+                addRollupToBatch(ps, rollup);
+            }
+            ps.executeBatch();
+        } catch (Exception ex) {
+            logger.error("Error updating rollups occupancy", ex);
+        }
+    }
+
+    // Returns the rollup of the bucket containing the given time, with zero values if nothing was recorded in it.
+    public Rollup getRollup(RollupPeriod period, ParkingType parkingType, Date time) {
+        Connection con = null;
+        Rollup rollup = new Rollup(period, period.bucketStart(time), parkingType);
+        try {
+            con = dataBaseConfig.getReadConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_ROLLUP)) {
+                ps.setString(1, period.toString());
+                ps.setTimestamp(2, new Timestamp(rollup.getBucketStart().getTime()));
+                ps.setString(3, parkingType.toString());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        rollup.setTicketCount(rs.getInt(1));
+                        rollup.setRevenue(rs.getDouble(2));
+                        rollup.setTotalStaySeconds(rs.getLong(3));
+                        rollup.setPeakOccupancy(rs.getInt(4));
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching rollup", ex);
+            dataBaseConfig.discardConnection(con);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return rollup;
+    }
+
+    // Recomputes every rollup from the live and archived tickets and returns the number of tickets streamed.
+    // Tickets are read row by row in IN_TIME order; the peak occupancy is replayed with one heap of pending
+    // out times per parking type, so memory only grows with the number of buckets and of simultaneous stays.
+    // The rollups are cleared first, in the same repeatable read transaction as the read and the reinsert: the delete
+    // locks the whole table, so a ticket closed during the rebuild waits for the commit and then adds itself to the
+    // rebuilt rollups, while its uncommitted close is not in the snapshot read here. Gates closing tickets or taking
+    // spots meanwhile therefore wait for the rebuild to commit.
+    public int rebuildRollups() {
+        Connection con = null;
+        int streamedTickets = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.CLEAR_ROLLUPS)) {
+                ps.execute();
+            }
+
+            Map<String, Rollup> rollups = new HashMap<>();
+            Map<ParkingType, PriorityQueue<Long>> pendingOutTimes = new EnumMap<>(ParkingType.class);
+            for (ParkingType parkingType : ParkingType.values()) {
+                pendingOutTimes.put(parkingType, new PriorityQueue<>());
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_HISTORY_BY_IN_TIME, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Makes the MySQL driver stream the rows instead of loading the whole result in memory.
+                ps.setFetchSize(Integer.MIN_VALUE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Date inTime = rs.getTimestamp(1);
+                        Date outTime = rs.getTimestamp(2);
+                        ParkingType parkingType = ParkingType.valueOf(rs.getString(4));
+
+                        PriorityQueue<Long> outTimes = pendingOutTimes.get(parkingType);
+                        while (!outTimes.isEmpty() && outTimes.peek() <= inTime.getTime()) {
+                            outTimes.poll();
+                        }
+                        outTimes.add((outTime == null) ? Long.MAX_VALUE : outTime.getTime());
+                        for (RollupPeriod period : RollupPeriod.values()) {
+                            rollupFor(rollups, period, parkingType, inTime).updatePeakOccupancy(outTimes.size());
+                            if (outTime != null) {
+                                long staySeconds = (outTime.getTime() - inTime.getTime()) / 1000;
+                                rollupFor(rollups, period, parkingType, outTime).addTicket(rs.getDouble(3), staySeconds);
+                            }
+                        }
+                        streamedTickets++;
+                    }
+                }
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.UPSERT_ROLLUP)) {
+                for (Rollup rollup : rollups.values()) {
+                    addRollupToBatch(ps, rollup);
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+            logger.info("Rebuilt " + rollups.size() + " rollups from " + streamedTickets + " tickets");
+        } catch (Exception ex) {
+            logger.error("Error rebuilding rollups", ex);
+            rollback(con);
+            dataBaseConfig.discardConnection(con);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return streamedTickets;
+    }
+
+    private Rollup rollupFor(Map<String, Rollup> rollups, RollupPeriod period, ParkingType parkingType, Date time) {
+        Date bucketStart = period.bucketStart(time);
+        return rollups.computeIfAbsent(period + ":" + parkingType + ":" + bucketStart.getTime(),
+                key -> new Rollup(period, bucketStart, parkingType));
+    }
+
+    private void addRollupToBatch(PreparedStatement ps, Rollup rollup) throws SQLException {
+        ps.setString(1, rollup.getPeriod().toString());
+        ps.setTimestamp(2, new Timestamp(rollup.getBucketStart().getTime()));
+        ps.setString(3, rollup.getParkingType().toString());
+        ps.setInt(4, rollup.getTicketCount());
+        ps.setDouble(5, rollup.getRevenue());
+        ps.setLong(6, rollup.getTotalStaySeconds());
+        ps.setInt(7, rollup.getPeakOccupancy());
+        ps.addBatch();
+    }
+
+    private void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back rollups rebuild", e);
+            }
+        }
+    }
+}
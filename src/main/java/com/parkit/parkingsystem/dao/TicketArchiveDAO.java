@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TicketArchiveDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiveDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    // Moves one batch of closed tickets older than the cutoff into the archive table and returns the number of tickets moved.
+    // Each batch runs in its own short transaction and skips rows locked by the gates, so the ticket table is never locked as a whole.
+    public int archiveClosedTickets(Date cutoff, int batchSize) {
+        Connection con = null;
+        int archivedTickets = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            con.setAutoCommit(false);
+
+            List<Integer> ticketIds = new ArrayList<>();
+            Map<String, Integer> visitsByVehicle = new HashMap<>();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_ARCHIVABLE_TICKETS)) {
+                ps.setTimestamp(1, new Timestamp(cutoff.getTime()));
+                ps.setInt(2, batchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while(rs.next()){
+                        ticketIds.add(rs.getInt(1));
+                        visitsByVehicle.merge(rs.getString(2), 1, Integer::sum);
+                    }
+                }
+            }
+
+            if(!ticketIds.isEmpty()){
+                executeBatch(con, DBConstants.ARCHIVE_TICKET, ticketIds);
+                // The visit counts are moved in the same transaction, so the regular user discount never sees a gap.
+                try (PreparedStatement ps = con.prepareStatement(DBConstants.ADD_ARCHIVED_VISITS)) {
+                    for(Map.Entry<String, Integer> visits : visitsByVehicle.entrySet()){
+                        ps.setString(1, visits.getKey());
+                        ps.setInt(2, visits.getValue());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                executeBatch(con, DBConstants.DELETE_TICKET, ticketIds);
+            }
+            con.commit();
+            archivedTickets = ticketIds.size();
+        }catch (Exception ex){
+            logger.error("Error archiving closed tickets",ex);
+            rollback(con);
+            dataBaseConfig.discardConnection(con);
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return archivedTickets;
+    }
+
+    private void executeBatch(Connection con, String query, List<Integer> ticketIds) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(query)) {
+            for(int ticketId : ticketIds){
+                ps.setInt(1, ticketId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void rollback(Connection con) {
+        if(con != null){
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back archival batch",e);
+            }
+        }
+    }
+}
@@ -5,38 +5,64 @@ import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketHistoryCursor;
+import com.parkit.parkingsystem.model.TicketHistoryPage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 public class TicketDAO {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    public static final int MAX_HISTORY_PAGE_SIZE = 500;
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public RollupDAO rollupDAO = new RollupDAO();
+
+    // Sets the generated ID on the saved ticket, so that the events published for it carry its ID.
     public boolean saveTicket(Ticket ticket){
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            //ps.setInt(1,ticket.getId());
-            ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)) {
+                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                //ps.setInt(1,ticket.getId());
+                ps.setInt(1,ticket.getFacilityId());
+                ps.setInt(2,ticket.getParkingSpot().getId());
+                ps.setString(3, ticket.getVehicleRegNumber());
+                ps.setDouble(4, ticket.getPrice());
+                ps.setTimestamp(5, new Timestamp(ticket.getInTime().getTime()));
+                ps.setTimestamp(6, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+                if(ps.executeUpdate() != 1){
+                    return false;
+                }
+                try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                    if(generatedKeys.next()){
+                        ticket.setId(generatedKeys.getInt(1));
+                    }
+                }
+                return true;
+            }
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            // Including the duplicate key of a second open ticket for the vehicle.
+            logger.error("Error saving ticket",ex);
+            dataBaseConfig.discardConnection(con);
+            return false;
         }finally {
             dataBaseConfig.closeConnection(con);
-            return false;
         }
     }
 
@@ -45,42 +71,54 @@ public class TicketDAO {
         Ticket ticket = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            ps.setString(1,vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET)) {
+                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                ps.setString(1,vehicleRegNumber);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if(rs.next()){
+                        ticket = new Ticket();
+                        ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(7), rs.getString(8), rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
+                        ticket.setParkingSpot(parkingSpot);
+                        ticket.setId(rs.getInt(2));
+                        ticket.setVehicleRegNumber(vehicleRegNumber);
+                        ticket.setPrice(rs.getDouble(3));
+                        ticket.setInTime(rs.getTimestamp(4));
+                        ticket.setOutTime(rs.getTimestamp(5));
+                    }
+                }
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
+            dataBaseConfig.discardConnection(con);
         }finally {
             dataBaseConfig.closeConnection(con);
-            return ticket;
         }
+        return ticket;
     }
 
+    // The ticket and its rollups are committed together, so that a rollups rebuild never sees a closed ticket whose
+    // rollups are not recorded yet.
     public boolean updateTicket(Ticket ticket) {
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-            ps.setDouble(1, ticket.getPrice());
-            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(3,ticket.getId());
-            ps.execute();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET)) {
+                ps.setDouble(1, ticket.getPrice());
+                ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+                ps.setInt(3,ticket.getId());
+                if(ps.executeUpdate() != 1){
+                    con.rollback();
+                    return false;
+                }
+            }
+            rollupDAO.recordTicketClosed(con, ticket);
+            con.commit();
             return true;
         }catch (Exception ex){
             logger.error("Error saving ticket info",ex);
+            rollback(con);
+            dataBaseConfig.discardConnection(con);
         }finally {
             dataBaseConfig.closeConnection(con);
         }
@@ -91,20 +129,139 @@ public class TicketDAO {
         Connection con = null;
         int numberOfTickets = 0;
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NUMBER_OF_TICKETS);
-            ps.setString(1,vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                numberOfTickets = rs.getInt(1);
+            // The visit count tolerates the bounded staleness of the read replica.
+            con = dataBaseConfig.getReadConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_NUMBER_OF_TICKETS)) {
+                ps.setString(1,vehicleRegNumber);
+                ps.setString(2,vehicleRegNumber);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if(rs.next()){
+                        numberOfTickets = rs.getInt(1);
+                    }
+                }
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
         } catch (Exception ex){
             logger.error("Error fetching the count of tickets",ex);
+            dataBaseConfig.discardConnection(con);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return numberOfTickets;
+    }
+
+    public List<Ticket> getOpenTickets(int facilityId) {
+        Connection con = null;
+        List<Ticket> tickets = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS)) {
+                ps.setInt(1, facilityId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while(rs.next()){
+                        Ticket ticket = new Ticket();
+                        ticket.setParkingSpot(new ParkingSpot(facilityId, rs.getString(6), rs.getInt(1), ParkingType.valueOf(rs.getString(5)), false));
+                        ticket.setId(rs.getInt(2));
+                        ticket.setVehicleRegNumber(rs.getString(3));
+                        ticket.setInTime(rs.getTimestamp(4));
+                        tickets.add(ticket);
+                    }
+                }
+            }
+        } catch (Exception ex){
+            logger.error("Error fetching the open tickets",ex);
+            dataBaseConfig.discardConnection(con);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return tickets;
+    }
+
+    // Returns one page of the vehicle's live and archived tickets, newest first, starting after the cursor, or null on error.
+    // One extra row is read to know whether another page follows.
+    public TicketHistoryPage getTicketHistory(String vehicleRegNumber, TicketHistoryCursor cursor, int pageSize) {
+        if(pageSize <= 0 || pageSize > MAX_HISTORY_PAGE_SIZE){
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        Connection con = null;
+        TicketHistoryPage page = null;
+        try {
+            con = dataBaseConfig.getReadConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_HISTORY_PAGE)) {
+                Timestamp inTime = new Timestamp(cursor.getInTime());
+                for(int branch = 0; branch < 2; branch++){
+                    int offset = branch * 5;
+                    ps.setString(offset + 1, vehicleRegNumber);
+                    ps.setTimestamp(offset + 2, inTime);
+                    ps.setTimestamp(offset + 3, inTime);
+                    ps.setInt(offset + 4, cursor.getTicketId());
+                    ps.setInt(offset + 5, pageSize + 1);
+                }
+                ps.setInt(11, pageSize + 1);
+                List<Ticket> tickets = new ArrayList<>(pageSize);
+                boolean hasNext = false;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while(rs.next()){
+                        if(tickets.size() == pageSize){
+                            hasNext = true;
+                            break;
+                        }
+                        Ticket ticket = new Ticket();
+                        ticket.setId(rs.getInt(1));
+                        ticket.setParkingSpot(new ParkingSpot(rs.getInt(2), rs.getString(5), rs.getInt(3), ParkingType.valueOf(rs.getString(4)), false));
+                        ticket.setVehicleRegNumber(vehicleRegNumber);
+                        ticket.setPrice(rs.getDouble(6));
+                        ticket.setInTime(rs.getTimestamp(7));
+                        ticket.setOutTime(rs.getTimestamp(8));
+                        tickets.add(ticket);
+                    }
+                }
+                page = new TicketHistoryPage(tickets, hasNext ? TicketHistoryCursor.after(tickets.get(pageSize - 1)) : null);
+            }
+        } catch (Exception ex){
+            logger.error("Error fetching the ticket history",ex);
+            dataBaseConfig.discardConnection(con);
         } finally {
             dataBaseConfig.closeConnection(con);
-            return numberOfTickets;
+        }
+        return page;
+    }
+
+    // Walks the whole history page by page, so that at most one page of tickets is held in memory at a time.
+    public Iterator<Ticket> iterateTicketHistory(String vehicleRegNumber, int pageSize) {
+        return new Iterator<Ticket>() {
+            private TicketHistoryCursor nextCursor = TicketHistoryCursor.FIRST;
+            private Iterator<Ticket> page = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while(!page.hasNext() && nextCursor != null){
+                    TicketHistoryPage historyPage = getTicketHistory(vehicleRegNumber, nextCursor, pageSize);
+                    if(historyPage == null){
+                        throw new IllegalStateException("Error fetching the ticket history of " + vehicleRegNumber);
+                    }
+                    page = historyPage.getTickets().iterator();
+                    nextCursor = historyPage.getNextCursor();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public Ticket next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+    }
+
+    private void rollback(Connection con) {
+        if(con != null){
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back ticket update",e);
+            }
         }
     }
-}
\ No newline at end of file
+}
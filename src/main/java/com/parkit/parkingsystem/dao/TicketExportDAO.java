@@ -0,0 +1,56 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.TicketRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+
+public class TicketExportDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketExportDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    // Streams every ticket to the handler through a forward only cursor and returns the number of rows exported, or -1 on error.
+    public long exportTickets(TicketRowHandler handler) {
+        Connection con = null;
+        long exportedRows = 0;
+        try {
+            con = dataBaseConfig.getReadConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.EXPORT_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Makes the MySQL driver stream the rows one by one instead of loading the whole result in memory.
+                ps.setFetchSize(Integer.MIN_VALUE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    TicketRow row = new TicketRow();
+                    while (rs.next()) {
+                        row.setId(rs.getInt(1));
+                        row.setFacilityId(rs.getInt(2));
+                        row.setParkingNumber(rs.getInt(3));
+                        row.setParkingType(ParkingType.valueOf(rs.getString(4)));
+                        row.setVehicleRegNumber(rs.getString(5));
+                        row.setPrice(rs.getDouble(6));
+                        row.setInTime(rs.getTimestamp(7).getTime());
+                        Timestamp outTime = rs.getTimestamp(8);
+                        row.setOutTime((outTime == null) ? TicketRow.NO_OUT_TIME : outTime.getTime());
+                        handler.onRow(row);
+                        exportedRows++;
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error exporting tickets", ex);
+            dataBaseConfig.discardConnection(con);
+            exportedRows = -1;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return exportedRows;
+    }
+}
@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.TicketImportChunk;
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.BitSet;
+
+public class TicketImportDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketImportDAO");
+
+    public static final int NO_SPOT = 0;
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    public static long spotKey(int facilityId, int parkingNumber) {
+        return ((long) facilityId << 32) | (parkingNumber & 0xFFFFFFFFL);
+    }
+
+    // Returns the parking type ordinal + 1 of every spot, keyed by spotKey, or null on error.
+    public LongIntHashMap getSpotTypes() {
+        Connection con = null;
+        LongIntHashMap spotTypes = null;
+        try {
+            con = dataBaseConfig.getReadConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOT_TYPES);
+                 ResultSet rs = ps.executeQuery()) {
+                LongIntHashMap spots = new LongIntHashMap(1024, NO_SPOT);
+                while (rs.next()) {
+                    spots.put(spotKey(rs.getInt(1), rs.getInt(2)), ParkingType.valueOf(rs.getString(3)).ordinal() + 1);
+                }
+                spotTypes = spots;
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching the parking spots", ex);
+            dataBaseConfig.discardConnection(con);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return spotTypes;
+    }
+
+    // Returns the chunks of the import already committed, or null on error.
+    public BitSet getImportedChunks(String importId) {
+        Connection con = null;
+        BitSet importedChunks = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_IMPORTED_CHUNKS)) {
+                ps.setString(1, importId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    BitSet chunks = new BitSet();
+                    while (rs.next()) {
+                        chunks.set(rs.getInt(1));
+                    }
+                    importedChunks = chunks;
+                }
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching the checkpoints of import " + importId, ex);
+            dataBaseConfig.discardConnection(con);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return importedChunks;
+    }
+
+    // Inserts the tickets of the chunk with one batch and its checkpoint, in a single transaction.
+    // Returns false if nothing was committed, including when another run committed the chunk first.
+    public boolean importChunk(String importId, TicketImportChunk chunk) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(1, chunk.getFacilityId(i));
+                    ps.setInt(2, chunk.getParkingNumber(i));
+                    ps.setString(3, chunk.getVehicleRegNumber(i));
+                    ps.setDouble(4, chunk.getPrice(i));
+                    ps.setTimestamp(5, new Timestamp(chunk.getInTime(i)));
+                    ps.setTimestamp(6, new Timestamp(chunk.getOutTime(i)));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_IMPORT_CHECKPOINT)) {
+                ps.setString(1, importId);
+                ps.setInt(2, chunk.getIndex());
+                ps.setInt(3, chunk.size());
+                ps.execute();
+            }
+            con.commit();
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error importing chunk " + chunk.getIndex() + " of import " + importId, ex);
+            rollback(con);
+            dataBaseConfig.discardConnection(con);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back import chunk", e);
+            }
+        }
+    }
+}
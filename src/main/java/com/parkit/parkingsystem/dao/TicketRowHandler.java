@@ -0,0 +1,11 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.TicketRow;
+
+import java.io.IOException;
+
+public interface TicketRowHandler {
+
+    // Called once per streamed row. The row instance is reused, so it must not be kept after the call.
+    void onRow(TicketRow row) throws IOException;
+}
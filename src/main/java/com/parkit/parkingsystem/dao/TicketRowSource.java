@@ -0,0 +1,9 @@
+package com.parkit.parkingsystem.dao;
+
+import java.io.IOException;
+
+public interface TicketRowSource {
+
+    // Streams every row to the handler, in a stable order, and returns the number of rows read or -1 on error.
+    long read(TicketRowHandler handler) throws IOException;
+}
@@ -0,0 +1,46 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+// Price a vehicle would pay if it exited at the quote time. The ticket stays open.
+public class FareQuote {
+    private final String vehicleRegNumber;
+    private final ParkingType parkingType;
+    private final long inTime;
+    private final long quoteTime;
+    private final boolean discount;
+    private final double price;
+
+    public FareQuote(String vehicleRegNumber, ParkingType parkingType, long inTime, long quoteTime, boolean discount, double price) {
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+        this.inTime = inTime;
+        this.quoteTime = quoteTime;
+        this.discount = discount;
+        this.price = price;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public long getInTime() {
+        return inTime;
+    }
+
+    public long getQuoteTime() {
+        return quoteTime;
+    }
+
+    public boolean isDiscount() {
+        return discount;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+}
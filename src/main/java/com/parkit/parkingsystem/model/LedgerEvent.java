@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.LedgerEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+// Entry of the append-only ticket ledger. SEQ numbers the events of a facility without gaps; the ticket ID of a
+// ticket is the SEQ of its TICKET_OPENED event. Streamed events reuse one instance, like the ticket rows.
+public class LedgerEvent {
+    private long seq;
+    private LedgerEventType type;
+    private int facilityId;
+    private int parkingNumber;
+    private ParkingType parkingType;
+    private int ticketId;
+    private String vehicleRegNumber;
+    private double price;
+    private long time;
+
+    public LedgerEvent() {
+    }
+
+    public LedgerEvent(LedgerEventType type, ParkingSpot parkingSpot, long time) {
+        this.type = type;
+        this.facilityId = parkingSpot.getFacilityId();
+        this.parkingNumber = parkingSpot.getId();
+        this.parkingType = parkingSpot.getParkingType();
+        this.time = time;
+    }
+
+    public LedgerEvent(LedgerEventType type, Ticket ticket, long time) {
+        this(type, ticket.getParkingSpot(), time);
+        this.ticketId = ticket.getId();
+        this.vehicleRegNumber = ticket.getVehicleRegNumber();
+        this.price = ticket.getPrice();
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    public LedgerEventType getType() {
+        return type;
+    }
+
+    public void setType(LedgerEventType type) {
+        this.type = type;
+    }
+
+    public int getFacilityId() {
+        return facilityId;
+    }
+
+    public void setFacilityId(int facilityId) {
+        this.facilityId = facilityId;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public void setParkingNumber(int parkingNumber) {
+        this.parkingNumber = parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public void setParkingType(ParkingType parkingType) {
+        this.parkingType = parkingType;
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(int ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public void setVehicleRegNumber(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+}
@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.model;
+
+// Serialized ledger projection of a facility, holding every event up to and including SEQ.
+public final class LedgerSnapshot {
+
+    private final int facilityId;
+    private final long seq;
+    private final byte[] state;
+
+    public LedgerSnapshot(int facilityId, long seq, byte[] state) {
+        this.facilityId = facilityId;
+        this.seq = seq;
+        this.state = state;
+    }
+
+    public int getFacilityId() {
+        return facilityId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public byte[] getState() {
+        return state;
+    }
+}
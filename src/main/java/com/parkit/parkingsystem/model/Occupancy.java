@@ -0,0 +1,37 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+public class Occupancy {
+    private int facilityId;
+    private ParkingType parkingType;
+    private int totalSpots;
+    private int occupiedSpots;
+
+    public Occupancy(int facilityId, ParkingType parkingType, int totalSpots, int occupiedSpots) {
+        this.facilityId = facilityId;
+        this.parkingType = parkingType;
+        this.totalSpots = totalSpots;
+        this.occupiedSpots = occupiedSpots;
+    }
+
+    public int getFacilityId() {
+        return facilityId;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getTotalSpots() {
+        return totalSpots;
+    }
+
+    public int getOccupiedSpots() {
+        return occupiedSpots;
+    }
+
+    public int getFreeSpots() {
+        return Math.max(0, totalSpots - occupiedSpots);
+    }
+}
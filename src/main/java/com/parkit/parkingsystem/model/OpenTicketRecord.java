@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.util.PlateCodec;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+// Flyweight over one fixed size record of the open ticket store. A single instance is moved from record to record,
+// reading the fields straight from the buffer, so looking a ticket up allocates nothing.
+// Layout (RECORD_SIZE bytes): long plate code, long in-time millis, int ticket id, int facility id, int parking number,
+// byte parking type ordinal, then padding to keep the records 8 byte aligned.
+public class OpenTicketRecord {
+    public static final int RECORD_SIZE = 32;
+
+    static final int PLATE_OFFSET = 0;
+    static final int IN_TIME_OFFSET = 8;
+    static final int TICKET_ID_OFFSET = 16;
+    static final int FACILITY_ID_OFFSET = 20;
+    static final int PARKING_NUMBER_OFFSET = 24;
+    static final int PARKING_TYPE_OFFSET = 28;
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    public OpenTicketRecord wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    public long getPlateCode() {
+        return buffer.getLong(offset + PLATE_OFFSET);
+    }
+
+    public String getVehicleRegNumber() {
+        return PlateCodec.decode(getPlateCode());
+    }
+
+    public long getInTime() {
+        return buffer.getLong(offset + IN_TIME_OFFSET);
+    }
+
+    public int getTicketId() {
+        return buffer.getInt(offset + TICKET_ID_OFFSET);
+    }
+
+    public int getFacilityId() {
+        return buffer.getInt(offset + FACILITY_ID_OFFSET);
+    }
+
+    public int getParkingNumber() {
+        return buffer.getInt(offset + PARKING_NUMBER_OFFSET);
+    }
+
+    public ParkingType getParkingType() {
+        return PARKING_TYPES[buffer.get(offset + PARKING_TYPE_OFFSET)];
+    }
+
+    // Writes a whole record at the current position.
+    public void set(long plateCode, long inTime, int ticketId, int facilityId, int parkingNumber, ParkingType parkingType) {
+        buffer.putLong(offset + PLATE_OFFSET, plateCode);
+        buffer.putLong(offset + IN_TIME_OFFSET, inTime);
+        buffer.putInt(offset + TICKET_ID_OFFSET, ticketId);
+        buffer.putInt(offset + FACILITY_ID_OFFSET, facilityId);
+        buffer.putInt(offset + PARKING_NUMBER_OFFSET, parkingNumber);
+        buffer.put(offset + PARKING_TYPE_OFFSET, (byte) parkingType.ordinal());
+    }
+
+    // Materializes the record as a regular open ticket, for the callers needing the object model.
+    public Ticket toTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setId(getTicketId());
+        ticket.setParkingSpot(new ParkingSpot(getFacilityId(), null, getParkingNumber(), getParkingType(), false));
+        ticket.setVehicleRegNumber(getVehicleRegNumber());
+        ticket.setInTime(new Date(getInTime()));
+        return ticket;
+    }
+}
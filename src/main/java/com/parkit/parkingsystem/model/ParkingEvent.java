@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+// Event carried by the event bus. Instances are preallocated in the ring buffer and overwritten for each new event,
+// so subscribers must copy what they need before returning from their handler.
+public class ParkingEvent {
+    private ParkingEventType type;
+    private int facilityId;
+    private int parkingNumber;
+    private ParkingType parkingType;
+    private int ticketId;
+    private String vehicleRegNumber;
+    private double price;
+    private long time;
+
+    public ParkingEventType getType() {
+        return type;
+    }
+
+    public int getFacilityId() {
+        return facilityId;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void set(ParkingEventType type, ParkingSpot parkingSpot, Ticket ticket, long time) {
+        this.type = type;
+        this.facilityId = parkingSpot.getFacilityId();
+        this.parkingNumber = parkingSpot.getId();
+        this.parkingType = parkingSpot.getParkingType();
+        this.ticketId = (ticket == null) ? 0 : ticket.getId();
+        this.vehicleRegNumber = (ticket == null) ? null : ticket.getVehicleRegNumber();
+        this.price = (ticket == null) ? 0 : ticket.getPrice();
+        this.time = time;
+    }
+
+    @Override
+    public String toString() {
+        return type + " facility=" + facilityId + " spot=" + parkingNumber + " type=" + parkingType
+                + ((vehicleRegNumber == null) ? "" : " vehicle=" + vehicleRegNumber + " ticket=" + ticketId + " price=" + price)
+                + " time=" + time;
+    }
+}
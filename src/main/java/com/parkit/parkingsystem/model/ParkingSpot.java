@@ -3,16 +3,62 @@ package com.parkit.parkingsystem.model;
 import com.parkit.parkingsystem.constants.ParkingType;
 
 public class ParkingSpot {
+    // Facility of the spots created without an explicit one, for single lot deployments.
+    public static final int DEFAULT_FACILITY_ID = 1;
+
+    private int facilityId;
+    private String zone;
+    private int level;
+    private int gateDistance;
     private int number;
     private ParkingType parkingType;
     private boolean isAvailable;
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
+        this(DEFAULT_FACILITY_ID, null, number, parkingType, isAvailable);
+    }
+
+    public ParkingSpot(int facilityId, String zone, int number, ParkingType parkingType, boolean isAvailable) {
+        this.facilityId = facilityId;
+        this.zone = zone;
         this.number = number;
         this.parkingType = parkingType;
         this.isAvailable = isAvailable;
     }
 
+    public int getFacilityId() {
+        return facilityId;
+    }
+
+    public void setFacilityId(int facilityId) {
+        this.facilityId = facilityId;
+    }
+
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    // Walking distance from the entrance gate, in the unit chosen by the facility.
+    public int getGateDistance() {
+        return gateDistance;
+    }
+
+    public void setGateDistance(int gateDistance) {
+        this.gateDistance = gateDistance;
+    }
+
     public int getId() {
         return number;
     }
@@ -42,11 +88,11 @@ public class ParkingSpot {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ParkingSpot that = (ParkingSpot) o;
-        return number == that.number;
+        return facilityId == that.facilityId && number == that.number;
     }
 
     @Override
     public int hashCode() {
-        return number;
+        return 31 * facilityId + number;
     }
 }
@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.RollupPeriod;
+
+import java.util.Date;
+
+public class Rollup {
+    private RollupPeriod period;
+    private Date bucketStart;
+    private ParkingType parkingType;
+    private int ticketCount;
+    private double revenue;
+    private long totalStaySeconds;
+    private int peakOccupancy;
+
+    public Rollup(RollupPeriod period, Date bucketStart, ParkingType parkingType) {
+        this.period = period;
+        this.bucketStart = bucketStart;
+        this.parkingType = parkingType;
+    }
+
+    public RollupPeriod getPeriod() {
+        return period;
+    }
+
+    public Date getBucketStart() {
+        return bucketStart;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getTicketCount() {
+        return ticketCount;
+    }
+
+    public void setTicketCount(int ticketCount) {
+        this.ticketCount = ticketCount;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(double revenue) {
+        this.revenue = revenue;
+    }
+
+    public long getTotalStaySeconds() {
+        return totalStaySeconds;
+    }
+
+    public void setTotalStaySeconds(long totalStaySeconds) {
+        this.totalStaySeconds = totalStaySeconds;
+    }
+
+    public int getPeakOccupancy() {
+        return peakOccupancy;
+    }
+
+    public void setPeakOccupancy(int peakOccupancy) {
+        this.peakOccupancy = peakOccupancy;
+    }
+
+    public double getAverageStaySeconds() {
+        return (ticketCount == 0) ? 0 : (double) totalStaySeconds / ticketCount;
+    }
+
+    // Adds a closed ticket to the bucket.
+    public void addTicket(double price, long staySeconds) {
+        ticketCount++;
+        revenue += price;
+        totalStaySeconds += staySeconds;
+    }
+
+    public void updatePeakOccupancy(int occupancy) {
+        peakOccupancy = Math.max(peakOccupancy, occupancy);
+    }
+}
@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.model;
+
+// Outcome of a simulated run of gate traffic. Apart from the elapsed time, two runs with the same seed and
+// parameters give the same report.
+public class SimulationReport {
+    private long simulatedMillis;
+    private long elapsedMillis;
+    private int arrivals;
+    private int entries;
+    private int turnedAway;
+    private int exits;
+    private int discountedExits;
+    private double revenue;
+    private int occupiedSpots;
+    private int peakOccupancy;
+
+    public void addArrival() {
+        arrivals++;
+    }
+
+    public void addEntry() {
+        entries++;
+        peakOccupancy = Math.max(peakOccupancy, ++occupiedSpots);
+    }
+
+    public void addTurnedAway() {
+        turnedAway++;
+    }
+
+    public void addExit(double price, boolean discount) {
+        exits++;
+        occupiedSpots--;
+        revenue += price;
+        if (discount) {
+            discountedExits++;
+        }
+    }
+
+    public long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    public void setSimulatedMillis(long simulatedMillis) {
+        this.simulatedMillis = simulatedMillis;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getArrivals() {
+        return arrivals;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public int getTurnedAway() {
+        return turnedAway;
+    }
+
+    public int getExits() {
+        return exits;
+    }
+
+    public int getDiscountedExits() {
+        return discountedExits;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public int getOccupiedSpots() {
+        return occupiedSpots;
+    }
+
+    public int getPeakOccupancy() {
+        return peakOccupancy;
+    }
+
+    @Override
+    public String toString() {
+        return "Simulated " + (simulatedMillis / 3_600_000) + " h in " + elapsedMillis + " ms: " + arrivals + " arrivals, "
+                + entries + " entries, " + turnedAway + " turned away, " + exits + " exits (" + discountedExits + " discounted), revenue "
+                + String.format("%.2f", revenue) + ", peak occupancy " + peakOccupancy + ", still parked " + occupiedSpots;
+    }
+}
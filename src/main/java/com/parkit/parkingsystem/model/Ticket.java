@@ -27,6 +27,10 @@ public class Ticket {
         this.parkingSpot = parkingSpot;
     }
 
+    public int getFacilityId() {
+        return parkingSpot.getFacilityId();
+    }
+
     public String getVehicleRegNumber() {
         return vehicleRegNumber;
     }
@@ -0,0 +1,35 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Date;
+
+// Position in a vehicle's ticket history, newest first: the next page starts right after (inTime, ticketId).
+// Seeking on the (VEHICLE_REG_NUMBER, IN_TIME, ID) index makes every page cost the same, however deep it is.
+public final class TicketHistoryCursor {
+
+    // 9999-12-31, the upper bound of a MySQL DATETIME, so that the first page starts after every ticket.
+    public static final TicketHistoryCursor FIRST = new TicketHistoryCursor(253402214400000L, Integer.MAX_VALUE);
+
+    private final long inTime;
+    private final int ticketId;
+
+    public TicketHistoryCursor(long inTime, int ticketId) {
+        this.inTime = inTime;
+        this.ticketId = ticketId;
+    }
+
+    public static TicketHistoryCursor after(Ticket ticket) {
+        return new TicketHistoryCursor(ticket.getInTime().getTime(), ticket.getId());
+    }
+
+    public long getInTime() {
+        return inTime;
+    }
+
+    public Date getInTimeAsDate() {
+        return new Date(inTime);
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+}
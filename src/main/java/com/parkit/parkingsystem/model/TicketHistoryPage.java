@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Collections;
+import java.util.List;
+
+// One page of a vehicle's ticket history, with the cursor of the next page or null if it is the last one.
+public final class TicketHistoryPage {
+
+    private final List<Ticket> tickets;
+    private final TicketHistoryCursor nextCursor;
+
+    public TicketHistoryPage(List<Ticket> tickets, TicketHistoryCursor nextCursor) {
+        this.tickets = Collections.unmodifiableList(tickets);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Ticket> getTickets() {
+        return tickets;
+    }
+
+    public TicketHistoryCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.model;
+
+// Valid tickets read from one chunk of an import input, stored column by column. Chunk n holds what was valid among
+// input rows n * capacity to (n + 1) * capacity - 1, so that a resumed import cuts its input at the same rows.
+public class TicketImportChunk {
+    private final int index;
+    private final int[] facilityIds;
+    private final int[] parkingNumbers;
+    private final String[] vehicleRegNumbers;
+    private final double[] prices;
+    private final long[] inTimes;
+    private final long[] outTimes;
+    private int size;
+
+    public TicketImportChunk(int index, int capacity) {
+        this.index = index;
+        facilityIds = new int[capacity];
+        parkingNumbers = new int[capacity];
+        vehicleRegNumbers = new String[capacity];
+        prices = new double[capacity];
+        inTimes = new long[capacity];
+        outTimes = new long[capacity];
+    }
+
+    // Copies the row, whose plate must already be normalized.
+    public void add(TicketRow row, String vehicleRegNumber) {
+        facilityIds[size] = row.getFacilityId();
+        parkingNumbers[size] = row.getParkingNumber();
+        vehicleRegNumbers[size] = vehicleRegNumber;
+        prices[size] = row.getPrice();
+        inTimes[size] = row.getInTime();
+        outTimes[size] = row.getOutTime();
+        size++;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getFacilityId(int i) {
+        return facilityIds[i];
+    }
+
+    public int getParkingNumber(int i) {
+        return parkingNumbers[i];
+    }
+
+    public String getVehicleRegNumber(int i) {
+        return vehicleRegNumbers[i];
+    }
+
+    public double getPrice(int i) {
+        return prices[i];
+    }
+
+    public long getInTime(int i) {
+        return inTimes[i];
+    }
+
+    public long getOutTime(int i) {
+        return outTimes[i];
+    }
+}
@@ -0,0 +1,110 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters of a bulk ticket import. Rows of chunks committed by a previous run are counted as skipped.
+public class TicketImportReport {
+    private final LongAdder readRows = new LongAdder();
+    private final LongAdder importedRows = new LongAdder();
+    private final LongAdder skippedRows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder malformedRows = new LongAdder();
+    private final LongAdder invalidPlates = new LongAdder();
+    private final LongAdder unknownSpots = new LongAdder();
+    private final LongAdder invalidStays = new LongAdder();
+    private final LongAdder failedChunks = new LongAdder();
+    private volatile long elapsedMillis;
+
+    public void addReadRow() {
+        readRows.increment();
+    }
+
+    public void addImportedRows(int rows) {
+        importedRows.add(rows);
+    }
+
+    public void addSkippedRows(int rows) {
+        skippedRows.add(rows);
+    }
+
+    public void addFailedChunk(int rows) {
+        failedChunks.increment();
+        failedRows.add(rows);
+    }
+
+    public void addMalformedRow() {
+        malformedRows.increment();
+    }
+
+    public void addInvalidPlate() {
+        invalidPlates.increment();
+    }
+
+    public void addUnknownSpot() {
+        unknownSpots.increment();
+    }
+
+    public void addInvalidStay() {
+        invalidStays.increment();
+    }
+
+    public long getReadRows() {
+        return readRows.sum();
+    }
+
+    public long getImportedRows() {
+        return importedRows.sum();
+    }
+
+    public long getSkippedRows() {
+        return skippedRows.sum();
+    }
+
+    public long getFailedRows() {
+        return failedRows.sum();
+    }
+
+    public long getFailedChunks() {
+        return failedChunks.sum();
+    }
+
+    public long getMalformedRows() {
+        return malformedRows.sum();
+    }
+
+    public long getInvalidPlates() {
+        return invalidPlates.sum();
+    }
+
+    public long getUnknownSpots() {
+        return unknownSpots.sum();
+    }
+
+    public long getInvalidStays() {
+        return invalidStays.sum();
+    }
+
+    public long getRejectedRows() {
+        return getMalformedRows() + getInvalidPlates() + getUnknownSpots() + getInvalidStays();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return getReadRows() * 1000 / Math.max(1, elapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return getReadRows() + " rows read in " + elapsedMillis + " ms (" + getRowsPerSecond() + " rows/s): " + getImportedRows()
+                + " imported, " + getSkippedRows() + " already imported, " + getFailedRows() + " in " + getFailedChunks() + " failed chunks, "
+                + getRejectedRows() + " rejected (" + getMalformedRows() + " malformed, " + getInvalidPlates() + " invalid plates, " + getUnknownSpots() + " unknown spots, "
+                + getInvalidStays() + " invalid stays)";
+    }
+}
@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+// Flat and mutable view of a ticket row, reused for every row of a stream so that exports allocate nothing per ticket.
+public class TicketRow {
+    public static final long NO_OUT_TIME = -1;
+
+    private int id;
+    private int facilityId;
+    private int parkingNumber;
+    private ParkingType parkingType;
+    private String vehicleRegNumber;
+    private double price;
+    private long inTime;
+    private long outTime = NO_OUT_TIME;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getFacilityId() {
+        return facilityId;
+    }
+
+    public void setFacilityId(int facilityId) {
+        this.facilityId = facilityId;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public void setParkingNumber(int parkingNumber) {
+        this.parkingNumber = parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public void setParkingType(ParkingType parkingType) {
+        this.parkingType = parkingType;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public void setVehicleRegNumber(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public long getInTime() {
+        return inTime;
+    }
+
+    public void setInTime(long inTime) {
+        this.inTime = inTime;
+    }
+
+    public long getOutTime() {
+        return outTime;
+    }
+
+    public void setOutTime(long outTime) {
+        this.outTime = outTime;
+    }
+
+    public boolean isClosed() {
+        return outTime != NO_OUT_TIME;
+    }
+}
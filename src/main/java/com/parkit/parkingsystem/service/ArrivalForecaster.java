@@ -0,0 +1,245 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ArrivalHistoryDAO;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import com.parkit.parkingsystem.model.TicketRow;
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Forecasts the arrivals and departures per hour of each parking type from an hour of week profile. Each of the 168
+// hours of the week keeps an exponentially smoothed count: once an hour is over, its count is blended into the value
+// of the same hour of the previous weeks, so recent weeks weigh the most. The profiles are built from the ticket
+// history, streamed in parallel ID ranges, then kept up to date from the ticket events of the bus.
+public class ArrivalForecaster implements ParkingEventHandler {
+
+    private static final Logger logger = LogManager.getLogger("ArrivalForecaster");
+
+    public static final double DEFAULT_SMOOTHING = 0.3;
+    public static final int DEFAULT_PARTITIONS = 4;
+
+    public static final int HOURS_PER_WEEK = 168;
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // The epoch started on a Thursday, 72 hours after the start of its week.
+    private static final int EPOCH_HOUR_OF_WEEK = 72;
+    // Beyond a year without any traffic every smoothed count is zero anyway.
+    private static final long MAX_IDLE_HOURS = 52L * HOURS_PER_WEEK;
+
+    private static final int ARRIVALS = 0;
+    private static final int DEPARTURES = 1;
+    private static final int NO_HOUR = Integer.MIN_VALUE;
+
+    private final ZoneId zone;
+    private final double smoothing;
+    private final double[][][] profiles = new double[ParkingType.values().length][2][HOURS_PER_WEEK];
+    private final int[][] currentCounts = new int[ParkingType.values().length][2];
+    private long currentHour = NO_HOUR;
+
+    public ArrivalForecaster(ZoneId zone) {
+        this(zone, DEFAULT_SMOOTHING);
+    }
+
+    public ArrivalForecaster(ZoneId zone, double smoothing) {
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("Smoothing must be within ]0, 1]");
+        }
+        this.zone = zone;
+        this.smoothing = smoothing;
+        clear();
+    }
+
+    // Rebuilds the profiles from the live and archived tickets of the facility, read by as many threads as partitions.
+    // Returns the number of tickets read, or -1 if the history could not be read, in which case the profiles are unchanged.
+    public long load(ArrivalHistoryDAO arrivalHistoryDAO, int facilityId, int partitions, long now) {
+        long[] idRange = arrivalHistoryDAO.getTicketIdRange(facilityId);
+        if (idRange == null) {
+            return -1;
+        }
+        List<LongIntHashMap> partitionCounts = new ArrayList<>();
+        long readRows = 0;
+        if (idRange.length > 0) {
+            long rangeSize = (idRange[1] - idRange[0] + partitions) / partitions;
+            ExecutorService executor = Executors.newFixedThreadPool(partitions, runnable -> {
+                Thread thread = new Thread(runnable, "arrival-history");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<Long>> results = new ArrayList<>();
+                for (long rangeStart = idRange[0]; rangeStart <= idRange[1]; rangeStart += rangeSize) {
+                    long fromId = rangeStart;
+                    long toId = Math.min(idRange[1], fromId + rangeSize - 1);
+                    LongIntHashMap counts = new LongIntHashMap(1024, 0);
+                    partitionCounts.add(counts);
+                    results.add(executor.submit(() -> arrivalHistoryDAO.streamStays(facilityId, fromId, toId, row -> count(counts, row))));
+                }
+                for (Future<Long> result : results) {
+                    long partitionRows = result.get();
+                    if (partitionRows < 0) {
+                        return -1;
+                    }
+                    readRows += partitionRows;
+                }
+            } catch (Exception ex) {
+                logger.error("Error loading arrival history", ex);
+                return -1;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        LongIntHashMap counts = new LongIntHashMap(4096, 0);
+        for (LongIntHashMap partition : partitionCounts) {
+            partition.forEach(counts::addTo);
+        }
+        rebuild(counts, localHour(now));
+        logger.info("Arrival profiles built from " + readRows + " tickets");
+        return readRows;
+    }
+
+    private void count(LongIntHashMap counts, TicketRow row) {
+        counts.addTo(countKey(localHour(row.getInTime()), row.getParkingType(), ARRIVALS), 1);
+        if (row.isClosed()) {
+            counts.addTo(countKey(localHour(row.getOutTime()), row.getParkingType(), DEPARTURES), 1);
+        }
+    }
+
+    private static long countKey(long hour, ParkingType parkingType, int direction) {
+        return (hour * ParkingType.values().length + parkingType.ordinal()) * 2 + direction;
+    }
+
+    // Smooths every hour of the history in order, the hours without tickets counting as zero. The current hour is not
+    // over yet, so its counts are kept aside until it is.
+    private synchronized void rebuild(LongIntHashMap counts, long nowHour) {
+        clear();
+        long[] firstHour = {nowHour};
+        counts.forEach((key, count) -> firstHour[0] = Math.min(firstHour[0], key / (2 * ParkingType.values().length)));
+        for (long hour = Math.max(firstHour[0], nowHour - MAX_IDLE_HOURS); hour <= nowHour; hour++) {
+            for (ParkingType parkingType : ParkingType.values()) {
+                currentCounts[parkingType.ordinal()][ARRIVALS] = counts.get(countKey(hour, parkingType, ARRIVALS));
+                currentCounts[parkingType.ordinal()][DEPARTURES] = counts.get(countKey(hour, parkingType, DEPARTURES));
+            }
+            if (hour < nowHour) {
+                foldCurrentHour(hour);
+            }
+        }
+        currentHour = nowHour;
+    }
+
+    // Counts new arrivals when their ticket opens and new departures when it closes.
+    @Override
+    public void onEvent(ParkingEvent event, long sequence, boolean endOfBatch) {
+        if (event.getType() == ParkingEventType.TICKET_OPENED) {
+            record(event.getParkingType(), ARRIVALS, event.getTime());
+        } else if (event.getType() == ParkingEventType.TICKET_CLOSED) {
+            record(event.getParkingType(), DEPARTURES, event.getTime());
+        }
+    }
+
+    public void recordArrival(ParkingType parkingType, long time) {
+        record(parkingType, ARRIVALS, time);
+    }
+
+    public void recordDeparture(ParkingType parkingType, long time) {
+        record(parkingType, DEPARTURES, time);
+    }
+
+    // An event of an hour already folded, delivered late by the bus, is counted in the current hour.
+    private synchronized void record(ParkingType parkingType, int direction, long time) {
+        advanceTo(time);
+        currentCounts[parkingType.ordinal()][direction]++;
+    }
+
+    // Folds the hours which ended before the given time, so the hours without any ticket lower the profiles too.
+    public synchronized void advanceTo(long time) {
+        long hour = localHour(time);
+        if (currentHour == NO_HOUR) {
+            currentHour = hour;
+            return;
+        }
+        if (hour <= currentHour) {
+            return;
+        }
+        foldCurrentHour(currentHour);
+        for (long idleHour = Math.max(currentHour + 1, hour - MAX_IDLE_HOURS); idleHour < hour; idleHour++) {
+            foldCurrentHour(idleHour);
+        }
+        currentHour = hour;
+    }
+
+    private void foldCurrentHour(long hour) {
+        int hourOfWeek = hourOfWeek(hour);
+        for (ParkingType parkingType : ParkingType.values()) {
+            for (int direction = ARRIVALS; direction <= DEPARTURES; direction++) {
+                double[] profile = profiles[parkingType.ordinal()][direction];
+                int count = currentCounts[parkingType.ordinal()][direction];
+                profile[hourOfWeek] = Double.isNaN(profile[hourOfWeek]) ? count : smoothing * count + (1 - smoothing) * profile[hourOfWeek];
+                currentCounts[parkingType.ordinal()][direction] = 0;
+            }
+        }
+    }
+
+    // Expected arrivals during the hour containing the given time, 0 while that hour of the week has no history.
+    public synchronized double forecastArrivals(ParkingType parkingType, long time) {
+        return forecast(parkingType, ARRIVALS, time);
+    }
+
+    public synchronized double forecastDepartures(ParkingType parkingType, long time) {
+        return forecast(parkingType, DEPARTURES, time);
+    }
+
+    // Highest hourly arrivals expected over the hours starting within the horizon.
+    public synchronized double peakArrivals(ParkingType parkingType, long from, int hours) {
+        return peak(parkingType, ARRIVALS, from, hours);
+    }
+
+    public synchronized double peakDepartures(ParkingType parkingType, long from, int hours) {
+        return peak(parkingType, DEPARTURES, from, hours);
+    }
+
+    private double forecast(ParkingType parkingType, int direction, long time) {
+        double value = profiles[parkingType.ordinal()][direction][hourOfWeek(localHour(time))];
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    private double peak(ParkingType parkingType, int direction, long from, int hours) {
+        double peak = 0;
+        for (int hour = 0; hour < hours; hour++) {
+            peak = Math.max(peak, forecast(parkingType, direction, from + hour * HOUR_MILLIS));
+        }
+        return peak;
+    }
+
+    // Hours since the epoch in the zone of the forecaster, so the profiles follow the local day across DST changes.
+    private long localHour(long time) {
+        long offsetMillis = zone.getRules().getOffset(Instant.ofEpochMilli(time)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(time + offsetMillis, HOUR_MILLIS);
+    }
+
+    private static int hourOfWeek(long localHour) {
+        return (int) Math.floorMod(localHour + EPOCH_HOUR_OF_WEEK, (long) HOURS_PER_WEEK);
+    }
+
+    private void clear() {
+        for (int[] counts : currentCounts) {
+            Arrays.fill(counts, 0);
+        }
+        for (double[][] typeProfiles : profiles) {
+            for (double[] profile : typeProfiles) {
+                Arrays.fill(profile, Double.NaN);
+            }
+        }
+        currentHour = NO_HOUR;
+    }
+}
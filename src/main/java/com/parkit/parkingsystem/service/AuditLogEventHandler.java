@@ -0,0 +1,16 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ParkingEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+// Writes every spot and ticket event to the audit log.
+public class AuditLogEventHandler implements ParkingEventHandler {
+
+    private static final Logger logger = LogManager.getLogger("AuditLog");
+
+    @Override
+    public void onEvent(ParkingEvent event, long sequence, boolean endOfBatch) {
+        logger.info("#" + sequence + " " + event);
+    }
+}
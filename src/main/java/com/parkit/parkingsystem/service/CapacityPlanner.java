@@ -0,0 +1,133 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TrafficClass;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Sizes the gate resources for the peak forecast over the next hours, before the traffic arrives: the entry and exit
+// bulkheads get enough threads for the DB calls of the expected vehicles, the connection pool keeps a connection idle
+// for each of those threads, and the leased spot blocks hold enough spots for the arrivals of a lease period. Sizes
+// never go below their defaults, so a quiet forecast does not starve the gates. A pool disabled at startup stays so.
+public class CapacityPlanner {
+
+    private static final Logger logger = LogManager.getLogger("CapacityPlanner");
+
+    public static final int DEFAULT_HORIZON_HOURS = 2;
+    public static final long DEFAULT_PLANNING_PERIOD_MINUTES = 15;
+    public static final long DEFAULT_DB_CALL_MILLIS = 50;
+    public static final int MAX_BULKHEAD_SIZE = 32;
+
+    // Calls of an entry: open ticket of the plate, next free spot, spot update, ticket insert and visit count. An exit
+    // makes about as many: open ticket, visit count, ticket update and spot release.
+    private static final int DB_CALLS_PER_VEHICLE = 5;
+    // Traffic within an hour comes in bursts, sizes are planned for twice the hourly average.
+    private static final double HEADROOM = 2;
+    private static final double HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final ArrivalForecaster arrivalForecaster;
+    private final DataBaseGuard dataBaseGuard;
+    private final Clock clock;
+    private LeasedSpotAllocator leasedSpotAllocator;
+    private ConnectionPool connectionPool;
+    private int minIdleConnections;
+    private int horizonHours = DEFAULT_HORIZON_HOURS;
+    private long dbCallMillis = DEFAULT_DB_CALL_MILLIS;
+    private ScheduledExecutorService scheduler;
+
+    public CapacityPlanner(ArrivalForecaster arrivalForecaster, DataBaseGuard dataBaseGuard, Clock clock) {
+        this.arrivalForecaster = arrivalForecaster;
+        this.dataBaseGuard = dataBaseGuard;
+        this.clock = clock;
+    }
+
+    public void setLeasedSpotAllocator(LeasedSpotAllocator leasedSpotAllocator) {
+        this.leasedSpotAllocator = leasedSpotAllocator;
+    }
+
+    // The size the pool is configured with is the floor of the planned sizes.
+    public void setConnectionPool(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        this.minIdleConnections = connectionPool.getMaxIdleConnections();
+    }
+
+    public void setHorizonHours(int horizonHours) {
+        this.horizonHours = horizonHours;
+    }
+
+    // Expected duration of one gate DB call, from which the number of calls running at once is derived.
+    public void setDbCallMillis(long dbCallMillis) {
+        this.dbCallMillis = dbCallMillis;
+    }
+
+    public void plan() {
+        long now = clock.millis();
+        arrivalForecaster.advanceTo(now);
+        double peakArrivals = 0;
+        double peakDepartures = 0;
+        double peakTypeArrivals = 0;
+        for (ParkingType parkingType : ParkingType.values()) {
+            double typeArrivals = arrivalForecaster.peakArrivals(parkingType, now, horizonHours);
+            peakArrivals += typeArrivals;
+            peakDepartures += arrivalForecaster.peakDepartures(parkingType, now, horizonHours);
+            peakTypeArrivals = Math.max(peakTypeArrivals, typeArrivals);
+        }
+        int entryThreads = bulkheadSize(peakArrivals);
+        int exitThreads = bulkheadSize(peakDepartures);
+        dataBaseGuard.resizeBulkhead(TrafficClass.ENTRY, entryThreads);
+        dataBaseGuard.resizeBulkhead(TrafficClass.EXIT, exitThreads);
+        String connections = "";
+        if (connectionPool != null && minIdleConnections > 0) {
+            // Every bulkhead thread gives its connection back between calls, so the pool keeps one per thread.
+            int idleConnections = Math.max(minIdleConnections, entryThreads + exitThreads);
+            if (idleConnections != connectionPool.getMaxIdleConnections()) {
+                connectionPool.setMaxIdleConnections(idleConnections);
+            }
+            connections = ", " + idleConnections + " pooled connections";
+        }
+        String blocks = "";
+        if (leasedSpotAllocator != null) {
+            // Spots are leased per parking type, so the block follows the busiest type.
+            int blockSize = (int) Math.ceil(HEADROOM * peakTypeArrivals * leasedSpotAllocator.getLeaseSeconds() / 3600);
+            leasedSpotAllocator.setBlockSize(Math.max(LeasedSpotAllocator.DEFAULT_BLOCK_SIZE, blockSize));
+            blocks = ", lease blocks of " + leasedSpotAllocator.getBlockSize();
+        }
+        logger.info("Planned for " + Math.round(peakArrivals) + " arrivals and " + Math.round(peakDepartures)
+                + " departures per hour: " + entryThreads + " entry and " + exitThreads + " exit threads" + connections + blocks);
+    }
+
+    // Little's law: the calls running at once are the call rate times the call duration.
+    private int bulkheadSize(double vehiclesPerHour) {
+        double concurrentCalls = HEADROOM * vehiclesPerHour * DB_CALLS_PER_VEHICLE * dbCallMillis / HOUR_MILLIS;
+        return (int) Math.min(MAX_BULKHEAD_SIZE, Math.max(DataBaseGuard.DEFAULT_GATE_BULKHEAD_SIZE, Math.ceil(concurrentCalls)));
+    }
+
+    // Plans now, then again every period, so the resources grow ahead of a peak within the horizon.
+    public void start(long periodMinutes) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "capacity-planner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // An exception escaping a run would silently cancel all the following ones.
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                plan();
+            } catch (Exception e) {
+                logger.error("Error planning capacity", e);
+            }
+        }, 0, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
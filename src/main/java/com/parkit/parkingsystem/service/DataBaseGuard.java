@@ -0,0 +1,172 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.util.CircuitBreaker;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Bounds the time a caller can spend in the DB. Each traffic class has its own bulkhead, a small pool with a short
+// queue, so that one class stalling on the DB cannot take the threads of another. A call waits at most the timeout of
+// its class, queueing included, and the DB wide circuit breaker opens after repeated timeouts or failures. Whenever a
+// call is refused, rejected by a full bulkhead, times out or fails, the caller gets its in-memory fallback instead.
+// Writes are not cut at a timeout: JDBC does not stop a statement on interrupt, so a write given up on may still commit.
+public class DataBaseGuard {
+
+    private static final Logger logger = LogManager.getLogger("DataBaseGuard");
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 10_000;
+    public static final int DEFAULT_GATE_BULKHEAD_SIZE = 4;
+
+    private final CircuitBreaker circuitBreaker;
+    private final Map<TrafficClass, ThreadPoolExecutor> bulkheads = new EnumMap<>(TrafficClass.class);
+    private final Map<TrafficClass, Long> timeoutsMillis = new EnumMap<>(TrafficClass.class);
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder fallbackCount = new LongAdder();
+
+    public DataBaseGuard() {
+        this(new CircuitBreaker(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS));
+        setBulkhead(TrafficClass.ENTRY, DEFAULT_GATE_BULKHEAD_SIZE, 2_000);
+        setBulkhead(TrafficClass.EXIT, DEFAULT_GATE_BULKHEAD_SIZE, 2_000);
+        setBulkhead(TrafficClass.REPORTING, 2, 60_000);
+    }
+
+    public DataBaseGuard(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    // Runs the calls of the traffic class on at most maxConcurrentCalls threads, with as many calls queued.
+    public void setBulkhead(TrafficClass trafficClass, int maxConcurrentCalls, long timeoutMillis) {
+        ThreadPoolExecutor bulkhead = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxConcurrentCalls), runnable -> {
+            Thread thread = new Thread(runnable, "db-" + trafficClass.toString().toLowerCase());
+            thread.setDaemon(true);
+            return thread;
+        });
+        bulkhead.allowCoreThreadTimeOut(true);
+        ThreadPoolExecutor previous = bulkheads.put(trafficClass, bulkhead);
+        if (previous != null) {
+            previous.shutdown();
+        }
+        timeoutsMillis.put(trafficClass, timeoutMillis);
+    }
+
+    // Changes the number of threads of a bulkhead in place, keeping its queued calls. The queue keeps its capacity.
+    public void resizeBulkhead(TrafficClass trafficClass, int maxConcurrentCalls) {
+        ThreadPoolExecutor bulkhead = bulkheads.get(trafficClass);
+        if (maxConcurrentCalls > bulkhead.getMaximumPoolSize()) {
+            bulkhead.setMaximumPoolSize(maxConcurrentCalls);
+            bulkhead.setCorePoolSize(maxConcurrentCalls);
+        } else {
+            bulkhead.setCorePoolSize(maxConcurrentCalls);
+            bulkhead.setMaximumPoolSize(maxConcurrentCalls);
+        }
+    }
+
+    public int getBulkheadSize(TrafficClass trafficClass) {
+        return bulkheads.get(trafficClass).getMaximumPoolSize();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public boolean isOpen() {
+        return circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    // Runs the DAO call, or returns the fallback. DAOs log their errors and return a default value, which the failed
+    // predicate recognizes so that it counts as a failure too.
+    public <T> T call(TrafficClass trafficClass, String operation, Callable<T> call, Predicate<T> failed, Supplier<T> fallback) {
+        if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+            return fallback(fallback);
+        }
+        Future<T> future;
+        try {
+            future = bulkheads.get(trafficClass).submit(call);
+        } catch (RejectedExecutionException e) {
+            // A full bulkhead is back pressure, not a DB failure.
+            rejectedCount.increment();
+            logger.error("Bulkhead " + trafficClass + " full, " + operation + " served from memory");
+            circuitBreaker.onSkipped();
+            return fallback(fallback);
+        }
+        try {
+            T result = future.get(timeoutsMillis.get(trafficClass), TimeUnit.MILLISECONDS);
+            if (failed.test(result)) {
+                circuitBreaker.onFailure(System.currentTimeMillis());
+                return fallback(fallback);
+            }
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeoutCount.increment();
+            logger.error(operation + " timed out after " + timeoutsMillis.get(trafficClass) + " ms, served from memory");
+        } catch (ExecutionException e) {
+            logger.error(operation + " failed, served from memory", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        circuitBreaker.onFailure(System.currentTimeMillis());
+        return fallback(fallback);
+    }
+
+    // Runs a DAO write on the caller thread, or returns false without running it while the breaker is open. The write
+    // is only bounded by the socket timeout of the connection, so that it is never given up on while it may still commit.
+    public boolean write(TrafficClass trafficClass, String operation, Callable<Boolean> call) {
+        if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+            fallbackCount.increment();
+            logger.error(operation + " refused, DB unavailable");
+            return false;
+        }
+        try {
+            boolean written = call.call();
+            // A write refused by its condition, a spot already taken for instance, leaves the breaker alone.
+            circuitBreaker.onSuccess();
+            return written;
+        } catch (Exception e) {
+            logger.error(operation + " failed on " + trafficClass + " traffic", e);
+            circuitBreaker.onFailure(System.currentTimeMillis());
+            return false;
+        }
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor bulkhead : bulkheads.values()) {
+            bulkhead.shutdownNow();
+        }
+    }
+
+    private <T> T fallback(Supplier<T> fallback) {
+        fallbackCount.increment();
+        return fallback.get();
+    }
+}
@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.LongObjectHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Context of the open tickets recently quoted (the open ticket and the discount eligibility), keyed by packed plate.
+// Entries live for a fixed TTL from the DB read, which bounds how stale a quote can be if the ticket changes elsewhere.
+// Expired entries are dropped when read and swept whenever the map doubles in size.
+public class FareQuoteCache {
+
+    public static final long DEFAULT_TTL_MILLIS = 60_000;
+
+    private final long ttlMillis;
+    private final LongObjectHashMap<Entry> entries = new LongObjectHashMap<>();
+    private int sweepSize = 1024;
+    private long hitCount;
+    private long missCount;
+
+    public FareQuoteCache(){
+        this(DEFAULT_TTL_MILLIS);
+    }
+
+    public FareQuoteCache(long ttlMillis){
+        this.ttlMillis = ttlMillis;
+    }
+
+    public long getTtlMillis(){
+        return ttlMillis;
+    }
+
+    // Returns the context of the plate if still valid at the given time, or null.
+    public synchronized Entry get(String vehicleRegNumber, long now){
+        long plateCode = PlateCodec.encode(vehicleRegNumber);
+        Entry entry = entries.get(plateCode);
+        if(entry != null && entry.expiresAt <= now){
+            entries.remove(plateCode);
+            entry = null;
+        }
+        if(entry == null){
+            missCount++;
+        }else{
+            hitCount++;
+        }
+        return entry;
+    }
+
+    public synchronized Entry put(String vehicleRegNumber, Ticket ticket, boolean discount, long now){
+        if(entries.size() >= sweepSize){
+            sweep(now);
+            sweepSize = Math.max(1024, entries.size() * 2);
+        }
+        Entry entry = new Entry(ticket, discount, now + ttlMillis);
+        entries.put(PlateCodec.encode(vehicleRegNumber), entry);
+        return entry;
+    }
+
+    // Removes and returns the context if still valid, for the exit which closes the ticket.
+    public synchronized Entry take(String vehicleRegNumber, long now){
+        Entry entry = get(vehicleRegNumber, now);
+        if(entry != null){
+            entries.remove(PlateCodec.encode(vehicleRegNumber));
+        }
+        return entry;
+    }
+
+    public synchronized void invalidate(String vehicleRegNumber){
+        entries.remove(PlateCodec.encode(vehicleRegNumber));
+    }
+
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    public synchronized long getHitCount(){
+        return hitCount;
+    }
+
+    public synchronized long getMissCount(){
+        return missCount;
+    }
+
+    private void sweep(long now){
+        List<Long> expired = new ArrayList<>();
+        entries.forEach((plateCode, entry) -> {
+            if(entry.expiresAt <= now){
+                expired.add(plateCode);
+            }
+        });
+        for(long plateCode : expired){
+            entries.remove(plateCode);
+        }
+    }
+
+    public static final class Entry {
+        private final Ticket ticket;
+        private final boolean discount;
+        private final long expiresAt;
+
+        private Entry(Ticket ticket, boolean discount, long expiresAt){
+            this.ticket = ticket;
+            this.discount = discount;
+            this.expiresAt = expiresAt;
+        }
+
+        public Ticket getTicket(){
+            return ticket;
+        }
+
+        public boolean isDiscount(){
+            return discount;
+        }
+
+        public long getExpiresAt(){
+            return expiresAt;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.SimulationReport;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.VirtualClock;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Discrete event simulation of the gates: vehicles arrive following a Poisson process whose rate depends on the hour
+// of the day, park for an exponentially distributed stay and exit. Each event is played through a ParkingService whose
+// clock is a VirtualClock moved to the event time, so days of traffic run in seconds, and the same seed and start
+// replay the same traffic. Part of the arrivals are regular vehicles coming back, which get the regular user discount.
+public class GateSimulation {
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    public static final double DEFAULT_ARRIVALS_PER_HOUR = 30;
+    public static final long DEFAULT_MEAN_STAY_MILLIS = TimeUnit.HOURS.toMillis(2);
+    public static final double DEFAULT_CAR_SHARE = 0.8;
+    public static final int DEFAULT_REGULAR_VEHICLES = 200;
+    public static final double DEFAULT_REGULAR_SHARE = 0.3;
+
+    private static final int ARRIVAL = 0;
+    private static final int EXIT = 1;
+
+    private final VirtualClock clock;
+    private final SimulatedInput input = new SimulatedInput();
+    private final ParkingService parkingService;
+    private final Random random;
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final Set<String> parkedVehicles = new HashSet<>();
+    private double[] arrivalsPerHour = new double[24];
+    private long meanStayMillis = DEFAULT_MEAN_STAY_MILLIS;
+    private double carShare = DEFAULT_CAR_SHARE;
+    private int regularVehicles = DEFAULT_REGULAR_VEHICLES;
+    private double regularShare = DEFAULT_REGULAR_SHARE;
+    private long eventCount;
+    private int visitorCount;
+
+    public GateSimulation(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, long startMillis, long seed) {
+        this.clock = new VirtualClock(startMillis);
+        this.random = new Random(seed);
+        parkingSpotDAO.clock = clock;
+        parkingService = new ParkingService(input, parkingSpotDAO, ticketDAO);
+        parkingService.setClock(clock);
+        Arrays.fill(arrivalsPerHour, DEFAULT_ARRIVALS_PER_HOUR);
+    }
+
+    // The service playing the events, to configure an allocation strategy or a waiting queue before the run.
+    public ParkingService getParkingService() {
+        return parkingService;
+    }
+
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    // Mean number of arrivals in each hour of the day, from 0 to 23 in the zone of the clock.
+    public void setArrivalsPerHour(double[] arrivalsPerHour) {
+        if (arrivalsPerHour.length != 24) {
+            throw new IllegalArgumentException("One arrival rate per hour of the day is expected");
+        }
+        this.arrivalsPerHour = arrivalsPerHour.clone();
+    }
+
+    public void setMeanStayMillis(long meanStayMillis) {
+        this.meanStayMillis = meanStayMillis;
+    }
+
+    public void setCarShare(double carShare) {
+        this.carShare = carShare;
+    }
+
+    // A share of the arrivals is one of the regular vehicles, picked at random, when it is not already parked.
+    public void setRegularVehicles(int regularVehicles, double regularShare) {
+        this.regularVehicles = regularVehicles;
+        this.regularShare = regularShare;
+    }
+
+    // Plays the traffic until the clock has advanced by durationMillis. Vehicles still parked at the end stay parked.
+    public SimulationReport run(long durationMillis) {
+        SimulationReport report = new SimulationReport();
+        long start = System.nanoTime();
+        long startMillis = clock.millis();
+        long endMillis = startMillis + durationMillis;
+        scheduleArrival(startMillis);
+        while (!events.isEmpty() && events.peek().time <= endMillis) {
+            Event event = events.poll();
+            clock.advanceTo(event.time);
+            if (event.type == ARRIVAL) {
+                scheduleArrival(event.time);
+                arrive(report);
+            } else {
+                exit(event, report);
+            }
+        }
+        events.removeIf(event -> event.type == ARRIVAL);
+        clock.advanceTo(endMillis);
+        report.setSimulatedMillis(endMillis - startMillis);
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return report;
+    }
+
+    private void arrive(SimulationReport report) {
+        report.addArrival();
+        String vehicleRegNumber = nextVehicle();
+        ParkingType parkingType = (random.nextDouble() < carShare) ? ParkingType.CAR : ParkingType.BIKE;
+        input.enter(vehicleRegNumber, parkingType);
+        Ticket ticket = parkingService.processIncomingVehicle();
+        if (ticket == null) {
+            report.addTurnedAway();
+            return;
+        }
+        report.addEntry();
+        parkedVehicles.add(vehicleRegNumber);
+        // Stays under one minute are rounded up, like a vehicle which has to drive to its spot and back.
+        long stayMillis = Math.max(TimeUnit.MINUTES.toMillis(1), exponential(meanStayMillis));
+        events.add(new Event(clock.millis() + stayMillis, EXIT, eventCount++, vehicleRegNumber));
+    }
+
+    private void exit(Event event, SimulationReport report) {
+        boolean discount = parkingService.isRegularUser(event.vehicleRegNumber);
+        input.exit(event.vehicleRegNumber);
+        Ticket ticket = parkingService.processExitingVehicle();
+        if (ticket != null) {
+            parkedVehicles.remove(event.vehicleRegNumber);
+            report.addExit(ticket.getPrice(), discount);
+        }
+    }
+
+    private String nextVehicle() {
+        if (regularVehicles > 0 && random.nextDouble() < regularShare) {
+            String vehicleRegNumber = "REG" + random.nextInt(regularVehicles);
+            if (!parkedVehicles.contains(vehicleRegNumber)) {
+                return vehicleRegNumber;
+            }
+        }
+        return "SIM" + (visitorCount++);
+    }
+
+    // Next arrival of the Poisson process, skipping the hours without traffic.
+    private void scheduleArrival(long after) {
+        long time = after;
+        for (int hours = 0; hours < 24; hours++) {
+            ZonedDateTime hour = Instant.ofEpochMilli(time).atZone(clock.getZone()).truncatedTo(ChronoUnit.HOURS);
+            double rate = arrivalsPerHour[hour.getHour()];
+            long nextHour = hour.plusHours(1).toInstant().toEpochMilli();
+            if (rate > 0) {
+                long arrival = time + Math.max(1, exponential(HOUR_MILLIS / rate));
+                if (arrival < nextHour) {
+                    events.add(new Event(arrival, ARRIVAL, eventCount++, null));
+                    return;
+                }
+            }
+            // Memorylessness: the arrival is drawn again from the start of the next hour, at its own rate.
+            time = nextHour;
+        }
+    }
+
+    private long exponential(double meanMillis) {
+        return (long) (-meanMillis * Math.log(1 - random.nextDouble()));
+    }
+
+    private static final class Event implements Comparable<Event> {
+        private final long time;
+        private final int type;
+        private final long sequence;
+        private final String vehicleRegNumber;
+
+        private Event(long time, int type, long sequence, String vehicleRegNumber) {
+            this.time = time;
+            this.type = type;
+            this.sequence = sequence;
+            this.vehicleRegNumber = vehicleRegNumber;
+        }
+
+        // Events at the same time are played in the order they were scheduled.
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return (byTime != 0) ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    // Answers the prompts of the service with the plate and vehicle type of the simulated event.
+    private static final class SimulatedInput extends InputReaderUtil {
+        private final ArrayDeque<String> answers = new ArrayDeque<>();
+
+        private void enter(String vehicleRegNumber, ParkingType parkingType) {
+            answers.clear();
+            answers.add(vehicleRegNumber);
+            answers.add((parkingType == ParkingType.CAR) ? "1" : "2");
+        }
+
+        private void exit(String vehicleRegNumber) {
+            answers.clear();
+            answers.add(vehicleRegNumber);
+        }
+
+        @Override
+        public int readSelection() {
+            String answer = answers.poll();
+            return (answer == null) ? -1 : Integer.parseInt(answer);
+        }
+
+        @Override
+        public String readVehicleRegistrationNumber() {
+            return answers.poll();
+        }
+    }
+}
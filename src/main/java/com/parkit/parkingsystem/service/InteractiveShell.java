@@ -1,31 +1,155 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ArrivalHistoryDAO;
+import com.parkit.parkingsystem.dao.GuardedParkingSpotDAO;
+import com.parkit.parkingsystem.dao.GuardedTicketDAO;
+import com.parkit.parkingsystem.dao.LedgerDAO;
+import com.parkit.parkingsystem.dao.LedgerParkingSpotDAO;
+import com.parkit.parkingsystem.dao.LedgerTicketDAO;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotLeaseDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.OccupancyCounter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class InteractiveShell {
 
     private static final Logger logger = LogManager.getLogger("InteractiveShell");
 
+    private static final int MAX_WARM_UP_VISIT_COUNTS = 1000;
+
     public static void loadInterface(){
         logger.info("App initialized!!!");
         System.out.println("Welcome to Parking System!");
 
         boolean continueApp = true;
-        InputReaderUtil inputReaderUtil = new InputReaderUtil();
+        EntryLaneInput inputReaderUtil = new EntryLaneInput();
+        // Each instance serves the gates of one facility.
+        int facilityId = Integer.getInteger("parkit.facilityId", ParkingSpot.DEFAULT_FACILITY_ID);
         ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
         TicketDAO ticketDAO = new TicketDAO();
+        // In ledger mode tickets and spots are only ever appended to the facility ledger, never updated in place.
+        TicketLedger ticketLedger = null;
+        if(Boolean.getBoolean("parkit.ledger")){
+            ticketLedger = new TicketLedger(new LedgerDAO(), facilityId);
+            ticketLedger.recover();
+            parkingSpotDAO = new LedgerParkingSpotDAO(ticketLedger);
+            ticketDAO = new LedgerTicketDAO(ticketLedger);
+        }
+        // Gate calls to the DB are time bounded and isolated from the reports, and served from memory while it is down.
+        DataBaseGuard dataBaseGuard = new DataBaseGuard();
+        parkingSpotDAO = new GuardedParkingSpotDAO(parkingSpotDAO, dataBaseGuard);
+        ticketDAO = new GuardedTicketDAO(ticketDAO, dataBaseGuard);
         ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        parkingService.setFacilityId(facilityId);
+        ParkingEventBus eventBus = parkingService.getEventBus();
+        eventBus.subscribe("audit-log", new AuditLogEventHandler());
+        // When several instances share the database, each one allocates from its own block of leased spots.
+        LeasedSpotAllocator leasedSpotAllocator = null;
+        if(Boolean.getBoolean("parkit.spotLeasing")){
+            leasedSpotAllocator = new LeasedSpotAllocator(new ParkingSpotLeaseDAO(), facilityId, UUID.randomUUID().toString(),
+                    LeasedSpotAllocator.DEFAULT_BLOCK_SIZE, LeasedSpotAllocator.DEFAULT_LEASE_SECONDS);
+            leasedSpotAllocator.start();
+            parkingService.setSpotAllocator(leasedSpotAllocator);
+        }else if(System.getProperty("parkit.allocationStrategy") != null){
+            parkingService.setAllocationStrategy(AllocationStrategy.valueOf(System.getProperty("parkit.allocationStrategy")));
+        }
+        // With a waiting queue, a vehicle entering a full lot waits in its own entry lane for the next spot released,
+        // while the console goes on serving the exits which release the spots.
+        ExecutorService entryLanes = null;
+        long waitingQueueSeconds = Long.getLong("parkit.waitingQueueSeconds", 0);
+        if(waitingQueueSeconds > 0){
+            parkingService.setWaitingQueue(new SpotWaitingQueue(TimeUnit.SECONDS.toMillis(waitingQueueSeconds)));
+            AtomicInteger entryLaneCount = new AtomicInteger();
+            entryLanes = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "entry-lane-" + entryLaneCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        OccupancyService occupancyService = new OccupancyService(parkingSpotDAO);
+        // The gates only accept traffic once the startup loads and the JIT warm-up are done.
+        StartupWarmUp startupWarmUp = new StartupWarmUp();
+        ParkingSpotDAO gateParkingSpotDAO = parkingSpotDAO;
+        TicketDAO gateTicketDAO = ticketDAO;
+        startupWarmUp.addTask("connections", () -> StartupWarmUp.openConnections(new DataBaseConfig()));
+        startupWarmUp.addTask("spots", () -> gateParkingSpotDAO.getFacilitySpots(facilityId));
+        startupWarmUp.addTask("occupancy", () -> {
+            occupancyService.start(OccupancyService.DEFAULT_RECONCILIATION_PERIOD_SECONDS);
+            return true;
+        });
+        CompletableFuture<List<Ticket>> openTicketsLoad = startupWarmUp.addTask("open tickets", () -> gateTicketDAO.getOpenTickets(facilityId));
+        // The visit counts of the parked vehicles are remembered by the guarded DAO for their exit.
+        startupWarmUp.addTask("visit counts", () -> {
+            int loadedCounts = 0;
+            for(Ticket openTicket : openTicketsLoad.get()){
+                if(loadedCounts++ == MAX_WARM_UP_VISIT_COUNTS){
+                    break;
+                }
+                gateTicketDAO.getNbTicket(openTicket.getVehicleRegNumber());
+            }
+            return loadedCounts;
+        });
+        startupWarmUp.addTask("gate queries", () -> {
+            for(ParkingType parkingType : ParkingType.values()){
+                gateParkingSpotDAO.getNextAvailableSlot(facilityId, parkingType);
+            }
+            return true;
+        });
+        // The hour of week profiles of the facility size the gate resources ahead of the forecast peaks.
+        ArrivalForecaster arrivalForecaster = new ArrivalForecaster(ZoneId.systemDefault());
+        startupWarmUp.addTask("arrival profiles", () -> arrivalForecaster.load(new ArrivalHistoryDAO(), facilityId,
+                ArrivalForecaster.DEFAULT_PARTITIONS, parkingService.getClock().millis()));
+        startupWarmUp.addTask("fares", () -> StartupWarmUp.exerciseFareCalculator(new FareCalculatorService(), StartupWarmUp.DEFAULT_FARE_ITERATIONS));
+        System.out.println("Warming up...");
+        startupWarmUp.run(Long.getLong("parkit.warmUpTimeoutMillis", StartupWarmUp.DEFAULT_TIMEOUT_MILLIS));
+        System.out.println("System ready in " + startupWarmUp.getTotalMillis() + " ms");
+        eventBus.subscribe("arrival-forecast", arrivalForecaster);
+        CapacityPlanner capacityPlanner = new CapacityPlanner(arrivalForecaster, dataBaseGuard, parkingService.getClock());
+        capacityPlanner.setLeasedSpotAllocator(leasedSpotAllocator);
+        capacityPlanner.setConnectionPool(DataBaseConfig.getConnectionPool());
+        capacityPlanner.start(CapacityPlanner.DEFAULT_PLANNING_PERIOD_MINUTES);
+        // Open stays are watched in memory and flagged on the bus once they exceed the maximum stay.
+        OverstayMonitor overstayMonitor = new OverstayMonitor(eventBus);
+        long maxStayMillis = TimeUnit.HOURS.toMillis(Long.getLong("parkit.maxStayHours", 24));
+        for(ParkingType parkingType : ParkingType.values()){
+            overstayMonitor.setMaxStay(parkingType, maxStayMillis);
+        }
+        eventBus.subscribe("overstay", overstayMonitor);
+        List<Ticket> openTickets = StartupWarmUp.resultOf(openTicketsLoad, null);
+        if(openTickets == null){
+            openTickets = ticketDAO.getOpenTickets(facilityId);
+        }
+        overstayMonitor.load(openTickets);
+        overstayMonitor.start();
 
         while(continueApp){
+            loadAvailability(occupancyService.getOccupancyCounter(), facilityId);
             loadMenu();
             int option = inputReaderUtil.readSelection();
             switch(option){
                 case 1: {
-                    parkingService.processIncomingVehicle();
+                    if(entryLanes == null){
+                        parkingService.processIncomingVehicle();
+                    }else{
+                        enterInLane(entryLanes, inputReaderUtil, parkingService);
+                    }
                     break;
                 }
                 case 2: {
@@ -35,6 +159,21 @@ public class InteractiveShell {
                 case 3: {
                     System.out.println("Exiting from the system!");
                     continueApp = false;
+                    occupancyService.stop();
+                    overstayMonitor.stop();
+                    capacityPlanner.stop();
+                    if(entryLanes != null){
+                        entryLanes.shutdownNow();
+                    }
+                    eventBus.shutdown();
+                    if(leasedSpotAllocator != null){
+                        leasedSpotAllocator.stop();
+                    }
+                    if(ticketLedger != null){
+                        ticketLedger.snapshot();
+                    }
+                    dataBaseGuard.shutdown();
+                    DataBaseConfig.getConnectionPool().closeIdleConnections();
                     break;
                 }
                 default: System.out.println("Unsupported option. Please enter a number corresponding to the provided menu");
@@ -42,6 +181,31 @@ public class InteractiveShell {
         }
     }
 
+    // The lane reads the plate and the vehicle type from the console, which is given back once they are read, so the
+    // menu shows again while the vehicle may still wait for a spot.
+    private static void enterInLane(ExecutorService entryLanes, EntryLaneInput entryLaneInput, ParkingService parkingService){
+        CompletableFuture<Void> inputRead = new CompletableFuture<>();
+        entryLanes.execute(() -> {
+            entryLaneInput.releaseConsoleOnSelection(inputRead);
+            try{
+                parkingService.processIncomingVehicle();
+            }finally{
+                entryLaneInput.releaseConsoleOnSelection(null);
+                inputRead.complete(null);
+            }
+        });
+        inputRead.join();
+    }
+
+    private static void loadAvailability(OccupancyCounter occupancyCounter, int facilityId){
+        StringBuilder availability = new StringBuilder("Available spots -");
+        for(ParkingType parkingType : ParkingType.values()){
+            availability.append(" ").append(parkingType).append(": ").append(occupancyCounter.getFreeSpots(facilityId, parkingType))
+                    .append(" free / ").append(occupancyCounter.getTotalSpots(facilityId, parkingType));
+        }
+        System.out.println(availability);
+    }
+
     private static void loadMenu(){
         System.out.println("Please select an option. Simply enter the number to choose an action");
         System.out.println("1 New Vehicle Entering - Allocate Parking Space");
@@ -49,4 +213,23 @@ public class InteractiveShell {
         System.out.println("3 Shutdown System");
     }
 
+    // The vehicle type is the last answer of an entry, the console is released once it is read.
+    private static final class EntryLaneInput extends InputReaderUtil {
+        private final ThreadLocal<CompletableFuture<Void>> consoleRelease = new ThreadLocal<>();
+
+        private void releaseConsoleOnSelection(CompletableFuture<Void> inputRead){
+            consoleRelease.set(inputRead);
+        }
+
+        @Override
+        public int readSelection(){
+            int selection = super.readSelection();
+            CompletableFuture<Void> inputRead = consoleRelease.get();
+            if(inputRead != null){
+                inputRead.complete(null);
+            }
+            return selection;
+        }
+    }
+
 }
@@ -0,0 +1,172 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotLeaseDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Allocates spots from blocks leased by this node, so that several application instances sharing one database
+// stop racing for the same lowest numbered spot. The DB is only hit when a block runs dry or on lease renewal.
+// On each renewal a node keeps at most twice the spots it allocated since the previous one and returns the rest,
+// so blocks move from idle nodes to the busy ones. Only the spots still in the blocks are renewed: a spot handed out
+// to an entry which never took it, like the leases of a stopped node, expires and becomes free again. A node finding
+// nothing left to lease takes over a spot still unused in the block of another node, so a full lot is not full for one
+// node only. The DB is called outside the block lock, so the other gates of the node are never held up by it.
+public class LeasedSpotAllocator implements SpotAllocator {
+
+    private static final Logger logger = LogManager.getLogger("LeasedSpotAllocator");
+
+    public static final int DEFAULT_BLOCK_SIZE = 10;
+    public static final int DEFAULT_LEASE_SECONDS = 60;
+
+    private final ParkingSpotLeaseDAO parkingSpotLeaseDAO;
+    private final int facilityId;
+    private final String nodeId;
+    private final int leaseSeconds;
+    private volatile int blockSize;
+    private final Map<ParkingType, ArrayDeque<Integer>> blocks = new EnumMap<>(ParkingType.class);
+    private final Map<ParkingType, int[]> allocatedSinceRenewal = new EnumMap<>(ParkingType.class);
+    private ScheduledExecutorService scheduler;
+
+    public LeasedSpotAllocator(ParkingSpotLeaseDAO parkingSpotLeaseDAO){
+        this(parkingSpotLeaseDAO, ParkingSpot.DEFAULT_FACILITY_ID, UUID.randomUUID().toString(), DEFAULT_BLOCK_SIZE, DEFAULT_LEASE_SECONDS);
+    }
+
+    // Each facility has its own allocator, so the facilities are leased and allocated independently.
+    public LeasedSpotAllocator(ParkingSpotLeaseDAO parkingSpotLeaseDAO, int facilityId, String nodeId, int blockSize, int leaseSeconds){
+        if(blockSize <= 0 || leaseSeconds <= 0){
+            throw new IllegalArgumentException("Block size and lease duration must be positive");
+        }
+        this.parkingSpotLeaseDAO = parkingSpotLeaseDAO;
+        this.facilityId = facilityId;
+        this.nodeId = nodeId;
+        this.blockSize = blockSize;
+        this.leaseSeconds = leaseSeconds;
+        for(ParkingType parkingType : ParkingType.values()){
+            blocks.put(parkingType, new ArrayDeque<>());
+            allocatedSinceRenewal.put(parkingType, new int[1]);
+        }
+    }
+
+    public int getFacilityId(){
+        return facilityId;
+    }
+
+    public String getNodeId(){
+        return nodeId;
+    }
+
+    public int getLeaseSeconds(){
+        return leaseSeconds;
+    }
+
+    public int getBlockSize(){
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize){
+        if(blockSize <= 0){
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.blockSize = blockSize;
+    }
+
+    public int getLocalSpots(ParkingType parkingType){
+        ArrayDeque<Integer> block = blocks.get(parkingType);
+        synchronized (block){
+            return block.size();
+        }
+    }
+
+    @Override
+    public int allocate(ParkingType parkingType){
+        ArrayDeque<Integer> block = blocks.get(parkingType);
+        int parkingNumber = poll(parkingType, block, Collections.emptyList());
+        if(parkingNumber > 0){
+            return parkingNumber;
+        }
+        // Gates running dry together may each lease a block, the surplus is returned on the next renewal.
+        List<Integer> leasedSpots = parkingSpotLeaseDAO.leaseSpots(facilityId, parkingType, nodeId, blockSize, leaseSeconds);
+        if(leasedSpots.isEmpty()){
+            leasedSpots = parkingSpotLeaseDAO.takeOverLeases(facilityId, parkingType, nodeId, 1, leaseSeconds);
+        }
+        return poll(parkingType, block, leasedSpots);
+    }
+
+    // Adds the spots just leased to the block and takes its first spot, or returns 0 if it is empty.
+    private int poll(ParkingType parkingType, ArrayDeque<Integer> block, List<Integer> leasedSpots){
+        synchronized (block){
+            block.addAll(leasedSpots);
+            Integer parkingNumber = block.pollFirst();
+            if(parkingNumber == null){
+                return 0;
+            }
+            allocatedSinceRenewal.get(parkingType)[0]++;
+            return parkingNumber;
+        }
+    }
+
+    // Returns the unused spots exceeding the recent demand, then extends the leases of the remaining ones.
+    public void renew(){
+        List<Integer> localSpots = new ArrayList<>();
+        for(ParkingType parkingType : ParkingType.values()){
+            ArrayDeque<Integer> block = blocks.get(parkingType);
+            List<Integer> surplus = new ArrayList<>();
+            synchronized (block){
+                int[] allocated = allocatedSinceRenewal.get(parkingType);
+                int target = Math.max(1, Math.min(blockSize, 2 * allocated[0]));
+                allocated[0] = 0;
+                while(block.size() > target){
+                    surplus.add(block.pollLast());
+                }
+                localSpots.addAll(block);
+            }
+            if(!surplus.isEmpty()){
+                parkingSpotLeaseDAO.releaseSpots(facilityId, surplus, nodeId);
+            }
+        }
+        if(!localSpots.isEmpty() && !parkingSpotLeaseDAO.renewLeases(facilityId, localSpots, nodeId, leaseSeconds)){
+            logger.error("Leases of node " + nodeId + " could not be renewed, they will expire");
+        }
+    }
+
+    // Renews the leases at a third of their duration, so a failed renewal can be retried before they expire.
+    public void start(){
+        long renewalPeriodSeconds = Math.max(1, leaseSeconds / 3);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spot-lease-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::renew, renewalPeriodSeconds, renewalPeriodSeconds, TimeUnit.SECONDS);
+    }
+
+    // Stops renewing and gives every unused spot back to the shared pool.
+    public void stop(){
+        if(scheduler != null){
+            scheduler.shutdownNow();
+        }
+        List<Integer> unusedSpots = new ArrayList<>();
+        for(ArrayDeque<Integer> block : blocks.values()){
+            synchronized (block){
+                unusedSpots.addAll(block);
+                block.clear();
+            }
+        }
+        if(!unusedSpots.isEmpty()){
+            parkingSpotLeaseDAO.releaseSpots(facilityId, unusedSpots, nodeId);
+        }
+    }
+}
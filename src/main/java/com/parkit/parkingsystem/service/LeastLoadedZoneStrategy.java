@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.IndexedMinHeap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Takes the lowest numbered free spot of the zone with the lowest share of occupied spots.
+// The zones holding a free spot are indexed by load, so the load of a zone is updated in place on every take and release.
+public class LeastLoadedZoneStrategy extends SpotAllocationStrategy {
+
+    // Loads are compared as occupied spots per million, avoiding floating point priorities.
+    private static final long LOAD_SCALE = 1_000_000L;
+
+    private final Map<String, Zone> zones = new HashMap<>();
+    private final IndexedMinHeap<Zone> zonesWithFreeSpots = new IndexedMinHeap<>();
+
+    @Override
+    protected void spotAdded(ParkingSpot parkingSpot) {
+        Zone zone = zones.computeIfAbsent(zoneName(parkingSpot), name -> new Zone());
+        zone.totalSpots++;
+        zone.occupiedSpots++;
+    }
+
+    @Override
+    protected void spotFreed(ParkingSpot parkingSpot) {
+        Zone zone = zones.get(zoneName(parkingSpot));
+        zone.occupiedSpots--;
+        zone.freeSpots.add(parkingSpot, parkingSpot.getId());
+        zonesWithFreeSpots.add(zone, zone.load());
+    }
+
+    @Override
+    protected ParkingSpot nextSpot() {
+        Zone zone = zonesWithFreeSpots.peek();
+        if (zone == null) {
+            return null;
+        }
+        ParkingSpot parkingSpot = zone.freeSpots.poll();
+        zone.occupiedSpots++;
+        if (zone.freeSpots.isEmpty()) {
+            zonesWithFreeSpots.remove(zone);
+        } else {
+            zonesWithFreeSpots.add(zone, zone.load());
+        }
+        return parkingSpot;
+    }
+
+    private static String zoneName(ParkingSpot parkingSpot) {
+        return (parkingSpot.getZone() != null) ? parkingSpot.getZone() : "";
+    }
+
+    private static final class Zone {
+        private final IndexedMinHeap<ParkingSpot> freeSpots = new IndexedMinHeap<>();
+        private int totalSpots;
+        private int occupiedSpots;
+
+        private long load() {
+            return occupiedSpots * LOAD_SCALE / totalSpots;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.LedgerEvent;
+import com.parkit.parkingsystem.model.LedgerSnapshot;
+import com.parkit.parkingsystem.model.OpenTicketRecord;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Current state of a facility folded from its ledger events: the claimed spots, the open tickets by plate, kept off heap
+// in an OpenTicketStore, and the number of visits per plate. Tickets are handed out as copies, so callers never alter
+// the projection. Not thread safe.
+public class LedgerProjection {
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final int facilityId;
+    private long lastSeq;
+    private final BitSet claimedSpots = new BitSet();
+    private final OpenTicketStore openTickets = new OpenTicketStore();
+    private final OpenTicketRecord openTicket = new OpenTicketRecord();
+    private final LongIntHashMap visits = new LongIntHashMap(16, 0);
+
+    public LedgerProjection(int facilityId) {
+        this.facilityId = facilityId;
+    }
+
+    public int getFacilityId() {
+        return facilityId;
+    }
+
+    // SEQ of the last event applied.
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    // Applies the event on top of the state. Events already applied, with a SEQ up to lastSeq, are skipped.
+    public void apply(LedgerEvent event) {
+        if (event.getSeq() <= lastSeq) {
+            return;
+        }
+        lastSeq = event.getSeq();
+        switch (event.getType()) {
+            case SPOT_CLAIMED:
+                claimedSpots.set(event.getParkingNumber());
+                break;
+            case SPOT_RELEASED:
+                claimedSpots.clear(event.getParkingNumber());
+                break;
+            case TICKET_OPENED: {
+                long plateCode = PlateCodec.encode(event.getVehicleRegNumber());
+                openTickets.put(plateCode, event.getTime(), Math.toIntExact(event.getSeq()), facilityId, event.getParkingNumber(), event.getParkingType());
+                visits.addTo(plateCode, 1);
+                break;
+            }
+            case TICKET_PRICED:
+                // Appended with TICKET_CLOSED, so the price of a ticket is never read while it is open.
+                break;
+            case TICKET_CLOSED:
+                if (isOpen(event.getVehicleRegNumber(), event.getTicketId())) {
+                    openTickets.remove(PlateCodec.encode(event.getVehicleRegNumber()));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    public boolean isClaimed(int parkingNumber) {
+        return claimedSpots.get(parkingNumber);
+    }
+
+    public int getClaimedSpots() {
+        return claimedSpots.cardinality();
+    }
+
+    public boolean isOpen(Ticket ticket) {
+        return isOpen(ticket.getVehicleRegNumber(), ticket.getId());
+    }
+
+    public Ticket getOpenTicket(String vehicleRegNumber) {
+        return openTickets.getTicket(vehicleRegNumber);
+    }
+
+    public List<Ticket> getOpenTickets() {
+        List<Ticket> tickets = new ArrayList<>(openTickets.size());
+        openTickets.forEach(record -> tickets.add(record.toTicket()));
+        return tickets;
+    }
+
+    public int getVisitCount(String vehicleRegNumber) {
+        return visits.get(PlateCodec.encode(vehicleRegNumber));
+    }
+
+    public LedgerSnapshot toSnapshot() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(lastSeq);
+            long[] claimed = claimedSpots.toLongArray();
+            out.writeInt(claimed.length);
+            for (long word : claimed) {
+                out.writeLong(word);
+            }
+            out.writeInt(openTickets.size());
+            openTickets.forEach(record -> {
+                try {
+                    out.writeLong(record.getPlateCode());
+                    out.writeInt(record.getTicketId());
+                    out.writeInt(record.getParkingNumber());
+                    out.writeByte(record.getParkingType().ordinal());
+                    out.writeLong(record.getInTime());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeInt(visits.size());
+            visits.forEach((plateCode, count) -> {
+                try {
+                    out.writeLong(plateCode);
+                    out.writeInt(count);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new LedgerSnapshot(facilityId, lastSeq, bytes.toByteArray());
+    }
+
+    public static LedgerProjection restore(LedgerSnapshot snapshot) {
+        LedgerProjection projection = new LedgerProjection(snapshot.getFacilityId());
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot.getState()))) {
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IllegalArgumentException("Unsupported ledger snapshot version " + version);
+            }
+            projection.lastSeq = in.readLong();
+            long[] claimed = new long[in.readInt()];
+            for (int i = 0; i < claimed.length; i++) {
+                claimed[i] = in.readLong();
+            }
+            projection.claimedSpots.or(BitSet.valueOf(claimed));
+            ParkingType[] parkingTypes = ParkingType.values();
+            for (int i = in.readInt(); i > 0; i--) {
+                long plateCode = in.readLong();
+                int ticketId = in.readInt();
+                int parkingNumber = in.readInt();
+                ParkingType parkingType = parkingTypes[in.readByte()];
+                projection.openTickets.put(plateCode, in.readLong(), ticketId, projection.facilityId, parkingNumber, parkingType);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                long plateCode = in.readLong();
+                projection.visits.put(plateCode, in.readInt());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return projection;
+    }
+
+    private boolean isOpen(String vehicleRegNumber, int ticketId) {
+        OpenTicketRecord record = openTickets.find(PlateCodec.encode(vehicleRegNumber), openTicket);
+        return record != null && record.getTicketId() == ticketId;
+    }
+}
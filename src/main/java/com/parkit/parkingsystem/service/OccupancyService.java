@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.util.OccupancyCounter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the occupancy counters of the parking spot DAO aligned with the parking table.
+public class OccupancyService {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyService");
+
+    public static final long DEFAULT_RECONCILIATION_PERIOD_SECONDS = 60;
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private ScheduledExecutorService scheduler;
+
+    public OccupancyService(ParkingSpotDAO parkingSpotDAO){
+        this.parkingSpotDAO = parkingSpotDAO;
+    }
+
+    public OccupancyCounter getOccupancyCounter(){
+        return parkingSpotDAO.occupancyCounter;
+    }
+
+    // Reads the occupancy from the DB and applies it to the counters. Returns false if the DB could not be read.
+    public boolean reconcile(){
+        List<Occupancy> occupancy = parkingSpotDAO.getOccupancy();
+        if(occupancy.isEmpty()){
+            logger.error("Unable to reconcile occupancy counters");
+            return false;
+        }
+        for(Occupancy typeOccupancy : occupancy){
+            parkingSpotDAO.occupancyCounter.reconcile(typeOccupancy);
+        }
+        return true;
+    }
+
+    // Initializes the counters then reconciles them periodically on a background thread.
+    public void start(long reconciliationPeriodSeconds){
+        reconcile();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::reconcile, reconciliationPeriodSeconds, reconciliationPeriodSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stop(){
+        if(scheduler != null){
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OpenTicketRecord;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Open tickets kept off heap as fixed size records (see OpenTicketRecord) in a direct or memory mapped buffer.
+// The heap only holds a primitive plate code to record index map and the stack of free records, about 30 bytes
+// per open stay instead of the Ticket, ParkingSpot, two Dates and String of the object model, and none of it
+// is made of objects the GC has to trace. Subscribed to the event bus, the store follows the tickets opened and closed.
+public class OpenTicketStore implements ParkingEventHandler, Closeable {
+
+    private static final Logger logger = LogManager.getLogger("OpenTicketStore");
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Records are addressed by an int byte offset, and a buffer holds at most Integer.MAX_VALUE bytes.
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / OpenTicketRecord.RECORD_SIZE;
+
+    private final FileChannel mappedFile;
+    private ByteBuffer records;
+    private int capacity;
+    private final LongIntHashMap recordsByPlate;
+    private int[] freeRecords;
+    private int freeCount;
+    private final OpenTicketRecord writer = new OpenTicketRecord();
+
+    public OpenTicketStore(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Direct buffer store, doubled whenever full.
+    public OpenTicketStore(int initialCapacity){
+        checkCapacity(initialCapacity);
+        this.mappedFile = null;
+        this.recordsByPlate = new LongIntHashMap(initialCapacity, -1);
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    // Store mapped on a file of fixed capacity, for stores larger than the direct memory allowed to the JVM.
+    // The file is scratch space rebuilt at startup, not a persistent copy of the tickets.
+    public OpenTicketStore(Path file, int capacity) throws IOException {
+        checkCapacity(capacity);
+        this.mappedFile = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.recordsByPlate = new LongIntHashMap(capacity, -1);
+        this.capacity = capacity;
+        this.records = mappedFile.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * OpenTicketRecord.RECORD_SIZE);
+        initFreeRecords(0);
+    }
+
+    @Override
+    public void onEvent(ParkingEvent event, long sequence, boolean endOfBatch){
+        if(event.getType() == ParkingEventType.TICKET_OPENED){
+            if(!PlateCodec.isValid(event.getVehicleRegNumber())){
+                logger.error("Ticket " + event.getTicketId() + " not stored, invalid vehicle registration number " + event.getVehicleRegNumber());
+                return;
+            }
+            put(PlateCodec.encode(event.getVehicleRegNumber()), event.getTime(), event.getTicketId(), event.getFacilityId(),
+                    event.getParkingNumber(), event.getParkingType());
+        }else if(event.getType() == ParkingEventType.TICKET_CLOSED && PlateCodec.isValid(event.getVehicleRegNumber())){
+            remove(PlateCodec.encode(event.getVehicleRegNumber()));
+        }
+    }
+
+    public boolean put(Ticket ticket){
+        return put(PlateCodec.encode(ticket.getVehicleRegNumber()), ticket.getInTime().getTime(), ticket.getId(),
+                ticket.getFacilityId(), ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType());
+    }
+
+    // Stores the open stay of a vehicle, replacing its previous one. Returns false if the store is full: a mapped store
+    // never grows, and a direct one stops at MAX_CAPACITY.
+    public synchronized boolean put(long plateCode, long inTime, int ticketId, int facilityId, int parkingNumber, ParkingType parkingType){
+        int record = recordsByPlate.get(plateCode);
+        if(record < 0){
+            if(freeCount == 0){
+                if(mappedFile != null || capacity == MAX_CAPACITY){
+                    logger.error("Open ticket store full, " + capacity + " records");
+                    return false;
+                }
+                grow();
+            }
+            record = freeRecords[--freeCount];
+            recordsByPlate.put(plateCode, record);
+        }
+        writer.wrap(records, record * OpenTicketRecord.RECORD_SIZE).set(plateCode, inTime, ticketId, facilityId, parkingNumber, parkingType);
+        return true;
+    }
+
+    public void load(List<Ticket> openTickets){
+        for(Ticket ticket : openTickets){
+            if(PlateCodec.isValid(ticket.getVehicleRegNumber())){
+                put(ticket);
+            }
+        }
+    }
+
+    public boolean remove(String vehicleRegNumber){
+        return remove(PlateCodec.encode(vehicleRegNumber));
+    }
+
+    public synchronized boolean remove(long plateCode){
+        int record = recordsByPlate.remove(plateCode);
+        if(record < 0){
+            return false;
+        }
+        freeRecords[freeCount++] = record;
+        return true;
+    }
+
+    // Positions the flyweight on the open stay of the vehicle and returns it, or returns null if the vehicle is not parked.
+    // The flyweight reads the live record: the caller owns it and must not keep it past the closing of the ticket.
+    public synchronized OpenTicketRecord find(long plateCode, OpenTicketRecord flyweight){
+        int record = recordsByPlate.get(plateCode);
+        return (record < 0) ? null : flyweight.wrap(records, record * OpenTicketRecord.RECORD_SIZE);
+    }
+
+    // Copy of the open stay as a Ticket, safe to keep and share, or null if the vehicle is not parked.
+    public synchronized Ticket getTicket(String vehicleRegNumber){
+        OpenTicketRecord record = find(PlateCodec.encode(vehicleRegNumber), new OpenTicketRecord());
+        return (record == null) ? null : record.toTicket();
+    }
+
+    // Visits every open stay with a single flyweight. The store must not be modified during the visit.
+    public synchronized void forEach(Consumer<OpenTicketRecord> consumer){
+        OpenTicketRecord flyweight = new OpenTicketRecord();
+        recordsByPlate.forEach((plateCode, record) -> consumer.accept(flyweight.wrap(records, record * OpenTicketRecord.RECORD_SIZE)));
+    }
+
+    public synchronized int size(){
+        return recordsByPlate.size();
+    }
+
+    public synchronized int getCapacity(){
+        return capacity;
+    }
+
+    public synchronized long getOffHeapBytes(){
+        return (long) capacity * OpenTicketRecord.RECORD_SIZE;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(mappedFile != null){
+            mappedFile.close();
+        }
+    }
+
+    private void grow(){
+        ByteBuffer previous = records;
+        int previousCapacity = capacity;
+        allocate((int) Math.min(2L * previousCapacity, MAX_CAPACITY));
+        previous.clear();
+        records.put(previous);
+        initFreeRecords(previousCapacity);
+    }
+
+    private void allocate(int newCapacity){
+        checkCapacity(newCapacity);
+        capacity = newCapacity;
+        records = ByteBuffer.allocateDirect(newCapacity * OpenTicketRecord.RECORD_SIZE);
+        if(freeRecords == null){
+            initFreeRecords(0);
+        }
+    }
+
+    private static void checkCapacity(int capacity){
+        if(capacity > MAX_CAPACITY){
+            throw new IllegalArgumentException("Open ticket store capacity " + capacity + " exceeds " + MAX_CAPACITY + " records");
+        }
+    }
+
+    // Pushes the records from firstRecord to the end of the buffer, the lowest on top of the stack.
+    private void initFreeRecords(int firstRecord){
+        int[] grownFreeRecords = new int[capacity];
+        if(freeRecords != null){
+            System.arraycopy(freeRecords, 0, grownFreeRecords, 0, freeCount);
+        }
+        freeRecords = grownFreeRecords;
+        for(int record = capacity - 1; record >= firstRecord; record--){
+            freeRecords[freeCount++] = record;
+        }
+    }
+}
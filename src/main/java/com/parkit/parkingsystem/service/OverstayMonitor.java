@@ -0,0 +1,201 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OpenTicketRecord;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.HierarchicalTimingWheel;
+import com.parkit.parkingsystem.util.LongObjectHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Watches the open tickets in a timing wheel keyed by their deadline and publishes TICKET_OVERSTAYED when one passes it.
+// Subscribed to the event bus, it schedules a deadline on TICKET_OPENED and cancels it on TICKET_CLOSED, both in O(1),
+// so hundreds of thousands of stays are watched without scanning the ticket table. The watched tickets are kept off
+// heap in an OpenTicketStore, and only materialized as Ticket objects for the overstays published.
+public class OverstayMonitor implements ParkingEventHandler {
+
+    private static final Logger logger = LogManager.getLogger("OverstayMonitor");
+
+    public static final long DEFAULT_TICK_MILLIS = 1000;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final ParkingEventBus eventBus;
+    private final HierarchicalTimingWheel<Stay> wheel;
+    // Open stays by facility then packed plate, a vehicle having a single open ticket at a time.
+    private final Map<Integer, WatchedStays> watchedStays = new HashMap<>();
+    private int watchedCount;
+    private final Map<ParkingType, Long> maxStayMillis = new EnumMap<>(ParkingType.class);
+    private long overstayCount;
+    private ScheduledExecutorService scheduler;
+
+    public OverstayMonitor(ParkingEventBus eventBus){
+        this(eventBus, DEFAULT_TICK_MILLIS, System.currentTimeMillis());
+    }
+
+    public OverstayMonitor(ParkingEventBus eventBus, long tickMillis, long startMillis){
+        this.eventBus = eventBus;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, DEFAULT_WHEEL_SIZE, startMillis);
+    }
+
+    // Maximum stay of the given type, or 0 to stop watching its new tickets.
+    public synchronized void setMaxStay(ParkingType parkingType, long maxStayMillis){
+        this.maxStayMillis.put(parkingType, maxStayMillis);
+    }
+
+    @Override
+    public void onEvent(ParkingEvent event, long sequence, boolean endOfBatch){
+        if(event.getType() == ParkingEventType.TICKET_OPENED){
+            watch(event.getFacilityId(), event.getVehicleRegNumber(), event.getTime(), event.getTicketId(), event.getParkingNumber(), event.getParkingType());
+        }else if(event.getType() == ParkingEventType.TICKET_CLOSED){
+            unwatch(event.getFacilityId(), event.getVehicleRegNumber());
+        }
+    }
+
+    // Watches the ticket until the maximum stay of its type. Returns false if that type is not watched.
+    public boolean watch(Ticket ticket){
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        return watch(parkingSpot.getFacilityId(), ticket.getVehicleRegNumber(), ticket.getInTime().getTime(), ticket.getId(),
+                parkingSpot.getId(), parkingSpot.getParkingType());
+    }
+
+    // Watches the ticket until an explicit deadline, such as the end of a pre-paid window. Replaces any previous deadline.
+    public synchronized void watchUntil(Ticket ticket, long deadlineMillis){
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        watchUntil(parkingSpot.getFacilityId(), ticket.getVehicleRegNumber(), ticket.getInTime().getTime(), ticket.getId(),
+                parkingSpot.getId(), parkingSpot.getParkingType(), deadlineMillis);
+    }
+
+    private synchronized boolean watch(int facilityId, String vehicleRegNumber, long inTime, int ticketId, int parkingNumber, ParkingType parkingType){
+        Long maxStay = maxStayMillis.get(parkingType);
+        if(maxStay == null || maxStay <= 0){
+            return false;
+        }
+        watchUntil(facilityId, vehicleRegNumber, inTime, ticketId, parkingNumber, parkingType, inTime + maxStay);
+        return true;
+    }
+
+    private void watchUntil(int facilityId, String vehicleRegNumber, long inTime, int ticketId, int parkingNumber, ParkingType parkingType, long deadlineMillis){
+        if(!PlateCodec.isValid(vehicleRegNumber)){
+            logger.error("Ticket " + ticketId + " not watched, invalid vehicle registration number " + vehicleRegNumber);
+            return;
+        }
+        long plateCode = PlateCodec.encode(vehicleRegNumber);
+        WatchedStays stays = stays(facilityId);
+        if(!stays.tickets.put(plateCode, inTime, ticketId, facilityId, parkingNumber, parkingType)){
+            logger.error("Ticket " + ticketId + " not watched, no room left to store it");
+            return;
+        }
+        HierarchicalTimingWheel.Timeout<Stay> previous = stays.deadlines.put(plateCode, wheel.schedule(new Stay(facilityId, plateCode), deadlineMillis));
+        if(previous != null){
+            wheel.cancel(previous);
+        }else{
+            watchedCount++;
+        }
+    }
+
+    public synchronized boolean unwatch(int facilityId, String vehicleRegNumber){
+        if(!PlateCodec.isValid(vehicleRegNumber)){
+            return false;
+        }
+        long plateCode = PlateCodec.encode(vehicleRegNumber);
+        WatchedStays stays = stays(facilityId);
+        HierarchicalTimingWheel.Timeout<Stay> timeout = stays.deadlines.remove(plateCode);
+        if(timeout == null){
+            return false;
+        }
+        stays.tickets.remove(plateCode);
+        watchedCount--;
+        return wheel.cancel(timeout);
+    }
+
+    // Watches the tickets already open when the application starts.
+    public void load(List<Ticket> openTickets){
+        for(Ticket ticket : openTickets){
+            watch(ticket);
+        }
+    }
+
+    // Moves the wheel to the given time and publishes an event for each stay which passed its deadline.
+    public int advance(long nowMillis){
+        List<Ticket> overstays = new ArrayList<>();
+        synchronized (this){
+            OpenTicketRecord record = new OpenTicketRecord();
+            for(Stay stay : wheel.advance(nowMillis)){
+                WatchedStays stays = stays(stay.facilityId);
+                stays.deadlines.remove(stay.plateCode);
+                overstays.add(stays.tickets.find(stay.plateCode, record).toTicket());
+                stays.tickets.remove(stay.plateCode);
+            }
+            watchedCount -= overstays.size();
+            overstayCount += overstays.size();
+        }
+        // Published outside the lock, so a subscriber slowing the bus down never blocks the gates watching tickets.
+        for(Ticket ticket : overstays){
+            eventBus.publishTicketEvent(ParkingEventType.TICKET_OVERSTAYED, ticket, nowMillis);
+        }
+        return overstays.size();
+    }
+
+    public synchronized int getWatchedCount(){
+        return watchedCount;
+    }
+
+    public synchronized long getOverstayCount(){
+        return overstayCount;
+    }
+
+    public void start(){
+        long tickMillis = wheel.getTickMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "overstay-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                advance(System.currentTimeMillis());
+            } catch (Exception e) {
+                logger.error("Error checking overstays", e);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop(){
+        if(scheduler != null){
+            scheduler.shutdownNow();
+        }
+    }
+
+    private WatchedStays stays(int facilityId){
+        return watchedStays.computeIfAbsent(facilityId, id -> new WatchedStays());
+    }
+
+    private static final class WatchedStays {
+        private final OpenTicketStore tickets = new OpenTicketStore();
+        private final LongObjectHashMap<HierarchicalTimingWheel.Timeout<Stay>> deadlines = new LongObjectHashMap<>();
+    }
+
+    // Payload of a deadline, the ticket itself is read from the store when it expires.
+    private static final class Stay {
+        private final int facilityId;
+        private final long plateCode;
+
+        private Stay(int facilityId, long plateCode){
+            this.facilityId = facilityId;
+            this.plateCode = plateCode;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// In process publish/subscribe bus for spot and ticket events, built on a preallocated ring buffer.
+// Publishers claim a sequence, fill the event stored in that slot and mark it published: no allocation and no lock.
+// Each subscriber runs on its own thread with its own sequence, reads every event in batches and only slows the
+// publishers down when it falls a whole ring behind (backpressure). Adding a subscriber never adds work to publishers.
+public class ParkingEventBus {
+
+    private static final Logger logger = LogManager.getLogger("ParkingEventBus");
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private static final int SPINS_BEFORE_YIELD = 100;
+    private static final int SPINS_BEFORE_PARK = 200;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    private static final long BACKPRESSURE_PARK_NANOS = 1_000;
+
+    private final ParkingEvent[] entries;
+    private final AtomicIntegerArray publishedRounds;
+    private final int indexMask;
+    private final int indexShift;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private volatile long cachedGatingSequence = -1;
+    private volatile Subscriber[] subscribers = new Subscriber[0];
+
+    public ParkingEventBus(){
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public ParkingEventBus(int bufferSize){
+        if(bufferSize < 1 || Integer.bitCount(bufferSize) != 1){
+            throw new IllegalArgumentException("Buffer size must be a power of 2");
+        }
+        entries = new ParkingEvent[bufferSize];
+        for(int i = 0; i < bufferSize; i++){
+            entries[i] = new ParkingEvent();
+        }
+        publishedRounds = new AtomicIntegerArray(bufferSize);
+        for(int i = 0; i < bufferSize; i++){
+            publishedRounds.set(i, -1);
+        }
+        indexMask = bufferSize - 1;
+        indexShift = Integer.numberOfTrailingZeros(bufferSize);
+    }
+
+    public void publishSpotEvent(ParkingEventType type, ParkingSpot parkingSpot){
+        publishSpotEvent(type, parkingSpot, System.currentTimeMillis());
+    }
+
+    public void publishSpotEvent(ParkingEventType type, ParkingSpot parkingSpot, long time){
+        long sequence = next();
+        entries[index(sequence)].set(type, parkingSpot, null, time);
+        publish(sequence);
+    }
+
+    public void publishTicketEvent(ParkingEventType type, Ticket ticket, long time){
+        long sequence = next();
+        entries[index(sequence)].set(type, ticket.getParkingSpot(), ticket, time);
+        publish(sequence);
+    }
+
+    // Registers a subscriber and starts its thread. It receives the events published from now on.
+    public synchronized void subscribe(String name, ParkingEventHandler handler){
+        Subscriber subscriber = new Subscriber(name, handler);
+        subscriber.sequence.set(cursor.get());
+        Subscriber[] updatedSubscribers = Arrays.copyOf(subscribers, subscribers.length + 1);
+        updatedSubscribers[subscribers.length] = subscriber;
+        subscribers = updatedSubscribers;
+        subscriber.thread.start();
+    }
+
+    // Stops every subscriber once it has handled the events already published.
+    public synchronized void shutdown(){
+        for(Subscriber subscriber : subscribers){
+            subscriber.running = false;
+            LockSupport.unpark(subscriber.thread);
+        }
+        for(Subscriber subscriber : subscribers){
+            try {
+                subscriber.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        subscribers = new Subscriber[0];
+    }
+
+    public long getPublishedCount(){
+        return cursor.get() + 1;
+    }
+
+    private long next(){
+        long sequence = cursor.incrementAndGet();
+        long wrapPoint = sequence - entries.length;
+        if(wrapPoint > cachedGatingSequence){
+            long gatingSequence;
+            while(wrapPoint > (gatingSequence = minimumSubscriberSequence(sequence))){
+                LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS);
+            }
+            cachedGatingSequence = gatingSequence;
+        }
+        return sequence;
+    }
+
+    private void publish(long sequence){
+        publishedRounds.lazySet(index(sequence), round(sequence));
+    }
+
+    private boolean isPublished(long sequence){
+        return publishedRounds.get(index(sequence)) == round(sequence);
+    }
+
+    private long highestPublishedSequence(long lowSequence, long highSequence){
+        for(long sequence = lowSequence; sequence <= highSequence; sequence++){
+            if(!isPublished(sequence)){
+                return sequence - 1;
+            }
+        }
+        return highSequence;
+    }
+
+    private long minimumSubscriberSequence(long defaultSequence){
+        long minimum = defaultSequence;
+        for(Subscriber subscriber : subscribers){
+            minimum = Math.min(minimum, subscriber.sequence.get());
+        }
+        return minimum;
+    }
+
+    private int index(long sequence){
+        return (int) sequence & indexMask;
+    }
+
+    private int round(long sequence){
+        return (int) (sequence >>> indexShift);
+    }
+
+    private final class Subscriber implements Runnable {
+        private final String name;
+        private final ParkingEventHandler handler;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private Subscriber(String name, ParkingEventHandler handler){
+            this.name = name;
+            this.handler = handler;
+            this.thread = new Thread(this, "event-subscriber-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run(){
+            int idleSpins = 0;
+            boolean draining = false;
+            while(true){
+                long nextSequence = sequence.get() + 1;
+                long availableSequence = highestPublishedSequence(nextSequence, cursor.get());
+                if(availableSequence < nextSequence){
+                    if(draining){
+                        return;
+                    }
+                    draining = !running;
+                    idleSpins = idle(idleSpins);
+                    continue;
+                }
+                idleSpins = 0;
+                for(long current = nextSequence; current <= availableSequence; current++){
+                    try {
+                        handler.onEvent(entries[index(current)], current, current == availableSequence);
+                    } catch (Exception e) {
+                        logger.error("Subscriber " + name + " failed to handle event " + current, e);
+                    }
+                }
+                // Frees the handled slots for the publishers.
+                sequence.lazySet(availableSequence);
+            }
+        }
+
+        private int idle(int idleSpins){
+            if(idleSpins >= SPINS_BEFORE_PARK){
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }else if(idleSpins >= SPINS_BEFORE_YIELD){
+                Thread.yield();
+            }
+            return idleSpins + 1;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ParkingEvent;
+
+public interface ParkingEventHandler {
+
+    // Called on the subscriber thread for each event, in publication order. endOfBatch is true on the last event
+    // currently available, so handlers can buffer work and flush it once per batch.
+    void onEvent(ParkingEvent event, long sequence, boolean endOfBatch) throws Exception;
+}
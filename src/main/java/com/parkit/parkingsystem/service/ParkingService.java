@@ -1,45 +1,177 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.GateCommand;
+import com.parkit.parkingsystem.constants.ParkingEventType;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.FareQuote;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.DeduplicationWindow;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Clock;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
+    // Allocations tried by an entry whose spot keeps being taken by other gates before it gives up.
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
     private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
 
     private InputReaderUtil inputReaderUtil;
     private ParkingSpotDAO parkingSpotDAO;
     private  TicketDAO ticketDAO;
+    private ParkingEventBus eventBus = new ParkingEventBus();
+    private SpotAllocator spotAllocator;
+    private int facilityId = ParkingSpot.DEFAULT_FACILITY_ID;
+    private SpotWaitingQueue waitingQueue;
+    private FareQuoteCache fareQuoteCache = new FareQuoteCache();
+    private DeduplicationWindow<Ticket> gateCommands = new DeduplicationWindow<>();
+    private Clock clock = Clock.systemDefaultZone();
 
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.spotAllocator = parkingType -> parkingSpotDAO.getNextAvailableSlot(facilityId, parkingType);
+    }
+
+    public int getFacilityId() {
+        return facilityId;
+    }
+
+    // Binds this service, and the gates it serves, to one facility. Spots are only allocated within it.
+    public void setFacilityId(int facilityId) {
+        this.facilityId = facilityId;
+    }
+
+    public void setSpotAllocator(SpotAllocator spotAllocator) {
+        this.spotAllocator = spotAllocator;
+    }
+
+    // Allocates the spots of the facility in memory with the given strategy instead of taking the lowest free number.
+    public void setAllocationStrategy(AllocationStrategy allocationStrategy) {
+        this.spotAllocator = new StrategySpotAllocator(parkingSpotDAO, facilityId, allocationStrategy);
+    }
+
+    public SpotWaitingQueue getWaitingQueue() {
+        return waitingQueue;
+    }
+
+    // With a waiting queue, a vehicle entering a full lot waits for the next spot released instead of being turned away.
+    public void setWaitingQueue(SpotWaitingQueue waitingQueue) {
+        this.waitingQueue = waitingQueue;
+    }
+
+    public FareQuoteCache getFareQuoteCache() {
+        return fareQuoteCache;
+    }
+
+    public void setFareQuoteCache(FareQuoteCache fareQuoteCache) {
+        this.fareQuoteCache = fareQuoteCache;
+    }
+
+    public DeduplicationWindow<Ticket> getGateCommands() {
+        return gateCommands;
+    }
+
+    // Window within which a repeated entry or exit of the same vehicle is answered with the first result.
+    public void setGateCommands(DeduplicationWindow<Ticket> gateCommands) {
+        this.gateCommands = gateCommands;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    // Time source of the in and out times, quotes and gate command windows. A VirtualClock replays simulated traffic.
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public ParkingEventBus getEventBus() {
+        return eventBus;
+    }
+
+    public void setEventBus(ParkingEventBus eventBus) {
+        this.eventBus = eventBus;
     }
 
     public boolean isRegularUser(String vehicleRegNumber){
         return ticketDAO.getNbTicket(vehicleRegNumber) > 1;
     }
 
-    public void processIncomingVehicle(){
+    // Returns the opened ticket, or null if the vehicle could not enter.
+    public Ticket processIncomingVehicle(){
+        try{
+            String vehicleRegNumber = getVehicleRegNumber();
+            return runOnce(GateCommand.ENTRY, vehicleRegNumber, () -> enterVehicle(vehicleRegNumber));
+        }catch(Exception e){
+            logger.error("Unable to process incoming vehicle",e);
+            return null;
+        }
+    }
+
+    // Gates may fire the same command twice: a repeat within the window gets the result of the first run, without
+    // claiming a second spot or pricing the ticket twice. An entry ends the window of the previous exit of the vehicle
+    // and an exit the one of its entry, so that a vehicle leaving and coming back within the window is processed again.
+    private Ticket runOnce(GateCommand command, String vehicleRegNumber, Supplier<Ticket> processing) throws Exception {
+        long commandKey = command.key(vehicleRegNumber);
+        CompletableFuture<Ticket> originalRun = gateCommands.begin(commandKey, clock.millis());
+        if(originalRun != null){
+            logger.info("Repeated " + command + " command for vehicle " + vehicleRegNumber + ", answering with the first result");
+            return originalRun.get(gateCommands.getWindowMillis(), TimeUnit.MILLISECONDS);
+        }
+        Ticket ticket = null;
         try{
+            ticket = processing.get();
+        }finally{
+            if(ticket != null){
+                gateCommands.complete(commandKey, ticket, clock.millis());
+                gateCommands.forget(command.opposite().key(vehicleRegNumber));
+            }else{
+                gateCommands.abandon(commandKey);
+            }
+        }
+        return ticket;
+    }
+
+    private Ticket enterVehicle(String vehicleRegNumber){
+        try{
+            // A plate never holds two open tickets.
+            Ticket openTicket = ticketDAO.getTicket(vehicleRegNumber);
+            if(openTicket != null && openTicket.getOutTime() == null){
+                logger.error("Vehicle " + vehicleRegNumber + " already has open ticket " + openTicket.getId());
+                System.out.println("Vehicle number:"+vehicleRegNumber+" is already parked in spot number:"+openTicket.getParkingSpot().getId());
+                return null;
+            }
             ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            if(parkingSpot !=null && parkingSpot.getId() > 0){
-                String vehicleRegNumber = getVehicleRegNumber();
+            // A spot handed over by the waiting queue was never released in the DB. Another gate may take the allocated
+            // spot first: the update only takes a free spot, and the gate which lost it allocates another one.
+            int claimAttempts = 1;
+            while(parkingSpot != null && parkingSpot.getId() > 0 && parkingSpot.isAvailable()){
                 parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
+                if(parkingSpotDAO.updateParking(parkingSpot)){//allot this parking space and mark it's availability as false
+                    break;
+                }
+                logger.info("Parking spot " + parkingSpot.getId() + " was taken by another gate");
+                parkingSpot = (claimAttempts++ < MAX_CLAIM_ATTEMPTS) ? allocateSpot(parkingSpot.getParkingType()) : null;
+            }
+            if(parkingSpot !=null && parkingSpot.getId() > 0){
+                Date inTime = new Date(clock.millis());
+                eventBus.publishSpotEvent(ParkingEventType.SPOT_CLAIMED, parkingSpot, inTime.getTime());
 
-                Date inTime = new Date();
                 Ticket ticket = new Ticket();
                 //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
                 //ticket.setId(ticketID);
@@ -48,7 +180,18 @@ public class ParkingService {
                 ticket.setPrice(0);
                 ticket.setInTime(inTime);
                 ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
+                // Events are only published for what was written: a ticket which could not be saved gives its spot back.
+                // The save is also refused when the vehicle got an open ticket at another gate in the meantime.
+                if(!ticketDAO.saveTicket(ticket)){
+                    Ticket savedTicket = findSavedTicket(ticket);
+                    if(savedTicket == null){
+                        logger.error("Ticket of vehicle " + vehicleRegNumber + " could not be saved, releasing spot " + parkingSpot.getId());
+                        releaseSpot(parkingSpot, inTime.getTime());
+                        return null;
+                    }
+                    ticket.setId(savedTicket.getId());
+                }
+                eventBus.publishTicketEvent(ParkingEventType.TICKET_OPENED, ticket, inTime.getTime());
                 // Added a special discount welcome message if the vehicle is regular.
                 boolean isRegularUser = isRegularUser(vehicleRegNumber);
                 if (isRegularUser){
@@ -57,10 +200,27 @@ public class ParkingService {
                 System.out.println("Generated Ticket and saved in DB");
                 System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
                 System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+                return ticket;
             }
         }catch(Exception e){
             logger.error("Unable to process incoming vehicle",e);
         }
+        return null;
+    }
+
+    // A save reported as failed may still have committed, when the connection dropped before the answer for instance.
+    // The ticket is read back: an open ticket of the vehicle on the same spot is the one saved, which keeps the spot.
+    private Ticket findSavedTicket(Ticket ticket){
+        Ticket openTicket = ticketDAO.getTicket(ticket.getVehicleRegNumber());
+        if(openTicket == null || openTicket.getOutTime() != null){
+            return null;
+        }
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        if(openTicket.getParkingSpot().getFacilityId() != parkingSpot.getFacilityId() || openTicket.getParkingSpot().getId() != parkingSpot.getId()){
+            return null;
+        }
+        logger.info("Ticket of vehicle " + ticket.getVehicleRegNumber() + " was saved despite the error, keeping spot " + parkingSpot.getId());
+        return openTicket;
     }
 
     private String getVehicleRegNumber() throws Exception {
@@ -69,18 +229,30 @@ public class ParkingService {
     }
 
     public ParkingSpot getNextParkingNumberIfAvailable(){
+        try{
+            return allocateSpot(getVehicleType());
+        }catch(IllegalArgumentException ie){
+            logger.error("Error parsing user input for type of vehicle", ie);
+        }
+        return null;
+    }
+
+    private ParkingSpot allocateSpot(ParkingType parkingType){
         int parkingNumber=0;
         ParkingSpot parkingSpot = null;
         try{
-            ParkingType parkingType = getVehicleType();
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            parkingNumber = spotAllocator.allocate(parkingType);
             if(parkingNumber > 0){
-                parkingSpot = new ParkingSpot(parkingNumber,parkingType, true);
+                parkingSpot = new ParkingSpot(facilityId, null, parkingNumber, parkingType, true);
+            }else if(waitingQueue != null){
+                System.out.println("Parking is full, please wait for a spot to be released");
+                parkingSpot = waitingQueue.awaitSpot(parkingType);
+                if(parkingSpot == null){
+                    throw new Exception("No parking spot released within " + waitingQueue.getMaxWaitMillis() + " ms");
+                }
             }else{
                 throw new Exception("Error fetching parking number from DB. Parking slots might be full");
             }
-        }catch(IllegalArgumentException ie){
-            logger.error("Error parsing user input for type of vehicle", ie);
         }catch(Exception e){
             logger.error("Error fetching next available parking slot", e);
         }
@@ -106,25 +278,77 @@ public class ParkingService {
         }
     }
 
-    public void processExitingVehicle() {
+    // Price the vehicle would pay if it exited now, or null if it has no open ticket. The ticket stays open and its
+    // context is cached, so the repeated quotes of a pay station and the following exit do not hit the DB again.
+    public FareQuote quoteFare(String vehicleRegNumber){
+        long now = clock.millis();
+        FareQuoteCache.Entry context = fareQuoteCache.get(vehicleRegNumber, now);
+        if(context == null){
+            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if(ticket == null || ticket.getOutTime() != null){
+                return null;
+            }
+            context = fareQuoteCache.put(vehicleRegNumber, ticket, ticketDAO.getNbTicket(vehicleRegNumber) > 1, now);
+        }
+        Ticket openTicket = context.getTicket();
+        Ticket quotedTicket = new Ticket();
+        quotedTicket.setParkingSpot(openTicket.getParkingSpot());
+        quotedTicket.setInTime(openTicket.getInTime());
+        quotedTicket.setOutTime(new Date(now));
+        fareCalculatorService.calculateFare(quotedTicket, context.isDiscount());
+        return new FareQuote(vehicleRegNumber, openTicket.getParkingSpot().getParkingType(), openTicket.getInTime().getTime(),
+                now, context.isDiscount(), quotedTicket.getPrice());
+    }
+
+    // Returns the closed ticket, or null if the vehicle could not exit.
+    public Ticket processExitingVehicle() {
         try{
             String vehicleRegNumber = getVehicleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
+            return runOnce(GateCommand.EXIT, vehicleRegNumber, () -> exitVehicle(vehicleRegNumber));
+        }catch(Exception e){
+            logger.error("Unable to process exiting vehicle",e);
+            return null;
+        }
+    }
+
+    private Ticket exitVehicle(String vehicleRegNumber) {
+        try{
+            Date outTime = new Date(clock.millis());
+            // A recent quote already read the open ticket and the discount eligibility.
+            FareQuoteCache.Entry context = fareQuoteCache.take(vehicleRegNumber, outTime.getTime());
+            Ticket ticket = (context != null) ? context.getTicket() : ticketDAO.getTicket(vehicleRegNumber);
+            // A closed ticket is never priced again.
+            if(ticket == null || ticket.getOutTime() != null){
+                System.out.println("No open ticket found for vehicle number:"+vehicleRegNumber);
+                return null;
+            }
             ticket.setOutTime(outTime);
-            boolean discount = ticketDAO.getNbTicket(vehicleRegNumber) > 1;
+            boolean discount = (context != null) ? context.isDiscount() : ticketDAO.getNbTicket(vehicleRegNumber) > 1;
             fareCalculatorService.calculateFare(ticket, discount);
             if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
+                eventBus.publishTicketEvent(ParkingEventType.TICKET_CLOSED, ticket, outTime.getTime());
+                releaseSpot(ticket.getParkingSpot(), outTime.getTime());
                 System.out.println("Please pay the parking fare:" + ticket.getPrice());
                 System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
+                return ticket;
             }else{
                 System.out.println("Unable to update ticket information. Error occurred");
             }
         }catch(Exception e){
             logger.error("Unable to process exiting vehicle",e);
         }
+        return null;
+    }
+
+    // The first vehicle waiting for this type gets the spot directly, otherwise it goes back to the pool.
+    private void releaseSpot(ParkingSpot parkingSpot, long time){
+        boolean handedOver = waitingQueue != null && parkingSpot.getFacilityId() == facilityId && waitingQueue.handOver(parkingSpot);
+        if(!handedOver){
+            parkingSpot.setAvailable(true);
+            if(parkingSpotDAO.updateParking(parkingSpot)){
+                spotAllocator.release(parkingSpot);
+            }
+        }
+        eventBus.publishSpotEvent(ParkingEventType.SPOT_RELEASED, parkingSpot, time);
     }
 }
@@ -0,0 +1,36 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.IndexedMinHeap;
+
+import java.util.function.ToLongFunction;
+
+// Takes the free spot with the lowest priority, e.g. the lowest number or the shortest distance from the gate.
+public class PrioritySpotStrategy extends SpotAllocationStrategy {
+
+    private final IndexedMinHeap<ParkingSpot> freeSpots = new IndexedMinHeap<>();
+    private final ToLongFunction<ParkingSpot> priority;
+
+    public PrioritySpotStrategy(ToLongFunction<ParkingSpot> priority) {
+        this.priority = priority;
+    }
+
+    public static PrioritySpotStrategy lowestNumber() {
+        return new PrioritySpotStrategy(ParkingSpot::getId);
+    }
+
+    // Spots at the same distance are taken by number.
+    public static PrioritySpotStrategy closestToGate() {
+        return new PrioritySpotStrategy(parkingSpot -> ((long) parkingSpot.getGateDistance() << 32) | parkingSpot.getId());
+    }
+
+    @Override
+    protected void spotFreed(ParkingSpot parkingSpot) {
+        freeSpots.add(parkingSpot, priority.applyAsLong(parkingSpot));
+    }
+
+    @Override
+    protected ParkingSpot nextSpot() {
+        return freeSpots.poll();
+    }
+}
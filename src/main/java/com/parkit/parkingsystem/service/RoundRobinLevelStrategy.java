@@ -0,0 +1,41 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.util.IndexedMinHeap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Takes the lowest numbered free spot of the level following the one used by the previous allocation, wrapping around.
+// Only the levels holding a free spot are kept in the ordered map, so finding the next one is O(log levels).
+public class RoundRobinLevelStrategy extends SpotAllocationStrategy {
+
+    private final Map<Integer, IndexedMinHeap<ParkingSpot>> levels = new HashMap<>();
+    private final TreeMap<Integer, IndexedMinHeap<ParkingSpot>> levelsWithFreeSpots = new TreeMap<>();
+    private Integer lastLevel;
+
+    @Override
+    protected void spotFreed(ParkingSpot parkingSpot) {
+        IndexedMinHeap<ParkingSpot> level = levels.computeIfAbsent(parkingSpot.getLevel(), number -> new IndexedMinHeap<>());
+        level.add(parkingSpot, parkingSpot.getId());
+        levelsWithFreeSpots.put(parkingSpot.getLevel(), level);
+    }
+
+    @Override
+    protected ParkingSpot nextSpot() {
+        if (levelsWithFreeSpots.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Integer, IndexedMinHeap<ParkingSpot>> level = (lastLevel == null) ? null : levelsWithFreeSpots.higherEntry(lastLevel);
+        if (level == null) {
+            level = levelsWithFreeSpots.firstEntry();
+        }
+        lastLevel = level.getKey();
+        ParkingSpot parkingSpot = level.getValue().poll();
+        if (level.getValue().isEmpty()) {
+            levelsWithFreeSpots.remove(lastLevel);
+        }
+        return parkingSpot;
+    }
+}
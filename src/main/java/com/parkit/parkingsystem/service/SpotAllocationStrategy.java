@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Chooses among the spots of one facility and parking type held in memory.
+// Implementations keep the free spots in priority structures so that taking or releasing a spot stays O(log n).
+// Not thread safe, the allocator serializes the calls for each parking type.
+public abstract class SpotAllocationStrategy {
+
+    private final Map<Integer, ParkingSpot> spots = new HashMap<>();
+    private int freeSpots;
+
+    // Registers a spot of the facility as occupied, then frees it if available. Occupied spots still count in the zone loads.
+    public void addSpot(ParkingSpot parkingSpot) {
+        if (spots.put(parkingSpot.getId(), parkingSpot) != null) {
+            throw new IllegalArgumentException("Spot " + parkingSpot.getId() + " is already registered");
+        }
+        spotAdded(parkingSpot);
+        if (parkingSpot.isAvailable()) {
+            freeSpots++;
+            spotFreed(parkingSpot);
+        }
+    }
+
+    // Removes the best free spot from the candidates and returns it, or null if none is free.
+    public ParkingSpot take() {
+        ParkingSpot parkingSpot = nextSpot();
+        if (parkingSpot != null) {
+            parkingSpot.setAvailable(false);
+            freeSpots--;
+        }
+        return parkingSpot;
+    }
+
+    // Makes an occupied spot a candidate again. Unknown or already free spots are ignored.
+    public boolean release(int parkingNumber) {
+        ParkingSpot parkingSpot = spots.get(parkingNumber);
+        if (parkingSpot == null || parkingSpot.isAvailable()) {
+            return false;
+        }
+        parkingSpot.setAvailable(true);
+        freeSpots++;
+        spotFreed(parkingSpot);
+        return true;
+    }
+
+    public int getFreeSpots() {
+        return freeSpots;
+    }
+
+    public int getTotalSpots() {
+        return spots.size();
+    }
+
+    protected void spotAdded(ParkingSpot parkingSpot) {
+    }
+
+    protected abstract void spotFreed(ParkingSpot parkingSpot);
+
+    protected abstract ParkingSpot nextSpot();
+}
@@ -0,0 +1,14 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+public interface SpotAllocator {
+
+    // Returns the number of a free spot of the given type, or 0 if none is available.
+    int allocate(ParkingType parkingType);
+
+    // Called once a spot has been released in the DB. Allocators keeping free spots in memory take it back.
+    default void release(ParkingSpot parkingSpot){
+    }
+}
@@ -0,0 +1,138 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Fair waiting line per parking type for the vehicles entering a full lot. A waiting gate blocks without polling
+// until processExitingVehicle hands it the released spot, in FIFO order, or until the maximum wait elapses.
+// A spot handed over stays occupied in the DB, so no other gate can take it in between.
+public class SpotWaitingQueue {
+
+    private final long maxWaitMillis;
+    private final Map<ParkingType, WaitingLine> lines = new EnumMap<>(ParkingType.class);
+
+    public SpotWaitingQueue(long maxWaitMillis){
+        if(maxWaitMillis <= 0){
+            throw new IllegalArgumentException("The maximum wait must be positive");
+        }
+        this.maxWaitMillis = maxWaitMillis;
+        for(ParkingType parkingType : ParkingType.values()){
+            lines.put(parkingType, new WaitingLine());
+        }
+    }
+
+    public long getMaxWaitMillis(){
+        return maxWaitMillis;
+    }
+
+    // Waits for a released spot of the given type. Returns null if none was handed over before the maximum wait.
+    public ParkingSpot awaitSpot(ParkingType parkingType){
+        WaitingLine line = lines.get(parkingType);
+        Waiter waiter = new Waiter();
+        synchronized (line){
+            line.waiters.addLast(waiter);
+        }
+        try{
+            return waiter.spot.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        }catch(TimeoutException | ExecutionException e){
+            return leave(line, waiter);
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            return leave(line, waiter);
+        }
+    }
+
+    // Hands the released spot to the vehicle waiting the longest. Returns false if no vehicle waits for this type.
+    public boolean handOver(ParkingSpot parkingSpot){
+        WaitingLine line = lines.get(parkingSpot.getParkingType());
+        synchronized (line){
+            Waiter waiter = line.waiters.pollFirst();
+            if(waiter == null){
+                return false;
+            }
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.since);
+            line.servedCount++;
+            line.totalWaitMillis += waitMillis;
+            line.maxWaitMillis = Math.max(line.maxWaitMillis, waitMillis);
+            waiter.spot.complete(parkingSpot);
+            return true;
+        }
+    }
+
+    // A waiter already polled by handOver got its spot between the timeout and the lock.
+    private ParkingSpot leave(WaitingLine line, Waiter waiter){
+        synchronized (line){
+            if(line.waiters.remove(waiter)){
+                line.timedOutCount++;
+                return null;
+            }
+        }
+        return waiter.spot.getNow(null);
+    }
+
+    public int getQueueLength(ParkingType parkingType){
+        WaitingLine line = lines.get(parkingType);
+        synchronized (line){
+            return line.waiters.size();
+        }
+    }
+
+    // How long the first vehicle in line has been waiting, 0 if none waits.
+    public long getOldestWaitMillis(ParkingType parkingType){
+        WaitingLine line = lines.get(parkingType);
+        synchronized (line){
+            Waiter waiter = line.waiters.peekFirst();
+            return (waiter == null) ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.since);
+        }
+    }
+
+    public long getServedCount(ParkingType parkingType){
+        WaitingLine line = lines.get(parkingType);
+        synchronized (line){
+            return line.servedCount;
+        }
+    }
+
+    public long getTimedOutCount(ParkingType parkingType){
+        WaitingLine line = lines.get(parkingType);
+        synchronized (line){
+            return line.timedOutCount;
+        }
+    }
+
+    // Average wait of the vehicles which were handed a spot.
+    public long getAverageWaitMillis(ParkingType parkingType){
+        WaitingLine line = lines.get(parkingType);
+        synchronized (line){
+            return (line.servedCount == 0) ? 0 : line.totalWaitMillis / line.servedCount;
+        }
+    }
+
+    public long getLongestWaitMillis(ParkingType parkingType){
+        WaitingLine line = lines.get(parkingType);
+        synchronized (line){
+            return line.maxWaitMillis;
+        }
+    }
+
+    private static final class WaitingLine {
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private long servedCount;
+        private long timedOutCount;
+        private long totalWaitMillis;
+        private long maxWaitMillis;
+    }
+
+    private static final class Waiter {
+        private final CompletableFuture<ParkingSpot> spot = new CompletableFuture<>();
+        private final long since = System.nanoTime();
+    }
+}
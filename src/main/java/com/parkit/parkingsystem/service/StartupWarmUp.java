@@ -0,0 +1,151 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Runs the startup loads and warm-ups in parallel before the gates accept traffic: the spot map, open tickets and
+// visit counts are read, a DB connection is opened, and the fare calculation is run until the JIT has compiled it.
+// Once every task has finished, or the timeout has elapsed, the instance is ready and the time of each task is logged.
+// A task which fails or does not finish in time only delays readiness, the data it loads is then read on first use.
+public class StartupWarmUp {
+
+    private static final Logger logger = LogManager.getLogger("StartupWarmUp");
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+    // Above the invocation count at which HotSpot compiles a method with the optimizing compiler.
+    public static final int DEFAULT_FARE_ITERATIONS = 20_000;
+
+    public static final long FAILED = -1;
+
+    private final Map<String, Callable<?>> tasks = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<Object>> results = new LinkedHashMap<>();
+    private final Map<String, Long> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final CountDownLatch ready = new CountDownLatch(1);
+    private volatile long totalMillis = FAILED;
+
+    // Registers a task run by run(), and returns the future of its result.
+    @SuppressWarnings("unchecked")
+    public synchronized <T> CompletableFuture<T> addTask(String name, Callable<T> task) {
+        if (isReady() || tasks.containsKey(name)) {
+            throw new IllegalStateException("Task " + name + " cannot be added");
+        }
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        tasks.put(name, task);
+        results.put(name, result);
+        timings.put(name, FAILED);
+        return (CompletableFuture<T>) (CompletableFuture<?>) result;
+    }
+
+    // Runs every task in parallel, each on its own thread, and waits for them for at most timeoutMillis.
+    public synchronized void run(long timeoutMillis) {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, tasks.size()), runnable -> {
+            Thread thread = new Thread(runnable, "startup-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Map.Entry<String, Callable<?>> task : tasks.entrySet()) {
+            CompletableFuture<Object> result = results.get(task.getKey());
+            executor.execute(() -> runTask(task.getKey(), task.getValue(), result));
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.error("Startup warm-up not finished after " + timeoutMillis + " ms, accepting traffic");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Ready after " + totalMillis + " ms " + timings);
+        ready.countDown();
+    }
+
+    private void runTask(String name, Callable<?> task, CompletableFuture<Object> result) {
+        long start = System.nanoTime();
+        try {
+            Object value = task.call();
+            timings.put(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            result.complete(value);
+        } catch (Exception ex) {
+            logger.error("Startup task " + name + " failed", ex);
+            result.completeExceptionally(ex);
+        }
+    }
+
+    public boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        return ready.await(timeout, unit);
+    }
+
+    // Time taken by each task in milliseconds, FAILED for the tasks which failed or did not finish.
+    public Map<String, Long> getTimings() {
+        synchronized (timings) {
+            return new LinkedHashMap<>(timings);
+        }
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    // Returns the result of a finished task, or the default value if it failed or did not finish.
+    public static <T> T resultOf(CompletableFuture<T> result, T defaultValue) {
+        if (!result.isDone() || result.isCompletedExceptionally()) {
+            return defaultValue;
+        }
+        return result.join();
+    }
+
+    // Opening a connection loads the driver and caches the server configuration; the connections opened then wait in
+    // the pool for the first gate calls.
+    public static boolean openConnections(DataBaseConfig dataBaseConfig) throws Exception {
+        dataBaseConfig.closeConnection(dataBaseConfig.getConnection());
+        dataBaseConfig.closeConnection(dataBaseConfig.getReadConnection());
+        return true;
+    }
+
+    // Prices stays of every parking type, with and without discount, on tickets which are never saved.
+    public static double exerciseFareCalculator(FareCalculatorService fareCalculatorService, int iterations) {
+        List<Ticket> tickets = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (ParkingType parkingType : ParkingType.values()) {
+            for (int minutes = 15; minutes <= 24 * 60; minutes *= 2) {
+                Ticket ticket = new Ticket();
+                ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+                ticket.setInTime(new Date(now - TimeUnit.MINUTES.toMillis(minutes)));
+                ticket.setOutTime(new Date(now));
+                tickets.add(ticket);
+            }
+        }
+        double total = 0;
+        for (int i = 0; i < iterations; i++) {
+            Ticket ticket = tickets.get(i % tickets.size());
+            fareCalculatorService.calculateFare(ticket, (i & 1) == 0);
+            total += ticket.getPrice();
+        }
+        return total;
+    }
+}
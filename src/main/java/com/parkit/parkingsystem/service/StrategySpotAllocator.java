@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Allocates the spots of a facility from memory with an allocation strategy, instead of querying the lowest free number.
+// The spots are loaded once and kept up to date by the allocations and releases of this node. A parking type running dry
+// reloads them from the DB, at most once per reload interval, to pick up the spots freed by other nodes.
+public class StrategySpotAllocator implements SpotAllocator {
+
+    public static final long DEFAULT_RELOAD_INTERVAL_MILLIS = 5000;
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final int facilityId;
+    private final AllocationStrategy allocationStrategy;
+    private final long reloadIntervalMillis;
+    private final Map<ParkingType, SpotAllocationStrategy> strategies = new EnumMap<>(ParkingType.class);
+    private long lastReload;
+    private boolean loaded;
+
+    public StrategySpotAllocator(ParkingSpotDAO parkingSpotDAO, int facilityId, AllocationStrategy allocationStrategy){
+        this(parkingSpotDAO, facilityId, allocationStrategy, DEFAULT_RELOAD_INTERVAL_MILLIS);
+    }
+
+    public StrategySpotAllocator(ParkingSpotDAO parkingSpotDAO, int facilityId, AllocationStrategy allocationStrategy, long reloadIntervalMillis){
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.facilityId = facilityId;
+        this.allocationStrategy = allocationStrategy;
+        this.reloadIntervalMillis = reloadIntervalMillis;
+    }
+
+    public static SpotAllocationStrategy newStrategy(AllocationStrategy allocationStrategy){
+        switch(allocationStrategy){
+            case LEAST_LOADED_ZONE: return new LeastLoadedZoneStrategy();
+            case CLOSEST_TO_GATE: return PrioritySpotStrategy.closestToGate();
+            case ROUND_ROBIN_LEVELS: return new RoundRobinLevelStrategy();
+            default: return PrioritySpotStrategy.lowestNumber();
+        }
+    }
+
+    public AllocationStrategy getAllocationStrategy(){
+        return allocationStrategy;
+    }
+
+    // Replaces the spots held in memory with the ones of the facility in the DB. Returns the number of spots loaded.
+    public synchronized int reload(){
+        lastReload = System.currentTimeMillis();
+        List<ParkingSpot> parkingSpots = parkingSpotDAO.getFacilitySpots(facilityId);
+        if(parkingSpots.isEmpty() && loaded){
+            // Most likely a DB failure, keep the current picture.
+            return 0;
+        }
+        strategies.clear();
+        for(ParkingType parkingType : ParkingType.values()){
+            strategies.put(parkingType, newStrategy(allocationStrategy));
+        }
+        for(ParkingSpot parkingSpot : parkingSpots){
+            strategies.get(parkingSpot.getParkingType()).addSpot(parkingSpot);
+        }
+        loaded = true;
+        return parkingSpots.size();
+    }
+
+    @Override
+    public synchronized int allocate(ParkingType parkingType){
+        if(!loaded || (strategies.get(parkingType).getFreeSpots() == 0 && System.currentTimeMillis() - lastReload >= reloadIntervalMillis)){
+            reload();
+        }
+        ParkingSpot parkingSpot = strategies.get(parkingType).take();
+        return (parkingSpot != null) ? parkingSpot.getId() : 0;
+    }
+
+    @Override
+    public synchronized void release(ParkingSpot parkingSpot){
+        if(loaded && parkingSpot.getFacilityId() == facilityId){
+            strategies.get(parkingSpot.getParkingType()).release(parkingSpot.getId());
+        }
+    }
+
+    public synchronized int getFreeSpots(ParkingType parkingType){
+        return loaded ? strategies.get(parkingType).getFreeSpots() : 0;
+    }
+}
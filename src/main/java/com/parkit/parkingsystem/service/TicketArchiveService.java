@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+public class TicketArchiveService {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiveService");
+
+    public static final int DEFAULT_RETENTION_DAYS = 90;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_PAUSE_BETWEEN_BATCHES_MILLIS = 100;
+
+    private TicketArchiveDAO ticketArchiveDAO;
+    private int batchSize;
+    private long pauseBetweenBatchesMillis;
+    private Clock clock = Clock.systemDefaultZone();
+
+    public TicketArchiveService(TicketArchiveDAO ticketArchiveDAO){
+        this(ticketArchiveDAO, DEFAULT_BATCH_SIZE, DEFAULT_PAUSE_BETWEEN_BATCHES_MILLIS);
+    }
+
+    public TicketArchiveService(TicketArchiveDAO ticketArchiveDAO, int batchSize, long pauseBetweenBatchesMillis){
+        if(batchSize <= 0){
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.ticketArchiveDAO = ticketArchiveDAO;
+        this.batchSize = batchSize;
+        this.pauseBetweenBatchesMillis = pauseBetweenBatchesMillis;
+    }
+
+    // Time source of the retention cutoff.
+    public void setClock(Clock clock){
+        this.clock = clock;
+    }
+
+    // Archives every closed ticket older than the retention window and returns the number of tickets moved.
+    public int archiveClosedTickets(int retentionDays){
+        Date cutoff = new Date(clock.millis() - TimeUnit.DAYS.toMillis(retentionDays));
+        logger.info("Archiving tickets closed before " + cutoff);
+        int totalArchived = 0;
+        int archived;
+        do {
+            archived = ticketArchiveDAO.archiveClosedTickets(cutoff, batchSize);
+            totalArchived += archived;
+            // A short pause between full batches leaves room for the gate traffic on the ticket table.
+            if(archived == batchSize && pauseBetweenBatchesMillis > 0){
+                try {
+                    Thread.sleep(pauseBetweenBatchesMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } while(archived == batchSize);
+        logger.info("Archived " + totalArchived + " tickets");
+        return totalArchived;
+    }
+}
@@ -0,0 +1,100 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketRowHandler;
+import com.parkit.parkingsystem.model.TicketRow;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Encodes ticket rows in a compact columnar binary format written to a FileChannel.
+// Layout (big endian): int MAGIC, int VERSION, then groups of up to ROWS_PER_GROUP rows, each made of
+// int rowCount followed by the columns ID int[], FACILITY_ID int[], PARKING_NUMBER int[], TYPE byte[] (ParkingType ordinal),
+// PRICE double[], IN_TIME long[], OUT_TIME long[] (TicketRow.NO_OUT_TIME if open), plate length byte[]
+// and the concatenated ASCII plates. A group with a rowCount of 0 ends the file.
+public class TicketColumnarExporter implements TicketRowHandler, Closeable {
+
+    public static final int MAGIC = 0x504B5458;
+    public static final int VERSION = 2;
+    public static final int ROWS_PER_GROUP = 4096;
+    public static final int MAX_PLATE_LENGTH = 10;
+
+    private final FileChannel channel;
+    private final ByteBuffer groupHeader = ByteBuffer.allocateDirect(Integer.BYTES);
+    private final ByteBuffer ids = ByteBuffer.allocateDirect(ROWS_PER_GROUP * Integer.BYTES);
+    private final ByteBuffer facilityIds = ByteBuffer.allocateDirect(ROWS_PER_GROUP * Integer.BYTES);
+    private final ByteBuffer parkingNumbers = ByteBuffer.allocateDirect(ROWS_PER_GROUP * Integer.BYTES);
+    private final ByteBuffer parkingTypes = ByteBuffer.allocateDirect(ROWS_PER_GROUP);
+    private final ByteBuffer prices = ByteBuffer.allocateDirect(ROWS_PER_GROUP * Double.BYTES);
+    private final ByteBuffer inTimes = ByteBuffer.allocateDirect(ROWS_PER_GROUP * Long.BYTES);
+    private final ByteBuffer outTimes = ByteBuffer.allocateDirect(ROWS_PER_GROUP * Long.BYTES);
+    private final ByteBuffer plateLengths = ByteBuffer.allocateDirect(ROWS_PER_GROUP);
+    private final ByteBuffer plates = ByteBuffer.allocateDirect(ROWS_PER_GROUP * MAX_PLATE_LENGTH);
+    private final ByteBuffer[] group = {groupHeader, ids, facilityIds, parkingNumbers, parkingTypes, prices, inTimes, outTimes, plateLengths, plates};
+    private int groupRows;
+
+    public TicketColumnarExporter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer fileHeader = ByteBuffer.allocate(2 * Integer.BYTES);
+        fileHeader.putInt(MAGIC).putInt(VERSION).flip();
+        while (fileHeader.hasRemaining()) {
+            channel.write(fileHeader);
+        }
+    }
+
+    @Override
+    public void onRow(TicketRow row) throws IOException {
+        String vehicleRegNumber = row.getVehicleRegNumber();
+        if (vehicleRegNumber.length() > MAX_PLATE_LENGTH) {
+            throw new IOException("Vehicle registration number too long: " + vehicleRegNumber);
+        }
+        ids.putInt(row.getId());
+        facilityIds.putInt(row.getFacilityId());
+        parkingNumbers.putInt(row.getParkingNumber());
+        parkingTypes.put((byte) row.getParkingType().ordinal());
+        prices.putDouble(row.getPrice());
+        inTimes.putLong(row.getInTime());
+        outTimes.putLong(row.getOutTime());
+        plateLengths.put((byte) vehicleRegNumber.length());
+        for (int i = 0; i < vehicleRegNumber.length(); i++) {
+            char c = vehicleRegNumber.charAt(i);
+            plates.put((c < 128) ? (byte) c : (byte) '?');
+        }
+        if (++groupRows == ROWS_PER_GROUP) {
+            flushGroup();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (groupRows > 0) {
+                flushGroup();
+            }
+            // The empty group marks the end of the file.
+            flushGroup();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flushGroup() throws IOException {
+        groupHeader.putInt(groupRows);
+        long groupSize = 0;
+        for (ByteBuffer column : group) {
+            column.flip();
+            groupSize += column.remaining();
+        }
+        // One gathering write per group sends every column without copying them together.
+        while (groupSize > 0) {
+            groupSize -= channel.write(group);
+        }
+        for (ByteBuffer column : group) {
+            column.clear();
+        }
+        groupRows = 0;
+    }
+}
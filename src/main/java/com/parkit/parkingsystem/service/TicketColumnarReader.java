@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketRowHandler;
+import com.parkit.parkingsystem.dao.TicketRowSource;
+import com.parkit.parkingsystem.model.TicketRow;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Reads tickets in the columnar binary format written by TicketColumnarExporter, one group of columns at a time.
+public class TicketColumnarReader implements TicketRowSource {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final int[] ids = new int[TicketColumnarExporter.ROWS_PER_GROUP];
+    private final int[] facilityIds = new int[TicketColumnarExporter.ROWS_PER_GROUP];
+    private final int[] parkingNumbers = new int[TicketColumnarExporter.ROWS_PER_GROUP];
+    private final byte[] parkingTypes = new byte[TicketColumnarExporter.ROWS_PER_GROUP];
+    private final double[] prices = new double[TicketColumnarExporter.ROWS_PER_GROUP];
+    private final long[] inTimes = new long[TicketColumnarExporter.ROWS_PER_GROUP];
+    private final long[] outTimes = new long[TicketColumnarExporter.ROWS_PER_GROUP];
+    private final byte[] plateLengths = new byte[TicketColumnarExporter.ROWS_PER_GROUP];
+    private final byte[] plate = new byte[TicketColumnarExporter.MAX_PLATE_LENGTH];
+
+    public TicketColumnarReader(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public long read(TicketRowHandler handler) throws IOException {
+        long rows = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != TicketColumnarExporter.MAGIC || in.readInt() != TicketColumnarExporter.VERSION) {
+                throw new IOException("Not a columnar ticket file of version " + TicketColumnarExporter.VERSION + ": " + file);
+            }
+            ParkingType[] types = ParkingType.values();
+            TicketRow row = new TicketRow();
+            int groupRows;
+            while ((groupRows = in.readInt()) > 0) {
+                if (groupRows > TicketColumnarExporter.ROWS_PER_GROUP) {
+                    throw new IOException("Corrupted group of " + groupRows + " rows in " + file);
+                }
+                readGroup(in, groupRows);
+                // The concatenated plates come last, so each row is complete once its plate is read.
+                for (int i = 0; i < groupRows; i++) {
+                    int plateLength = plateLengths[i];
+                    if (plateLength < 0 || plateLength > TicketColumnarExporter.MAX_PLATE_LENGTH || parkingTypes[i] < 0 || parkingTypes[i] >= types.length) {
+                        throw new IOException("Corrupted row " + (rows + i + 1) + " in " + file);
+                    }
+                    in.readFully(plate, 0, plateLength);
+                    row.setId(ids[i]);
+                    row.setFacilityId(facilityIds[i]);
+                    row.setParkingNumber(parkingNumbers[i]);
+                    row.setParkingType(types[parkingTypes[i]]);
+                    row.setVehicleRegNumber(new String(plate, 0, plateLength, StandardCharsets.US_ASCII));
+                    row.setPrice(prices[i]);
+                    row.setInTime(inTimes[i]);
+                    row.setOutTime(outTimes[i]);
+                    handler.onRow(row);
+                }
+                rows += groupRows;
+            }
+        }
+        return rows;
+    }
+
+    private void readGroup(DataInputStream in, int groupRows) throws IOException {
+        for (int i = 0; i < groupRows; i++) {
+            ids[i] = in.readInt();
+        }
+        for (int i = 0; i < groupRows; i++) {
+            facilityIds[i] = in.readInt();
+        }
+        for (int i = 0; i < groupRows; i++) {
+            parkingNumbers[i] = in.readInt();
+        }
+        in.readFully(parkingTypes, 0, groupRows);
+        for (int i = 0; i < groupRows; i++) {
+            prices[i] = in.readDouble();
+        }
+        for (int i = 0; i < groupRows; i++) {
+            inTimes[i] = in.readLong();
+        }
+        for (int i = 0; i < groupRows; i++) {
+            outTimes[i] = in.readLong();
+        }
+        in.readFully(plateLengths, 0, groupRows);
+    }
+}
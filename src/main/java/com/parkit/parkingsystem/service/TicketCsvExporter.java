@@ -0,0 +1,157 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketRowHandler;
+import com.parkit.parkingsystem.model.TicketRow;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Calendar;
+
+// Encodes ticket rows as CSV straight into a reusable direct buffer written to a FileChannel.
+// Prices are written with two decimals and times as "yyyy-MM-dd HH:mm:ss"; an open ticket has an empty OUT_TIME.
+public class TicketCsvExporter implements TicketRowHandler, Closeable {
+
+    public static final String HEADER = "ID,FACILITY_ID,PARKING_NUMBER,TYPE,VEHICLE_REG_NUMBER,PRICE,IN_TIME,OUT_TIME\n";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIXED_ROW_SIZE = 128;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] digits = new byte[20];
+    private final Calendar calendar = Calendar.getInstance();
+
+    public TicketCsvExporter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        for (int i = 0; i < HEADER.length(); i++) {
+            buffer.put((byte) HEADER.charAt(i));
+        }
+    }
+
+    @Override
+    public void onRow(TicketRow row) throws IOException {
+        String vehicleRegNumber = row.getVehicleRegNumber();
+        // A quoted plate takes at most twice its length plus the two quotes.
+        if (buffer.remaining() < MAX_FIXED_ROW_SIZE + 2 * vehicleRegNumber.length() + 2) {
+            flush();
+        }
+        putLong(row.getId());
+        buffer.put((byte) ',');
+        putLong(row.getFacilityId());
+        buffer.put((byte) ',');
+        putLong(row.getParkingNumber());
+        buffer.put((byte) ',');
+        putAscii(row.getParkingType().name());
+        buffer.put((byte) ',');
+        putVehicleRegNumber(vehicleRegNumber);
+        buffer.put((byte) ',');
+        putPrice(row.getPrice());
+        buffer.put((byte) ',');
+        putDateTime(row.getInTime());
+        buffer.put((byte) ',');
+        if (row.isClosed()) {
+            putDateTime(row.getOutTime());
+        }
+        buffer.put((byte) '\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (length > 0) {
+            buffer.put(digits[--length]);
+        }
+    }
+
+    private void putPaddedInt(int value, int width) {
+        int divisor = 1;
+        for (int i = 1; i < width; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private void putPrice(double price) {
+        long cents = Math.round(price * 100);
+        if (cents < 0) {
+            buffer.put((byte) '-');
+            cents = -cents;
+        }
+        putLong(cents / 100);
+        buffer.put((byte) '.');
+        putPaddedInt((int) (cents % 100), 2);
+    }
+
+    private void putDateTime(long time) {
+        calendar.setTimeInMillis(time);
+        putPaddedInt(calendar.get(Calendar.YEAR), 4);
+        buffer.put((byte) '-');
+        putPaddedInt(calendar.get(Calendar.MONTH) + 1, 2);
+        buffer.put((byte) '-');
+        putPaddedInt(calendar.get(Calendar.DAY_OF_MONTH), 2);
+        buffer.put((byte) ' ');
+        putPaddedInt(calendar.get(Calendar.HOUR_OF_DAY), 2);
+        buffer.put((byte) ':');
+        putPaddedInt(calendar.get(Calendar.MINUTE), 2);
+        buffer.put((byte) ':');
+        putPaddedInt(calendar.get(Calendar.SECOND), 2);
+    }
+
+    private void putAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            buffer.put((c < 128) ? (byte) c : (byte) '?');
+        }
+    }
+
+    private void putVehicleRegNumber(String vehicleRegNumber) {
+        boolean quoted = false;
+        for (int i = 0; i < vehicleRegNumber.length() && !quoted; i++) {
+            char c = vehicleRegNumber.charAt(i);
+            quoted = (c == ',' || c == '"' || c == '\n' || c == '\r');
+        }
+        if (!quoted) {
+            putAscii(vehicleRegNumber);
+            return;
+        }
+        buffer.put((byte) '"');
+        for (int i = 0; i < vehicleRegNumber.length(); i++) {
+            char c = vehicleRegNumber.charAt(i);
+            if (c == '"') {
+                buffer.put((byte) '"');
+            }
+            buffer.put((c < 128) ? (byte) c : (byte) '?');
+        }
+        buffer.put((byte) '"');
+    }
+}
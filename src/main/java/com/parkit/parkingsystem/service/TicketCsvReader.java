@@ -0,0 +1,123 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketRowHandler;
+import com.parkit.parkingsystem.dao.TicketRowSource;
+import com.parkit.parkingsystem.model.TicketRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+
+// Reads tickets in the CSV layout written by TicketCsvExporter, header line included. A line which cannot be parsed
+// is still passed on, with a null plate and parking type, so that the rows keep their position in the input.
+public class TicketCsvReader implements TicketRowSource {
+
+    private static final Logger logger = LogManager.getLogger("TicketCsvReader");
+
+    private static final int COLUMNS = 8;
+    private static final int MAX_LOGGED_ERRORS = 100;
+
+    private final Path file;
+    private final String[] fields = new String[COLUMNS];
+    private final StringBuilder field = new StringBuilder();
+    private final Calendar calendar = Calendar.getInstance();
+    private int loggedErrors;
+
+    public TicketCsvReader(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public long read(TicketRowHandler handler) throws IOException {
+        long rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            String header = reader.readLine();
+            if (header == null || !TicketCsvExporter.HEADER.startsWith(header)) {
+                throw new IOException("Unexpected CSV header in " + file + ": " + header);
+            }
+            TicketRow row = new TicketRow();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows++;
+                if (line.isEmpty()) {
+                    rows--;
+                    continue;
+                }
+                try {
+                    parse(line, row);
+                } catch (RuntimeException e) {
+                    if (loggedErrors++ < MAX_LOGGED_ERRORS) {
+                        logger.error("Malformed row " + rows + " in " + file + ": " + e.getMessage());
+                    }
+                    row.setVehicleRegNumber(null);
+                    row.setParkingType(null);
+                }
+                handler.onRow(row);
+            }
+        }
+        return rows;
+    }
+
+    private void parse(String line, TicketRow row) {
+        split(line);
+        row.setId(Integer.parseInt(fields[0]));
+        row.setFacilityId(Integer.parseInt(fields[1]));
+        row.setParkingNumber(Integer.parseInt(fields[2]));
+        row.setParkingType(ParkingType.valueOf(fields[3]));
+        row.setVehicleRegNumber(fields[4]);
+        row.setPrice(Double.parseDouble(fields[5]));
+        row.setInTime(parseDateTime(fields[6]));
+        row.setOutTime(fields[7].isEmpty() ? TicketRow.NO_OUT_TIME : parseDateTime(fields[7]));
+    }
+
+    private void split(String line) {
+        int column = 0;
+        boolean quoted = false;
+        field.setLength(0);
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                if (column == COLUMNS - 1) {
+                    throw new IllegalArgumentException("more than " + COLUMNS + " columns");
+                }
+                fields[column++] = field.toString();
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted || column != COLUMNS - 1) {
+            throw new IllegalArgumentException("expected " + COLUMNS + " columns");
+        }
+        fields[column] = field.toString();
+    }
+
+    // Parses "yyyy-MM-dd HH:mm:ss" in the default time zone, like the exporter writes it.
+    private long parseDateTime(String value) {
+        if (value.length() != 19 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != ' '
+                || value.charAt(13) != ':' || value.charAt(16) != ':') {
+            throw new IllegalArgumentException("invalid date " + value);
+        }
+        calendar.clear();
+        calendar.set(Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(5, 7)) - 1, Integer.parseInt(value.substring(8, 10)),
+                Integer.parseInt(value.substring(11, 13)), Integer.parseInt(value.substring(14, 16)), Integer.parseInt(value.substring(17, 19)));
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketExportDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class TicketExportService {
+
+    private static final Logger logger = LogManager.getLogger("TicketExportService");
+
+    private TicketExportDAO ticketExportDAO;
+
+    public TicketExportService(TicketExportDAO ticketExportDAO){
+        this.ticketExportDAO = ticketExportDAO;
+    }
+
+    public long exportCsv(Path file) throws IOException {
+        long startTime = System.nanoTime();
+        long exportedRows;
+        try (TicketCsvExporter exporter = new TicketCsvExporter(file)) {
+            exportedRows = ticketExportDAO.exportTickets(exporter);
+        }
+        logExport(file, exportedRows, startTime);
+        return exportedRows;
+    }
+
+    public long exportColumnar(Path file) throws IOException {
+        long startTime = System.nanoTime();
+        long exportedRows;
+        try (TicketColumnarExporter exporter = new TicketColumnarExporter(file)) {
+            exportedRows = ticketExportDAO.exportTickets(exporter);
+        }
+        logExport(file, exportedRows, startTime);
+        return exportedRows;
+    }
+
+    private void logExport(Path file, long exportedRows, long startTime) {
+        if (exportedRows < 0) {
+            logger.error("Export to " + file + " failed");
+            return;
+        }
+        double seconds = Math.max((System.nanoTime() - startTime) / 1e9, 1e-9);
+        logger.info("Exported " + exportedRows + " tickets to " + file + " in " + String.format("%.3f", seconds)
+                + "s (" + (long) (exportedRows / seconds) + " rows/s)");
+    }
+}
@@ -0,0 +1,154 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.dao.TicketImportDAO;
+import com.parkit.parkingsystem.dao.TicketRowHandler;
+import com.parkit.parkingsystem.dao.TicketRowSource;
+import com.parkit.parkingsystem.model.TicketImportChunk;
+import com.parkit.parkingsystem.model.TicketImportReport;
+import com.parkit.parkingsystem.model.TicketRow;
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Bulk loads historical tickets into the ticket table. The input is streamed once and cut into chunks of chunkSize
+// rows; each chunk is validated against the spots held in memory and written by one of the partition threads as a
+// single JDBC batch, committed together with its checkpoint. An import run again with the same id skips the chunks
+// already committed, so it resumes where a failed run stopped. The rollups are rebuilt once tickets were imported.
+public class TicketImportService {
+
+    private static final Logger logger = LogManager.getLogger("TicketImportService");
+
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+    public static final int DEFAULT_PARTITIONS = 4;
+
+    private final TicketImportDAO ticketImportDAO;
+    private final RollupDAO rollupDAO;
+    private final int chunkSize;
+    private final int partitions;
+
+    public TicketImportService(TicketImportDAO ticketImportDAO, RollupDAO rollupDAO) {
+        this(ticketImportDAO, rollupDAO, DEFAULT_CHUNK_SIZE, DEFAULT_PARTITIONS);
+    }
+
+    public TicketImportService(TicketImportDAO ticketImportDAO, RollupDAO rollupDAO, int chunkSize, int partitions) {
+        if (chunkSize <= 0 || partitions <= 0) {
+            throw new IllegalArgumentException("Chunk size and partitions must be positive");
+        }
+        this.ticketImportDAO = ticketImportDAO;
+        this.rollupDAO = rollupDAO;
+        this.chunkSize = chunkSize;
+        this.partitions = partitions;
+    }
+
+    // Returns the report of the import, or null if the spots or the checkpoints could not be read.
+    public TicketImportReport importTickets(String importId, TicketRowSource source) throws IOException {
+        long startTime = System.nanoTime();
+        LongIntHashMap spotTypes = ticketImportDAO.getSpotTypes();
+        BitSet importedChunks = ticketImportDAO.getImportedChunks(importId);
+        if (spotTypes == null || importedChunks == null) {
+            logger.error("Import " + importId + " not started, the spots or checkpoints could not be read");
+            return null;
+        }
+        TicketImportReport report = new TicketImportReport();
+        // A full queue makes the reading thread write the chunk itself, which bounds the chunks held in memory.
+        ThreadPoolExecutor writers = new ThreadPoolExecutor(partitions, partitions, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(partitions), runnable -> {
+            Thread thread = new Thread(runnable, "ticket-import");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        ChunkBuilder chunkBuilder = new ChunkBuilder(importId, spotTypes, importedChunks, report, writers);
+        long readRows;
+        try {
+            readRows = source.read(chunkBuilder);
+            // The last chunk is only complete if the input was read to the end, otherwise a resumed run must read it again.
+            if (readRows >= 0) {
+                chunkBuilder.flush();
+            }
+        } finally {
+            writers.shutdown();
+            try {
+                writers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (readRows < 0) {
+            logger.error("Import " + importId + " stopped, the input could not be read to the end");
+        }
+        if (report.getImportedRows() > 0) {
+            rollupDAO.rebuildRollups();
+        }
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        logger.info("Import " + importId + ": " + report);
+        return report;
+    }
+
+    private final class ChunkBuilder implements TicketRowHandler {
+        private final String importId;
+        private final LongIntHashMap spotTypes;
+        private final BitSet importedChunks;
+        private final TicketImportReport report;
+        private final ThreadPoolExecutor writers;
+        private long inputRows;
+        private TicketImportChunk chunk;
+
+        private ChunkBuilder(String importId, LongIntHashMap spotTypes, BitSet importedChunks, TicketImportReport report, ThreadPoolExecutor writers) {
+            this.importId = importId;
+            this.spotTypes = spotTypes;
+            this.importedChunks = importedChunks;
+            this.report = report;
+            this.writers = writers;
+        }
+
+        @Override
+        public void onRow(TicketRow row) {
+            report.addReadRow();
+            int chunkIndex = (int) (inputRows++ / chunkSize);
+            if (importedChunks.get(chunkIndex)) {
+                report.addSkippedRows(1);
+                return;
+            }
+            if (chunk == null) {
+                chunk = new TicketImportChunk(chunkIndex, chunkSize);
+            }
+            if (row.getVehicleRegNumber() == null || row.getParkingType() == null) {
+                report.addMalformedRow();
+            } else if (!PlateCodec.isValid(row.getVehicleRegNumber())) {
+                report.addInvalidPlate();
+            } else if (spotTypes.get(TicketImportDAO.spotKey(row.getFacilityId(), row.getParkingNumber())) != row.getParkingType().ordinal() + 1) {
+                report.addUnknownSpot();
+            } else if (!row.isClosed() || row.getOutTime() < row.getInTime() || !(row.getPrice() >= 0)) {
+                report.addInvalidStay();
+            } else {
+                chunk.add(row, PlateCodec.normalize(row.getVehicleRegNumber()));
+            }
+            if (inputRows % chunkSize == 0) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            TicketImportChunk fullChunk = chunk;
+            chunk = null;
+            if (fullChunk == null || fullChunk.size() == 0) {
+                return;
+            }
+            writers.execute(() -> {
+                if (ticketImportDAO.importChunk(importId, fullChunk)) {
+                    report.addImportedRows(fullChunk.size());
+                } else {
+                    report.addFailedChunk(fullChunk.size());
+                }
+            });
+        }
+    }
+}
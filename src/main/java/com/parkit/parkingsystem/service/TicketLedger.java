@@ -0,0 +1,151 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.LedgerEventType;
+import com.parkit.parkingsystem.dao.LedgerDAO;
+import com.parkit.parkingsystem.model.LedgerEvent;
+import com.parkit.parkingsystem.model.LedgerSnapshot;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Append-only ledger of the tickets and spots of one facility. Every change is an inserted event and nothing is updated
+// in place, so there is no hot row and the whole history is kept. The current state is the projection of the events,
+// restored on startup from the latest snapshot and the events that followed it, then snapshotted every snapshotInterval
+// events. Several nodes may share a ledger: each one appends right after the last event it applied, and a node that
+// lost the race catches up, checks its precondition again on the new state and retries.
+public class TicketLedger {
+
+    private static final Logger logger = LogManager.getLogger("TicketLedger");
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 10_000;
+    private static final int MAX_APPEND_ATTEMPTS = 5;
+
+    private final LedgerDAO ledgerDAO;
+    private final int facilityId;
+    private final int snapshotInterval;
+    private LedgerProjection projection;
+    private long snapshotSeq;
+
+    public TicketLedger(LedgerDAO ledgerDAO, int facilityId) {
+        this(ledgerDAO, facilityId, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public TicketLedger(LedgerDAO ledgerDAO, int facilityId, int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        this.ledgerDAO = ledgerDAO;
+        this.facilityId = facilityId;
+        this.snapshotInterval = snapshotInterval;
+        this.projection = new LedgerProjection(facilityId);
+    }
+
+    public int getFacilityId() {
+        return facilityId;
+    }
+
+    public synchronized long getLastSeq() {
+        return projection.getLastSeq();
+    }
+
+    // Restores the latest snapshot and replays the events appended after it.
+    public synchronized void recover() {
+        LedgerSnapshot snapshot = ledgerDAO.getLatestSnapshot(facilityId);
+        projection = (snapshot != null) ? LedgerProjection.restore(snapshot) : new LedgerProjection(facilityId);
+        snapshotSeq = projection.getLastSeq();
+        long replayedEvents = ledgerDAO.readEvents(facilityId, snapshotSeq, projection::apply);
+        logger.info("Recovered ledger of facility " + facilityId + " from SEQ " + snapshotSeq + ", replayed " + replayedEvents + " events");
+        snapshotIfDue();
+    }
+
+    // Applies the events appended by the other nodes since the last one applied here.
+    public synchronized boolean catchUp() {
+        if (ledgerDAO.readEvents(facilityId, projection.getLastSeq(), projection::apply) < 0) {
+            return false;
+        }
+        snapshotIfDue();
+        return true;
+    }
+
+    public synchronized boolean snapshot() {
+        LedgerSnapshot snapshot = projection.toSnapshot();
+        if (!ledgerDAO.saveSnapshot(snapshot)) {
+            return false;
+        }
+        snapshotSeq = snapshot.getSeq();
+        return true;
+    }
+
+    public synchronized boolean claimSpot(ParkingSpot parkingSpot, long time) {
+        return append(state -> !state.isClaimed(parkingSpot.getId()), new LedgerEvent(LedgerEventType.SPOT_CLAIMED, parkingSpot, time));
+    }
+
+    public synchronized boolean releaseSpot(ParkingSpot parkingSpot, long time) {
+        return append(state -> state.isClaimed(parkingSpot.getId()), new LedgerEvent(LedgerEventType.SPOT_RELEASED, parkingSpot, time));
+    }
+
+    // Opens the ticket and sets its ID, which is the SEQ of its TICKET_OPENED event. A vehicle holds one open ticket at most.
+    public synchronized boolean openTicket(Ticket ticket) {
+        LedgerEvent opened = new LedgerEvent(LedgerEventType.TICKET_OPENED, ticket, ticket.getInTime().getTime());
+        if (!append(state -> state.getOpenTicket(ticket.getVehicleRegNumber()) == null, opened)) {
+            return false;
+        }
+        ticket.setId(Math.toIntExact(opened.getSeq()));
+        return true;
+    }
+
+    // Records the price and closes the ticket in a single append.
+    public synchronized boolean closeTicket(Ticket ticket) {
+        long outTime = ticket.getOutTime().getTime();
+        return append(state -> state.isOpen(ticket),
+                new LedgerEvent(LedgerEventType.TICKET_PRICED, ticket, outTime), new LedgerEvent(LedgerEventType.TICKET_CLOSED, ticket, outTime));
+    }
+
+    public synchronized boolean isClaimed(int parkingNumber) {
+        return projection.isClaimed(parkingNumber);
+    }
+
+    public synchronized Ticket getOpenTicket(String vehicleRegNumber) {
+        return projection.getOpenTicket(vehicleRegNumber);
+    }
+
+    public synchronized List<Ticket> getOpenTickets() {
+        return projection.getOpenTickets();
+    }
+
+    public synchronized int getVisitCount(String vehicleRegNumber) {
+        return projection.getVisitCount(vehicleRegNumber);
+    }
+
+    private boolean append(Predicate<LedgerProjection> precondition, LedgerEvent... events) {
+        List<LedgerEvent> appendedEvents = Arrays.asList(events);
+        for (int attempt = 0; attempt < MAX_APPEND_ATTEMPTS; attempt++) {
+            if (!precondition.test(projection)) {
+                return false;
+            }
+            if (ledgerDAO.appendEvents(facilityId, projection.getLastSeq(), appendedEvents)) {
+                for (LedgerEvent event : appendedEvents) {
+                    projection.apply(event);
+                }
+                snapshotIfDue();
+                return true;
+            }
+            if (ledgerDAO.readEvents(facilityId, projection.getLastSeq(), projection::apply) < 0) {
+                return false;
+            }
+        }
+        logger.error("Unable to append to the ledger of facility " + facilityId + " after " + MAX_APPEND_ATTEMPTS + " attempts");
+        return false;
+    }
+
+    private void snapshotIfDue() {
+        if (projection.getLastSeq() - snapshotSeq >= snapshotInterval) {
+            snapshot();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+// Time-bounded record of the commands recently run, keyed by a long idempotency key, so that a command fired twice is
+// answered with the result of the first run instead of being run again. A repeat arriving while the first run is still
+// in progress gets its pending result. The keys are spread over independently locked stripes, so that commands for
+// different keys never contend. Entries expire windowMillis after their run completed; they are dropped when read and
+// swept whenever a stripe doubles in size.
+public class DeduplicationWindow<T> {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 10_000;
+
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    private final long windowMillis;
+    private final Stripe<T>[] stripes;
+    private final LongAdder repeatCount = new LongAdder();
+
+    public DeduplicationWindow() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DeduplicationWindow(long windowMillis) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Deduplication window must be positive");
+        }
+        this.windowMillis = windowMillis;
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    // Returns null when the caller is the first to run the command, and must then complete or abandon it.
+    // Otherwise returns the result of the original run, completed or still pending.
+    public CompletableFuture<T> begin(long key, long now) {
+        Stripe<T> stripe = stripe(key);
+        synchronized (stripe) {
+            Entry<T> entry = stripe.entries.get(key);
+            if (entry != null && entry.expiresAt <= now) {
+                stripe.entries.remove(key);
+                entry = null;
+            }
+            if (entry != null) {
+                repeatCount.increment();
+                return entry.result;
+            }
+            if (stripe.entries.size() >= stripe.sweepSize) {
+                stripe.sweep(now);
+                stripe.sweepSize = Math.max(Stripe.MIN_SWEEP_SIZE, stripe.entries.size() * 2);
+            }
+            stripe.entries.put(key, new Entry<>());
+            return null;
+        }
+    }
+
+    // Records the result of the run, returned to the repeats until the window ends.
+    public void complete(long key, T result, long now) {
+        Stripe<T> stripe = stripe(key);
+        Entry<T> entry;
+        synchronized (stripe) {
+            entry = stripe.entries.get(key);
+            if (entry == null) {
+                return;
+            }
+            entry.expiresAt = now + windowMillis;
+        }
+        entry.result.complete(result);
+    }
+
+    // Forgets a run which failed, so that the next attempt runs again. The repeats waiting for it get null.
+    public void abandon(long key) {
+        Stripe<T> stripe = stripe(key);
+        Entry<T> entry;
+        synchronized (stripe) {
+            entry = stripe.entries.remove(key);
+        }
+        if (entry != null) {
+            entry.result.complete(null);
+        }
+    }
+
+    // Drops the completed run of the key before its window ends, so that the next command runs again. A run still in
+    // progress is kept.
+    public void forget(long key) {
+        Stripe<T> stripe = stripe(key);
+        synchronized (stripe) {
+            Entry<T> entry = stripe.entries.get(key);
+            if (entry != null && entry.expiresAt != Long.MAX_VALUE) {
+                stripe.entries.remove(key);
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<T> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public long getRepeatCount() {
+        return repeatCount.sum();
+    }
+
+    // The stripe comes from the high bits of the hash, the map of the stripe probing from its low bits.
+    private Stripe<T> stripe(long key) {
+        return stripes[HashMixer.mix(key) >>> (Integer.SIZE - STRIPE_BITS)];
+    }
+
+    private static final class Stripe<T> {
+        private static final int MIN_SWEEP_SIZE = 256;
+
+        private final LongObjectHashMap<Entry<T>> entries = new LongObjectHashMap<>();
+        private int sweepSize = MIN_SWEEP_SIZE;
+
+        private void sweep(long now) {
+            List<Long> expired = new ArrayList<>();
+            entries.forEach((key, entry) -> {
+                if (entry.expiresAt <= now) {
+                    expired.add(key);
+                }
+            });
+            for (long key : expired) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    // A running command never expires, its window only starts once it completed.
+    private static final class Entry<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private long expiresAt = Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,20 @@
+package com.parkit.parkingsystem.util;
+
+// Spreads the bits of a long key over the low bits used to index the primitive hash maps.
+// Plate codes and ids are dense, so without mixing consecutive keys would fill consecutive slots.
+final class HashMixer {
+
+    private HashMixer() {
+    }
+
+    // Finalizer of MurmurHash3.
+    static int mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
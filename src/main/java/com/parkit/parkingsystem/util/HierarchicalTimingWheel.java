@@ -0,0 +1,170 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hierarchical timing wheel: level 0 has one bucket per tick, each upper level one bucket per full turn of the level below.
+// Scheduling and cancelling are O(1), a timeout is moved down at most once per level, and advancing one tick only
+// looks at one bucket per level whose turn completes. Not thread safe.
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelBits;
+    private final int wheelMask;
+    private final List<Bucket<T>[]> levels = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Tick must be positive and wheel size a power of 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.wheelMask = wheelSize - 1;
+        this.currentTick = startMillis / tickMillis;
+        addLevel();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    // Schedules the payload to expire on the first tick at or after the deadline. A past deadline expires on the next tick.
+    public Timeout<T> schedule(T payload, long deadlineMillis) {
+        long deadlineTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(payload, deadlineMillis, deadlineTick);
+        insert(timeout);
+        size++;
+        return timeout;
+    }
+
+    // Returns false if the timeout already expired or was cancelled.
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.unlink();
+        size--;
+        return true;
+    }
+
+    // Moves the wheel up to the given time and returns the payloads expired on the way, in deadline tick order.
+    public List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long nowTick = nowMillis / tickMillis;
+        while (currentTick < nowTick) {
+            currentTick++;
+            // Upper levels whose bucket turn starts now hand their timeouts down before level 0 fires.
+            for (int level = 1; level < levels.size(); level++) {
+                if ((currentTick & ((1L << (wheelBits * level)) - 1)) != 0) {
+                    break;
+                }
+                Bucket<T> bucket = levels.get(level)[(int) (currentTick >>> (wheelBits * level)) & wheelMask];
+                for (Timeout<T> timeout = bucket.takeAll(); timeout != null; ) {
+                    Timeout<T> next = timeout.next;
+                    insert(timeout);
+                    timeout = next;
+                }
+            }
+            Bucket<T> bucket = levels.get(0)[(int) currentTick & wheelMask];
+            for (Timeout<T> timeout = bucket.takeAll(); timeout != null; timeout = timeout.next) {
+                expired.add(timeout.payload);
+                size--;
+            }
+        }
+        return expired;
+    }
+
+    private void insert(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level < 63 / wheelBits && delta >= (1L << (wheelBits * (level + 1)))) {
+            level++;
+        }
+        while (levels.size() <= level) {
+            addLevel();
+        }
+        levels.get(level)[(int) (timeout.deadlineTick >>> (wheelBits * level)) & wheelMask].add(timeout);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void addLevel() {
+        Bucket<T>[] buckets = new Bucket[wheelMask + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket<>();
+        }
+        levels.add(buckets);
+    }
+
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadlineMillis;
+        private final long deadlineTick;
+        private Bucket<T> bucket;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T payload, long deadlineMillis, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        public boolean isPending() {
+            return bucket != null;
+        }
+
+        private void unlink() {
+            if (previous != null) {
+                previous.next = next;
+            } else {
+                bucket.head = next;
+            }
+            if (next != null) {
+                next.previous = previous;
+            }
+            bucket = null;
+            previous = null;
+            next = null;
+        }
+    }
+
+    // Doubly linked list of timeouts, so that a cancelled timeout is unlinked without searching its bucket.
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+
+        private void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        // Empties the bucket and returns its timeouts, still chained through next.
+        private Timeout<T> takeAll() {
+            Timeout<T> first = head;
+            head = null;
+            for (Timeout<T> timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+                timeout.previous = null;
+            }
+            return first;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binary min-heap of distinct keys ordered by a long priority, ties broken by insertion order.
+// The position of each key is indexed, so a key can be removed or reprioritized in O(log n) besides add and poll.
+public class IndexedMinHeap<K> {
+
+    private final List<K> keys = new ArrayList<>();
+    private final List<long[]> priorities = new ArrayList<>();
+    private final Map<K, Integer> positions = new HashMap<>();
+    private long insertions;
+
+    public int size() {
+        return keys.size();
+    }
+
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    public boolean contains(K key) {
+        return positions.containsKey(key);
+    }
+
+    // Adds the key, or updates its priority if already present.
+    public void add(K key, long priority) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            update(position, priority);
+            return;
+        }
+        keys.add(key);
+        priorities.add(new long[]{priority, insertions++});
+        positions.put(key, keys.size() - 1);
+        siftUp(keys.size() - 1);
+    }
+
+    public K peek() {
+        return keys.isEmpty() ? null : keys.get(0);
+    }
+
+    public long peekPriority() {
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("The heap is empty");
+        }
+        return priorities.get(0)[0];
+    }
+
+    public K poll() {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        K key = keys.get(0);
+        removeAt(0);
+        return key;
+    }
+
+    public boolean remove(K key) {
+        Integer position = positions.get(key);
+        if (position == null) {
+            return false;
+        }
+        removeAt(position);
+        return true;
+    }
+
+    private void update(int position, long priority) {
+        long[] entry = priorities.get(position);
+        long previous = entry[0];
+        entry[0] = priority;
+        if (priority < previous) {
+            siftUp(position);
+        } else {
+            siftDown(position);
+        }
+    }
+
+    private void removeAt(int position) {
+        int last = keys.size() - 1;
+        positions.remove(keys.get(position));
+        if (position != last) {
+            move(last, position);
+        }
+        keys.remove(last);
+        priorities.remove(last);
+        if (position != last) {
+            siftDown(position);
+            siftUp(position);
+        }
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!less(position, parent)) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        int size = keys.size();
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && less(left, smallest)) {
+                smallest = left;
+            }
+            if (right < size && less(right, smallest)) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private boolean less(int i, int j) {
+        long[] a = priorities.get(i);
+        long[] b = priorities.get(j);
+        return (a[0] != b[0]) ? a[0] < b[0] : a[1] < b[1];
+    }
+
+    private void swap(int i, int j) {
+        K key = keys.get(i);
+        long[] priority = priorities.get(i);
+        keys.set(i, keys.get(j));
+        priorities.set(i, priorities.get(j));
+        keys.set(j, key);
+        priorities.set(j, priority);
+        positions.put(keys.get(i), i);
+        positions.put(keys.get(j), j);
+    }
+
+    private void move(int from, int to) {
+        keys.set(to, keys.get(from));
+        priorities.set(to, priorities.get(from));
+        positions.put(keys.get(to), to);
+    }
+}
@@ -27,7 +27,8 @@ public class InputReaderUtil {
             if(vehicleRegNumber == null || vehicleRegNumber.trim().length()==0) {
                 throw new IllegalArgumentException("Invalid input provided");
             }
-            return vehicleRegNumber;
+            // Plates are stored in canonical form, so "ab-123" and "AB 123" are the same vehicle.
+            return PlateCodec.normalize(vehicleRegNumber);
         }catch(Exception e){
             logger.error("Error while reading user input from Shell", e);
             System.out.println("Error reading input. Please enter a valid string for vehicle registration number");
@@ -0,0 +1,186 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.Arrays;
+
+// Open addressing hash map from long keys to int values, stored in two parallel primitive arrays.
+// No boxing and no entry objects: an entry costs 12 bytes of array (about 24 at the maximum load factor) instead of
+// the 70+ bytes of a HashMap<Long, Integer> entry. Linear probing with backward shift deletion keeps lookups short
+// without tombstones. Not thread safe.
+public class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+    // Key marking a free slot. The key 0 itself is held apart.
+    private static final long FREE_KEY = 0;
+
+    private final int noEntryValue;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+
+    public LongIntHashMap() {
+        this(16, -1);
+    }
+
+    // noEntryValue is returned by get and remove for a missing key.
+    public LongIntHashMap(int expectedSize, int noEntryValue) {
+        this.noEntryValue = noEntryValue;
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return keys[slot(key)] != FREE_KEY;
+    }
+
+    public int get(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : noEntryValue;
+        }
+        int slot = slot(key);
+        return (keys[slot] != FREE_KEY) ? values[slot] : noEntryValue;
+    }
+
+    // Returns the previous value, or noEntryValue if the key was missing.
+    public int put(long key, int value) {
+        if (key == FREE_KEY) {
+            int previous = hasFreeKey ? freeKeyValue : noEntryValue;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+            }
+            freeKeyValue = value;
+            return previous;
+        }
+        int slot = slot(key);
+        if (keys[slot] != FREE_KEY) {
+            int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+        return noEntryValue;
+    }
+
+    // Adds delta to the value of the key, starting from 0 if missing, and returns the new value.
+    public int addTo(long key, int delta) {
+        int value = (containsKey(key) ? get(key) : 0) + delta;
+        put(key, value);
+        return value;
+    }
+
+    public int remove(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return noEntryValue;
+            }
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+        int slot = slot(key);
+        if (keys[slot] == FREE_KEY) {
+            return noEntryValue;
+        }
+        int previous = values[slot];
+        shiftBack(slot);
+        size--;
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    // Visits every entry. The map must not be modified during the visit.
+    public void forEach(EntryConsumer consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE_KEY, freeKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    // Slot holding the key, or the free slot ending its probe sequence.
+    private int slot(long key) {
+        int slot = HashMixer.mix(key) & mask;
+        while (keys[slot] != FREE_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Moves back the following entries of the probe run, so that no lookup stops early on the freed slot.
+    private void shiftBack(int freed) {
+        int slot = freed;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == FREE_KEY) {
+                break;
+            }
+            int home = HashMixer.mix(key) & mask;
+            if (((slot - home) & mask) >= ((slot - freed) & mask)) {
+                keys[freed] = key;
+                values[freed] = values[slot];
+                freed = slot;
+            }
+        }
+        keys[freed] = FREE_KEY;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) Math.ceil(Math.max(1, expectedSize) / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(capacity, 4);
+    }
+}
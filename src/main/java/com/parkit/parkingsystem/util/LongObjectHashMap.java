@@ -0,0 +1,159 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.Arrays;
+
+// Open addressing hash map from long keys to non null values, with the same layout as LongIntHashMap:
+// a long[] of keys and an Object[] of values, no boxed key and no entry object. Not thread safe.
+public class LongObjectHashMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final long FREE_KEY = 0;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private V freeKeyValue;
+
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(LongIntHashMap.capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == FREE_KEY) {
+            return freeKeyValue;
+        }
+        return (V) values[slot(key)];
+    }
+
+    // Returns the previous value, or null if the key was missing.
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        if (key == FREE_KEY) {
+            V previous = freeKeyValue;
+            freeKeyValue = value;
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+        int slot = slot(key);
+        V previous = (V) values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if (previous == null && ++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == FREE_KEY) {
+            V previous = freeKeyValue;
+            if (previous != null) {
+                freeKeyValue = null;
+                size--;
+            }
+            return previous;
+        }
+        int slot = slot(key);
+        V previous = (V) values[slot];
+        if (previous != null) {
+            shiftBack(slot);
+            size--;
+        }
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(values, null);
+        freeKeyValue = null;
+        size = 0;
+    }
+
+    // Visits every entry. The map must not be modified during the visit.
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> consumer) {
+        if (freeKeyValue != null) {
+            consumer.accept(FREE_KEY, freeKeyValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                consumer.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private int slot(long key) {
+        int slot = HashMixer.mix(key) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void shiftBack(int freed) {
+        int slot = freed;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            int home = HashMixer.mix(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - freed) & mask)) {
+                keys[freed] = keys[slot];
+                values[freed] = values[slot];
+                freed = slot;
+            }
+        }
+        keys[freed] = FREE_KEY;
+        values[freed] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem.util;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Occupancy;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// In memory count of the occupied spots per facility and parking type, updated on every spot update and reconciled with the DB.
+// Each facility has its own counters and the occupied ones are LongAdders, striped across cells, so that concurrent
+// gates never contend on one counter and a busy facility never slows another one down.
+public class OccupancyCounter {
+
+    private final ConcurrentMap<Integer, FacilityCounters> facilities = new ConcurrentHashMap<>();
+
+    public void spotTaken(int facilityId, ParkingType parkingType) {
+        facility(facilityId).occupiedSpots.get(parkingType).increment();
+    }
+
+    public void spotReleased(int facilityId, ParkingType parkingType) {
+        facility(facilityId).occupiedSpots.get(parkingType).decrement();
+    }
+
+    // Aligns the counters with the occupancy read from the DB, correcting any drift from missed or repeated updates.
+    public void reconcile(Occupancy occupancy) {
+        FacilityCounters counters = facility(occupancy.getFacilityId());
+        counters.totalSpots.get(occupancy.getParkingType()).set(occupancy.getTotalSpots());
+        LongAdder occupied = counters.occupiedSpots.get(occupancy.getParkingType());
+        occupied.add(occupancy.getOccupiedSpots() - occupied.sum());
+        counters.reconciled = true;
+    }
+
+    // Whether the counters of the facility were ever aligned with the DB. Until then they only count the updates seen.
+    public boolean isReconciled(int facilityId) {
+        FacilityCounters counters = facilities.get(facilityId);
+        return counters != null && counters.reconciled;
+    }
+
+    public Set<Integer> getFacilityIds() {
+        return facilities.keySet();
+    }
+
+    public int getTotalSpots(int facilityId, ParkingType parkingType) {
+        return facility(facilityId).totalSpots.get(parkingType).get();
+    }
+
+    public int getOccupiedSpots(int facilityId, ParkingType parkingType) {
+        return (int) Math.max(0, facility(facilityId).occupiedSpots.get(parkingType).sum());
+    }
+
+    // Occupied spots of the type across all facilities, as kept in the rollups.
+    public int getOccupiedSpots(ParkingType parkingType) {
+        int occupiedSpots = 0;
+        for (int facilityId : facilities.keySet()) {
+            occupiedSpots += getOccupiedSpots(facilityId, parkingType);
+        }
+        return occupiedSpots;
+    }
+
+    public int getFreeSpots(int facilityId, ParkingType parkingType) {
+        return Math.max(0, getTotalSpots(facilityId, parkingType) - getOccupiedSpots(facilityId, parkingType));
+    }
+
+    public Occupancy getOccupancy(int facilityId, ParkingType parkingType) {
+        return new Occupancy(facilityId, parkingType, getTotalSpots(facilityId, parkingType), getOccupiedSpots(facilityId, parkingType));
+    }
+
+    private FacilityCounters facility(int facilityId) {
+        FacilityCounters counters = facilities.get(facilityId);
+        return (counters != null) ? counters : facilities.computeIfAbsent(facilityId, id -> new FacilityCounters());
+    }
+
+    private static final class FacilityCounters {
+        private final Map<ParkingType, AtomicInteger> totalSpots = new EnumMap<>(ParkingType.class);
+        private final Map<ParkingType, LongAdder> occupiedSpots = new EnumMap<>(ParkingType.class);
+        private volatile boolean reconciled;
+
+        private FacilityCounters() {
+            for (ParkingType parkingType : ParkingType.values()) {
+                totalSpots.put(parkingType, new AtomicInteger());
+                occupiedSpots.put(parkingType, new LongAdder());
+            }
+        }
+    }
+}
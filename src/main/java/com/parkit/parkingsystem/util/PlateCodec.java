@@ -0,0 +1,86 @@
+package com.parkit.parkingsystem.util;
+
+// Canonical form of the vehicle registration numbers and their packing into a long.
+// A plate is normalized by dropping spaces and dashes and upper casing it, leaving 1 to MAX_LENGTH letters and digits.
+// Each symbol is then a base 37 digit from 1 to 36, so that plates of different lengths never share a code and
+// 0 is never a valid code. Encoding is a bijection: decode(encode(plate)) returns the normalized plate.
+public final class PlateCodec {
+
+    // Length of the VEHICLE_REG_NUMBER column. 37^10 is below 2^53, far from overflowing a long.
+    public static final int MAX_LENGTH = 10;
+
+    private static final int RADIX = 37;
+
+    private PlateCodec() {
+    }
+
+    // Returns the canonical plate, e.g. "ab-12 3" gives "AB123".
+    public static String normalize(String vehicleRegNumber) {
+        if (vehicleRegNumber == null) {
+            throw new IllegalArgumentException("Missing vehicle registration number");
+        }
+        StringBuilder normalized = new StringBuilder(vehicleRegNumber.length());
+        for (int i = 0; i < vehicleRegNumber.length(); i++) {
+            char c = vehicleRegNumber.charAt(i);
+            if (c == ' ' || c == '-' || c == '\t') {
+                continue;
+            }
+            char upper = (c >= 'a' && c <= 'z') ? (char) (c - 'a' + 'A') : c;
+            if (symbol(upper) == 0) {
+                throw new IllegalArgumentException("Invalid character '" + c + "' in vehicle registration number " + vehicleRegNumber);
+            }
+            normalized.append(upper);
+        }
+        if (normalized.length() == 0 || normalized.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Vehicle registration number must have 1 to " + MAX_LENGTH + " letters or digits: " + vehicleRegNumber);
+        }
+        return normalized.toString();
+    }
+
+    public static boolean isValid(String vehicleRegNumber) {
+        try {
+            normalize(vehicleRegNumber);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Normalizes and packs the plate. Plates differing only by case, spaces or dashes share the same code.
+    public static long encode(String vehicleRegNumber) {
+        String normalized = normalize(vehicleRegNumber);
+        long code = 0;
+        for (int i = 0; i < normalized.length(); i++) {
+            code = code * RADIX + symbol(normalized.charAt(i));
+        }
+        return code;
+    }
+
+    public static String decode(long code) {
+        if (code <= 0) {
+            throw new IllegalArgumentException("Invalid plate code " + code);
+        }
+        char[] symbols = new char[MAX_LENGTH];
+        int start = MAX_LENGTH;
+        while (code > 0) {
+            int symbol = (int) (code % RADIX);
+            if (symbol == 0 || start == 0) {
+                throw new IllegalArgumentException("Invalid plate code");
+            }
+            symbols[--start] = (symbol <= 10) ? (char) ('0' + symbol - 1) : (char) ('A' + symbol - 11);
+            code /= RADIX;
+        }
+        return new String(symbols, start, MAX_LENGTH - start);
+    }
+
+    // Digits are 1 to 10 and letters 11 to 36, 0 for any other character.
+    private static int symbol(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 11;
+        }
+        return 0;
+    }
+}
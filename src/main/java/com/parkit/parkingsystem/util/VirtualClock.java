@@ -0,0 +1,54 @@
+package com.parkit.parkingsystem.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+// Clock which only moves when told to, so that simulated traffic runs as fast as the CPU allows and replays
+// identically. Time never goes back.
+public class VirtualClock extends Clock {
+
+    private final ZoneId zone;
+    private volatile long millis;
+
+    public VirtualClock(long startMillis) {
+        this(startMillis, ZoneId.systemDefault());
+    }
+
+    public VirtualClock(long startMillis, ZoneId zone) {
+        this.millis = startMillis;
+        this.zone = zone;
+    }
+
+    public synchronized void advanceTo(long millis) {
+        if (millis < this.millis) {
+            throw new IllegalArgumentException("Virtual time cannot go back from " + this.millis + " to " + millis);
+        }
+        this.millis = millis;
+    }
+
+    public void advance(long deltaMillis) {
+        advanceTo(millis + deltaMillis);
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    // The returned clock starts at the current virtual time but is advanced independently.
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new VirtualClock(millis, zone);
+    }
+}
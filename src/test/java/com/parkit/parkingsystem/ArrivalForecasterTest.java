@@ -0,0 +1,136 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.dao.ArrivalHistoryDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotLeaseDAO;
+import com.parkit.parkingsystem.dao.TicketRowHandler;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.TicketRow;
+import com.parkit.parkingsystem.service.ArrivalForecaster;
+import com.parkit.parkingsystem.service.CapacityPlanner;
+import com.parkit.parkingsystem.service.DataBaseGuard;
+import com.parkit.parkingsystem.service.LeasedSpotAllocator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ArrivalForecasterTest {
+
+    // Monday 2024-01-01 00:00 UTC.
+    private static final long MONDAY = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long WEEK = TimeUnit.DAYS.toMillis(7);
+
+    private final ArrivalForecaster arrivalForecaster = new ArrivalForecaster(ZoneOffset.UTC, 0.5);
+
+    @Test
+    public void profilesSmoothTheSameHourOfEachWeek() {
+        for (int i = 0; i < 4; i++) {
+            arrivalForecaster.recordArrival(ParkingType.CAR, MONDAY + 8 * HOUR + i);
+        }
+        ParkingEvent event = new ParkingEvent();
+        for (int i = 0; i < 8; i++) {
+            event.set(ParkingEventType.TICKET_OPENED, new ParkingSpot(1, ParkingType.CAR, false), null, WEEK + MONDAY + 8 * HOUR + i);
+            arrivalForecaster.onEvent(event, i, true);
+        }
+        assertEquals(4, arrivalForecaster.forecastArrivals(ParkingType.CAR, 2 * WEEK + MONDAY + 8 * HOUR), 1e-9, "The hour is not over yet");
+        event.set(ParkingEventType.TICKET_CLOSED, new ParkingSpot(4, ParkingType.BIKE, false), null, WEEK + MONDAY + 9 * HOUR);
+        arrivalForecaster.onEvent(event, 8, true);
+
+        arrivalForecaster.advanceTo(2 * WEEK + MONDAY);
+
+        assertEquals(6, arrivalForecaster.forecastArrivals(ParkingType.CAR, 2 * WEEK + MONDAY + 8 * HOUR + 1), 1e-9);
+        assertEquals(0, arrivalForecaster.forecastArrivals(ParkingType.CAR, 2 * WEEK + MONDAY + 10 * HOUR));
+        assertEquals(0.5, arrivalForecaster.forecastDepartures(ParkingType.BIKE, 2 * WEEK + MONDAY + 9 * HOUR), 1e-9,
+                "A week without departures at that hour halves the count of the week before");
+        assertEquals(6, arrivalForecaster.peakArrivals(ParkingType.CAR, 2 * WEEK + MONDAY + 6 * HOUR, 3), 1e-9);
+        assertEquals(0, arrivalForecaster.peakArrivals(ParkingType.CAR, 2 * WEEK + MONDAY + 6 * HOUR, 2));
+    }
+
+    @Test
+    public void loadStreamsHistoryInParallelRanges() {
+        ArrivalHistoryDAO arrivalHistoryDAO = mock(ArrivalHistoryDAO.class);
+        when(arrivalHistoryDAO.getTicketIdRange(1)).thenReturn(new long[]{1, 100});
+        // Odd tickets are parked on Monday 08:00 of the first week and even ones a week later, each for half an hour.
+        when(arrivalHistoryDAO.streamStays(eq(1), anyLong(), anyLong(), any(TicketRowHandler.class))).thenAnswer(invocation -> {
+            long fromId = invocation.getArgument(1);
+            long toId = invocation.getArgument(2);
+            TicketRowHandler handler = invocation.getArgument(3);
+            TicketRow row = new TicketRow();
+            row.setParkingType(ParkingType.CAR);
+            for (long id = fromId; id <= toId; id++) {
+                row.setInTime(MONDAY + (id % 2) * WEEK + 8 * HOUR);
+                row.setOutTime(row.getInTime() + HOUR / 2);
+                handler.onRow(row);
+            }
+            return toId - fromId + 1;
+        });
+
+        assertEquals(100, arrivalForecaster.load(arrivalHistoryDAO, 1, 4, MONDAY + 2 * WEEK));
+
+        verify(arrivalHistoryDAO).streamStays(eq(1), eq(1L), eq(25L), any(TicketRowHandler.class));
+        verify(arrivalHistoryDAO).streamStays(eq(1), eq(76L), eq(100L), any(TicketRowHandler.class));
+        verify(arrivalHistoryDAO, times(4)).streamStays(eq(1), anyLong(), anyLong(), any(TicketRowHandler.class));
+        assertEquals(50, arrivalForecaster.forecastArrivals(ParkingType.CAR, MONDAY + 2 * WEEK + 8 * HOUR), 1e-9);
+        assertEquals(50, arrivalForecaster.forecastDepartures(ParkingType.CAR, MONDAY + 2 * WEEK + 8 * HOUR), 1e-9);
+        assertEquals(0, arrivalForecaster.forecastArrivals(ParkingType.BIKE, MONDAY + 2 * WEEK + 8 * HOUR));
+    }
+
+    @Test
+    public void loadKeepsProfilesWhenHistoryUnavailable() {
+        ArrivalHistoryDAO arrivalHistoryDAO = mock(ArrivalHistoryDAO.class);
+        when(arrivalHistoryDAO.getTicketIdRange(1)).thenReturn(new long[]{1, 10});
+        when(arrivalHistoryDAO.streamStays(eq(1), anyLong(), anyLong(), any(TicketRowHandler.class))).thenReturn(-1L);
+        arrivalForecaster.recordArrival(ParkingType.CAR, MONDAY);
+        arrivalForecaster.advanceTo(MONDAY + HOUR);
+
+        assertEquals(-1, arrivalForecaster.load(arrivalHistoryDAO, 1, 2, MONDAY + HOUR));
+        assertEquals(1, arrivalForecaster.forecastArrivals(ParkingType.CAR, MONDAY + WEEK), 1e-9);
+    }
+
+    @Test
+    public void plannerSizesResourcesAheadOfForecastPeak() {
+        for (int i = 0; i < 20_000; i++) {
+            arrivalForecaster.recordArrival(ParkingType.CAR, MONDAY + 8 * HOUR);
+        }
+        DataBaseGuard dataBaseGuard = new DataBaseGuard();
+        LeasedSpotAllocator leasedSpotAllocator = new LeasedSpotAllocator(mock(ParkingSpotLeaseDAO.class), 1, "node-1", 10, 30);
+        ConnectionPool connectionPool = new ConnectionPool(DataBaseConfig.DEFAULT_MAX_IDLE_CONNECTIONS, 60_000);
+        try {
+            CapacityPlanner capacityPlanner = new CapacityPlanner(arrivalForecaster,
+                    dataBaseGuard, Clock.fixed(Instant.ofEpochMilli(MONDAY + WEEK + 7 * HOUR), ZoneOffset.UTC));
+            capacityPlanner.setLeasedSpotAllocator(leasedSpotAllocator);
+            capacityPlanner.setConnectionPool(connectionPool);
+            capacityPlanner.setDbCallMillis(500);
+
+            capacityPlanner.plan();
+
+            assertEquals(28, dataBaseGuard.getBulkheadSize(TrafficClass.ENTRY));
+            assertEquals(DataBaseGuard.DEFAULT_GATE_BULKHEAD_SIZE, dataBaseGuard.getBulkheadSize(TrafficClass.EXIT));
+            assertEquals(334, leasedSpotAllocator.getBlockSize());
+            assertEquals(dataBaseGuard.getBulkheadSize(TrafficClass.ENTRY) + dataBaseGuard.getBulkheadSize(TrafficClass.EXIT),
+                    connectionPool.getMaxIdleConnections(), "Every bulkhead thread must find an idle connection");
+
+            capacityPlanner.setHorizonHours(1);
+            capacityPlanner.plan();
+
+            assertEquals(DataBaseGuard.DEFAULT_GATE_BULKHEAD_SIZE, dataBaseGuard.getBulkheadSize(TrafficClass.ENTRY), "The peak is out of the horizon");
+            assertEquals(LeasedSpotAllocator.DEFAULT_BLOCK_SIZE, leasedSpotAllocator.getBlockSize());
+            assertEquals(DataBaseConfig.DEFAULT_MAX_IDLE_CONNECTIONS, connectionPool.getMaxIdleConnections());
+        } finally {
+            dataBaseGuard.shutdown();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private static final String PRIMARY_URL = "jdbc:mysql://localhost:3306/prod";
+    private static final String REPLICA_URL = "jdbc:mysql://localhost:3307/prod";
+
+    private ConnectionPool connectionPool;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        connectionPool = new ConnectionPool(2, 60_000);
+    }
+
+    private static Connection connection() throws Exception {
+        Connection con = mock(Connection.class);
+        when(con.getAutoCommit()).thenReturn(true);
+        when(con.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_REPEATABLE_READ);
+        return con;
+    }
+
+    @Test
+    public void connectionReusedForSameUrl() throws Exception {
+        Connection con = connectionPool.lease(PRIMARY_URL, connection());
+
+        assertTrue(connectionPool.giveBack(con));
+
+        assertNull(connectionPool.borrow(REPLICA_URL), "A connection must only serve the URL it was opened to");
+        assertSame(con, connectionPool.borrow(PRIMARY_URL));
+        assertNull(connectionPool.borrow(PRIMARY_URL));
+        assertEquals(1, connectionPool.getReusedCount());
+        verify(con, never()).close();
+        verify(con, never()).isValid(anyInt());
+    }
+
+    @Test
+    public void connectionResetBeforeReuse() throws Exception {
+        Connection con = connectionPool.lease(PRIMARY_URL, connection());
+        when(con.getAutoCommit()).thenReturn(false);
+        when(con.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+
+        assertTrue(connectionPool.giveBack(con));
+
+        verify(con).rollback();
+        verify(con).setAutoCommit(true);
+        verify(con).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+    }
+
+    @Test
+    public void connectionsBeyondMaxIdleClosedByCaller() throws Exception {
+        Connection first = connectionPool.lease(PRIMARY_URL, connection());
+        Connection second = connectionPool.lease(PRIMARY_URL, connection());
+        Connection third = connectionPool.lease(PRIMARY_URL, connection());
+
+        assertTrue(connectionPool.giveBack(first));
+        assertTrue(connectionPool.giveBack(second));
+        assertFalse(connectionPool.giveBack(third));
+        assertFalse(connectionPool.giveBack(mock(Connection.class)), "A connection never leased must not be kept");
+        assertSame(second, connectionPool.borrow(PRIMARY_URL), "The most recently used connection must be borrowed first");
+        assertEquals(1, connectionPool.getIdleCount());
+    }
+
+    @Test
+    public void closedOrDroppedConnectionsNotReused() throws Exception {
+        ConnectionPool validatingPool = new ConnectionPool(2, 0);
+        Connection closed = validatingPool.lease(PRIMARY_URL, connection());
+        Connection dropped = validatingPool.lease(PRIMARY_URL, connection());
+        validatingPool.giveBack(dropped);
+        validatingPool.giveBack(closed);
+        when(closed.isClosed()).thenReturn(true);
+        when(dropped.isValid(anyInt())).thenReturn(false);
+
+        assertNull(validatingPool.borrow(PRIMARY_URL));
+        verify(dropped).close();
+        assertEquals(0, validatingPool.getIdleCount());
+    }
+
+    @Test
+    public void discardedConnectionNotKept() throws Exception {
+        Connection con = connectionPool.lease(PRIMARY_URL, connection());
+
+        connectionPool.discard(con);
+
+        verify(con).close();
+        assertFalse(connectionPool.giveBack(con), "A connection discarded after an error must not be borrowed again");
+        assertNull(connectionPool.borrow(PRIMARY_URL));
+    }
+
+    @Test
+    public void shrinkingClosesLeastRecentlyUsed() throws Exception {
+        Connection older = connectionPool.lease(PRIMARY_URL, connection());
+        Connection newer = connectionPool.lease(PRIMARY_URL, connection());
+        connectionPool.giveBack(older);
+        connectionPool.giveBack(newer);
+
+        connectionPool.setMaxIdleConnections(4);
+        connectionPool.setMaxIdleConnections(1);
+
+        verify(older).close();
+        verify(newer, never()).close();
+        assertSame(newer, connectionPool.borrow(PRIMARY_URL));
+    }
+
+    @Test
+    public void noConnectionKeptWhenDisabled() throws Exception {
+        Connection con = connectionPool.lease(PRIMARY_URL, connection());
+        connectionPool.giveBack(con);
+
+        connectionPool.setMaxIdleConnections(0);
+
+        verify(con).close();
+        Connection next = connectionPool.lease(PRIMARY_URL, connection());
+        assertFalse(connectionPool.giveBack(next));
+    }
+}
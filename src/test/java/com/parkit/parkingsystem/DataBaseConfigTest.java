@@ -0,0 +1,125 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class DataBaseConfigTest {
+
+    private final Connection primary = mock(Connection.class);
+    private final Connection replica = mock(Connection.class);
+    private long replicaLagSeconds;
+    private boolean replicaDown;
+    private int replicaConnections;
+    private DataBaseConfig dataBaseConfig;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBaseConfig = new DataBaseConfig() {
+            @Override
+            public Connection getConnection() {
+                return primary;
+            }
+
+            @Override
+            protected Connection openReplicaConnection(String url) throws SQLException {
+                replicaConnections++;
+                if (replicaDown) {
+                    throw new SQLException("Connection refused");
+                }
+                return replica;
+            }
+
+            @Override
+            protected long getReplicaLagSeconds(Connection con) {
+                return replicaLagSeconds;
+            }
+        };
+        dataBaseConfig.setReplicaUrl("jdbc:mysql://localhost:3307/prod");
+        dataBaseConfig.setMaxReplicaLagSeconds(5);
+        dataBaseConfig.setReplicaCheckIntervalMillis(0);
+    }
+
+    @Test
+    public void readsGoToPrimaryWithoutReplica() throws Exception {
+        dataBaseConfig.setReplicaUrl(null);
+
+        assertSame(primary, dataBaseConfig.getReadConnection());
+        assertEquals(0, replicaConnections);
+    }
+
+    @Test
+    public void readsGoToReplicaWithinLag() throws Exception {
+        replicaLagSeconds = 5;
+
+        assertSame(replica, dataBaseConfig.getReadConnection());
+        assertSame(primary, dataBaseConfig.getConnection(), "Writes must always go to the primary");
+    }
+
+    @Test
+    public void readsFallBackToPrimaryWhenReplicaLags() throws Exception {
+        replicaLagSeconds = 6;
+
+        assertSame(primary, dataBaseConfig.getReadConnection());
+        verify(replica).close();
+
+        replicaLagSeconds = 1;
+        assertSame(replica, dataBaseConfig.getReadConnection(), "The replica must be used again once it caught up");
+    }
+
+    @Test
+    public void readsFallBackToPrimaryWhenReplicaNotReplicating() throws Exception {
+        replicaLagSeconds = -1;
+
+        assertSame(primary, dataBaseConfig.getReadConnection());
+        assertFalse(dataBaseConfig.isReplicaUsable());
+    }
+
+    @Test
+    public void downReplicaNotRetriedBeforeNextCheck() throws Exception {
+        dataBaseConfig.setReplicaCheckIntervalMillis(60_000);
+        replicaDown = true;
+
+        assertSame(primary, dataBaseConfig.getReadConnection());
+        assertSame(primary, dataBaseConfig.getReadConnection());
+        assertEquals(1, replicaConnections);
+    }
+
+    @Test
+    public void replicaLagReadFromSlaveStatusBeforeMySql8022() throws Exception {
+        Statement statement = mock(Statement.class);
+        ResultSet slaveStatus = mock(ResultSet.class);
+        when(replica.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("show replica status")).thenThrow(new SQLSyntaxErrorException("You have an error in your SQL syntax", "42000", 1064));
+        when(statement.executeQuery("show slave status")).thenReturn(slaveStatus);
+        when(slaveStatus.next()).thenReturn(true);
+        when(slaveStatus.getLong("Seconds_Behind_Master")).thenReturn(2L);
+        DataBaseConfig olderServerConfig = new DataBaseConfig() {
+            @Override
+            public Connection getConnection() {
+                return primary;
+            }
+
+            @Override
+            protected Connection openReplicaConnection(String url) {
+                return replica;
+            }
+        };
+        olderServerConfig.setReplicaUrl("jdbc:mysql://localhost:3307/prod");
+        olderServerConfig.setReplicaCheckIntervalMillis(0);
+
+        assertSame(replica, olderServerConfig.getReadConnection());
+        assertSame(replica, olderServerConfig.getReadConnection());
+        verify(statement, times(1)).executeQuery("show replica status");
+        verify(statement, times(2)).executeQuery("show slave status");
+    }
+}
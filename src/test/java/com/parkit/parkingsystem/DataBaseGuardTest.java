@@ -0,0 +1,161 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.dao.GuardedParkingSpotDAO;
+import com.parkit.parkingsystem.dao.GuardedTicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.DataBaseGuard;
+import com.parkit.parkingsystem.util.CircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DataBaseGuardTest {
+
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+    @Mock
+    private TicketDAO ticketDAO;
+
+    private final CountDownLatch dataBaseStalled = new CountDownLatch(1);
+    private DataBaseGuard dataBaseGuard;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBaseGuard = new DataBaseGuard(new CircuitBreaker(2, 60_000));
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            dataBaseGuard.setBulkhead(trafficClass, 1, 100);
+        }
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        dataBaseStalled.countDown();
+        dataBaseGuard.shutdown();
+    }
+
+    private int stall() throws InterruptedException {
+        dataBaseStalled.await();
+        return 1;
+    }
+
+    @Test
+    public void circuitBreakerOpensThenTriesAgain() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, 1000);
+
+        circuitBreaker.onFailure(0);
+        assertTrue(circuitBreaker.allowRequest(1));
+        circuitBreaker.onFailure(1);
+
+        assertFalse(circuitBreaker.allowRequest(999), "The breaker must refuse requests while open");
+        assertTrue(circuitBreaker.allowRequest(1001), "A trial request must go through once the breaker was open long enough");
+        assertFalse(circuitBreaker.allowRequest(1002), "Only one trial request at a time");
+        circuitBreaker.onFailure(1002);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest(2002));
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void stalledCallsTimeOutAndOpenBreaker() {
+        long start = System.nanoTime();
+        for (int i = 0; i < 2; i++) {
+            assertEquals(-1, (int) dataBaseGuard.call(TrafficClass.ENTRY, "stall", () -> {
+                dataBaseStalled.await();
+                return 1;
+            }, result -> false, () -> -1));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 1000, "Each stalled call must be cut at its timeout, took " + elapsedMillis + " ms");
+        assertTrue(dataBaseGuard.isOpen());
+        assertEquals(-1, (int) dataBaseGuard.call(TrafficClass.EXIT, "call", () -> 1, result -> false, () -> -1),
+                "An open breaker must serve the fallback without calling the DB");
+        assertEquals(2, dataBaseGuard.getTimeoutCount());
+    }
+
+    @Test
+    public void writesAreNotCutAtTimeout() {
+        assertTrue(dataBaseGuard.write(TrafficClass.ENTRY, "write", () -> {
+            Thread.sleep(300);
+            return true;
+        }), "A write outlasting the timeout must be waited for, it may still commit");
+        assertEquals(0, dataBaseGuard.getTimeoutCount());
+        assertFalse(dataBaseGuard.isOpen());
+    }
+
+    @Test
+    public void writesRefusedWhileBreakerOpen() {
+        dataBaseGuard.getCircuitBreaker().onFailure(System.currentTimeMillis());
+        dataBaseGuard.getCircuitBreaker().onFailure(System.currentTimeMillis());
+
+        assertFalse(dataBaseGuard.write(TrafficClass.EXIT, "write", () -> {
+            fail("The write must not run while the breaker is open");
+            return true;
+        }));
+        assertEquals(1, dataBaseGuard.getFallbackCount());
+    }
+
+    @Test
+    public void fullBulkheadDoesNotBlockOtherTraffic() throws Exception {
+        dataBaseGuard.setBulkhead(TrafficClass.REPORTING, 1, 60_000);
+        Thread report = new Thread(() -> dataBaseGuard.call(TrafficClass.REPORTING, "export", this::stall, result -> false, () -> -1));
+        Thread queuedReport = new Thread(() -> dataBaseGuard.call(TrafficClass.REPORTING, "export", this::stall, result -> false, () -> -1));
+        report.start();
+        queuedReport.start();
+        Thread.sleep(100);
+
+        assertEquals(-1, (int) dataBaseGuard.call(TrafficClass.REPORTING, "export", () -> 1, result -> false, () -> -1),
+                "A report beyond the bulkhead capacity must be rejected");
+        assertEquals(1, (int) dataBaseGuard.call(TrafficClass.ENTRY, "entry", () -> 1, result -> false, () -> -1),
+                "Gates must not wait behind the reports");
+        assertEquals(1, dataBaseGuard.getRejectedCount());
+        assertFalse(dataBaseGuard.isOpen());
+        dataBaseStalled.countDown();
+        report.join();
+        queuedReport.join();
+    }
+
+    @Test
+    public void entryFailsFastWhileDataBaseDown() throws Exception {
+        when(parkingSpotDAO.getNextAvailableSlot(1, ParkingType.CAR)).thenAnswer(invocation -> stall());
+        GuardedParkingSpotDAO guardedParkingSpotDAO = new GuardedParkingSpotDAO(parkingSpotDAO, dataBaseGuard);
+        GuardedTicketDAO guardedTicketDAO = new GuardedTicketDAO(ticketDAO, dataBaseGuard);
+
+        assertEquals(-1, guardedParkingSpotDAO.getNextAvailableSlot(1, ParkingType.CAR));
+        assertEquals(-1, guardedParkingSpotDAO.getNextAvailableSlot(1, ParkingType.CAR));
+        assertTrue(dataBaseGuard.isOpen());
+        assertFalse(guardedParkingSpotDAO.updateParking(new ParkingSpot(1, null, 2, ParkingType.CAR, false)),
+                "No spot may be claimed while the DB is unavailable");
+        assertFalse(guardedTicketDAO.saveTicket(new Ticket()), "No ticket may be opened while the DB is unavailable");
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+        verify(parkingSpotDAO, never()).getFacilitySpots(anyInt());
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void regularUserCheckedFromMemoryWhileDataBaseDown() throws Exception {
+        when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(2).thenAnswer(invocation -> stall());
+        GuardedTicketDAO guardedTicketDAO = new GuardedTicketDAO(ticketDAO, dataBaseGuard);
+
+        assertEquals(2, guardedTicketDAO.getNbTicket("ABCDEF"));
+        assertEquals(2, guardedTicketDAO.getNbTicket("ABCDEF"), "The last known count must be served while the DB stalls");
+        assertEquals(0, guardedTicketDAO.getNbTicket("GHIJKL"));
+        assertEquals(1, dataBaseGuard.getTimeoutCount());
+    }
+}
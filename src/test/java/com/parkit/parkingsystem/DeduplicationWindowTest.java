@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.DeduplicationWindow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeduplicationWindowTest {
+
+    private DeduplicationWindow<String> deduplicationWindow;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        deduplicationWindow = new DeduplicationWindow<>(1000);
+    }
+
+    @Test
+    public void repeatGetsFirstResultUntilWindowEnds() throws Exception {
+        assertNull(deduplicationWindow.begin(42, 0));
+        deduplicationWindow.complete(42, "first", 100);
+
+        assertEquals("first", deduplicationWindow.begin(42, 1099).get());
+        assertNull(deduplicationWindow.begin(42, 1100), "The window must start when the first run completed");
+        assertEquals(1, deduplicationWindow.getRepeatCount());
+    }
+
+    @Test
+    public void repeatWaitsForRunningCommand() throws Exception {
+        assertNull(deduplicationWindow.begin(42, 0));
+
+        CompletableFuture<String> pending = deduplicationWindow.begin(42, Long.MAX_VALUE - 1);
+        assertFalse(pending.isDone(), "A running command must never expire");
+
+        deduplicationWindow.complete(42, "first", 10);
+        assertEquals("first", pending.get());
+    }
+
+    @Test
+    public void abandonedCommandRunsAgain() throws Exception {
+        assertNull(deduplicationWindow.begin(42, 0));
+        CompletableFuture<String> pending = deduplicationWindow.begin(42, 10);
+
+        deduplicationWindow.abandon(42);
+
+        assertNull(pending.get(), "The repeats of a failed run must get no result");
+        assertNull(deduplicationWindow.begin(42, 20));
+    }
+
+    @Test
+    public void forgottenCommandRunsAgain() throws Exception {
+        assertNull(deduplicationWindow.begin(42, 0));
+        deduplicationWindow.complete(42, "first", 10);
+        assertNull(deduplicationWindow.begin(43, 20));
+
+        deduplicationWindow.forget(42);
+        deduplicationWindow.forget(43);
+
+        assertNull(deduplicationWindow.begin(42, 30), "A forgotten command must run again within the window");
+        assertFalse(deduplicationWindow.begin(43, 40).isDone(), "A running command must not be forgotten");
+    }
+
+    @Test
+    public void expiredEntriesSwept() {
+        for (long key = 1; key <= 10_000; key++) {
+            deduplicationWindow.begin(key, 0);
+            deduplicationWindow.complete(key, "done", 0);
+        }
+        for (long key = 10_001; key <= 20_000; key++) {
+            deduplicationWindow.begin(key, 5000);
+        }
+
+        assertTrue(deduplicationWindow.size() < 12_000, "Expired entries must be swept as the stripes grow");
+    }
+}
@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareQuoteCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FareQuoteCacheTest {
+
+    private FareQuoteCache fareQuoteCache;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        fareQuoteCache = new FareQuoteCache(1000);
+    }
+
+    @Test
+    public void entryExpiresAfterTtl() {
+        Ticket ticket = new Ticket();
+        fareQuoteCache.put("AB-123", ticket, true, 0);
+
+        assertSame(ticket, fareQuoteCache.get("ab123", 999).getTicket(), "Plates must be looked up in canonical form");
+        assertNull(fareQuoteCache.get("AB123", 1000), "An entry must expire after the TTL");
+        assertEquals(0, fareQuoteCache.size());
+        assertEquals(1, fareQuoteCache.getHitCount());
+        assertEquals(1, fareQuoteCache.getMissCount());
+    }
+
+    @Test
+    public void takeRemovesEntry() {
+        fareQuoteCache.put("AB123", new Ticket(), false, 0);
+
+        assertNotNull(fareQuoteCache.take("AB123", 10));
+        assertNull(fareQuoteCache.take("AB123", 10));
+    }
+
+    @Test
+    public void expiredEntriesSwept() {
+        for (int i = 0; i < 1024; i++) {
+            fareQuoteCache.put("P" + i, new Ticket(), false, 0);
+        }
+
+        fareQuoteCache.put("LATE", new Ticket(), false, 5000);
+
+        assertEquals(1, fareQuoteCache.size(), "Expired entries must be swept when the cache grows");
+    }
+}
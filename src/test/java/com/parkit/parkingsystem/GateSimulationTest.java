@@ -0,0 +1,96 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SimulationReport;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateSimulation;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.VirtualClock;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class GateSimulationTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private GateSimulation simulation(long seed, int carSpots, int bikeSpots) {
+        return new GateSimulation(new InMemoryParkingSpotDAO(ParkingSpot.DEFAULT_FACILITY_ID, carSpots, bikeSpots), new InMemoryTicketDAO(), START, seed);
+    }
+
+    @Test
+    public void sameSeedReplaysSameTraffic() {
+        SimulationReport first = simulation(42, 100, 20).run(DAY);
+        SimulationReport second = simulation(42, 100, 20).run(DAY);
+
+        assertEquals(DAY, first.getSimulatedMillis());
+        assertTrue(first.getArrivals() > 500, "About 30 arrivals per hour are expected, got " + first.getArrivals());
+        assertEquals(first.getArrivals(), second.getArrivals());
+        assertEquals(first.getEntries(), second.getEntries());
+        assertEquals(first.getExits(), second.getExits());
+        assertEquals(first.getDiscountedExits(), second.getDiscountedExits());
+        assertEquals(first.getRevenue(), second.getRevenue());
+        assertEquals(first.getPeakOccupancy(), second.getPeakOccupancy());
+        assertTrue(first.getDiscountedExits() > 0, "Regular vehicles coming back must get the discount");
+        assertTrue(first.getElapsedMillis() < DAY / 1000, "A simulated day must run much faster than real time");
+    }
+
+    @Test
+    public void simulateCommandReplaysSameReport() {
+        SimulationReport first = App.runSimulation(2, 42, 100, 20, App.DEFAULT_SIMULATION_START);
+        SimulationReport second = App.runSimulation(2, 42, 100, 20, App.DEFAULT_SIMULATION_START);
+
+        assertEquals(2 * DAY, first.getSimulatedMillis());
+        assertEquals(first.getSimulatedMillis(), second.getSimulatedMillis());
+        assertEquals(first.getArrivals(), second.getArrivals());
+        assertEquals(first.getEntries(), second.getEntries());
+        assertEquals(first.getTurnedAway(), second.getTurnedAway());
+        assertEquals(first.getExits(), second.getExits());
+        assertEquals(first.getDiscountedExits(), second.getDiscountedExits());
+        assertEquals(first.getRevenue(), second.getRevenue());
+        assertEquals(first.getOccupiedSpots(), second.getOccupiedSpots());
+        assertEquals(first.getPeakOccupancy(), second.getPeakOccupancy());
+    }
+
+    @Test
+    public void fullLotTurnsVehiclesAway() {
+        GateSimulation gateSimulation = simulation(7, 5, 0);
+
+        SimulationReport report = gateSimulation.run(DAY);
+
+        assertTrue(report.getTurnedAway() > 0);
+        assertTrue(report.getPeakOccupancy() <= 5);
+        assertEquals(report.getArrivals(), report.getEntries() + report.getTurnedAway());
+        assertEquals(report.getEntries(), report.getExits() + report.getOccupiedSpots());
+        assertEquals(START + DAY, gateSimulation.getClock().millis());
+    }
+
+    @Test
+    public void ticketsAreStampedWithServiceClock() throws Exception {
+        InputReaderUtil inputReaderUtil = mock(InputReaderUtil.class);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        VirtualClock clock = new VirtualClock(START);
+        ParkingService parkingService = new ParkingService(inputReaderUtil, new InMemoryParkingSpotDAO(ParkingSpot.DEFAULT_FACILITY_ID, 1, 0), new InMemoryTicketDAO());
+        parkingService.setClock(clock);
+
+        Ticket openedTicket = parkingService.processIncomingVehicle();
+        clock.advance(TimeUnit.HOURS.toMillis(2));
+        Ticket closedTicket = parkingService.processExitingVehicle();
+
+        assertEquals(START, openedTicket.getInTime().getTime());
+        assertEquals(START + TimeUnit.HOURS.toMillis(2), closedTicket.getOutTime().getTime());
+        assertEquals(ParkingType.CAR, closedTicket.getParkingSpot().getParkingType());
+        assertEquals(2 * Fare.CAR_RATE_PER_HOUR, closedTicket.getPrice(), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> clock.advanceTo(START));
+    }
+}
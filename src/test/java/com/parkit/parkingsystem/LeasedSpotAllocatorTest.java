@@ -0,0 +1,136 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotLeaseDAO;
+import com.parkit.parkingsystem.service.LeasedSpotAllocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LeasedSpotAllocatorTest {
+
+    @Mock
+    private ParkingSpotLeaseDAO parkingSpotLeaseDAO;
+
+    private LeasedSpotAllocator leasedSpotAllocator;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        leasedSpotAllocator = new LeasedSpotAllocator(parkingSpotLeaseDAO, 1, "node-1", 4, 30);
+    }
+
+    @Test
+    public void allocateFromLeasedBlockWithoutDataBase() {
+        when(parkingSpotLeaseDAO.leaseSpots(1, ParkingType.CAR, "node-1", 4, 30)).thenReturn(Arrays.asList(1, 2, 3, 5));
+
+        assertEquals(1, leasedSpotAllocator.allocate(ParkingType.CAR));
+        assertEquals(2, leasedSpotAllocator.allocate(ParkingType.CAR));
+        assertEquals(3, leasedSpotAllocator.allocate(ParkingType.CAR));
+        assertEquals(5, leasedSpotAllocator.allocate(ParkingType.CAR));
+
+        verify(parkingSpotLeaseDAO, times(1)).leaseSpots(1, ParkingType.CAR, "node-1", 4, 30);
+    }
+
+    @Test
+    public void leaseNewBlockWhenDry() {
+        when(parkingSpotLeaseDAO.leaseSpots(1, ParkingType.BIKE, "node-1", 4, 30))
+                .thenReturn(Collections.singletonList(4)).thenReturn(Collections.singletonList(6)).thenReturn(new ArrayList<>());
+
+        assertEquals(4, leasedSpotAllocator.allocate(ParkingType.BIKE));
+        assertEquals(6, leasedSpotAllocator.allocate(ParkingType.BIKE));
+        assertEquals(0, leasedSpotAllocator.allocate(ParkingType.BIKE), "No spot must be allocated when none can be leased");
+    }
+
+    @Test
+    public void dryNodeTakesOverIdleLease() {
+        when(parkingSpotLeaseDAO.leaseSpots(1, ParkingType.CAR, "node-1", 4, 30)).thenReturn(new ArrayList<>());
+        when(parkingSpotLeaseDAO.takeOverLeases(1, ParkingType.CAR, "node-1", 1, 30)).thenReturn(Collections.singletonList(8));
+
+        assertEquals(8, leasedSpotAllocator.allocate(ParkingType.CAR), "A spot unused by another node must be taken over once none is free");
+    }
+
+    @Test
+    public void leaseNotRequestedUnderBlockLock() {
+        when(parkingSpotLeaseDAO.leaseSpots(1, ParkingType.CAR, "node-1", 4, 30)).thenAnswer(invocation -> {
+            // Another gate of the node reads the block while the lease is requested.
+            int localSpots = CompletableFuture.supplyAsync(() -> leasedSpotAllocator.getLocalSpots(ParkingType.CAR)).get(5, TimeUnit.SECONDS);
+            assertEquals(0, localSpots);
+            return Arrays.asList(1, 2);
+        });
+
+        assertEquals(1, leasedSpotAllocator.allocate(ParkingType.CAR));
+        assertEquals(1, leasedSpotAllocator.getLocalSpots(ParkingType.CAR));
+    }
+
+    @Test
+    public void renewReturnsSurplusOfIdleNode() {
+        when(parkingSpotLeaseDAO.leaseSpots(1, ParkingType.CAR, "node-1", 4, 30)).thenReturn(Arrays.asList(1, 2, 3, 5));
+        when(parkingSpotLeaseDAO.renewLeases(eq(1), anyList(), eq("node-1"), eq(30))).thenReturn(true);
+        leasedSpotAllocator.allocate(ParkingType.CAR);
+
+        // One spot allocated since the last renewal: the node keeps two spots and returns the others.
+        leasedSpotAllocator.renew();
+
+        verify(parkingSpotLeaseDAO, times(1)).releaseSpots(eq(1), eq(Collections.singletonList(5)), eq("node-1"));
+        verify(parkingSpotLeaseDAO, times(1)).renewLeases(1, Arrays.asList(2, 3), "node-1", 30);
+        assertEquals(2, leasedSpotAllocator.getLocalSpots(ParkingType.CAR));
+
+        // Nothing allocated since: the node keeps a single spot.
+        leasedSpotAllocator.renew();
+
+        verify(parkingSpotLeaseDAO, times(1)).releaseSpots(eq(1), eq(Collections.singletonList(3)), eq("node-1"));
+        verify(parkingSpotLeaseDAO, times(1)).renewLeases(1, Collections.singletonList(2), "node-1", 30);
+        assertEquals(1, leasedSpotAllocator.getLocalSpots(ParkingType.CAR));
+    }
+
+    @Test
+    public void renewLetsAbandonedAllocationExpire() {
+        when(parkingSpotLeaseDAO.leaseSpots(1, ParkingType.CAR, "node-1", 4, 30)).thenReturn(Arrays.asList(1, 2));
+        when(parkingSpotLeaseDAO.renewLeases(eq(1), anyList(), eq("node-1"), eq(30))).thenReturn(true);
+        // Spot 1 is handed out but the entry never takes it, so it stays leased by this node in the DB.
+        assertEquals(1, leasedSpotAllocator.allocate(ParkingType.CAR));
+
+        leasedSpotAllocator.renew();
+
+        verify(parkingSpotLeaseDAO, times(1)).renewLeases(1, Collections.singletonList(2), "node-1", 30);
+        verify(parkingSpotLeaseDAO, never()).renewLeases(eq(1), argThat(spots -> spots.contains(1)), eq("node-1"), eq(30));
+    }
+
+    @Test
+    public void renewWithoutLocalSpotsSkipsDataBase() {
+        leasedSpotAllocator.renew();
+
+        verifyZeroInteractions(parkingSpotLeaseDAO);
+    }
+
+    @Test
+    public void stopReleasesUnusedSpots() {
+        when(parkingSpotLeaseDAO.leaseSpots(1, ParkingType.CAR, "node-1", 4, 30)).thenReturn(Arrays.asList(1, 2));
+        leasedSpotAllocator.allocate(ParkingType.CAR);
+
+        leasedSpotAllocator.stop();
+
+        verify(parkingSpotLeaseDAO, times(1)).releaseSpots(eq(1), eq(Collections.singletonList(2)), eq("node-1"));
+        assertEquals(0, leasedSpotAllocator.getLocalSpots(ParkingType.CAR));
+    }
+
+    @Test
+    public void invalidBlockSize() {
+        assertThrows(IllegalArgumentException.class, () -> new LeasedSpotAllocator(parkingSpotLeaseDAO, 1, "node-1", 0, 30));
+    }
+}
@@ -0,0 +1,58 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.LedgerDAO;
+import com.parkit.parkingsystem.dao.LedgerParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.TicketLedger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerParkingSpotDAOTest {
+
+    @Mock
+    private LedgerDAO ledgerDAO;
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+
+    @Test
+    public void spotTakenBeforeLedgerReleasedInTable() throws Exception {
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        // Spot 1 is taken in the table by a ticket opened before the ledger, spot 2 is free.
+        lenient().when(resultSet.next()).thenReturn(true, true, false);
+        lenient().when(resultSet.getInt(1)).thenReturn(1, 2);
+        lenient().when(resultSet.getString(5)).thenReturn("CAR");
+        lenient().when(resultSet.getBoolean(6)).thenReturn(false, true);
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        when(ledgerDAO.appendEvents(eq(1), anyLong(), any())).thenReturn(true);
+        LedgerParkingSpotDAO ledgerParkingSpotDAO = new LedgerParkingSpotDAO(new TicketLedger(ledgerDAO, 1));
+        ledgerParkingSpotDAO.dataBaseConfig = dataBaseConfig;
+
+        assertEquals(2, ledgerParkingSpotDAO.getNextAvailableSlot(1, ParkingType.CAR), "A spot taken in the table must not be allocated");
+        assertFalse(ledgerParkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false)));
+        assertTrue(ledgerParkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, true)), "The spot must be released in the table");
+        assertTrue(ledgerParkingSpotDAO.updateParking(new ParkingSpot(2, ParkingType.CAR, false)));
+        assertEquals(1, ledgerParkingSpotDAO.getNextAvailableSlot(1, ParkingType.CAR));
+        verify(ledgerDAO, times(1)).appendEvents(eq(1), anyLong(), any());
+    }
+}
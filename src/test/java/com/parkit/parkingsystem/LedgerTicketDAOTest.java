@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.LedgerDAO;
+import com.parkit.parkingsystem.dao.LedgerTicketDAO;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.TicketLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerTicketDAOTest {
+
+    @Mock
+    private LedgerDAO ledgerDAO;
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+
+    private LedgerTicketDAO ledgerTicketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        TicketLedger ticketLedger = new TicketLedger(ledgerDAO, 1);
+        ledgerTicketDAO = new LedgerTicketDAO(ticketLedger);
+        ledgerTicketDAO.dataBaseConfig = dataBaseConfig;
+        ledgerTicketDAO.rollupDAO = mock(RollupDAO.class);
+        lenient().when(dataBaseConfig.getConnection()).thenReturn(connection);
+        lenient().when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+    }
+
+    @Test
+    public void ticketOpenedBeforeLedgerClosedInTable() throws Exception {
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        lenient().when(resultSet.next()).thenReturn(true);
+        lenient().when(resultSet.getInt(1)).thenReturn(3);
+        lenient().when(resultSet.getInt(2)).thenReturn(42);
+        lenient().when(resultSet.getTimestamp(4)).thenReturn(new Timestamp(System.currentTimeMillis() - 3_600_000));
+        lenient().when(resultSet.getString(6)).thenReturn("CAR");
+        lenient().when(resultSet.getInt(7)).thenReturn(1);
+        when(ledgerDAO.readEvents(eq(1), anyLong(), any())).thenReturn(0L);
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+
+        Ticket ticket = ledgerTicketDAO.getTicket("ABCDEF");
+        assertNotNull(ticket, "A ticket opened in the table before the ledger was enabled must still be found");
+        assertEquals(42, ticket.getId());
+        assertNull(ticket.getOutTime());
+
+        ticket.setOutTime(new Date());
+        ticket.setPrice(1.5);
+        assertTrue(ledgerTicketDAO.updateTicket(ticket));
+        verify(connection).commit();
+        verify(ledgerDAO, never()).appendEvents(anyInt(), anyLong(), any());
+    }
+}
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.service.OccupancyService;
+import com.parkit.parkingsystem.util.OccupancyCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OccupancyServiceTest {
+
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+
+    private OccupancyService occupancyService;
+    private OccupancyCounter occupancyCounter;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        occupancyCounter = new OccupancyCounter();
+        parkingSpotDAO.occupancyCounter = occupancyCounter;
+        occupancyService = new OccupancyService(parkingSpotDAO);
+    }
+
+    @Test
+    public void reconcileInitializesCounters() {
+        when(parkingSpotDAO.getOccupancy()).thenReturn(Arrays.asList(
+                new Occupancy(1, ParkingType.CAR, 3, 1), new Occupancy(1, ParkingType.BIKE, 2, 0)));
+
+        assertTrue(occupancyService.reconcile());
+
+        assertEquals(2, occupancyCounter.getFreeSpots(1, ParkingType.CAR));
+        assertEquals(3, occupancyCounter.getTotalSpots(1, ParkingType.CAR));
+        assertEquals(2, occupancyCounter.getFreeSpots(1, ParkingType.BIKE));
+    }
+
+    @Test
+    public void countersKeptPerFacility() {
+        when(parkingSpotDAO.getOccupancy()).thenReturn(Arrays.asList(
+                new Occupancy(1, ParkingType.CAR, 3, 1), new Occupancy(2, ParkingType.CAR, 10, 0)));
+        occupancyService.reconcile();
+
+        occupancyCounter.spotTaken(2, ParkingType.CAR);
+
+        assertEquals(2, occupancyCounter.getFreeSpots(1, ParkingType.CAR), "Another facility must not change the counters");
+        assertEquals(9, occupancyCounter.getFreeSpots(2, ParkingType.CAR));
+        assertTrue(occupancyCounter.getFacilityIds().containsAll(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    public void reconcileCorrectsDrift() {
+        when(parkingSpotDAO.getOccupancy()).thenReturn(Arrays.asList(new Occupancy(1, ParkingType.CAR, 3, 1)));
+        occupancyCounter.spotTaken(1, ParkingType.CAR);
+        occupancyCounter.spotTaken(1, ParkingType.CAR);
+        occupancyCounter.spotTaken(1, ParkingType.CAR);
+
+        occupancyService.reconcile();
+
+        assertEquals(1, occupancyCounter.getOccupiedSpots(1, ParkingType.CAR), "The counter must be aligned with the DB");
+    }
+
+    @Test
+    public void reconcileWithoutDataBase() {
+        when(parkingSpotDAO.getOccupancy()).thenReturn(new ArrayList<>());
+
+        assertFalse(occupancyService.reconcile());
+    }
+
+    @Test
+    public void countersUpdatedConcurrently() throws Exception {
+        occupancyCounter.reconcile(new Occupancy(1, ParkingType.CAR, 1000, 0));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    occupancyCounter.spotTaken(1, ParkingType.CAR);
+                    occupancyCounter.spotReleased(1, ParkingType.CAR);
+                }
+                occupancyCounter.spotTaken(1, ParkingType.CAR);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(8, occupancyCounter.getOccupiedSpots(1, ParkingType.CAR));
+        assertEquals(992, occupancyCounter.getFreeSpots(1, ParkingType.CAR));
+    }
+}
@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OpenTicketRecord;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.OpenTicketStore;
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenTicketStoreTest {
+
+    private OpenTicketStore openTicketStore;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        openTicketStore = new OpenTicketStore(2);
+    }
+
+    private static Ticket ticket(int id, String vehicleRegNumber, int parkingNumber, ParkingType parkingType, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(1, null, parkingNumber, parkingType, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+
+    private static String plate(int i) {
+        return "P" + i;
+    }
+
+    @Test
+    public void putFindAndRemove() {
+        openTicketStore.put(ticket(7, "AB123", 4, ParkingType.BIKE, 1_700_000_000_000L));
+
+        OpenTicketRecord record = openTicketStore.find(PlateCodec.encode("ab-123"), new OpenTicketRecord());
+        assertNotNull(record);
+        assertEquals(7, record.getTicketId());
+        assertEquals(1, record.getFacilityId());
+        assertEquals(4, record.getParkingNumber());
+        assertEquals(ParkingType.BIKE, record.getParkingType());
+        assertEquals(1_700_000_000_000L, record.getInTime());
+        assertEquals("AB123", record.getVehicleRegNumber());
+
+        assertTrue(openTicketStore.remove("AB123"));
+        assertFalse(openTicketStore.remove("AB123"));
+        assertNull(openTicketStore.getTicket("AB123"));
+    }
+
+    @Test
+    public void growsAndReusesFreedRecords() {
+        for (int i = 0; i < 1000; i++) {
+            openTicketStore.put(ticket(i, plate(i), i, ParkingType.CAR, i));
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            openTicketStore.remove(plate(i));
+        }
+        int capacity = openTicketStore.getCapacity();
+        for (int i = 1000; i < 1500; i++) {
+            openTicketStore.put(ticket(i, plate(i), i, ParkingType.CAR, i));
+        }
+
+        assertEquals(1000, openTicketStore.size());
+        assertEquals(capacity, openTicketStore.getCapacity(), "Freed records must be reused before growing");
+        assertEquals(999, openTicketStore.getTicket(plate(999)).getId());
+        assertEquals(1499, openTicketStore.getTicket(plate(1499)).getParkingSpot().getId());
+    }
+
+    @Test
+    public void visitsEveryOpenStay() {
+        for (int i = 0; i < 10; i++) {
+            openTicketStore.put(ticket(i, plate(i), i, ParkingType.CAR, i));
+        }
+        openTicketStore.remove(plate(4));
+
+        long[] ticketIds = new long[1];
+        openTicketStore.forEach(record -> ticketIds[0] += record.getTicketId());
+
+        assertEquals(45 - 4, ticketIds[0]);
+    }
+
+    @Test
+    public void followsTicketEvents() {
+        Ticket ticket = ticket(3, "ABCDEF", 2, ParkingType.CAR, 1000);
+        ParkingEvent event = new ParkingEvent();
+        event.set(ParkingEventType.TICKET_OPENED, ticket.getParkingSpot(), ticket, 1000);
+        openTicketStore.onEvent(event, 0, true);
+
+        assertEquals(1000, openTicketStore.getTicket("ABCDEF").getInTime().getTime());
+
+        event.set(ParkingEventType.TICKET_CLOSED, ticket.getParkingSpot(), ticket, 2000);
+        openTicketStore.onEvent(event, 1, true);
+
+        assertEquals(0, openTicketStore.size());
+    }
+
+    @Test
+    public void mappedStoreRejectsWhenFull() throws Exception {
+        Path file = Files.createTempFile("open-tickets", ".bin");
+        try (OpenTicketStore mappedStore = new OpenTicketStore(file, 2)) {
+            assertTrue(mappedStore.put(ticket(1, "A1", 1, ParkingType.CAR, 0)));
+            assertTrue(mappedStore.put(ticket(2, "A2", 2, ParkingType.CAR, 0)));
+            assertFalse(mappedStore.put(ticket(3, "A3", 3, ParkingType.CAR, 0)), "A mapped store must not grow");
+            assertEquals(2, mappedStore.getTicket("A2").getId());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void capacityBeyondIntOffsetsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new OpenTicketStore(OpenTicketStore.MAX_CAPACITY + 1));
+    }
+}
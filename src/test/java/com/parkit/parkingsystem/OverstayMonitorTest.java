@@ -0,0 +1,147 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.OverstayMonitor;
+import com.parkit.parkingsystem.service.ParkingEventBus;
+import com.parkit.parkingsystem.util.HierarchicalTimingWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OverstayMonitorTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Mock
+    private ParkingEventBus eventBus;
+
+    private OverstayMonitor overstayMonitor;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        overstayMonitor = new OverstayMonitor(eventBus, 1000, 0);
+        overstayMonitor.setMaxStay(ParkingType.CAR, 24 * HOUR);
+    }
+
+    private static Ticket ticket(String vehicleRegNumber, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+
+    private static ParkingEvent event(ParkingEventType type, Ticket ticket) {
+        ParkingEvent event = new ParkingEvent();
+        event.set(type, ticket.getParkingSpot(), ticket, ticket.getInTime().getTime());
+        return event;
+    }
+
+    @Test
+    public void overstayPublishedOnceAfterMaxStay() {
+        overstayMonitor.onEvent(event(ParkingEventType.TICKET_OPENED, ticket("ABCDEF", 0)), 0, true);
+
+        assertEquals(0, overstayMonitor.advance(24 * HOUR - 1000));
+        assertEquals(1, overstayMonitor.advance(24 * HOUR));
+        assertEquals(0, overstayMonitor.advance(48 * HOUR), "An overstay must only be reported once");
+
+        ArgumentCaptor<Ticket> ticketCaptor = ArgumentCaptor.forClass(Ticket.class);
+        verify(eventBus, times(1)).publishTicketEvent(eq(ParkingEventType.TICKET_OVERSTAYED), ticketCaptor.capture(), eq(24 * HOUR));
+        assertEquals("ABCDEF", ticketCaptor.getValue().getVehicleRegNumber());
+        assertEquals(ParkingType.CAR, ticketCaptor.getValue().getParkingSpot().getParkingType());
+        assertEquals(0, ticketCaptor.getValue().getInTime().getTime());
+        assertEquals(0, overstayMonitor.getWatchedCount());
+        assertEquals(1, overstayMonitor.getOverstayCount());
+    }
+
+    @Test
+    public void exitCancelsWatch() {
+        Ticket ticket = ticket("ABCDEF", 0);
+        overstayMonitor.onEvent(event(ParkingEventType.TICKET_OPENED, ticket), 0, true);
+        overstayMonitor.onEvent(event(ParkingEventType.TICKET_CLOSED, ticket), 1, true);
+
+        assertEquals(0, overstayMonitor.advance(48 * HOUR));
+        verify(eventBus, never()).publishTicketEvent(any(ParkingEventType.class), any(Ticket.class), anyLong());
+    }
+
+    @Test
+    public void prePaidWindowReplacesMaxStay() {
+        Ticket ticket = ticket("ABCDEF", 0);
+        overstayMonitor.watch(ticket);
+        overstayMonitor.watchUntil(ticket, 2 * HOUR);
+
+        assertEquals(1, overstayMonitor.advance(2 * HOUR));
+        assertEquals(0, overstayMonitor.advance(48 * HOUR), "The previous deadline must be cancelled");
+    }
+
+    @Test
+    public void unwatchedTypeIgnored() {
+        Ticket ticket = ticket("BIKE-1", 0);
+        ticket.getParkingSpot().setParkingType(ParkingType.BIKE);
+
+        assertFalse(overstayMonitor.watch(ticket));
+        assertEquals(0, overstayMonitor.getWatchedCount());
+    }
+
+    // Compares the wheel with a plain sort on random deadlines spread over several levels, some of them cancelled.
+    @Test
+    public void timingWheelExpiresEveryDeadlineOnTime() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 8, 5);
+        Random random = new Random(7);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long deadline = 5 + random.nextInt(100_000);
+            HierarchicalTimingWheel.Timeout<Long> timeout = wheel.schedule(deadline, deadline);
+            if (i % 10 == 0) {
+                assertTrue(wheel.cancel(timeout));
+                assertFalse(wheel.cancel(timeout), "A timeout must only be cancelled once");
+            } else {
+                expected.add(deadline);
+            }
+        }
+        Collections.sort(expected);
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = 0; now <= 100_010; now += 1 + random.nextInt(50)) {
+            for (Long deadline : wheel.advance(now)) {
+                assertTrue(deadline <= now, "A deadline must not fire early");
+                assertTrue(now - deadline < 10 + 50, "A deadline must fire on the first tick reached after it");
+                fired.add(deadline);
+            }
+        }
+        Collections.sort(fired);
+
+        assertEquals(expected, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void timingWheelFiresPastDeadlineOnNextTick() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1000, 4, 10_000);
+
+        wheel.schedule("late", 0);
+
+        assertEquals(Arrays.asList("late"), wheel.advance(11_000));
+    }
+}
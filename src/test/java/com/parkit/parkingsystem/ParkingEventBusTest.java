@@ -0,0 +1,135 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingEvent;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingEventBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingEventBusTest {
+
+    private ParkingEventBus eventBus;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        eventBus = new ParkingEventBus(8);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        eventBus.shutdown();
+    }
+
+    @Test
+    public void invalidBufferSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ParkingEventBus(10));
+    }
+
+    @Test
+    public void publishWithoutSubscriberNeverBlocks() {
+        for (int i = 0; i < 100; i++) {
+            eventBus.publishSpotEvent(ParkingEventType.SPOT_CLAIMED, new ParkingSpot(i, ParkingType.CAR, false));
+        }
+
+        assertEquals(100, eventBus.getPublishedCount());
+    }
+
+    @Test
+    public void everySubscriberReceivesEveryEventInOrder() throws Exception {
+        List<Integer> firstSubscriberSpots = new ArrayList<>();
+        List<Integer> secondSubscriberSpots = new ArrayList<>();
+        eventBus.subscribe("first", (event, sequence, endOfBatch) -> firstSubscriberSpots.add(event.getParkingNumber()));
+        eventBus.subscribe("second", (event, sequence, endOfBatch) -> secondSubscriberSpots.add(event.getParkingNumber()));
+
+        for (int i = 0; i < 1000; i++) {
+            eventBus.publishSpotEvent(ParkingEventType.SPOT_CLAIMED, new ParkingSpot(i, ParkingType.CAR, false));
+        }
+        eventBus.shutdown();
+
+        assertEquals(1000, firstSubscriberSpots.size());
+        assertEquals(1000, secondSubscriberSpots.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, (int) firstSubscriberSpots.get(i));
+            assertEquals(i, (int) secondSubscriberSpots.get(i));
+        }
+    }
+
+    @Test
+    public void ticketEventCarriesPrice() throws Exception {
+        List<String> received = new ArrayList<>();
+        eventBus.subscribe("ticket", (event, sequence, endOfBatch) ->
+                received.add(event.getType() + " " + event.getVehicleRegNumber() + " " + event.getPrice() + " " + event.getTime()));
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setPrice(1.5);
+
+        eventBus.publishTicketEvent(ParkingEventType.TICKET_CLOSED, ticket, 42);
+        eventBus.shutdown();
+
+        assertEquals(1, received.size());
+        assertEquals("TICKET_CLOSED ABCDEF 1.5 42", received.get(0));
+    }
+
+    @Test
+    public void slowSubscriberAppliesBackpressureWithoutLosingEvents() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+        eventBus.subscribe("slow", (event, sequence, endOfBatch) -> {
+            release.await();
+            handled.incrementAndGet();
+            if (endOfBatch) {
+                batches.incrementAndGet();
+            }
+        });
+
+        ExecutorService publishers = Executors.newFixedThreadPool(4);
+        for (int p = 0; p < 4; p++) {
+            publishers.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    eventBus.publishSpotEvent(ParkingEventType.SPOT_RELEASED, new ParkingSpot(i, ParkingType.BIKE, true));
+                }
+            });
+        }
+        publishers.shutdown();
+        assertFalse(publishers.awaitTermination(200, TimeUnit.MILLISECONDS), "Publishers must wait while the ring is full");
+
+        release.countDown();
+        assertTrue(publishers.awaitTermination(10, TimeUnit.SECONDS));
+        eventBus.shutdown();
+
+        assertEquals(1000, handled.get(), "No event must be lost");
+        assertTrue(batches.get() < 1000, "Events must be handled in batches");
+    }
+
+    @Test
+    public void failingSubscriberDoesNotStopOthers() throws Exception {
+        AtomicInteger handled = new AtomicInteger();
+        eventBus.subscribe("failing", (event, sequence, endOfBatch) -> {
+            throw new IllegalStateException("Subscriber failure");
+        });
+        eventBus.subscribe("counting", (ParkingEvent event, long sequence, boolean endOfBatch) -> handled.incrementAndGet());
+
+        for (int i = 0; i < 50; i++) {
+            eventBus.publishSpotEvent(ParkingEventType.SPOT_CLAIMED, new ParkingSpot(i, ParkingType.CAR, false));
+        }
+        eventBus.shutdown();
+
+        assertEquals(50, handled.get());
+    }
+}
@@ -0,0 +1,355 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Several gates, each a ParkingService shared by several threads, work on the same spot and ticket DAOs, like the
+// gates of a facility served by a few application instances. The DAOs are the in-memory ones, which take and close
+// spots and tickets with the same conditions as the SQL, so the suite runs without a database.
+public class ParkingServiceConcurrencyTest {
+
+    private static final Logger logger = LogManager.getLogger("ParkingServiceConcurrencyTest");
+
+    private static final int FACILITY_ID = ParkingSpot.DEFAULT_FACILITY_ID;
+    private static final int GATES = 4;
+    private static final int CAR_SPOTS = 40;
+    private static final int BIKE_SPOTS = 10;
+
+    private final GateInput gateInput = new GateInput();
+    private InMemoryParkingSpotDAO parkingSpotDAO;
+    private InMemoryTicketDAO ticketDAO;
+    private PrintStream standardOut;
+
+    // Each thread answers the prompts of the service with its own vehicle.
+    private static final class GateInput extends InputReaderUtil {
+        private final ThreadLocal<ArrayDeque<String>> answers = ThreadLocal.withInitial(ArrayDeque::new);
+
+        private void enter(String vehicleRegNumber, ParkingType parkingType) {
+            answers.get().clear();
+            answers.get().add(vehicleRegNumber);
+            answers.get().add((parkingType == ParkingType.CAR) ? "1" : "2");
+        }
+
+        private void exit(String vehicleRegNumber) {
+            answers.get().clear();
+            answers.get().add(vehicleRegNumber);
+        }
+
+        @Override
+        public int readSelection() {
+            String answer = answers.get().poll();
+            return (answer == null) ? -1 : Integer.parseInt(answer);
+        }
+
+        @Override
+        public String readVehicleRegistrationNumber() {
+            return answers.get().poll();
+        }
+    }
+
+    // Adds a fixed latency to every DAO call, out of the DAO lock, like the round trip to the database.
+    private static final class LatentParkingSpotDAO extends InMemoryParkingSpotDAO {
+        private final long latencyNanos;
+
+        private LatentParkingSpotDAO(long latencyNanos) {
+            super(FACILITY_ID, CAR_SPOTS, BIKE_SPOTS);
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public int getNextAvailableSlot(int facilityId, ParkingType parkingType) {
+            LockSupport.parkNanos(latencyNanos);
+            return super.getNextAvailableSlot(facilityId, parkingType);
+        }
+
+        @Override
+        public boolean updateParking(ParkingSpot parkingSpot) {
+            LockSupport.parkNanos(latencyNanos);
+            return super.updateParking(parkingSpot);
+        }
+    }
+
+    private static final class LatentTicketDAO extends InMemoryTicketDAO {
+        private final long latencyNanos;
+
+        private LatentTicketDAO(long latencyNanos) {
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public boolean saveTicket(Ticket ticket) {
+            LockSupport.parkNanos(latencyNanos);
+            return super.saveTicket(ticket);
+        }
+
+        @Override
+        public Ticket getTicket(String vehicleRegNumber) {
+            LockSupport.parkNanos(latencyNanos);
+            return super.getTicket(vehicleRegNumber);
+        }
+
+        @Override
+        public boolean updateTicket(Ticket ticket) {
+            LockSupport.parkNanos(latencyNanos);
+            return super.updateTicket(ticket);
+        }
+
+        @Override
+        public int getNbTicket(String vehicleRegNumber) {
+            LockSupport.parkNanos(latencyNanos);
+            return super.getNbTicket(vehicleRegNumber);
+        }
+    }
+
+    @BeforeEach
+    private void setUpPerTest() {
+        parkingSpotDAO = new InMemoryParkingSpotDAO(FACILITY_ID, CAR_SPOTS, BIKE_SPOTS);
+        ticketDAO = new InMemoryTicketDAO();
+        // Thousands of gate prompts would otherwise dominate the run.
+        standardOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        System.setOut(standardOut);
+    }
+
+    private List<ParkingService> gates(int count) {
+        List<ParkingService> gates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ParkingService parkingService = new ParkingService(gateInput, parkingSpotDAO, ticketDAO);
+            parkingService.setFacilityId(FACILITY_ID);
+            gates.add(parkingService);
+        }
+        return gates;
+    }
+
+    private Ticket enter(ParkingService gate, String vehicleRegNumber, ParkingType parkingType) {
+        gateInput.enter(vehicleRegNumber, parkingType);
+        return gate.processIncomingVehicle();
+    }
+
+    private Ticket exit(ParkingService gate, String vehicleRegNumber) {
+        gateInput.exit(vehicleRegNumber);
+        return gate.processExitingVehicle();
+    }
+
+    // Runs the task on each thread at once and returns the results of the threads.
+    private static <T> List<T> runConcurrently(int threads, ThreadTask<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int threadIndex = thread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.run(threadIndex);
+                }));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask<T> {
+        T run(int thread) throws Exception;
+    }
+
+    // Every vehicle enters then exits, and each thread keeps a few vehicles parked, so the lot runs close to full.
+    private int[] enterAndExit(List<ParkingService> gates, int thread, int cycles, Map<Integer, String> occupants, AtomicInteger doubleBookings) {
+        ParkingService gate = gates.get(thread % gates.size());
+        ArrayDeque<Ticket> parked = new ArrayDeque<>();
+        int entries = 0;
+        int exits = 0;
+        for (int cycle = 0; cycle < cycles; cycle++) {
+            ParkingType parkingType = (cycle % 5 == 0) ? ParkingType.BIKE : ParkingType.CAR;
+            Ticket ticket = enter(gate, "T" + thread + "V" + cycle, parkingType);
+            if (ticket != null) {
+                entries++;
+                if (occupants.putIfAbsent(ticket.getParkingSpot().getId(), ticket.getVehicleRegNumber()) != null) {
+                    doubleBookings.incrementAndGet();
+                }
+                parked.add(ticket);
+            }
+            if (parked.size() > 2 || (ticket == null && !parked.isEmpty())) {
+                Ticket leaving = parked.poll();
+                // The spot is freed for the others only by the exit, so it is still this vehicle's until then.
+                occupants.remove(leaving.getParkingSpot().getId(), leaving.getVehicleRegNumber());
+                if (exit(gate, leaving.getVehicleRegNumber()) != null) {
+                    exits++;
+                } else {
+                    occupants.put(leaving.getParkingSpot().getId(), leaving.getVehicleRegNumber());
+                    parked.add(leaving);
+                }
+            }
+        }
+        return new int[]{entries, exits};
+    }
+
+    private void assertOccupancyMatchesSpots(int expectedOccupiedSpots) {
+        int occupiedSpots = 0;
+        for (ParkingSpot parkingSpot : parkingSpotDAO.getFacilitySpots(FACILITY_ID)) {
+            if (!parkingSpot.isAvailable()) {
+                occupiedSpots++;
+            }
+        }
+        int countedOccupiedSpots = 0;
+        for (Occupancy occupancy : parkingSpotDAO.getOccupancy()) {
+            countedOccupiedSpots += occupancy.getOccupiedSpots();
+        }
+        assertEquals(expectedOccupiedSpots, occupiedSpots);
+        assertEquals(occupiedSpots, countedOccupiedSpots, "The occupancy counters must match the spots");
+        assertEquals(occupiedSpots, ticketDAO.getOpenTickets(FACILITY_ID).size(), "Each taken spot must have one open ticket");
+    }
+
+    @Test
+    public void concurrentGatesNeverDoubleBookSpots() throws Exception {
+        List<ParkingService> gates = gates(GATES);
+        Map<Integer, String> occupants = new ConcurrentHashMap<>();
+        AtomicInteger doubleBookings = new AtomicInteger();
+
+        List<int[]> counts = runConcurrently(16, thread -> enterAndExit(gates, thread, 300, occupants, doubleBookings));
+
+        int entries = 0;
+        int exits = 0;
+        for (int[] threadCounts : counts) {
+            entries += threadCounts[0];
+            exits += threadCounts[1];
+        }
+        assertEquals(0, doubleBookings.get(), "A spot must never be given to two parked vehicles");
+        assertTrue(entries > 1000, "Most entries must succeed, got " + entries);
+        assertEquals(entries - exits, occupants.size());
+        assertOccupancyMatchesSpots(entries - exits);
+        Set<Integer> occupiedSpots = new HashSet<>();
+        for (Ticket openTicket : ticketDAO.getOpenTickets(FACILITY_ID)) {
+            assertTrue(occupiedSpots.add(openTicket.getParkingSpot().getId()), "Two open tickets on spot " + openTicket.getParkingSpot().getId());
+            assertEquals(openTicket.getVehicleRegNumber(), occupants.get(openTicket.getParkingSpot().getId()));
+        }
+    }
+
+    @Test
+    public void sameVehicleAtSeveralGatesGetsOneOpenTicket() throws Exception {
+        List<ParkingService> gates = gates(GATES);
+        List<String> vehicles = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            vehicles.add("SAME" + i);
+        }
+
+        List<Map<String, Integer>> entered = runConcurrently(16, thread -> {
+            List<String> order = new ArrayList<>(vehicles);
+            Collections.shuffle(order);
+            Map<String, Integer> ticketIds = new LinkedHashMap<>();
+            for (String vehicleRegNumber : order) {
+                Ticket ticket = enter(gates.get(thread % GATES), vehicleRegNumber, ParkingType.CAR);
+                if (ticket != null) {
+                    ticketIds.put(vehicleRegNumber, ticket.getId());
+                }
+            }
+            return ticketIds;
+        });
+
+        Map<String, Set<Integer>> ticketIdsByVehicle = new LinkedHashMap<>();
+        for (Map<String, Integer> threadTicketIds : entered) {
+            threadTicketIds.forEach((vehicleRegNumber, ticketId) -> ticketIdsByVehicle.computeIfAbsent(vehicleRegNumber, key -> new HashSet<>()).add(ticketId));
+        }
+        assertEquals(vehicles.size(), ticketIdsByVehicle.size());
+        ticketIdsByVehicle.forEach((vehicleRegNumber, ticketIds) -> assertEquals(1, ticketIds.size(), vehicleRegNumber + " got tickets " + ticketIds));
+        assertOccupancyMatchesSpots(vehicles.size());
+
+        List<Map<String, Double>> exited = runConcurrently(16, thread -> {
+            Map<String, Double> prices = new LinkedHashMap<>();
+            for (String vehicleRegNumber : vehicles) {
+                Ticket ticket = exit(gates.get(thread % GATES), vehicleRegNumber);
+                if (ticket != null) {
+                    prices.put(vehicleRegNumber, ticket.getPrice());
+                }
+            }
+            return prices;
+        });
+
+        Set<String> exitedVehicles = new HashSet<>();
+        int gatesClosingTicket = 0;
+        for (Map<String, Double> prices : exited) {
+            exitedVehicles.addAll(prices.keySet());
+            gatesClosingTicket += prices.size();
+        }
+        assertEquals(new HashSet<>(vehicles), exitedVehicles);
+        // Threads of one gate get the result of its single exit, the other gates find the ticket closed.
+        assertTrue(gatesClosingTicket <= vehicles.size() * 16 / GATES, "Only the threads of one gate may get each closed ticket");
+        assertOccupancyMatchesSpots(0);
+    }
+
+    @Test
+    public void throughputScalesWithThreads() throws Exception {
+        long latencyNanos = TimeUnit.MICROSECONDS.toNanos(100);
+        int totalCycles = 640;
+        Map<Integer, Double> cyclesPerSecond = new LinkedHashMap<>();
+        for (int threads : new int[]{1, 2, 4, 8, 16}) {
+            parkingSpotDAO = new LatentParkingSpotDAO(latencyNanos);
+            ticketDAO = new LatentTicketDAO(latencyNanos);
+            List<ParkingService> gates = gates(GATES);
+            Map<Integer, String> occupants = new ConcurrentHashMap<>();
+            AtomicInteger doubleBookings = new AtomicInteger();
+
+            long start = System.nanoTime();
+            List<int[]> counts = runConcurrently(threads, thread -> enterAndExit(gates, thread, totalCycles / threads, occupants, doubleBookings));
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            int exits = 0;
+            for (int[] threadCounts : counts) {
+                exits += threadCounts[1];
+            }
+            assertEquals(0, doubleBookings.get());
+            assertOccupancyMatchesSpots(occupants.size());
+            cyclesPerSecond.put(threads, exits / seconds);
+        }
+        StringBuilder scaling = new StringBuilder("Entry and exit cycles per second with a DB latency of 100 us:");
+        cyclesPerSecond.forEach((threads, rate) -> scaling.append(" ").append(threads).append(" threads=").append(Math.round(rate)));
+        logger.info(scaling);
+        standardOut.println(scaling);
+        assertTrue(cyclesPerSecond.get(8) > 2 * cyclesPerSecond.get(1), "Gates waiting on the DB must overlap: " + scaling);
+    }
+}
@@ -1,11 +1,15 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.constants.ParkingEventType;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.FareQuote;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingEventBus;
 import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.SpotWaitingQueue;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -70,7 +74,7 @@ public class ParkingServiceTest {
     public void testProcessIncomingVehicle() throws Exception {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(1);
         when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
         when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(1);
         when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
@@ -85,6 +89,27 @@ public class ParkingServiceTest {
         assertFalse(parkingSpot.isAvailable(), "The parkingSpot must be marked as unavailable after parking");
     }
 
+    @Test
+    public void testProcessIncomingAndExitingVehiclePublishEvents() throws Exception {
+        ParkingEventBus eventBus = mock(ParkingEventBus.class);
+        parkingService.setEventBus(eventBus);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(null, ticket);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+
+        verify(eventBus, times(1)).publishSpotEvent(eq(ParkingEventType.SPOT_CLAIMED), any(ParkingSpot.class), anyLong());
+        verify(eventBus, times(1)).publishTicketEvent(eq(ParkingEventType.TICKET_OPENED), any(Ticket.class), anyLong());
+        verify(eventBus, times(1)).publishTicketEvent(eq(ParkingEventType.TICKET_CLOSED), eq(ticket), anyLong());
+        verify(eventBus, times(1)).publishSpotEvent(eq(ParkingEventType.SPOT_RELEASED), eq(parkingSpot), anyLong());
+    }
+
     @Test
     public void processExitingVehicleTestUnableUpdate() throws Exception {
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
@@ -103,11 +128,11 @@ public class ParkingServiceTest {
     @Test
     public void testGetNextParkingNumberIfAvailable(){
         when(inputReaderUtil.readSelection()).thenReturn(2);
-        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).thenReturn(1);
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.BIKE)).thenReturn(1);
 
         ParkingSpot returnedParkingSpot = parkingService.getNextParkingNumberIfAvailable();
 
-        verify(parkingSpotDAO, times(1)).getNextAvailableSlot(ParkingType.BIKE);
+        verify(parkingSpotDAO, times(1)).getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.BIKE);
 
         assertNotNull(returnedParkingSpot, "The parkingSpot must not be null");
         assertEquals(1, returnedParkingSpot.getId(), "The parkingSpotId must be 1");
@@ -117,11 +142,11 @@ public class ParkingServiceTest {
     @Test
     public void testGetNextParkingNumberIfAvailableParkingNumberNotFound(){
         when(inputReaderUtil.readSelection()).thenReturn(1);
-        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(0);
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(0);
 
         ParkingSpot returnedParkingSpot = parkingService.getNextParkingNumberIfAvailable();
 
-        verify(parkingSpotDAO, times(1)).getNextAvailableSlot(ParkingType.CAR);
+        verify(parkingSpotDAO, times(1)).getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR);
 
         assertNull(returnedParkingSpot, "No parkingSpot must be available");
     }
@@ -141,7 +166,7 @@ public class ParkingServiceTest {
     public void testProcessIncomingVehicleIfRegularUser() throws Exception {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(1);
         when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
         when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(2);
         when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
@@ -172,7 +197,7 @@ public class ParkingServiceTest {
     public void processIncomingVehicleException() throws Exception {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
-        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(1);
         when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenThrow(new RuntimeException("Database failure"));
 
         parkingService.processIncomingVehicle();
@@ -191,4 +216,190 @@ public class ParkingServiceTest {
         verify(ticketDAO, times(1)).getTicket(anyString());
         verify(ticketDAO, never()).getNbTicket(anyString());
     }
+
+    @Test
+    public void processIncomingVehicleWaitsWhenFull() throws Exception {
+        SpotWaitingQueue waitingQueue = mock(SpotWaitingQueue.class);
+        parkingService.setWaitingQueue(waitingQueue);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(0);
+        when(waitingQueue.awaitSpot(ParkingType.CAR)).thenReturn(parkingSpot);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+        parkingService.processIncomingVehicle();
+
+        verify(waitingQueue, times(1)).awaitSpot(ParkingType.CAR);
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+        verify(ticketDAO, times(1)).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void processExitingVehicleHandsSpotToWaitingVehicle() throws Exception {
+        SpotWaitingQueue waitingQueue = mock(SpotWaitingQueue.class);
+        parkingService.setWaitingQueue(waitingQueue);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
+        when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(1);
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+        when(waitingQueue.handOver(parkingSpot)).thenReturn(true);
+
+        parkingService.processExitingVehicle();
+
+        verify(waitingQueue, times(1)).handOver(parkingSpot);
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+        assertFalse(parkingSpot.isAvailable(), "A spot handed over must stay occupied");
+    }
+
+    @Test
+    public void quoteFareCachesTicketContext() {
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+        when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(2);
+
+        FareQuote firstQuote = parkingService.quoteFare("ABCDEF");
+        FareQuote secondQuote = parkingService.quoteFare("ABCDEF");
+
+        assertTrue(firstQuote.isDiscount(), "A regular user must be quoted the discount");
+        assertEquals(0.95 * 1.5, secondQuote.getPrice(), 0.01);
+        assertNull(ticket.getOutTime(), "A quote must not close the ticket");
+        verify(ticketDAO, times(1)).getTicket("ABCDEF");
+        verify(ticketDAO, times(1)).getNbTicket("ABCDEF");
+    }
+
+    @Test
+    public void quoteFareWithoutOpenTicket() {
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(null);
+
+        assertNull(parkingService.quoteFare("ABCDEF"));
+    }
+
+    @Test
+    public void processExitingVehicleReusesQuotedContext() throws Exception {
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+        when(ticketDAO.getNbTicket("ABCDEF")).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        double quotedPrice = parkingService.quoteFare("ABCDEF").getPrice();
+
+        parkingService.processExitingVehicle();
+
+        verify(ticketDAO, times(1)).getTicket("ABCDEF");
+        verify(ticketDAO, times(1)).getNbTicket("ABCDEF");
+        verify(ticketDAO, times(1)).updateTicket(ticket);
+        assertEquals(quotedPrice, ticket.getPrice(), 0.01, "The exit must charge the quoted fare");
+        assertEquals(0, parkingService.getFareQuoteCache().size(), "The context must be dropped once the ticket is closed");
+    }
+
+    @Test
+    public void repeatedEntryAnsweredWithFirstTicket() throws Exception {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+        Ticket firstTicket = parkingService.processIncomingVehicle();
+        Ticket repeatedTicket = parkingService.processIncomingVehicle();
+
+        assertNotNull(firstTicket);
+        assertSame(firstTicket, repeatedTicket, "A repeated entry must get the ticket of the first one");
+        verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
+        verify(ticketDAO, times(1)).saveTicket(any(Ticket.class));
+        assertEquals(1, parkingService.getGateCommands().getRepeatCount());
+    }
+
+    @Test
+    public void repeatedExitPricedOnce() throws Exception {
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+
+        assertSame(ticket, parkingService.processExitingVehicle());
+        assertSame(ticket, parkingService.processExitingVehicle());
+
+        verify(ticketDAO, times(1)).getTicket("ABCDEF");
+        verify(ticketDAO, times(1)).updateTicket(ticket);
+        verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void reentryAfterExitWithinWindowOpensNewTicket() throws Exception {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(null, ticket);
+        when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
+
+        Ticket firstTicket = parkingService.processIncomingVehicle();
+        assertSame(ticket, parkingService.processExitingVehicle());
+        Ticket secondTicket = parkingService.processIncomingVehicle();
+
+        assertNotNull(secondTicket);
+        assertNotSame(firstTicket, secondTicket, "A vehicle coming back must get a new ticket, not the closed one");
+        assertNull(secondTicket.getOutTime());
+        verify(ticketDAO, times(2)).saveTicket(any(Ticket.class));
+        assertEquals(0, parkingService.getGateCommands().getRepeatCount());
+    }
+
+    @Test
+    public void failedSaveReleasesSpot() throws Exception {
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(null);
+
+        assertNull(parkingService.processIncomingVehicle());
+
+        verify(ticketDAO, times(2)).getTicket("ABCDEF");
+        verify(parkingSpotDAO, times(2)).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void saveCommittedDespiteErrorKeepsSpot() throws Exception {
+        Ticket savedTicket = new Ticket();
+        savedTicket.setId(42);
+        savedTicket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        savedTicket.setVehicleRegNumber("ABCDEF");
+        savedTicket.setInTime(new Date());
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR)).thenReturn(1);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(null, savedTicket);
+
+        Ticket ticket = parkingService.processIncomingVehicle();
+
+        assertNotNull(ticket, "A ticket committed before the error must open the entry");
+        assertEquals(42, ticket.getId());
+        verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void entryRejectedWhilePlateHasOpenTicket() throws Exception {
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+
+        assertNull(parkingService.processIncomingVehicle());
+
+        verify(parkingSpotDAO, never()).getNextAvailableSlot(anyInt(), any(ParkingType.class));
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void closedTicketNotPricedAgain() throws Exception {
+        ticket.setOutTime(new Date());
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+
+        assertNull(parkingService.processExitingVehicle());
+
+        verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import com.parkit.parkingsystem.util.LongObjectHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlateCodecTest {
+
+    @Test
+    public void normalizeIgnoresCaseSpacesAndDashes() {
+        assertEquals("AB123CD", PlateCodec.normalize("ab-123 cd"));
+        assertEquals(PlateCodec.encode("AB-123-CD"), PlateCodec.encode(" ab 123cd "));
+    }
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        for (String plate : new String[]{"A", "0", "00", "ZZZZZZZZZZ", "9999999999", "AB123CD", "ABCDEF"}) {
+            assertEquals(plate, PlateCodec.decode(PlateCodec.encode(plate)));
+        }
+        assertNotEquals(PlateCodec.encode("0"), PlateCodec.encode("00"), "Leading zeros must not be lost");
+    }
+
+    @Test
+    public void invalidPlates() {
+        assertThrows(IllegalArgumentException.class, () -> PlateCodec.encode("X,Y"));
+        assertThrows(IllegalArgumentException.class, () -> PlateCodec.encode(" - "));
+        assertThrows(IllegalArgumentException.class, () -> PlateCodec.encode("ABCDEFGHIJK"));
+        assertFalse(PlateCodec.isValid(null));
+        assertThrows(IllegalArgumentException.class, () -> PlateCodec.decode(0));
+    }
+
+    // Random puts and removes on dense plate codes, checked against a HashMap.
+    @Test
+    public void longIntHashMapMatchesHashMap() {
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(20_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.containsKey(key) ? (int) expected.remove(key) : -1, map.remove(key));
+            } else {
+                int value = random.nextInt();
+                Integer previous = expected.put(key, value);
+                assertEquals(previous == null ? -1 : (int) previous, map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 20_000; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.containsKey(key) ? (int) expected.get(key) : -1, map.get(key));
+        }
+        assertEquals(2, map.addTo(-5, 2));
+        assertEquals(5, map.addTo(-5, 3));
+    }
+
+    @Test
+    public void longObjectHashMapMatchesHashMap() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(20_000) - 10;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = Integer.toString(i);
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        Map<Long, String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+}
@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.RollupPeriod;
+import com.parkit.parkingsystem.model.Rollup;
+import org.junit.jupiter.api.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RollupTest {
+
+    private Date time(int day, int hour, int minute, int second) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.MARCH, day, hour, minute, second);
+        return calendar.getTime();
+    }
+
+    @Test
+    public void hourBucketStart() {
+        assertEquals(time(12, 14, 0, 0), RollupPeriod.HOUR.bucketStart(time(12, 14, 37, 42)));
+    }
+
+    @Test
+    public void dayBucketStart() {
+        assertEquals(time(12, 0, 0, 0), RollupPeriod.DAY.bucketStart(time(12, 23, 59, 42)));
+    }
+
+    @Test
+    public void addTicketsAndPeakOccupancy() {
+        Rollup rollup = new Rollup(RollupPeriod.HOUR, time(12, 14, 0, 0), ParkingType.CAR);
+
+        rollup.addTicket(1.5, 3600);
+        rollup.addTicket(3.0, 7200);
+        rollup.updatePeakOccupancy(3);
+        rollup.updatePeakOccupancy(2);
+
+        assertEquals(2, rollup.getTicketCount());
+        assertEquals(4.5, rollup.getRevenue());
+        assertEquals(5400, rollup.getAverageStaySeconds());
+        assertEquals(3, rollup.getPeakOccupancy(), "The peak occupancy must keep the highest value");
+    }
+
+    @Test
+    public void averageStayOfEmptyRollup() {
+        Rollup rollup = new Rollup(RollupPeriod.DAY, time(12, 0, 0, 0), ParkingType.BIKE);
+
+        assertEquals(0, rollup.getAverageStaySeconds());
+    }
+}
@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.SpotWaitingQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpotWaitingQueueTest {
+
+    private SpotWaitingQueue waitingQueue;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        waitingQueue = new SpotWaitingQueue(5000);
+    }
+
+    private void awaitQueueLength(ParkingType parkingType, int queueLength) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (waitingQueue.getQueueLength(parkingType) != queueLength && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(queueLength, waitingQueue.getQueueLength(parkingType));
+    }
+
+    @Test
+    public void releasedSpotsHandedOverInArrivalOrder() throws Exception {
+        ExecutorService gates = Executors.newFixedThreadPool(2);
+        Future<ParkingSpot> first = gates.submit(() -> waitingQueue.awaitSpot(ParkingType.CAR));
+        awaitQueueLength(ParkingType.CAR, 1);
+        Future<ParkingSpot> second = gates.submit(() -> waitingQueue.awaitSpot(ParkingType.CAR));
+        awaitQueueLength(ParkingType.CAR, 2);
+
+        assertTrue(waitingQueue.handOver(new ParkingSpot(3, ParkingType.CAR, false)));
+        assertTrue(waitingQueue.handOver(new ParkingSpot(1, ParkingType.CAR, false)));
+
+        assertEquals(3, first.get(5, TimeUnit.SECONDS).getId(), "The first vehicle in line must get the first spot released");
+        assertEquals(1, second.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(0, waitingQueue.getQueueLength(ParkingType.CAR));
+        assertEquals(2, waitingQueue.getServedCount(ParkingType.CAR));
+        gates.shutdown();
+    }
+
+    @Test
+    public void handOverWithoutWaitingVehicle() {
+        assertFalse(waitingQueue.handOver(new ParkingSpot(4, ParkingType.BIKE, false)));
+    }
+
+    @Test
+    public void waitTimesOut() {
+        SpotWaitingQueue shortQueue = new SpotWaitingQueue(50);
+
+        assertNull(shortQueue.awaitSpot(ParkingType.BIKE), "No spot must be returned after the maximum wait");
+        assertEquals(0, shortQueue.getQueueLength(ParkingType.BIKE), "A vehicle which gave up must leave the line");
+        assertEquals(1, shortQueue.getTimedOutCount(ParkingType.BIKE));
+        assertFalse(shortQueue.handOver(new ParkingSpot(4, ParkingType.BIKE, false)));
+    }
+
+    @Test
+    public void waitMetrics() throws Exception {
+        ExecutorService gate = Executors.newSingleThreadExecutor();
+        Future<ParkingSpot> waiting = gate.submit(() -> waitingQueue.awaitSpot(ParkingType.CAR));
+        awaitQueueLength(ParkingType.CAR, 1);
+        Thread.sleep(50);
+
+        assertTrue(waitingQueue.getOldestWaitMillis(ParkingType.CAR) >= 50);
+        waitingQueue.handOver(new ParkingSpot(2, ParkingType.CAR, false));
+        waiting.get(5, TimeUnit.SECONDS);
+
+        assertTrue(waitingQueue.getAverageWaitMillis(ParkingType.CAR) >= 50);
+        assertEquals(waitingQueue.getAverageWaitMillis(ParkingType.CAR), waitingQueue.getLongestWaitMillis(ParkingType.CAR));
+        assertEquals(0, waitingQueue.getOldestWaitMillis(ParkingType.CAR));
+        gate.shutdown();
+    }
+}
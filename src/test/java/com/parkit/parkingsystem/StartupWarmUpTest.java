@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.StartupWarmUp;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StartupWarmUpTest {
+
+    private final StartupWarmUp startupWarmUp = new StartupWarmUp();
+
+    @Test
+    public void tasksRunInParallelBeforeReadiness() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CompletableFuture<List<String>> spots = startupWarmUp.addTask("spots", () -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "The tasks must run at the same time");
+            return Arrays.asList("A1", "A2");
+        });
+        startupWarmUp.addTask("open tickets", () -> {
+            bothStarted.countDown();
+            return bothStarted.await(5, TimeUnit.SECONDS);
+        });
+        assertFalse(startupWarmUp.isReady());
+
+        startupWarmUp.run(10_000);
+
+        assertTrue(startupWarmUp.isReady());
+        assertTrue(startupWarmUp.awaitReady(0, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList("A1", "A2"), StartupWarmUp.resultOf(spots, null));
+        Map<String, Long> timings = startupWarmUp.getTimings();
+        assertEquals(Arrays.asList("spots", "open tickets"), Arrays.asList(timings.keySet().toArray()));
+        assertTrue(timings.get("spots") >= 0);
+        assertTrue(startupWarmUp.getTotalMillis() >= 0);
+    }
+
+    @Test
+    public void failedOrStalledTasksDoNotBlockReadiness() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        CompletableFuture<Boolean> failed = startupWarmUp.addTask("connections", () -> {
+            throw new IllegalStateException("Communications link failure");
+        });
+        CompletableFuture<Boolean> stalled = startupWarmUp.addTask("open tickets", () -> never.await(1, TimeUnit.MINUTES));
+        startupWarmUp.addTask("fares", () -> StartupWarmUp.exerciseFareCalculator(new FareCalculatorService(), 1000));
+
+        long start = System.nanoTime();
+        startupWarmUp.run(300);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+        assertTrue(startupWarmUp.isReady());
+        assertFalse(StartupWarmUp.resultOf(failed, false));
+        assertFalse(StartupWarmUp.resultOf(stalled, false));
+        assertEquals(StartupWarmUp.FAILED, (long) startupWarmUp.getTimings().get("connections"));
+        assertEquals(StartupWarmUp.FAILED, (long) startupWarmUp.getTimings().get("open tickets"));
+        assertTrue(startupWarmUp.getTimings().get("fares") >= 0);
+        assertThrows(IllegalStateException.class, () -> startupWarmUp.addTask("spots", () -> true));
+    }
+}
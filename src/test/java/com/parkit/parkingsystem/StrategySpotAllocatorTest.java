@@ -0,0 +1,153 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.AllocationStrategy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.SpotAllocationStrategy;
+import com.parkit.parkingsystem.service.StrategySpotAllocator;
+import com.parkit.parkingsystem.util.IndexedMinHeap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StrategySpotAllocatorTest {
+
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+
+    private List<ParkingSpot> parkingSpots;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        // Zone A on level 0 far from the gate, zone B on levels 1 and 2 closer to it.
+        parkingSpots = new ArrayList<>();
+        parkingSpots.add(spot(1, "A", 0, 50, true));
+        parkingSpots.add(spot(2, "A", 0, 60, true));
+        parkingSpots.add(spot(3, "B", 1, 30, true));
+        parkingSpots.add(spot(4, "B", 1, 10, true));
+        parkingSpots.add(spot(5, "B", 2, 20, false));
+        parkingSpots.add(spot(6, "B", 2, 40, true));
+    }
+
+    private static ParkingSpot spot(int number, String zone, int level, int gateDistance, boolean available) {
+        ParkingSpot parkingSpot = new ParkingSpot(1, zone, number, ParkingType.CAR, available);
+        parkingSpot.setLevel(level);
+        parkingSpot.setGateDistance(gateDistance);
+        return parkingSpot;
+    }
+
+    private int[] allocateAll(AllocationStrategy allocationStrategy) {
+        when(parkingSpotDAO.getFacilitySpots(1)).thenReturn(parkingSpots);
+        StrategySpotAllocator allocator = new StrategySpotAllocator(parkingSpotDAO, 1, allocationStrategy, Long.MAX_VALUE);
+        int[] parkingNumbers = new int[6];
+        for (int i = 0; i < parkingNumbers.length; i++) {
+            parkingNumbers[i] = allocator.allocate(ParkingType.CAR);
+        }
+        return parkingNumbers;
+    }
+
+    @Test
+    public void lowestNumber() {
+        assertArrayEquals(new int[]{1, 2, 3, 4, 6, 0}, allocateAll(AllocationStrategy.LOWEST_NUMBER));
+    }
+
+    @Test
+    public void closestToGate() {
+        assertArrayEquals(new int[]{4, 3, 6, 1, 2, 0}, allocateAll(AllocationStrategy.CLOSEST_TO_GATE));
+    }
+
+    @Test
+    public void leastLoadedZone() {
+        // Zone B starts with one of its four spots occupied and zone A empty, so the allocations alternate to balance the loads.
+        assertArrayEquals(new int[]{1, 3, 2, 4, 6, 0}, allocateAll(AllocationStrategy.LEAST_LOADED_ZONE));
+    }
+
+    @Test
+    public void roundRobinLevels() {
+        assertArrayEquals(new int[]{1, 3, 6, 2, 4, 0}, allocateAll(AllocationStrategy.ROUND_ROBIN_LEVELS));
+    }
+
+    @Test
+    public void releasedSpotAllocatedAgainWithoutDataBase() {
+        when(parkingSpotDAO.getFacilitySpots(1)).thenReturn(parkingSpots);
+        StrategySpotAllocator allocator = new StrategySpotAllocator(parkingSpotDAO, 1, AllocationStrategy.LOWEST_NUMBER);
+        assertEquals(1, allocator.allocate(ParkingType.CAR));
+        assertEquals(2, allocator.allocate(ParkingType.CAR));
+
+        allocator.release(new ParkingSpot(1, "A", 1, ParkingType.CAR, true));
+
+        assertEquals(1, allocator.allocate(ParkingType.CAR), "A released spot must be a candidate again");
+        assertEquals(3, allocator.getFreeSpots(ParkingType.CAR));
+        verify(parkingSpotDAO, times(1)).getFacilitySpots(1);
+    }
+
+    @Test
+    public void reloadWhenDry() {
+        when(parkingSpotDAO.getFacilitySpots(1)).thenReturn(new ArrayList<>()).thenReturn(parkingSpots);
+        StrategySpotAllocator allocator = new StrategySpotAllocator(parkingSpotDAO, 1, AllocationStrategy.LOWEST_NUMBER, 0);
+
+        assertEquals(0, allocator.allocate(ParkingType.CAR), "No spot must be allocated from an empty facility");
+        assertEquals(1, allocator.allocate(ParkingType.CAR), "Spots freed elsewhere must be picked up once dry");
+    }
+
+    @Test
+    public void indexedMinHeapUpdatesPriorities() {
+        IndexedMinHeap<String> heap = new IndexedMinHeap<>();
+        heap.add("a", 5);
+        heap.add("b", 3);
+        heap.add("c", 4);
+        heap.add("a", 1);
+        assertTrue(heap.remove("c"));
+
+        assertEquals("a", heap.poll());
+        assertEquals("b", heap.poll());
+        assertNull(heap.poll());
+    }
+
+    // Simulated traffic on a 100k spots lot: every strategy must hand out each free spot exactly once.
+    @Test
+    public void simulatedTrafficOnLargeLot() {
+        int numberOfSpots = 100_000;
+        for (AllocationStrategy allocationStrategy : AllocationStrategy.values()) {
+            SpotAllocationStrategy strategy = StrategySpotAllocator.newStrategy(allocationStrategy);
+            Random random = new Random(42);
+            for (int number = 1; number <= numberOfSpots; number++) {
+                ParkingSpot parkingSpot = spot(number, "Z" + (number % 20), number % 8, random.nextInt(1000), true);
+                strategy.addSpot(parkingSpot);
+            }
+            boolean[] taken = new boolean[numberOfSpots + 1];
+            List<Integer> parked = new ArrayList<>();
+            for (int i = 0; i < 300_000; i++) {
+                if (parked.isEmpty() || random.nextInt(3) > 0) {
+                    ParkingSpot parkingSpot = strategy.take();
+                    if (parkingSpot == null) {
+                        assertEquals(numberOfSpots, parked.size(), allocationStrategy + " must only run dry on a full lot");
+                        continue;
+                    }
+                    assertFalse(taken[parkingSpot.getId()], allocationStrategy + " must not hand out a taken spot");
+                    taken[parkingSpot.getId()] = true;
+                    parked.add(parkingSpot.getId());
+                } else {
+                    int index = random.nextInt(parked.size());
+                    int leaving = parked.get(index);
+                    parked.set(index, parked.get(parked.size() - 1));
+                    parked.remove(parked.size() - 1);
+                    taken[leaving] = false;
+                    assertTrue(strategy.release(leaving));
+                }
+            }
+            assertEquals(numberOfSpots - parked.size(), strategy.getFreeSpots(), allocationStrategy + " free spots");
+        }
+    }
+}
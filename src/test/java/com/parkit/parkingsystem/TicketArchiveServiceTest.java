@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import com.parkit.parkingsystem.service.TicketArchiveService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketArchiveServiceTest {
+
+    @Mock
+    private TicketArchiveDAO ticketArchiveDAO;
+
+    private TicketArchiveService ticketArchiveService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        ticketArchiveService = new TicketArchiveService(ticketArchiveDAO, 10, 0);
+    }
+
+    @Test
+    public void archiveClosedTicketsUntilPartialBatch() {
+        when(ticketArchiveDAO.archiveClosedTickets(any(Date.class), eq(10))).thenReturn(10, 10, 3);
+
+        int archivedTickets = ticketArchiveService.archiveClosedTickets(30);
+
+        verify(ticketArchiveDAO, times(3)).archiveClosedTickets(any(Date.class), eq(10));
+        assertEquals(23, archivedTickets, "All the batches must be counted");
+    }
+
+    @Test
+    public void archiveClosedTicketsWithNothingToArchive() {
+        when(ticketArchiveDAO.archiveClosedTickets(any(Date.class), eq(10))).thenReturn(0);
+
+        int archivedTickets = ticketArchiveService.archiveClosedTickets(30);
+
+        verify(ticketArchiveDAO, times(1)).archiveClosedTickets(any(Date.class), eq(10));
+        assertEquals(0, archivedTickets, "No ticket must be archived");
+    }
+
+    @Test
+    public void archiveClosedTicketsUsesRetentionWindowAsCutoff() {
+        when(ticketArchiveDAO.archiveClosedTickets(any(Date.class), eq(10))).thenAnswer(invocation -> {
+            Date cutoff = invocation.getArgument(0);
+            long expectedCutoff = System.currentTimeMillis() - 30L * 24 * 60 * 60 * 1000;
+            assertEquals(expectedCutoff, cutoff.getTime(), 60 * 1000, "The cutoff must be 30 days ago");
+            return 0;
+        });
+
+        ticketArchiveService.archiveClosedTickets(30);
+    }
+
+    @Test
+    public void archiveClosedTicketsCutoffFromClock() {
+        Instant now = Instant.parse("2024-03-31T12:00:00Z");
+        ticketArchiveService.setClock(Clock.fixed(now, ZoneId.of("UTC")));
+        when(ticketArchiveDAO.archiveClosedTickets(any(Date.class), eq(10))).thenReturn(0);
+
+        ticketArchiveService.archiveClosedTickets(30);
+
+        verify(ticketArchiveDAO).archiveClosedTickets(eq(Date.from(Instant.parse("2024-03-01T12:00:00Z"))), eq(10));
+    }
+
+    @Test
+    public void invalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new TicketArchiveService(ticketArchiveDAO, 0, 0));
+    }
+}
@@ -0,0 +1,209 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketExportDAO;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketDAOTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+
+    private Ticket ticket;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        lenient().when(dataBaseConfig.getConnection()).thenReturn(connection);
+        lenient().when(dataBaseConfig.getReadConnection()).thenReturn(connection);
+        lenient().when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        lenient().when(connection.prepareStatement(anyString(), anyInt())).thenReturn(preparedStatement);
+        ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(System.currentTimeMillis() - 3_600_000));
+        ticket.setOutTime(new Date());
+        ticket.setPrice(1.5);
+    }
+
+    private TicketDAO ticketDAO() {
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.rollupDAO = mock(RollupDAO.class);
+        return ticketDAO;
+    }
+
+    @Test
+    public void saveTicketClosesStatement() throws Exception {
+        ticketDAO().saveTicket(ticket);
+
+        verify(connection).prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+        verify(preparedStatement).close();
+        verify(dataBaseConfig).closeConnection(connection);
+    }
+
+    @Test
+    public void saveTicketSetsGeneratedId() throws Exception {
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(42);
+
+        assertTrue(ticketDAO().saveTicket(ticket));
+        assertEquals(42, ticket.getId(), "The events of the ticket must carry its generated ID");
+        verify(resultSet).close();
+    }
+
+    @Test
+    public void updateTicketClosesStatementOnError() throws Exception {
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("Lock wait timeout exceeded"));
+
+        assertFalse(ticketDAO().updateTicket(ticket));
+        verify(preparedStatement).close();
+        verify(dataBaseConfig).discardConnection(connection);
+        verify(dataBaseConfig).closeConnection(connection);
+    }
+
+    @Test
+    public void exportClosesStreamingCursorWhenHandlerFails() throws Exception {
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getString(4)).thenReturn("CAR");
+        when(resultSet.getTimestamp(7)).thenReturn(new Timestamp(0));
+        TicketExportDAO ticketExportDAO = new TicketExportDAO();
+        ticketExportDAO.dataBaseConfig = dataBaseConfig;
+
+        assertEquals(-1, ticketExportDAO.exportTickets(row -> {
+            throw new IOException("Disk full");
+        }));
+        verify(resultSet).close();
+        verify(preparedStatement).close();
+        verify(dataBaseConfig).discardConnection(connection);
+    }
+
+    @Test
+    public void updateTicketAlreadyClosedRejected() throws Exception {
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+        TicketDAO ticketDAO = ticketDAO();
+
+        assertFalse(ticketDAO.updateTicket(ticket), "A ticket closed at another gate must not be closed again");
+        verify(ticketDAO.rollupDAO, never()).recordTicketClosed(any(), any());
+        verify(preparedStatement).close();
+    }
+
+    @Test
+    public void updateTicketCommitsTicketWithItsRollups() throws Exception {
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        TicketDAO ticketDAO = ticketDAO();
+
+        assertTrue(ticketDAO.updateTicket(ticket));
+        InOrder inOrder = inOrder(connection, preparedStatement, ticketDAO.rollupDAO);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(preparedStatement).executeUpdate();
+        inOrder.verify(ticketDAO.rollupDAO).recordTicketClosed(connection, ticket);
+        inOrder.verify(connection).commit();
+    }
+
+    @Test
+    public void getNbTicketClosesStatementAndResultSet() throws Exception {
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(3);
+
+        assertEquals(3, ticketDAO().getNbTicket("ABCDEF"));
+        verify(resultSet).close();
+        verify(preparedStatement).close();
+    }
+
+    @Test
+    public void updateParkingClosesStatementOnError() throws Exception {
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("Lock wait timeout exceeded"));
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+
+        assertFalse(parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false)));
+        verify(preparedStatement).close();
+        verify(dataBaseConfig).closeConnection(connection);
+    }
+
+    @Test
+    public void updateParkingRecordsPeakFromOccupancyCounters() throws Exception {
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.rollupDAO = mock(RollupDAO.class);
+        parkingSpotDAO.occupancyCounter.reconcile(new Occupancy(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR, 3, 2));
+        parkingSpotDAO.occupancyCounter.reconcile(new Occupancy(2, ParkingType.CAR, 3, 1));
+
+        assertTrue(parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false)));
+        verify(parkingSpotDAO.rollupDAO).recordOccupancy(eq(connection), eq(ParkingType.CAR), eq(4), any(Date.class));
+        verify(connection, never()).prepareStatement(DBConstants.GET_OCCUPANCY);
+    }
+
+    @Test
+    public void updateParkingLoadsCountersBeforeFirstPeak() throws Exception {
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        lenient().when(resultSet.getInt(1)).thenReturn(ParkingSpot.DEFAULT_FACILITY_ID);
+        when(resultSet.getString(2)).thenReturn("CAR");
+        lenient().when(resultSet.getInt(3)).thenReturn(10);
+        lenient().when(resultSet.getInt(4)).thenReturn(6);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.rollupDAO = mock(RollupDAO.class);
+
+        assertTrue(parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false)));
+        assertTrue(parkingSpotDAO.updateParking(new ParkingSpot(2, ParkingType.CAR, false)));
+
+        verify(parkingSpotDAO.rollupDAO).recordOccupancy(eq(connection), eq(ParkingType.CAR), eq(6), any(Date.class));
+        verify(parkingSpotDAO.rollupDAO).recordOccupancy(eq(connection), eq(ParkingType.CAR), eq(7), any(Date.class));
+        verify(connection, times(1)).prepareStatement(DBConstants.GET_OCCUPANCY);
+    }
+
+    @Test
+    public void releaseOfFreeSpotNotCounted() throws Exception {
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.occupancyCounter.reconcile(new Occupancy(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR, 3, 2));
+
+        assertFalse(parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, true)), "A spot already free must not be released again");
+
+        verify(connection).prepareStatement(DBConstants.RELEASE_PARKING_SPOT);
+        assertEquals(2, parkingSpotDAO.occupancyCounter.getOccupiedSpots(ParkingSpot.DEFAULT_FACILITY_ID, ParkingType.CAR));
+    }
+}
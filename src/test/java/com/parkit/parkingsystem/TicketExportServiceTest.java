@@ -0,0 +1,145 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketExportDAO;
+import com.parkit.parkingsystem.dao.TicketRowHandler;
+import com.parkit.parkingsystem.model.TicketRow;
+import com.parkit.parkingsystem.service.TicketColumnarExporter;
+import com.parkit.parkingsystem.service.TicketCsvExporter;
+import com.parkit.parkingsystem.service.TicketExportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketExportServiceTest {
+
+    @Mock
+    private TicketExportDAO ticketExportDAO;
+
+    private TicketExportService ticketExportService;
+    private Path file;
+    private long inTime;
+    private long outTime;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        ticketExportService = new TicketExportService(ticketExportDAO);
+        file = Files.createTempFile("tickets", ".export");
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.MARCH, 5, 8, 3, 9);
+        inTime = calendar.getTimeInMillis();
+        outTime = inTime + 90 * 60 * 1000;
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    // Makes the mocked DAO stream the given number of rows, alternating closed car tickets and open bike tickets.
+    private void streamRows(int numberOfRows) {
+        when(ticketExportDAO.exportTickets(any(TicketRowHandler.class))).thenAnswer(invocation -> {
+            TicketRowHandler handler = invocation.getArgument(0);
+            TicketRow row = new TicketRow();
+            for (int i = 1; i <= numberOfRows; i++) {
+                boolean closed = (i % 2 == 1);
+                row.setId(i);
+                row.setFacilityId(1);
+                row.setParkingNumber(closed ? 1 : 4);
+                row.setParkingType(closed ? ParkingType.CAR : ParkingType.BIKE);
+                row.setVehicleRegNumber(closed ? "AB-123" : "X,Y");
+                row.setPrice(closed ? 2.2500001 : 0);
+                row.setInTime(inTime);
+                row.setOutTime(closed ? outTime : TicketRow.NO_OUT_TIME);
+                handler.onRow(row);
+            }
+            return (long) numberOfRows;
+        });
+    }
+
+    @Test
+    public void exportCsv() throws Exception {
+        streamRows(2);
+
+        assertEquals(2, ticketExportService.exportCsv(file));
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        assertEquals(3, lines.size());
+        assertEquals(TicketCsvExporter.HEADER.trim(), lines.get(0));
+        assertEquals("1,1,1,CAR,AB-123,2.25,2024-03-05 08:03:09,2024-03-05 09:33:09", lines.get(1));
+        assertEquals("2,1,4,BIKE,\"X,Y\",0.00,2024-03-05 08:03:09,", lines.get(2), "Plates with a comma must be quoted");
+    }
+
+    @Test
+    public void exportCsvLargerThanBuffer() throws Exception {
+        streamRows(5000);
+
+        assertEquals(5000, ticketExportService.exportCsv(file));
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        assertEquals(5001, lines.size());
+        assertTrue(lines.get(5000).startsWith("5000,1,4,BIKE,"));
+    }
+
+    @Test
+    public void exportColumnar() throws Exception {
+        int numberOfRows = TicketColumnarExporter.ROWS_PER_GROUP + 3;
+        streamRows(numberOfRows);
+
+        assertEquals(numberOfRows, ticketExportService.exportColumnar(file));
+
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(TicketColumnarExporter.MAGIC, content.getInt());
+        assertEquals(TicketColumnarExporter.VERSION, content.getInt());
+
+        assertEquals(TicketColumnarExporter.ROWS_PER_GROUP, content.getInt(), "The first group must be full");
+        int groupRows = TicketColumnarExporter.ROWS_PER_GROUP;
+        assertEquals(1, content.getInt(content.position()), "The first id must be 1");
+        content.position(content.position() + groupRows * (3 * Integer.BYTES + 1 + Double.BYTES + 2 * Long.BYTES));
+        int plateBytes = 0;
+        for (int i = 0; i < groupRows; i++) {
+            plateBytes += content.get();
+        }
+        content.position(content.position() + plateBytes);
+
+        assertEquals(3, content.getInt(), "The second group must hold the remaining rows");
+        int[] ids = {content.getInt(), content.getInt(), content.getInt()};
+        assertArrayEquals(new int[]{4097, 4098, 4099}, ids);
+        assertEquals(1, content.getInt(), "The facility must be exported");
+        content.position(content.position() + 5 * Integer.BYTES);
+        assertEquals(ParkingType.CAR.ordinal(), content.get());
+        assertEquals(ParkingType.BIKE.ordinal(), content.get());
+        assertEquals(ParkingType.CAR.ordinal(), content.get());
+        assertEquals(2.2500001, content.getDouble());
+        content.position(content.position() + 2 * Double.BYTES + 3 * Long.BYTES);
+        assertEquals(outTime, content.getLong());
+        assertEquals(TicketRow.NO_OUT_TIME, content.getLong(), "An open ticket must have no out time");
+        content.position(content.position() + Long.BYTES);
+        assertEquals(6, content.get());
+        assertEquals(3, content.get());
+        assertEquals(6, content.get());
+        byte[] firstPlate = new byte[6];
+        content.get(firstPlate);
+        assertEquals("AB-123", new String(firstPlate, StandardCharsets.US_ASCII));
+        content.position(content.position() + 9);
+
+        assertEquals(0, content.getInt(), "An empty group must end the file");
+        assertFalse(content.hasRemaining());
+    }
+}
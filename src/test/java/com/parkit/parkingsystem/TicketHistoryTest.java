@@ -0,0 +1,125 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketHistoryCursor;
+import com.parkit.parkingsystem.model.TicketHistoryPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketHistoryTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    // Rows of ABCDEF as {ID, IN_TIME}; tickets 4 and 5 entered in the same second.
+    private final long[][] rows = {{1, 1 * HOUR}, {2, 2 * HOUR}, {3, 3 * HOUR}, {4, 4 * HOUR}, {5, 4 * HOUR}, {6, 6 * HOUR}, {7, 7 * HOUR}};
+    private final Map<Integer, Object> parameters = new HashMap<>();
+    private int executedQueries;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        lenient().when(dataBaseConfig.getReadConnection()).thenReturn(connection);
+        lenient().when(connection.prepareStatement(DBConstants.GET_TICKET_HISTORY_PAGE)).thenReturn(preparedStatement);
+        lenient().doAnswer(invocation -> parameters.put(invocation.getArgument(0), invocation.getArgument(1))).when(preparedStatement).setString(anyInt(), anyString());
+        lenient().doAnswer(invocation -> parameters.put(invocation.getArgument(0), invocation.getArgument(1))).when(preparedStatement).setTimestamp(anyInt(), any(Timestamp.class));
+        lenient().doAnswer(invocation -> parameters.put(invocation.getArgument(0), invocation.getArgument(1))).when(preparedStatement).setInt(anyInt(), anyInt());
+        lenient().when(preparedStatement.executeQuery()).thenAnswer(invocation -> seek());
+    }
+
+    // Plays the history query on the rows: seeks strictly after the (IN_TIME, ID) cursor, newest first.
+    private ResultSet seek() throws Exception {
+        executedQueries++;
+        long cursorInTime = ((Timestamp) parameters.get(2)).getTime();
+        int cursorId = (Integer) parameters.get(4);
+        int limit = (Integer) parameters.get(11);
+        List<long[]> result = new ArrayList<>();
+        for (int i = rows.length - 1; i >= 0 && result.size() < limit; i--) {
+            long[] row = rows[i];
+            if (row[1] < cursorInTime || (row[1] == cursorInTime && row[0] < cursorId)) {
+                result.add(row);
+            }
+        }
+        int[] position = {-1};
+        // A proxy rather than a mock, since stubbing is not allowed while the executeQuery answer runs.
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, arguments) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++position[0] < result.size();
+                case "getInt":
+                    return ((Integer) arguments[0] == 1) ? (int) result.get(position[0])[0] : 1;
+                case "getString":
+                    return ((Integer) arguments[0] == 4) ? "CAR" : null;
+                case "getDouble":
+                    return 0.0;
+                case "getTimestamp":
+                    return ((Integer) arguments[0] == 7) ? new Timestamp(result.get(position[0])[1]) : null;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @Test
+    public void pagesSeekAfterLastTicket() {
+        TicketHistoryPage firstPage = ticketDAO.getTicketHistory("ABCDEF", TicketHistoryCursor.FIRST, 3);
+        TicketHistoryPage secondPage = ticketDAO.getTicketHistory("ABCDEF", firstPage.getNextCursor(), 3);
+        TicketHistoryPage lastPage = ticketDAO.getTicketHistory("ABCDEF", secondPage.getNextCursor(), 3);
+
+        assertEquals(7, firstPage.getTickets().get(0).getId());
+        assertEquals(5, firstPage.getTickets().get(2).getId());
+        assertEquals(4, secondPage.getTickets().get(0).getId(), "A ticket sharing the IN_TIME of the cursor must not be skipped");
+        assertEquals(2, secondPage.getTickets().get(2).getId());
+        assertEquals(1, lastPage.getTickets().size());
+        assertFalse(lastPage.hasNext());
+        assertEquals(4, parameters.get(11), "Only one extra row must be read per page");
+    }
+
+    @Test
+    public void iteratorStreamsWholeHistory() {
+        Iterator<Ticket> history = ticketDAO.iterateTicketHistory("ABCDEF", 2);
+
+        List<Integer> ids = new ArrayList<>();
+        history.forEachRemaining(ticket -> ids.add(ticket.getId()));
+
+        assertEquals(7, ids.size());
+        assertEquals(7, (int) ids.get(0));
+        assertEquals(1, (int) ids.get(6));
+        assertEquals(4, executedQueries);
+    }
+
+    @Test
+    public void pageSizeBounded() {
+        assertThrows(IllegalArgumentException.class, () -> ticketDAO.getTicketHistory("ABCDEF", TicketHistoryCursor.FIRST, TicketDAO.MAX_HISTORY_PAGE_SIZE + 1));
+    }
+}
@@ -0,0 +1,160 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.dao.TicketImportDAO;
+import com.parkit.parkingsystem.model.TicketImportChunk;
+import com.parkit.parkingsystem.model.TicketImportReport;
+import com.parkit.parkingsystem.model.TicketRow;
+import com.parkit.parkingsystem.service.TicketColumnarExporter;
+import com.parkit.parkingsystem.service.TicketColumnarReader;
+import com.parkit.parkingsystem.service.TicketCsvExporter;
+import com.parkit.parkingsystem.service.TicketCsvReader;
+import com.parkit.parkingsystem.service.TicketImportService;
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TicketImportServiceTest {
+
+    private static final long IN_TIME = 1_700_000_000_000L;
+
+    private final InMemoryTicketImportDAO ticketImportDAO = new InMemoryTicketImportDAO();
+    private final RollupDAO rollupDAO = mock(RollupDAO.class);
+    private Path file;
+
+    // Keeps the committed chunks and their plates in memory, and can fail the commit of one chunk once.
+    private static class InMemoryTicketImportDAO extends TicketImportDAO {
+        private final BitSet committedChunks = new BitSet();
+        private final List<String> importedPlates = Collections.synchronizedList(new ArrayList<>());
+        private final Set<Integer> failingChunks = Collections.synchronizedSet(new HashSet<>());
+
+        @Override
+        public LongIntHashMap getSpotTypes() {
+            LongIntHashMap spotTypes = new LongIntHashMap(16, NO_SPOT);
+            spotTypes.put(spotKey(1, 1), ParkingType.CAR.ordinal() + 1);
+            spotTypes.put(spotKey(1, 4), ParkingType.BIKE.ordinal() + 1);
+            return spotTypes;
+        }
+
+        @Override
+        public synchronized BitSet getImportedChunks(String importId) {
+            return (BitSet) committedChunks.clone();
+        }
+
+        @Override
+        public boolean importChunk(String importId, TicketImportChunk chunk) {
+            if (failingChunks.remove(chunk.getIndex())) {
+                return false;
+            }
+            synchronized (this) {
+                committedChunks.set(chunk.getIndex());
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                importedPlates.add(chunk.getVehicleRegNumber(i));
+            }
+            return true;
+        }
+    }
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        file = Files.createTempFile("tickets", ".import");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    private static TicketRow row(int i, int parkingNumber, ParkingType parkingType, String vehicleRegNumber, long outTime) {
+        TicketRow row = new TicketRow();
+        row.setId(i);
+        row.setFacilityId(1);
+        row.setParkingNumber(parkingNumber);
+        row.setParkingType(parkingType);
+        row.setVehicleRegNumber(vehicleRegNumber);
+        row.setPrice(1.5);
+        row.setInTime(IN_TIME + i * 1000L);
+        row.setOutTime(outTime);
+        return row;
+    }
+
+    @Test
+    public void importCsvValidatesRowsAgainstSpots() throws Exception {
+        try (TicketCsvExporter exporter = new TicketCsvExporter(file)) {
+            exporter.onRow(row(1, 1, ParkingType.CAR, "ab-123", IN_TIME + 3_600_000));
+            exporter.onRow(row(2, 4, ParkingType.BIKE, "X,Y", IN_TIME + 3_600_000));
+            exporter.onRow(row(3, 9, ParkingType.CAR, "CD456", IN_TIME + 3_600_000));
+            exporter.onRow(row(4, 4, ParkingType.CAR, "EF789", IN_TIME + 3_600_000));
+            exporter.onRow(row(5, 1, ParkingType.CAR, "GH012", TicketRow.NO_OUT_TIME));
+            exporter.onRow(row(6, 4, ParkingType.BIKE, "IJ345", IN_TIME + 3_600_000));
+        }
+        Files.write(file, "not,a,ticket\n".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        TicketImportReport report = new TicketImportService(ticketImportDAO, rollupDAO, 4, 2).importTickets("legacy", new TicketCsvReader(file));
+
+        assertEquals(7, report.getReadRows());
+        assertEquals(2, report.getImportedRows());
+        assertEquals(Arrays.asList("AB123", "IJ345"), sorted(ticketImportDAO.importedPlates));
+        assertEquals(1, report.getInvalidPlates());
+        assertEquals(2, report.getUnknownSpots(), "A missing spot or a spot of another type is rejected");
+        assertEquals(1, report.getInvalidStays());
+        assertEquals(1, report.getMalformedRows());
+        verify(rollupDAO).rebuildRollups();
+    }
+
+    @Test
+    public void failedImportResumesFromCheckpoints() throws Exception {
+        try (TicketColumnarExporter exporter = new TicketColumnarExporter(file)) {
+            for (int i = 0; i < 10_000; i++) {
+                exporter.onRow(row(i, (i % 2 == 0) ? 1 : 4, (i % 2 == 0) ? ParkingType.CAR : ParkingType.BIKE, "V" + i, IN_TIME + i * 1000L + 60_000));
+            }
+        }
+        TicketImportService ticketImportService = new TicketImportService(ticketImportDAO, rollupDAO, 1000, 4);
+        ticketImportDAO.failingChunks.add(3);
+        ticketImportDAO.failingChunks.add(7);
+
+        TicketImportReport firstRun = ticketImportService.importTickets("legacy", new TicketColumnarReader(file));
+        TicketImportReport secondRun = ticketImportService.importTickets("legacy", new TicketColumnarReader(file));
+
+        assertEquals(8_000, firstRun.getImportedRows());
+        assertEquals(2, firstRun.getFailedChunks());
+        assertEquals(2_000, secondRun.getImportedRows());
+        assertEquals(8_000, secondRun.getSkippedRows());
+        assertEquals(10_000, new HashSet<>(ticketImportDAO.importedPlates).size());
+        assertEquals(10_000, ticketImportDAO.importedPlates.size(), "No ticket may be imported twice");
+        assertTrue(secondRun.getRowsPerSecond() > 0);
+    }
+
+    @Test
+    public void importNotStartedWithoutSpots() throws Exception {
+        TicketImportDAO unavailableDAO = mock(TicketImportDAO.class);
+
+        assertNull(new TicketImportService(unavailableDAO, rollupDAO).importTickets("legacy", new TicketCsvReader(file)));
+        verify(unavailableDAO, never()).importChunk(anyString(), any(TicketImportChunk.class));
+        verifyNoMoreInteractions(rollupDAO);
+    }
+
+    private static List<String> sorted(List<String> plates) {
+        List<String> sorted = new ArrayList<>(plates);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,157 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.LedgerEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.LedgerDAO;
+import com.parkit.parkingsystem.dao.LedgerEventHandler;
+import com.parkit.parkingsystem.model.LedgerEvent;
+import com.parkit.parkingsystem.model.LedgerSnapshot;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.TicketLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketLedgerTest {
+
+    private InMemoryLedgerDAO ledgerDAO;
+    private TicketLedger ticketLedger;
+
+    // Ledger of one facility kept in a list, rejecting appends from a stale position like the (FACILITY_ID, SEQ) key.
+    private static class InMemoryLedgerDAO extends LedgerDAO {
+        private final List<LedgerEvent> events = new ArrayList<>();
+        private final List<LedgerSnapshot> snapshots = new ArrayList<>();
+        private long lastReadFrom = -1;
+
+        @Override
+        public synchronized boolean appendEvents(int facilityId, long lastSeq, List<LedgerEvent> appendedEvents) {
+            if (lastSeq != events.size()) {
+                return false;
+            }
+            for (LedgerEvent event : appendedEvents) {
+                event.setSeq(events.size() + 1);
+                LedgerEvent stored = new LedgerEvent();
+                stored.setSeq(event.getSeq());
+                stored.setType(event.getType());
+                stored.setFacilityId(facilityId);
+                stored.setParkingNumber(event.getParkingNumber());
+                stored.setParkingType(event.getParkingType());
+                stored.setTicketId(event.getTicketId());
+                stored.setVehicleRegNumber(event.getVehicleRegNumber());
+                stored.setPrice(event.getPrice());
+                stored.setTime(event.getTime());
+                events.add(stored);
+            }
+            return true;
+        }
+
+        @Override
+        public synchronized long readEvents(int facilityId, long afterSeq, LedgerEventHandler handler) {
+            lastReadFrom = afterSeq;
+            for (int i = (int) afterSeq; i < events.size(); i++) {
+                handler.onEvent(events.get(i));
+            }
+            return events.size() - afterSeq;
+        }
+
+        @Override
+        public synchronized boolean saveSnapshot(LedgerSnapshot snapshot) {
+            snapshots.add(snapshot);
+            return true;
+        }
+
+        @Override
+        public synchronized LedgerSnapshot getLatestSnapshot(int facilityId) {
+            return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+        }
+    }
+
+    @BeforeEach
+    private void setUpPerTest() {
+        ledgerDAO = new InMemoryLedgerDAO();
+        ticketLedger = new TicketLedger(ledgerDAO, 1, 3);
+        ticketLedger.recover();
+    }
+
+    private Ticket enter(TicketLedger ledger, String vehicleRegNumber, ParkingSpot parkingSpot) {
+        assertTrue(ledger.claimSpot(parkingSpot, 0));
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(1_000));
+        assertTrue(ledger.openTicket(ticket));
+        return ticket;
+    }
+
+    @Test
+    public void ticketLifecycleOnlyAppends() {
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket ticket = enter(ticketLedger, "ABCDEF", parkingSpot);
+
+        assertEquals(2, ticket.getId(), "The ticket ID must be the SEQ of its opening event");
+        assertTrue(ticketLedger.isClaimed(1));
+        assertEquals(1, ticketLedger.getVisitCount("ABCDEF"));
+
+        Ticket openTicket = ticketLedger.getOpenTicket("ABCDEF");
+        openTicket.setOutTime(new Date(3_600_000));
+        openTicket.setPrice(1.5);
+        assertNull(ticketLedger.getOpenTicket("ABCDEF").getOutTime(), "The projection must not be altered through a returned ticket");
+        assertTrue(ticketLedger.closeTicket(openTicket));
+        assertTrue(ticketLedger.releaseSpot(parkingSpot, 3_600_000));
+
+        assertNull(ticketLedger.getOpenTicket("ABCDEF"));
+        assertFalse(ticketLedger.isClaimed(1));
+        assertEquals(LedgerEventType.TICKET_PRICED, ledgerDAO.events.get(2).getType());
+        assertEquals(1.5, ledgerDAO.events.get(2).getPrice());
+        assertEquals(LedgerEventType.TICKET_CLOSED, ledgerDAO.events.get(3).getType());
+        assertEquals(5, ledgerDAO.events.size());
+    }
+
+    @Test
+    public void closingTicketNotOpenRejected() {
+        Ticket ticket = enter(ticketLedger, "ABCDEF", new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setId(ticket.getId() + 1);
+        ticket.setOutTime(new Date(3_600_000));
+
+        assertFalse(ticketLedger.closeTicket(ticket));
+        assertEquals(2, ledgerDAO.events.size());
+    }
+
+    @Test
+    public void staleNodeCatchesUpBeforeClaiming() {
+        TicketLedger otherNode = new TicketLedger(ledgerDAO, 1, 100);
+        otherNode.recover();
+        enter(ticketLedger, "ABCDEF", new ParkingSpot(1, ParkingType.CAR, false));
+
+        assertFalse(otherNode.claimSpot(new ParkingSpot(1, ParkingType.CAR, false), 0), "A spot claimed by another node must not be claimed again");
+        assertTrue(otherNode.claimSpot(new ParkingSpot(2, ParkingType.CAR, false), 0));
+        assertEquals(3, ledgerDAO.events.get(2).getSeq());
+        assertNotNull(otherNode.getOpenTicket("ABCDEF"), "The stale node must have applied the events it missed");
+    }
+
+    @Test
+    public void recoversFromSnapshotAndReplaysTail() {
+        enter(ticketLedger, "ABCDEF", new ParkingSpot(1, ParkingType.CAR, false));
+        enter(ticketLedger, "GHIJKL", new ParkingSpot(2, ParkingType.CAR, false));
+        enter(ticketLedger, "MNOPQR", new ParkingSpot(4, ParkingType.BIKE, false));
+        assertEquals(2, ledgerDAO.snapshots.size(), "A snapshot must be taken every 3 events");
+
+        TicketLedger restarted = new TicketLedger(ledgerDAO, 1, 3);
+        restarted.recover();
+
+        assertEquals(6, ledgerDAO.lastReadFrom, "Only the events after the latest snapshot must be replayed");
+        assertEquals(6, restarted.getLastSeq());
+        assertTrue(restarted.isClaimed(4));
+        assertEquals(1, restarted.getVisitCount("ABCDEF"));
+        assertEquals(6, restarted.getOpenTicket("MNOPQR").getId());
+        assertEquals(ParkingType.BIKE, restarted.getOpenTicket("MNOPQR").getParkingSpot().getParkingType());
+        assertEquals(3, restarted.getOpenTickets().size());
+        assertFalse(restarted.openTicket(restarted.getOpenTicket("ABCDEF")), "A vehicle must not hold two open tickets");
+    }
+}
@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.TicketDAO;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+// Server work and latency of the gate reads with and without the connection pool, from the global status counters of
+// a MySQL server no other client uses. Needs the test database of Data.sql, so this runs on demand:
+// mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.parkit.parkingsystem.benchmark.DataBaseRoundTripBenchmark
+public class DataBaseRoundTripBenchmark {
+
+    private static final String[] COUNTERS = {"Connections", "Questions", "Com_stmt_prepare", "Com_stmt_execute"};
+
+    public static void main(String[] args) throws Exception {
+        int numberOfCalls = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000;
+        String url = (args.length > 1) ? args[1] : "jdbc:mysql://localhost:3306/test";
+        DataBaseConfig dataBaseConfig = new DataBaseConfig();
+        dataBaseConfig.setPrimaryUrl(url);
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ConnectionPool connectionPool = DataBaseConfig.getConnectionPool();
+        int maxIdleConnections = connectionPool.getMaxIdleConnections();
+
+        try (Connection statusConnection = openStatusConnection(url)) {
+            connectionPool.setMaxIdleConnections(0);
+            run("Without pool", ticketDAO, numberOfCalls, statusConnection);
+            connectionPool.setMaxIdleConnections(maxIdleConnections);
+            run("With pool", ticketDAO, numberOfCalls, statusConnection);
+        } finally {
+            connectionPool.closeIdleConnections();
+        }
+    }
+
+    // Each call is an exit check: the open ticket of the vehicle, then its visit count.
+    private static void run(String label, TicketDAO ticketDAO, int numberOfCalls, Connection statusConnection) throws SQLException {
+        ticketDAO.getTicket("ABCDEF");
+        Map<String, Long> before = readCounters(statusConnection);
+        long start = System.nanoTime();
+        for (int i = 0; i < numberOfCalls; i++) {
+            ticketDAO.getTicket("ABCDEF");
+            ticketDAO.getNbTicket("ABCDEF");
+        }
+        long elapsedMicros = (System.nanoTime() - start) / 1_000;
+        Map<String, Long> after = readCounters(statusConnection);
+        StringBuilder report = new StringBuilder(label).append(": ").append(elapsedMicros / numberOfCalls).append(" us per call");
+        for (String counter : COUNTERS) {
+            // The status query itself counts as one question.
+            long delta = after.get(counter) - before.get(counter) - ("Questions".equals(counter) ? 1 : 0);
+            report.append(", ").append(counter).append(' ').append(String.format("%.2f", (double) delta / numberOfCalls));
+        }
+        System.out.println(report.append(" per call"));
+    }
+
+    private static Connection openStatusConnection(String url) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", "root");
+        properties.setProperty("password", "rootroot");
+        return DriverManager.getConnection(url, properties);
+    }
+
+    private static Map<String, Long> readCounters(Connection con) throws SQLException {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("show global status where Variable_name in ('Connections', 'Questions', 'Com_stmt_prepare', 'Com_stmt_execute')")) {
+            while (rs.next()) {
+                counters.put(rs.getString(1), rs.getLong(2));
+            }
+        }
+        return counters;
+    }
+}
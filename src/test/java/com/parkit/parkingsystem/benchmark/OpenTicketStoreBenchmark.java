@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.OpenTicketStore;
+import com.parkit.parkingsystem.util.PlateCodec;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Footprint and GC comparison of the open ticket store against the Ticket model. Heap measurements depend on the JVM
+// and its collector, so this runs on demand instead of in the test suite:
+// mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.parkit.parkingsystem.benchmark.OpenTicketStoreBenchmark
+public class OpenTicketStoreBenchmark {
+
+    public static void main(String[] args) {
+        int numberOfTickets = (args.length > 0) ? Integer.parseInt(args[0]) : 200_000;
+
+        long baseline = usedHeap();
+        List<Ticket> tickets = new ArrayList<>(numberOfTickets);
+        long gcBefore = gcCount();
+        for (int i = 0; i < numberOfTickets; i++) {
+            tickets.add(ticket(i, "P" + i, i, i));
+        }
+        long ticketsGc = gcCount() - gcBefore;
+        long ticketsHeap = usedHeap() - baseline;
+        // Keeps the tickets reachable until measured.
+        System.out.println("Ticket model: " + ticketsHeap / tickets.size() + " heap bytes per stay, " + ticketsGc + " collections");
+        tickets.clear();
+
+        baseline = usedHeap();
+        OpenTicketStore store = new OpenTicketStore(numberOfTickets);
+        gcBefore = gcCount();
+        for (int i = 0; i < numberOfTickets; i++) {
+            store.put(PlateCodec.encode("P" + i), i, i, 1, i, ParkingType.CAR);
+        }
+        long storeGc = gcCount() - gcBefore;
+        long storeHeap = usedHeap() - baseline;
+        System.out.println("Open ticket store: " + storeHeap / store.size() + " heap bytes and "
+                + store.getOffHeapBytes() / store.getCapacity() + " off heap bytes per stay, " + storeGc + " collections");
+    }
+
+    private static Ticket ticket(int id, String vehicleRegNumber, int parkingNumber, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(1, null, parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The conditions the gates rely on when they race, checked on MySQL: a spot is claimed and a ticket opened or closed once.
+public class ParkingConcurrencyIT {
+
+    private static final int THREADS = 8;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static ParkingSpotDAO parkingSpotDAO;
+    private static TicketDAO ticketDAO;
+    private static DataBasePrepareService dataBasePrepareService;
+
+    @BeforeAll
+    private static void setUp() {
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        dataBasePrepareService = new DataBasePrepareService();
+    }
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBasePrepareService.clearDataBaseEntries();
+    }
+
+    // Runs the call on every thread at once and returns how many threads got true.
+    private static int countSuccesses(Callable<Boolean> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            int successes = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    successes++;
+                }
+            }
+            return successes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Ticket openTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(System.currentTimeMillis() - 3_600_000));
+        return ticket;
+    }
+
+    @Test
+    public void spotClaimedByOneGateOnly() throws Exception {
+        assertEquals(1, countSuccesses(() -> parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false))));
+        assertEquals(2, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void oneOpenTicketPerVehicle() throws Exception {
+        assertEquals(1, countSuccesses(() -> ticketDAO.saveTicket(openTicket("ABCDEF"))));
+        assertEquals(1, ticketDAO.getNbTicket("ABCDEF"));
+    }
+
+    @Test
+    public void ticketClosedOnce() throws Exception {
+        assertTrue(ticketDAO.saveTicket(openTicket("ABCDEF")));
+        Ticket ticket = ticketDAO.getTicket("ABCDEF");
+        ticket.setOutTime(new Date());
+        ticket.setPrice(1.5);
+
+        assertEquals(1, countSuccesses(() -> ticketDAO.updateTicket(ticket)));
+        assertTrue(ticketDAO.saveTicket(openTicket("ABCDEF")), "A vehicle whose ticket is closed can enter again");
+    }
+}
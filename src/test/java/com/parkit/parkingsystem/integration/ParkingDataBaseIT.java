@@ -1,12 +1,18 @@
 package com.parkit.parkingsystem.integration;
 
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.RollupPeriod;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotLeaseDAO;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Rollup;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.LeasedSpotAllocator;
 import com.parkit.parkingsystem.service.ParkingService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.junit.jupiter.api.AfterAll;
@@ -108,6 +114,57 @@ public class ParkingDataBaseIT {
         assertEquals(2, ticketDAO.getNbTicket("ABCDEF"), "The number of tickets must be 2");
     }
 
+    @Test
+    public void testArchivedTicketsStillCountForRegularUser(){
+        TicketArchiveDAO ticketArchiveDAO = new TicketArchiveDAO();
+        ticketArchiveDAO.dataBaseConfig = dataBaseTestConfig;
+
+        // First parking closed two hours ago, then archived with a cutoff of one hour ago.
+        createTicketWithSimulatedInAndOutTime();
+        createTicketWithSimulatedIntime();
+
+        int archivedTickets = ticketArchiveDAO.archiveClosedTickets(new Date(System.currentTimeMillis() - 60 * 60 * 1000), 10);
+
+        assertEquals(1, archivedTickets, "Only the closed ticket must be archived");
+        assertNull(ticketDAO.getTicket("ABCDEF").getOutTime(), "The open ticket must stay in the ticket table");
+        assertEquals(2, ticketDAO.getNbTicket("ABCDEF"), "The archived ticket must still be counted");
+    }
+
+    @Test
+    public void testRollupsUpdatedAndRebuilt(){
+        RollupDAO rollupDAO = new RollupDAO();
+        rollupDAO.dataBaseConfig = dataBaseTestConfig;
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+
+        createTicketWithSimulatedIntime();
+        parkingService.processExitingVehicle();
+
+        Rollup hourlyRollup = rollupDAO.getRollup(RollupPeriod.HOUR, ParkingType.CAR, new Date());
+        assertEquals(1, hourlyRollup.getTicketCount(), "The closed ticket must be counted in the hourly rollup");
+        assertEquals(1.50, hourlyRollup.getRevenue(), 0.01, "The revenue must be the ticket price");
+
+        assertEquals(1, rollupDAO.rebuildRollups(), "One ticket must be streamed");
+        Rollup dailyRollup = rollupDAO.getRollup(RollupPeriod.DAY, ParkingType.CAR, new Date());
+        assertEquals(1, dailyRollup.getTicketCount(), "The rebuilt daily rollup must count the closed ticket");
+        assertEquals(3600, dailyRollup.getAverageStaySeconds(), 5, "The average stay must be one hour");
+    }
+
+    @Test
+    public void testSpotLeasesAreDisjointBetweenNodes(){
+        ParkingSpotLeaseDAO parkingSpotLeaseDAO = new ParkingSpotLeaseDAO();
+        parkingSpotLeaseDAO.dataBaseConfig = dataBaseTestConfig;
+        LeasedSpotAllocator firstNode = new LeasedSpotAllocator(parkingSpotLeaseDAO, ParkingSpot.DEFAULT_FACILITY_ID, "node-1", 2, 60);
+        LeasedSpotAllocator secondNode = new LeasedSpotAllocator(parkingSpotLeaseDAO, ParkingSpot.DEFAULT_FACILITY_ID, "node-2", 2, 60);
+
+        assertEquals(1, firstNode.allocate(ParkingType.CAR), "The first node must lease spots 1 and 2");
+        assertEquals(3, secondNode.allocate(ParkingType.CAR), "The second node must lease the remaining spot");
+        assertEquals(0, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR), "Leased spots must not be handed out by the DB");
+
+        firstNode.stop();
+
+        assertEquals(2, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR), "A released lease must make the spot available again");
+    }
+
     // Method to create and save a ticket with simulated inTime and outTime defined as arguments.
     private void createSimulatedTicket(Date inTime, Date outTime, double price) {
         Ticket simulatedTicket = new Ticket();
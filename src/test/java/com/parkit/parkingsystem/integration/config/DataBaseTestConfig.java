@@ -10,11 +10,16 @@ public class DataBaseTestConfig extends DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseTestConfig");
 
+    // A second local instance replicating the test database can be used with -Dparkit.test.replicaUrl.
+    public DataBaseTestConfig() {
+        setReplicaUrl(System.getProperty("parkit.test.replicaUrl"));
+    }
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
         logger.info("Create DB connection");
         Class.forName("com.mysql.cj.jdbc.Driver");
         return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/test","root","rootroot");
+                "jdbc:mysql://localhost:3306/test",connectionProperties());
     }
 
     public void closeConnection(Connection con){
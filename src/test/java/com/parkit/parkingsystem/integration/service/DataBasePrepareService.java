@@ -14,11 +14,18 @@ public class DataBasePrepareService {
             connection = dataBaseTestConfig.getConnection();
 
             //set parking entries to available
-            connection.prepareStatement("update parking set available = true").execute();
+            connection.prepareStatement("update parking set available = true, LEASE_OWNER = null, LEASE_EXPIRY = null").execute();
 
             //clear ticket entries;
             connection.prepareStatement("truncate table ticket").execute();
 
+            //clear archived tickets and visit counts
+            connection.prepareStatement("truncate table ticket_archive").execute();
+            connection.prepareStatement("truncate table vehicle_visit").execute();
+
+            //clear rollups
+            connection.prepareStatement("truncate table ticket_rollup").execute();
+
         }catch(Exception e){
             e.printStackTrace();
         }finally {